@@ -0,0 +1,182 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import javax.xml.namespace.QName;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogBuilder;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geotools.data.property.PropertyDataStoreFactory;
+import org.geotools.feature.NameImpl;
+
+/**
+ * Generates the synthetic vector data used by the benchmarks.
+ *
+ * <p>The test data shipped with GeoServer only contains a handful of features per layer, which is
+ * not enough to exercise the encoders and the renderer in a meaningful way. This class writes
+ * property files with a configurable number of point and polygon features into the data directory
+ * and registers them in the catalog, so that the benchmarks run against predictable volumes of data
+ * without requiring an external database.
+ */
+public class BenchmarkData {
+
+    /** Workspace and namespace prefix of the generated layers */
+    public static final String PREFIX = "bench";
+
+    /** Namespace URI of the generated layers */
+    public static final String URI = "http://geoserver.org/benchmarks";
+
+    /** A grid of points, carrying a string, an integer, a double and a date attribute */
+    public static final QName POINTS = new QName(URI, "Points", PREFIX);
+
+    /** A grid of square polygons covering the whole world */
+    public static final QName POLYGONS = new QName(URI, "Polygons", PREFIX);
+
+    static final String STORE_NAME = "generated";
+
+    final Catalog catalog;
+
+    final File directory;
+
+    /**
+     * Builds a new generator.
+     *
+     * @param catalog The catalog the generated layers will be registered into
+     * @param directory The directory where the property files will be written
+     */
+    public BenchmarkData(Catalog catalog, File directory) {
+        this.catalog = catalog;
+        this.directory = directory;
+    }
+
+    /**
+     * Writes the point and polygon layers, each with approximately <code>featureCount</code>
+     * features, and registers them in the catalog.
+     */
+    public void addGeneratedLayers(int featureCount) throws Exception {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(featureCount)));
+        writePoints(new File(directory, POINTS.getLocalPart() + ".properties"), side);
+        writePolygons(new File(directory, POLYGONS.getLocalPart() + ".properties"), side);
+
+        DataStoreInfo store = getOrCreateStore();
+        addLayer(store, POINTS);
+        addLayer(store, POLYGONS);
+    }
+
+    private DataStoreInfo getOrCreateStore() {
+        WorkspaceInfo ws = catalog.getWorkspaceByName(PREFIX);
+        if (ws == null) {
+            ws = catalog.getFactory().createWorkspace();
+            ws.setName(PREFIX);
+            catalog.add(ws);
+
+            NamespaceInfo ns = catalog.getFactory().createNamespace();
+            ns.setPrefix(PREFIX);
+            ns.setURI(URI);
+            catalog.add(ns);
+        }
+
+        DataStoreInfo store = catalog.getDataStoreByName(ws, STORE_NAME);
+        if (store == null) {
+            store = catalog.getFactory().createDataStore();
+            store.setName(STORE_NAME);
+            store.setWorkspace(ws);
+            store.setEnabled(true);
+            store.getConnectionParameters().put(PropertyDataStoreFactory.DIRECTORY.key, directory);
+            store.getConnectionParameters().put(PropertyDataStoreFactory.NAMESPACE.key, URI);
+            catalog.add(store);
+        }
+        return store;
+    }
+
+    private void addLayer(DataStoreInfo store, QName name) throws Exception {
+        CatalogBuilder cb = new CatalogBuilder(catalog);
+        cb.setStore(store);
+        FeatureTypeInfo ft = cb.buildFeatureType(new NameImpl(URI, name.getLocalPart()));
+        cb.setupBounds(ft);
+        catalog.add(ft);
+
+        // the builder picks the default point/polygon style based on the geometry type
+        LayerInfo layer = cb.buildLayer(ft);
+        catalog.add(layer);
+    }
+
+    private void writePoints(File file, int side) throws IOException {
+        double step = 360d / side;
+        try (Writer w = newWriter(file)) {
+            w.write("_=geom:Point:srid=4326,name:String,code:Integer,value:Double,date:Date\n");
+            int id = 0;
+            for (int i = 0; i < side; i++) {
+                for (int j = 0; j < side; j++, id++) {
+                    double x = -180 + step * (i + 0.5);
+                    double y = -90 + step / 2 * (j + 0.5);
+                    w.write(
+                            String.format(
+                                    Locale.ENGLISH,
+                                    "Points.%d=POINT (%.6f %.6f)|point %d|%d|%.3f|2022-01-%02d\n",
+                                    id,
+                                    x,
+                                    y,
+                                    id,
+                                    id % 1000,
+                                    id / 7d,
+                                    1 + id % 28));
+                }
+            }
+        }
+    }
+
+    private void writePolygons(File file, int side) throws IOException {
+        double dx = 360d / side;
+        double dy = 180d / side;
+        try (Writer w = newWriter(file)) {
+            w.write("_=geom:Polygon:srid=4326,name:String,code:Integer\n");
+            int id = 0;
+            for (int i = 0; i < side; i++) {
+                for (int j = 0; j < side; j++, id++) {
+                    double x1 = -180 + dx * i;
+                    double y1 = -90 + dy * j;
+                    double x2 = x1 + dx * 0.9;
+                    double y2 = y1 + dy * 0.9;
+                    w.write(
+                            String.format(
+                                    Locale.ENGLISH,
+                                    "Polygons.%d=POLYGON ((%.6f %.6f, %.6f %.6f, %.6f %.6f, %.6f %.6f, %.6f %.6f))|polygon %d|%d\n",
+                                    id,
+                                    x1,
+                                    y1,
+                                    x1,
+                                    y2,
+                                    x2,
+                                    y2,
+                                    x2,
+                                    y1,
+                                    x1,
+                                    y1,
+                                    id,
+                                    id % 1000));
+                }
+            }
+        }
+    }
+
+    private BufferedWriter newWriter(File file) throws IOException {
+        return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
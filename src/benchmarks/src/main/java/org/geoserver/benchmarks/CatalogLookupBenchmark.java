@@ -0,0 +1,159 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogFactory;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.Predicates;
+import org.geoserver.catalog.StyleInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.impl.CatalogImpl;
+import org.geoserver.catalog.util.CloseableIterator;
+import org.opengis.filter.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the most common catalog lookups against an in memory {@link CatalogImpl} holding a
+ * configurable number of layers, spread evenly across a set of workspaces.
+ *
+ * <p>No data directory is involved, the catalog objects are built directly, so the benchmark
+ * isolates the cost of the {@link org.geoserver.catalog.CatalogFacade} lookups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogLookupBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int layers;
+
+    @Param({"10"})
+    public int workspaces;
+
+    Catalog catalog;
+
+    @Setup(Level.Trial)
+    public void buildCatalog() {
+        catalog = new CatalogImpl();
+        CatalogFactory factory = catalog.getFactory();
+
+        StyleInfo style = factory.createStyle();
+        style.setName("point");
+        style.setFilename("point.sld");
+        catalog.add(style);
+
+        int layersPerWorkspace = Math.max(1, layers / workspaces);
+        for (int w = 0; w < workspaces; w++) {
+            WorkspaceInfo ws = factory.createWorkspace();
+            ws.setName(workspaceName(w));
+            catalog.add(ws);
+
+            NamespaceInfo ns = factory.createNamespace();
+            ns.setPrefix(ws.getName());
+            ns.setURI("http://geoserver.org/" + ws.getName());
+            catalog.add(ns);
+
+            DataStoreInfo store = factory.createDataStore();
+            store.setName("store" + w);
+            store.setWorkspace(ws);
+            store.setEnabled(true);
+            catalog.add(store);
+
+            for (int l = 0; l < layersPerWorkspace; l++) {
+                FeatureTypeInfo ft = factory.createFeatureType();
+                ft.setName(layerName(l));
+                ft.setNativeName(ft.getName());
+                ft.setStore(store);
+                ft.setNamespace(ns);
+                ft.setEnabled(true);
+                catalog.add(ft);
+
+                LayerInfo layer = factory.createLayer();
+                layer.setResource(ft);
+                layer.setDefaultStyle(style);
+                layer.setEnabled(true);
+                catalog.add(layer);
+            }
+        }
+    }
+
+    @Benchmark
+    public LayerInfo getLayerByPrefixedName() {
+        return catalog.getLayerByName(randomWorkspace() + ":" + randomLayer());
+    }
+
+    @Benchmark
+    public LayerInfo getLayerByUnprefixedName() {
+        return catalog.getLayerByName(randomLayer());
+    }
+
+    @Benchmark
+    public FeatureTypeInfo getFeatureTypeByName() {
+        return catalog.getFeatureTypeByName(randomWorkspace(), randomLayer());
+    }
+
+    @Benchmark
+    public LayerInfo getLayerById() {
+        // layers ids are random, go through the resource to get a realistic access pattern
+        FeatureTypeInfo ft = catalog.getFeatureTypeByName(randomWorkspace(), randomLayer());
+        return catalog.getLayer(catalog.getLayers(ft).get(0).getId());
+    }
+
+    @Benchmark
+    public int countLayersInWorkspace() {
+        Filter filter = Predicates.equal("resource.store.workspace.name", randomWorkspace());
+        return catalog.count(LayerInfo.class, filter);
+    }
+
+    @Benchmark
+    public int pageLayersInWorkspace() {
+        Filter filter = Predicates.equal("resource.store.workspace.name", randomWorkspace());
+        int count = 0;
+        try (CloseableIterator<LayerInfo> it =
+                catalog.list(LayerInfo.class, filter, 0, 25, Predicates.sortBy("name", true))) {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String randomWorkspace() {
+        return workspaceName(ThreadLocalRandom.current().nextInt(workspaces));
+    }
+
+    private String randomLayer() {
+        return layerName(ThreadLocalRandom.current().nextInt(Math.max(1, layers / workspaces)));
+    }
+
+    private static String workspaceName(int i) {
+        return "ws" + i;
+    }
+
+    private static String layerName(int i) {
+        return "layer" + i;
+    }
+}
@@ -0,0 +1,133 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import me.steinborn.libdeflate.CompressionType;
+import me.steinborn.libdeflate.Libdeflate;
+import me.steinborn.libdeflate.LibdeflateCompressor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link Deflater} and libdeflate at each compression level, on the pixels of a rendered
+ * map, the data compressed by the PNG and deflated GeoTIFF outputs. The compressed size is printed
+ * at the end of each trial, to weigh the speed against the compression ratio when choosing the
+ * per-format defaults.
+ *
+ * <p>The libdeflate benchmarks fail if the native library is not available on the platform.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeflateBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9"})
+    public int level;
+
+    /** The kind of map, vector maps have large flat areas, raster ones continuous tones */
+    @Param({"vector", "raster"})
+    public String map;
+
+    @Param({"1024"})
+    public int size;
+
+    byte[] data;
+
+    byte[] output;
+
+    int compressedSize;
+
+    @Setup(Level.Trial)
+    public void buildData() {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_4BYTE_ABGR);
+        Random random = new Random(0);
+        if ("raster".equals(map)) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int v = (int) (127 + 60 * Math.sin(x / 40d) * Math.cos(y / 30d));
+                    v += random.nextInt(16);
+                    image.setRGB(x, y, new Color(v, v / 2, 255 - v).getRGB());
+                }
+            }
+        } else {
+            Graphics2D graphics = image.createGraphics();
+            graphics.setRenderingHint(
+                    RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setStroke(new BasicStroke(2));
+            for (int i = 0; i < 500; i++) {
+                graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                if (i % 2 == 0) {
+                    graphics.fillRect(x, y, random.nextInt(100), random.nextInt(100));
+                } else {
+                    graphics.drawLine(x, y, random.nextInt(size), random.nextInt(size));
+                }
+            }
+            graphics.dispose();
+        }
+        data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        output = new byte[data.length + 5 * (data.length / 4096 + 1) + 64];
+    }
+
+    @TearDown(Level.Trial)
+    public void printRatio() {
+        System.out.printf(
+                "%nlevel %d, %s map: %d bytes compressed to %d (%.1f%%)%n",
+                level, map, data.length, compressedSize, compressedSize * 100d / data.length);
+    }
+
+    @Benchmark
+    public int zlib() {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            int size = 0;
+            while (!deflater.finished()) {
+                size += deflater.deflate(output, size, output.length - size);
+            }
+            compressedSize = size;
+            return size;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Benchmark
+    public int libdeflate() {
+        Libdeflate.ensureAvailable();
+        try (LibdeflateCompressor compressor = new LibdeflateCompressor(level)) {
+            int size =
+                    compressor.compress(
+                            data, 0, data.length, output, 0, output.length, CompressionType.ZLIB);
+            compressedSize = size;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.io.File;
+import org.geoserver.data.test.SystemTestData;
+import org.geoserver.test.GeoServerSystemTestSupport;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Base class for benchmarks running full OWS requests through the GeoServer dispatcher.
+ *
+ * <p>The class reuses the {@link GeoServerSystemTestSupport} machinery to build a data directory
+ * and start up the Spring context once per benchmark trial. On top of the default vector and raster
+ * test layers, the data directory contains the layers generated by {@link BenchmarkData}, whose
+ * size is controlled by the {@link #features} parameter.
+ *
+ * <p>Requests are executed in process against mock servlet requests and responses, which removes
+ * network and container overhead from the measurements and focuses them on GeoServer own code.
+ */
+@State(Scope.Benchmark)
+public abstract class GeoServerBenchmarkSupport extends GeoServerSystemTestSupport {
+
+    /** Number of features in each of the generated layers */
+    @Param({"10000"})
+    public int features;
+
+    @Setup(Level.Trial)
+    public void startGeoServer() throws Exception {
+        doSetup();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopGeoServer() throws Exception {
+        doTearDownClass();
+    }
+
+    @Override
+    protected void setUpTestData(SystemTestData testData) throws Exception {
+        super.setUpTestData(testData);
+        testData.setUpDefaultRasterLayers();
+    }
+
+    @Override
+    protected void onSetUp(SystemTestData testData) throws Exception {
+        File directory = new File(testData.getDataDirectoryRoot(), BenchmarkData.PREFIX);
+        new BenchmarkData(getCatalog(), directory).addGeneratedLayers(features);
+    }
+
+    /**
+     * Runs the request and returns the response body, failing if the response is not a successful
+     * one, so that the benchmarks do not end up measuring the cost of service exceptions.
+     *
+     * @param path The request path and query string, e.g. "wms?request=GetMap&..."
+     * @param expectedMimeType The mime type the response is expected to start with
+     */
+    protected byte[] execute(String path, String expectedMimeType) throws Exception {
+        MockHttpServletResponse response = getAsServletResponse(path);
+        String contentType = response.getContentType();
+        if (response.getStatus() != 200
+                || contentType == null
+                || !contentType.startsWith(expectedMimeType)) {
+            throw new IllegalStateException(
+                    "Unexpected response to "
+                            + path
+                            + ", status "
+                            + response.getStatus()
+                            + ", content type "
+                            + contentType
+                            + ":\n"
+                            + response.getContentAsString());
+        }
+        return response.getContentAsByteArray();
+    }
+}
@@ -0,0 +1,51 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the generation of the WMS and WFS capabilities documents. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetCapabilitiesBenchmark extends GeoServerBenchmarkSupport {
+
+    @Param({"WMS:1.1.1", "WMS:1.3.0", "WFS:1.1.0", "WFS:2.0.0"})
+    public String service;
+
+    @Benchmark
+    public byte[] getCapabilities() throws Exception {
+        String[] serviceVersion = service.split(":");
+        String name = serviceVersion[0];
+        String path =
+                name.toLowerCase()
+                        + "?request=GetCapabilities&service="
+                        + name
+                        + "&version="
+                        + serviceVersion[1];
+        return execute(path, getExpectedMimeType());
+    }
+
+    private String getExpectedMimeType() {
+        switch (service) {
+            case "WMS:1.1.1":
+                return "application/vnd.ogc.wms_xml";
+            case "WMS:1.3.0":
+                return "text/xml";
+            default:
+                return "application/xml";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.geoserver.ows.util.KvpParserRegistry;
+import org.geoserver.ows.util.KvpUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per request cost of parsing the KVP parameters the way the dispatcher does, with all
+ * the {@link org.geoserver.ows.KvpParser} extensions of a running GeoServer. The {@code lookup}
+ * benchmark looks up and filters the parsers on each request, the {@code registry} one resolves
+ * them through a {@link KvpParserRegistry}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KvpParsingBenchmark extends GeoServerBenchmarkSupport {
+
+    static final String LAYER = BenchmarkData.PREFIX + ":" + BenchmarkData.POINTS.getLocalPart();
+
+    @Param({"GetMap", "GetFeature"})
+    public String request;
+
+    Map<String, Object> rawKvp;
+
+    KvpParserRegistry registry;
+
+    @Setup(Level.Trial)
+    public void setupRequest() throws Exception {
+        String query;
+        if ("GetMap".equals(request)) {
+            // a typical tiled client request
+            query =
+                    "service=WMS&version=1.1.1&request=GetMap&layers="
+                            + LAYER
+                            + "&styles=&bbox=-180,-90,-90,0&width=256&height=256"
+                            + "&srs=EPSG:4326&format=image/png&transparent=true&tiled=true"
+                            + "&tilesorigin=-180,-90";
+        } else {
+            query =
+                    "service=WFS&version=2.0.0&request=GetFeature&typeNames="
+                            + LAYER
+                            + "&count=10&bbox=-180,-90,0,90,EPSG:4326&outputFormat=application/json";
+        }
+        rawKvp = KvpUtils.parseQueryString("?" + query);
+        registry = new KvpParserRegistry();
+    }
+
+    @Benchmark
+    public Map<String, Object> lookup() {
+        Map<String, Object> kvp = KvpUtils.normalize(rawKvp);
+        List<Throwable> errors = KvpUtils.parse(kvp);
+        return checkErrors(kvp, errors);
+    }
+
+    @Benchmark
+    public Map<String, Object> registry() {
+        Map<String, Object> kvp = KvpUtils.normalize(rawKvp);
+        List<Throwable> errors = KvpUtils.parse(kvp, registry);
+        return checkErrors(kvp, errors);
+    }
+
+    private Map<String, Object> checkErrors(Map<String, Object> kvp, List<Throwable> errors) {
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Failed to parse " + rawKvp, errors.get(0));
+        }
+        return kvp;
+    }
+}
@@ -0,0 +1,54 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures WFS GetFeature against the generated layers, encoding the output as GML 3, GeoJSON and
+ * CSV.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WFSGetFeatureBenchmark extends GeoServerBenchmarkSupport {
+
+    @Param({"bench:Points", "bench:Polygons"})
+    public String typeName;
+
+    @Param({"gml3", "json", "csv"})
+    public String outputFormat;
+
+    @Benchmark
+    public byte[] getFeature() throws Exception {
+        String path =
+                "wfs?service=WFS&version=1.1.0&request=GetFeature&typeName="
+                        + typeName
+                        + "&outputFormat="
+                        + outputFormat;
+        return execute(path, getExpectedMimeType());
+    }
+
+    private String getExpectedMimeType() {
+        switch (outputFormat) {
+            case "json":
+                return "application/json";
+            case "csv":
+                return "text/csv";
+            default:
+                return "text/xml";
+        }
+    }
+}
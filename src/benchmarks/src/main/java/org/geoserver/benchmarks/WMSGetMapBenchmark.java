@@ -0,0 +1,64 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.geoserver.catalog.LayerInfo;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures WMS GetMap, rendering vector and raster layers to PNG and JPEG, through the full
+ * dispatcher and {@link org.geoserver.wms.map.RenderedImageMapOutputFormat} path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WMSGetMapBenchmark extends GeoServerBenchmarkSupport {
+
+    @Param({"bench:Polygons", "bench:Points", "cite:BasicPolygons", "wcs:World", "wcs:DEM"})
+    public String layer;
+
+    @Param({"image/png", "image/jpeg"})
+    public String format;
+
+    @Param({"256", "1024"})
+    public int size;
+
+    String request;
+
+    // JMH runs the superclass setup methods first, GeoServer is already up at this point
+    @Setup(Level.Trial)
+    public void buildRequest() {
+        LayerInfo info = getCatalog().getLayerByName(layer);
+        if (info == null) {
+            throw new IllegalArgumentException("Could not find layer " + layer);
+        }
+        ReferencedEnvelope bbox = info.getResource().getLatLonBoundingBox();
+        request =
+                "wms?service=WMS&version=1.1.1&request=GetMap&styles=&srs=EPSG:4326"
+                        + ("&layers=" + layer)
+                        + ("&format=" + format)
+                        + ("&width=" + size + "&height=" + size)
+                        + ("&bbox=" + bbox.getMinX() + "," + bbox.getMinY())
+                        + ("," + bbox.getMaxX() + "," + bbox.getMaxY());
+    }
+
+    @Benchmark
+    public byte[] getMap() throws Exception {
+        return execute(request, format);
+    }
+}
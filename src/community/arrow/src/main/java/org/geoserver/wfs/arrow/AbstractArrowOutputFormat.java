@@ -0,0 +1,66 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.arrow;
+
+import java.util.List;
+import java.util.Set;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.geoserver.config.GeoServer;
+import org.geoserver.feature.FlatteningFeatureCollection;
+import org.geoserver.platform.Operation;
+import org.geoserver.platform.ServiceException;
+import org.geoserver.wfs.WFSGetFeatureOutputFormat;
+import org.geoserver.wfs.request.FeatureCollectionResponse;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.FeatureCollection;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Base class for the columnar output formats based on Apache Arrow. The Arrow schema is fixed for
+ * the whole output, so these formats handle a single simple feature type per request.
+ */
+public abstract class AbstractArrowOutputFormat extends WFSGetFeatureOutputFormat {
+
+    /** Shared by all requests, each one uses its own child allocator */
+    static final RootAllocator ROOT_ALLOCATOR = new RootAllocator();
+
+    protected AbstractArrowOutputFormat(GeoServer gs, Set<String> outputFormats) {
+        super(gs, outputFormats);
+    }
+
+    @Override
+    public String getPreferredDisposition(Object value, Operation operation) {
+        return DISPOSITION_ATTACH;
+    }
+
+    /** Returns a new allocator for a request, to be closed once the output has been written */
+    protected BufferAllocator newAllocator() {
+        return ROOT_ALLOCATOR.newChildAllocator(getClass().getSimpleName(), 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the single feature collection to be encoded, flattened in case of WFS 2.0 joins
+     *
+     * @throws ServiceException if the response contains more than one feature type, or complex
+     *     features
+     */
+    protected SimpleFeatureCollection getFeatures(FeatureCollectionResponse response) {
+        List<FeatureCollection> collections = response.getFeature();
+        if (collections.size() != 1) {
+            throw new ServiceException(
+                    getCapabilitiesElementName()
+                            + " output supports a single feature type per request",
+                    ServiceException.INVALID_PARAMETER_VALUE,
+                    "typeName");
+        }
+        FeatureCollection<?, ?> fc = collections.get(0);
+        if (!(fc.getSchema() instanceof SimpleFeatureType)) {
+            throw new ServiceException(
+                    getCapabilitiesElementName() + " output does not support complex features");
+        }
+        return FlatteningFeatureCollection.flatten((SimpleFeatureCollection) fc);
+    }
+}
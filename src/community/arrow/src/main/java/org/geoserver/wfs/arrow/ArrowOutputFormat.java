@@ -0,0 +1,70 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.arrow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.Operation;
+import org.geoserver.platform.ServiceException;
+import org.geoserver.wfs.request.FeatureCollectionResponse;
+import org.geotools.data.simple.SimpleFeatureCollection;
+
+/**
+ * WFS GetFeature output format streaming the features as Apache Arrow IPC record batches, with the
+ * geometries encoded as WKB. The batches are written as soon as they are full, so the memory used
+ * is bounded by the batch size rather than by the number of features, see {@link
+ * FeatureBatchLoader}.
+ */
+public class ArrowOutputFormat extends AbstractArrowOutputFormat {
+
+    public static final String MIME_TYPE = "application/vnd.apache.arrow.stream";
+
+    public ArrowOutputFormat(GeoServer gs) {
+        super(gs, new LinkedHashSet<>(Arrays.asList(MIME_TYPE, "arrow")));
+    }
+
+    @Override
+    public String getMimeType(Object value, Operation operation) throws ServiceException {
+        return MIME_TYPE;
+    }
+
+    @Override
+    public String getCapabilitiesElementName() {
+        return "Arrow";
+    }
+
+    @Override
+    protected String getExtension(FeatureCollectionResponse response) {
+        return "arrows";
+    }
+
+    @Override
+    protected void write(
+            FeatureCollectionResponse response, OutputStream output, Operation operation)
+            throws IOException, ServiceException {
+        SimpleFeatureCollection features = getFeatures(response);
+        Schema schema = ArrowSchemas.getSchema(features.getSchema());
+        try (BufferAllocator allocator = newAllocator();
+                VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator);
+                FeatureBatchLoader loader = new FeatureBatchLoader(features, schema)) {
+            // not closed, it would close the response output stream too
+            ArrowStreamWriter writer =
+                    new ArrowStreamWriter(root, null, Channels.newChannel(output));
+            writer.start();
+            while (loader.load(root) > 0) {
+                writer.writeBatch();
+            }
+            writer.end();
+        }
+    }
+}
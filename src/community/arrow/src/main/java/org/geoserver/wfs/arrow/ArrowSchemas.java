@@ -0,0 +1,162 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.arrow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.geotools.geometry.jts.Geometries;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Maps GeoTools simple feature types to Arrow schemas. Geometries are stored as WKB binaries,
+ * described by the GeoParquet "geo" schema metadata, and by the GeoArrow extension name at the
+ * field level.
+ *
+ * <p>The attribute types map to the closest Arrow type: integral numbers to signed integers of the
+ * same width, floating point numbers to floating point, dates and times to their Arrow
+ * counterparts, with millisecond precision and timestamps in UTC. Arbitrary precision numbers and
+ * anything else are stored as UTF-8 strings.
+ */
+final class ArrowSchemas {
+
+    /** Version of the GeoParquet metadata specification */
+    static final String GEOPARQUET_VERSION = "1.0.0-beta.1";
+
+    /** Schema metadata key for the GeoParquet metadata */
+    static final String GEO_METADATA = "geo";
+
+    /** Field metadata key for the Arrow extension type name */
+    static final String EXTENSION_NAME = "ARROW:extension:name";
+
+    /** GeoArrow extension type name for WKB geometries */
+    static final String GEOARROW_WKB = "geoarrow.wkb";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ArrowSchemas() {}
+
+    /** Builds the Arrow schema for the given feature type, one field per attribute */
+    static Schema getSchema(SimpleFeatureType featureType) throws IOException {
+        List<Field> fields = new ArrayList<>();
+        Map<String, Object> columns = new LinkedHashMap<>();
+        for (AttributeDescriptor ad : featureType.getAttributeDescriptors()) {
+            String name = ad.getLocalName();
+            Map<String, String> metadata = null;
+            if (ad instanceof GeometryDescriptor) {
+                columns.put(name, getColumnMetadata((GeometryDescriptor) ad));
+                metadata = Collections.singletonMap(EXTENSION_NAME, GEOARROW_WKB);
+            }
+            // declared as nullable regardless of the descriptor, stores don't always honor it
+            FieldType type =
+                    new FieldType(true, getArrowType(ad.getType().getBinding()), null, metadata);
+            fields.add(new Field(name, type, null));
+        }
+
+        Map<String, String> metadata = null;
+        if (!columns.isEmpty()) {
+            Map<String, Object> geo = new LinkedHashMap<>();
+            geo.put("version", GEOPARQUET_VERSION);
+            GeometryDescriptor primary = featureType.getGeometryDescriptor();
+            geo.put(
+                    "primary_column",
+                    primary != null ? primary.getLocalName() : columns.keySet().iterator().next());
+            geo.put("columns", columns);
+            metadata = Collections.singletonMap(GEO_METADATA, MAPPER.writeValueAsString(geo));
+        }
+        return new Schema(fields, metadata);
+    }
+
+    /** Returns the Arrow type used to store the values of the given attribute binding */
+    static ArrowType getArrowType(Class<?> binding) {
+        if (Geometry.class.isAssignableFrom(binding) || byte[].class.equals(binding)) {
+            return ArrowType.Binary.INSTANCE;
+        } else if (Long.class.equals(binding)) {
+            return new ArrowType.Int(64, true);
+        } else if (Integer.class.equals(binding)) {
+            return new ArrowType.Int(32, true);
+        } else if (Short.class.equals(binding)) {
+            return new ArrowType.Int(16, true);
+        } else if (Byte.class.equals(binding)) {
+            return new ArrowType.Int(8, true);
+        } else if (Double.class.equals(binding)) {
+            return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+        } else if (Float.class.equals(binding)) {
+            return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+        } else if (Boolean.class.equals(binding)) {
+            return ArrowType.Bool.INSTANCE;
+        } else if (java.sql.Date.class.isAssignableFrom(binding)) {
+            return new ArrowType.Date(DateUnit.DAY);
+        } else if (java.sql.Time.class.isAssignableFrom(binding)) {
+            return new ArrowType.Time(TimeUnit.MILLISECOND, 32);
+        } else if (java.util.Date.class.isAssignableFrom(binding)) {
+            return new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC");
+        }
+        return ArrowType.Utf8.INSTANCE;
+    }
+
+    /** Builds the GeoParquet column metadata for a geometry attribute */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> getColumnMetadata(GeometryDescriptor descriptor) {
+        Map<String, Object> column = new LinkedHashMap<>();
+        column.put("encoding", "WKB");
+        Class<?> binding = descriptor.getType().getBinding();
+        // an empty list means any geometry type
+        List<String> types = new ArrayList<>();
+        Geometries geometries = Geometries.getForBinding((Class<? extends Geometry>) binding);
+        if (geometries != null
+                && geometries != Geometries.GEOMETRY
+                && geometries != Geometries.GEOMETRYCOLLECTION) {
+            types.add(geometries.getName());
+        }
+        column.put("geometry_types", types);
+        CoordinateReferenceSystem crs = descriptor.getCoordinateReferenceSystem();
+        if (crs == null) {
+            // explicitly unknown, a missing crs would mean OGC:CRS84 instead
+            column.put("crs", null);
+        } else if (!CRS.equalsIgnoreMetadata(crs, DefaultGeographicCRS.WGS84)) {
+            column.put("crs", getCRSIdentifier(crs));
+        }
+        return column;
+    }
+
+    /**
+     * Returns a PROJJSON object carrying only the identifier of the CRS, or null if the CRS has no
+     * EPSG code
+     */
+    private static Map<String, Object> getCRSIdentifier(CoordinateReferenceSystem crs) {
+        Integer code;
+        try {
+            code = CRS.lookupEpsgCode(crs, false);
+        } catch (FactoryException e) {
+            code = null;
+        }
+        if (code == null) {
+            return null;
+        }
+        Map<String, Object> id = new LinkedHashMap<>();
+        id.put("authority", "EPSG");
+        id.put("code", code);
+        return Collections.singletonMap("id", id);
+    }
+}
@@ -0,0 +1,56 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.arrow;
+
+import java.io.IOException;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * Exposes the batches produced by a {@link FeatureBatchLoader} as an {@link ArrowReader}, for the
+ * Arrow APIs pulling data rather than having it pushed to them, like the dataset writers.
+ */
+class FeatureArrowReader extends ArrowReader {
+
+    private final Schema schema;
+
+    private final FeatureBatchLoader loader;
+
+    /**
+     * Builds the reader, taking ownership of the loader
+     *
+     * @param allocator The allocator for the reader vectors
+     * @param schema The schema of the batches
+     * @param loader The features loader, closed along with the reader
+     */
+    FeatureArrowReader(BufferAllocator allocator, Schema schema, FeatureBatchLoader loader) {
+        super(allocator);
+        this.schema = schema;
+        this.loader = loader;
+    }
+
+    @Override
+    public boolean loadNextBatch() throws IOException {
+        prepareLoadNextBatch();
+        return loader.load(getVectorSchemaRoot()) > 0;
+    }
+
+    @Override
+    public long bytesRead() {
+        // nothing is read from a stream
+        return 0;
+    }
+
+    @Override
+    protected void closeReadSource() throws IOException {
+        loader.close();
+    }
+
+    @Override
+    protected Schema readSchema() throws IOException {
+        return schema;
+    }
+}
@@ -0,0 +1,232 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.arrow;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TimeZone;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Loads features into the vectors of a {@link VectorSchemaRoot}, one batch at a time, so that only
+ * a bounded amount of features is kept in memory. A batch is closed when it reaches either the
+ * maximum number of rows, or the maximum (estimated) size in bytes, whichever comes first.
+ *
+ * <p>Geometries are written as 2D, little endian, WKB.
+ */
+class FeatureBatchLoader implements AutoCloseable {
+
+    /** System, environment or servlet context variable setting the maximum rows per batch */
+    static final String BATCH_ROWS_KEY = "ARROW_BATCH_ROWS";
+
+    /** System, environment or servlet context variable setting the maximum bytes per batch */
+    static final String BATCH_BYTES_KEY = "ARROW_BATCH_BYTES";
+
+    static final int DEFAULT_BATCH_ROWS = 64 * 1024;
+
+    static final long DEFAULT_BATCH_BYTES = 16 * 1024 * 1024;
+
+    static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    /** Sets a non null value in a vector, returns the (estimated) number of bytes used */
+    @FunctionalInterface
+    interface ValueSetter {
+        int set(FieldVector vector, int row, Object value);
+    }
+
+    private final SimpleFeatureIterator iterator;
+
+    private final ValueSetter[] setters;
+
+    private final int maxRows;
+
+    private final long maxBytes;
+
+    private final WKBWriter wkbWriter = new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN);
+
+    private boolean closed;
+
+    /**
+     * Builds a loader with the configured batch limits
+     *
+     * @param features The features to load, opened right away, the loader must be closed
+     * @param schema The schema built by {@link ArrowSchemas#getSchema}
+     */
+    FeatureBatchLoader(SimpleFeatureCollection features, Schema schema) {
+        this(features, schema, getBatchRows(), getBatchBytes());
+    }
+
+    FeatureBatchLoader(
+            SimpleFeatureCollection features, Schema schema, int maxRows, long maxBytes) {
+        List<Field> fields = schema.getFields();
+        this.setters = new ValueSetter[fields.size()];
+        for (int i = 0; i < setters.length; i++) {
+            setters[i] = getSetter(fields.get(i));
+        }
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.iterator = features.features();
+    }
+
+    /**
+     * Loads the next batch of features in the root vectors, replacing their previous contents
+     *
+     * @return The number of features loaded, zero if there are no more features
+     */
+    int load(VectorSchemaRoot root) {
+        root.allocateNew();
+        List<FieldVector> vectors = root.getFieldVectors();
+        int rows = 0;
+        long bytes = 0;
+        while (rows < maxRows && bytes < maxBytes && iterator.hasNext()) {
+            SimpleFeature feature = iterator.next();
+            for (int i = 0; i < setters.length; i++) {
+                Object value = feature.getAttribute(i);
+                // null values are left unset, the validity buffer is cleared on allocation
+                if (value != null) {
+                    bytes += setters[i].set(vectors.get(i), rows, value);
+                }
+            }
+            rows++;
+        }
+        root.setRowCount(rows);
+        return rows;
+    }
+
+    private ValueSetter getSetter(Field field) {
+        switch (field.getType().getTypeID()) {
+            case Int:
+                return getIntSetter(field);
+            case FloatingPoint:
+                FloatingPointPrecision precision =
+                        ((ArrowType.FloatingPoint) field.getType()).getPrecision();
+                if (precision == FloatingPointPrecision.SINGLE) {
+                    return (v, row, value) -> {
+                        ((Float4Vector) v).setSafe(row, ((Number) value).floatValue());
+                        return 4;
+                    };
+                }
+                return (v, row, value) -> {
+                    ((Float8Vector) v).setSafe(row, ((Number) value).doubleValue());
+                    return 8;
+                };
+            case Bool:
+                return (v, row, value) -> {
+                    ((BitVector) v).setSafe(row, Boolean.TRUE.equals(value) ? 1 : 0);
+                    return 1;
+                };
+            case Date:
+                return (v, row, value) -> {
+                    long day = ((java.sql.Date) value).toLocalDate().toEpochDay();
+                    ((DateDayVector) v).setSafe(row, (int) day);
+                    return 4;
+                };
+            case Time:
+                return (v, row, value) -> {
+                    int millis = getMillisOfDay((java.util.Date) value);
+                    ((TimeMilliVector) v).setSafe(row, millis);
+                    return 4;
+                };
+            case Timestamp:
+                return (v, row, value) -> {
+                    ((TimeStampMilliTZVector) v).setSafe(row, ((java.util.Date) value).getTime());
+                    return 8;
+                };
+            case Binary:
+                return (v, row, value) -> {
+                    byte[] bytes =
+                            value instanceof Geometry
+                                    ? wkbWriter.write((Geometry) value)
+                                    : (byte[]) value;
+                    ((VarBinaryVector) v).setSafe(row, bytes);
+                    return bytes.length;
+                };
+            default:
+                return (v, row, value) -> {
+                    byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                    ((VarCharVector) v).setSafe(row, bytes);
+                    return bytes.length;
+                };
+        }
+    }
+
+    private ValueSetter getIntSetter(Field field) {
+        switch (((ArrowType.Int) field.getType()).getBitWidth()) {
+            case 8:
+                return (v, row, value) -> {
+                    ((TinyIntVector) v).setSafe(row, ((Number) value).byteValue());
+                    return 1;
+                };
+            case 16:
+                return (v, row, value) -> {
+                    ((SmallIntVector) v).setSafe(row, ((Number) value).shortValue());
+                    return 2;
+                };
+            case 32:
+                return (v, row, value) -> {
+                    ((IntVector) v).setSafe(row, ((Number) value).intValue());
+                    return 4;
+                };
+            default:
+                return (v, row, value) -> {
+                    ((BigIntVector) v).setSafe(row, ((Number) value).longValue());
+                    return 8;
+                };
+        }
+    }
+
+    /**
+     * Returns the milliseconds since midnight of the given time, in the local time zone, the same
+     * way {@link java.sql.Time#toLocalTime()} does, but without dropping the milliseconds
+     */
+    static int getMillisOfDay(java.util.Date time) {
+        long millis = time.getTime();
+        millis += TimeZone.getDefault().getOffset(millis);
+        return (int) Math.floorMod(millis, MILLIS_PER_DAY);
+    }
+
+    @Override
+    public void close() {
+        // might be closed both by the output format and by the Arrow reader wrapping the loader
+        if (!closed) {
+            closed = true;
+            iterator.close();
+        }
+    }
+
+    static int getBatchRows() {
+        String rows = GeoServerExtensions.getProperty(BATCH_ROWS_KEY);
+        return rows != null ? Integer.parseInt(rows) : DEFAULT_BATCH_ROWS;
+    }
+
+    static long getBatchBytes() {
+        String bytes = GeoServerExtensions.getProperty(BATCH_BYTES_KEY);
+        return bytes != null ? Long.parseLong(bytes) : DEFAULT_BATCH_BYTES;
+    }
+}
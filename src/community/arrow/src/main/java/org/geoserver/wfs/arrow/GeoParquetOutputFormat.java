@@ -0,0 +1,88 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.arrow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.arrow.dataset.file.DatasetFileWriter;
+import org.apache.arrow.dataset.file.FileFormat;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.commons.io.FileUtils;
+import org.geoserver.config.GeoServer;
+import org.geoserver.platform.Operation;
+import org.geoserver.platform.ServiceException;
+import org.geoserver.wfs.request.FeatureCollectionResponse;
+import org.geotools.data.simple.SimpleFeatureCollection;
+
+/**
+ * WFS GetFeature output format producing a GeoParquet file, meant for downloads. The features are
+ * pulled in Arrow batches by the native Arrow dataset writer, which stores the Arrow schema
+ * metadata, including the GeoParquet "geo" one, in the Parquet file metadata.
+ *
+ * <p>Parquet keeps its metadata at the end of the file, so the file is written in a temporary
+ * directory, and then copied to the response. The memory used is bounded by the batch size, and by
+ * the row group buffering of the native Parquet writer.
+ */
+public class GeoParquetOutputFormat extends AbstractArrowOutputFormat {
+
+    public static final String MIME_TYPE = "application/vnd.apache.parquet";
+
+    public GeoParquetOutputFormat(GeoServer gs) {
+        super(gs, new LinkedHashSet<>(Arrays.asList(MIME_TYPE, "parquet", "geoparquet")));
+    }
+
+    @Override
+    public String getMimeType(Object value, Operation operation) throws ServiceException {
+        return MIME_TYPE;
+    }
+
+    @Override
+    public String getCapabilitiesElementName() {
+        return "GeoParquet";
+    }
+
+    @Override
+    protected String getExtension(FeatureCollectionResponse response) {
+        return "parquet";
+    }
+
+    @Override
+    protected void write(
+            FeatureCollectionResponse response, OutputStream output, Operation operation)
+            throws IOException, ServiceException {
+        SimpleFeatureCollection features = getFeatures(response);
+        Schema schema = ArrowSchemas.getSchema(features.getSchema());
+        Path directory = Files.createTempDirectory("geoparquet");
+        try {
+            try (BufferAllocator allocator = newAllocator();
+                    FeatureArrowReader reader =
+                            new FeatureArrowReader(
+                                    allocator, schema, new FeatureBatchLoader(features, schema))) {
+                DatasetFileWriter.write(
+                        allocator, reader, FileFormat.PARQUET, directory.toUri().toString());
+            }
+
+            List<Path> files;
+            try (Stream<Path> paths = Files.list(directory)) {
+                files = paths.collect(Collectors.toList());
+            }
+            if (files.size() != 1) {
+                throw new ServiceException(
+                        "Expected a single GeoParquet file to be written, found " + files);
+            }
+            Files.copy(files.get(0), output);
+        } finally {
+            FileUtils.deleteQuietly(directory.toFile());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.arrow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.arrow.dataset.file.FileFormat;
+import org.apache.arrow.dataset.file.FileSystemDatasetFactory;
+import org.apache.arrow.dataset.jni.NativeMemoryPool;
+import org.apache.arrow.dataset.scanner.ScanOptions;
+import org.apache.arrow.dataset.scanner.Scanner;
+import org.apache.arrow.dataset.source.Dataset;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.commons.io.FileUtils;
+import org.geoserver.wfs.WFSTestSupport;
+import org.junit.Test;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.WKBReader;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ArrowOutputFormatTest extends WFSTestSupport {
+
+    static final String PRIMITIVE_REQUEST =
+            "wfs?service=WFS&version=1.0.0&request=GetFeature&typeName=sf:PrimitiveGeoFeature"
+                    + "&outputFormat=";
+
+    @Test
+    public void testArrowStream() throws Exception {
+        MockHttpServletResponse response = getAsServletResponse(PRIMITIVE_REQUEST + "arrow");
+        assertEquals(ArrowOutputFormat.MIME_TYPE, response.getContentType());
+        assertEquals(
+                "attachment; filename=PrimitiveGeoFeature.arrows",
+                response.getHeader("Content-Disposition"));
+
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowStreamReader reader =
+                        new ArrowStreamReader(getBinaryInputStream(response), allocator)) {
+            Schema schema = reader.getVectorSchemaRoot().getSchema();
+            assertPrimitiveSchema(schema);
+
+            Map<String, Integer> ints = new HashMap<>();
+            int rows = 0;
+            while (reader.loadNextBatch()) {
+                VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    String name = root.getVector("name").getObject(i).toString();
+                    ints.put(name, ((IntVector) root.getVector("intProperty")).get(i));
+                    if ("name-f001".equals(name)) {
+                        assertFirstFeature(root, i);
+                    }
+                    rows++;
+                }
+            }
+            assertEquals(5, rows);
+            assertEquals(Integer.valueOf(155), ints.get("name-f001"));
+            assertEquals(Integer.valueOf(154), ints.get("name-f002"));
+        }
+    }
+
+    @Test
+    public void testArrowStreamBatches() throws Exception {
+        System.setProperty(FeatureBatchLoader.BATCH_ROWS_KEY, "2");
+        try {
+            MockHttpServletResponse response = getAsServletResponse(PRIMITIVE_REQUEST + "arrow");
+            try (BufferAllocator allocator = new RootAllocator();
+                    ArrowStreamReader reader =
+                            new ArrowStreamReader(getBinaryInputStream(response), allocator)) {
+                int batches = 0;
+                int rows = 0;
+                while (reader.loadNextBatch()) {
+                    int count = reader.getVectorSchemaRoot().getRowCount();
+                    assertTrue(count <= 2);
+                    rows += count;
+                    batches++;
+                }
+                assertEquals(3, batches);
+                assertEquals(5, rows);
+            }
+        } finally {
+            System.clearProperty(FeatureBatchLoader.BATCH_ROWS_KEY);
+        }
+    }
+
+    @Test
+    public void testGeoParquet() throws Exception {
+        MockHttpServletResponse response = getAsServletResponse(PRIMITIVE_REQUEST + "parquet");
+        assertEquals(GeoParquetOutputFormat.MIME_TYPE, response.getContentType());
+        assertEquals(
+                "attachment; filename=PrimitiveGeoFeature.parquet",
+                response.getHeader("Content-Disposition"));
+
+        File file = File.createTempFile("primitive", ".parquet");
+        try {
+            FileUtils.copyInputStreamToFile(getBinaryInputStream(response), file);
+            try (BufferAllocator allocator = new RootAllocator();
+                    FileSystemDatasetFactory factory =
+                            new FileSystemDatasetFactory(
+                                    allocator,
+                                    NativeMemoryPool.getDefault(),
+                                    FileFormat.PARQUET,
+                                    file.toURI().toString());
+                    Dataset dataset = factory.finish();
+                    Scanner scanner = dataset.newScan(new ScanOptions(100));
+                    ArrowReader reader = scanner.scanBatches()) {
+                assertPrimitiveSchema(factory.inspect());
+                int rows = 0;
+                while (reader.loadNextBatch()) {
+                    VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                    for (int i = 0; i < root.getRowCount(); i++) {
+                        if ("name-f001".equals(root.getVector("name").getObject(i).toString())) {
+                            assertFirstFeature(root, i);
+                        }
+                        rows++;
+                    }
+                }
+                assertEquals(5, rows);
+            }
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Test
+    public void testTimeMillis() throws Exception {
+        // milliseconds are not part of the time literals, add them
+        java.sql.Time time = new java.sql.Time(java.sql.Time.valueOf("12:34:56").getTime() + 789);
+        assertEquals(
+                ((12 * 60 + 34) * 60 + 56) * 1000 + 789, FeatureBatchLoader.getMillisOfDay(time));
+    }
+
+    private void assertPrimitiveSchema(Schema schema) throws Exception {
+        assertEquals(new ArrowType.Int(32, true), schema.findField("intProperty").getType());
+        assertEquals(
+                new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE),
+                schema.findField("decimalProperty").getType());
+        assertEquals(ArrowType.Bool.INSTANCE, schema.findField("booleanProperty").getType());
+        assertEquals(new ArrowType.Date(DateUnit.DAY), schema.findField("dateProperty").getType());
+        assertEquals(
+                new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC"),
+                schema.findField("dateTimeProperty").getType());
+        assertEquals(ArrowType.Utf8.INSTANCE, schema.findField("uriProperty").getType());
+
+        Field point = schema.findField("pointProperty");
+        assertEquals(ArrowType.Binary.INSTANCE, point.getType());
+        assertEquals(
+                ArrowSchemas.GEOARROW_WKB, point.getMetadata().get(ArrowSchemas.EXTENSION_NAME));
+
+        String geo = schema.getCustomMetadata().get(ArrowSchemas.GEO_METADATA);
+        assertNotNull(geo);
+        JsonNode json = new ObjectMapper().readTree(geo);
+        assertEquals(ArrowSchemas.GEOPARQUET_VERSION, json.get("version").asText());
+        assertEquals("surfaceProperty", json.get("primary_column").asText());
+        JsonNode columns = json.get("columns");
+        assertEquals(3, columns.size());
+        assertEquals("WKB", columns.get("pointProperty").get("encoding").asText());
+        assertEquals("Point", columns.get("pointProperty").get("geometry_types").get(0).asText());
+        assertEquals(
+                "Polygon", columns.get("surfaceProperty").get("geometry_types").get(0).asText());
+    }
+
+    private void assertFirstFeature(VectorSchemaRoot root, int row) throws Exception {
+        byte[] wkb = ((VarBinaryVector) root.getVector("pointProperty")).get(row);
+        Point point = (Point) new WKBReader().read(wkb);
+        assertEquals(39.73245, point.getX(), 0d);
+        assertEquals(2.00342, point.getY(), 0d);
+        // null geometry
+        assertTrue(root.getVector("surfaceProperty").isNull(row));
+        assertEquals(
+                LocalDate.of(2006, 10, 25).toEpochDay(),
+                ((DateDayVector) root.getVector("dateProperty")).get(row));
+        assertEquals(1, ((BitVector) root.getVector("booleanProperty")).get(row));
+        assertEquals(
+                "http://www.opengeospatial.org/",
+                root.getVector("uriProperty").getObject(row).toString());
+    }
+}
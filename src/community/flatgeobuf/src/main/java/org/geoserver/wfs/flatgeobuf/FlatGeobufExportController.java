@@ -0,0 +1,249 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.flatgeobuf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.config.GeoServer;
+import org.geoserver.security.DataAccessLimits;
+import org.geoserver.security.ResourceAccessManager;
+import org.geoserver.security.SecureCatalogImpl;
+import org.geoserver.security.VectorAccessLimits;
+import org.geoserver.wfs.WFSInfo;
+import org.opengis.filter.Filter;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.AbstractController;
+
+/**
+ * Publishes the FlatGeobuf exports managed by {@link FlatGeobufExports} at {@code
+ * /flatgeobuf/<workspace>/<layer>.fgb}, supporting HTTP range requests, so that clients can read
+ * the header and the spatial index first, and then fetch only the features they need.
+ *
+ * <p>The export contains the whole layer, so it's served only to users that can read the layer
+ * without any data security restriction (read filters or hidden attributes).
+ */
+public class FlatGeobufExportController extends AbstractController {
+
+    public static final String MIME_TYPE = "application/flatgeobuf";
+
+    static final Pattern PATH = Pattern.compile(".*/flatgeobuf/([^/]+)/([^/]+)\\.fgb$");
+
+    static final Pattern RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    /** Marker for a range header that is not understood, and causes the whole file to be sent */
+    static final long[] RANGE_INVALID = new long[0];
+
+    private final Catalog catalog;
+
+    private final FlatGeobufExports exports;
+
+    private final SecureCatalogImpl secureCatalog;
+
+    private final GeoServer geoServer;
+
+    /**
+     * @param catalog The catalog used to look up the layers, should be the secured one
+     * @param exports The exports manager
+     * @param secureCatalog Provides the resource access manager, to check for data restrictions
+     * @param geoServer Provides the WFS configuration, exports are not served if WFS is disabled
+     */
+    public FlatGeobufExportController(
+            Catalog catalog,
+            FlatGeobufExports exports,
+            SecureCatalogImpl secureCatalog,
+            GeoServer geoServer) {
+        this.catalog = catalog;
+        this.exports = exports;
+        this.secureCatalog = secureCatalog;
+        this.geoServer = geoServer;
+        setSupportedMethods(new String[] {METHOD_GET, METHOD_HEAD});
+    }
+
+    @Override
+    protected ModelAndView handleRequestInternal(
+            HttpServletRequest request, HttpServletResponse response) throws Exception {
+        Matcher matcher = PATH.matcher(request.getRequestURI());
+        if (!matcher.matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+        FeatureTypeInfo featureType =
+                catalog.getFeatureTypeByName(matcher.group(1), matcher.group(2));
+        if (featureType == null
+                || !FlatGeobufExports.isExportEnabled(featureType)
+                || !isPublished(featureType)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+        if (!isUnrestricted(featureType)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return null;
+        }
+
+        // the export might be removed by a concurrent invalidation, between its creation and
+        // the moment it's opened, in that case it's built again
+        for (int attempt = 0; ; attempt++) {
+            File file = exports.getExport(featureType);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                serve(request, response, channel, file.lastModified());
+                return null;
+            } catch (NoSuchFileException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /** Returns true if the feature type is available through an enabled layer and WFS service */
+    boolean isPublished(FeatureTypeInfo featureType) {
+        if (!featureType.enabled()
+                || catalog.getLayers(featureType).stream().noneMatch(LayerInfo::enabled)) {
+            return false;
+        }
+        WFSInfo wfs = geoServer.getService(featureType.getStore().getWorkspace(), WFSInfo.class);
+        if (wfs == null) {
+            wfs = geoServer.getService(WFSInfo.class);
+        }
+        return wfs != null && wfs.isEnabled();
+    }
+
+    /** Returns true if the current user can read the whole layer */
+    boolean isUnrestricted(FeatureTypeInfo featureType) {
+        ResourceAccessManager manager = secureCatalog.getResourceAccessManager();
+        DataAccessLimits limits =
+                manager.getAccessLimits(
+                        SecurityContextHolder.getContext().getAuthentication(), featureType);
+        if (limits == null) {
+            return true;
+        }
+        if (limits.getReadFilter() != null && limits.getReadFilter() != Filter.INCLUDE) {
+            return false;
+        }
+        return !(limits instanceof VectorAccessLimits)
+                || ((VectorAccessLimits) limits).getReadAttributes() == null;
+    }
+
+    private void serve(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FileChannel channel,
+            long lastModified)
+            throws IOException {
+        long length = channel.size();
+        String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag);
+        response.setHeader("Last-Modified", lastModified(lastModified));
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader("Range");
+        // ranges are ignored if the client has an outdated copy of the file
+        String ifRange = request.getHeader("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsed != RANGE_INVALID) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        response.setContentType(MIME_TYPE);
+        response.setHeader("Content-Length", String.valueOf(end - start + 1));
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        @SuppressWarnings("PMD.CloseResource") // managed by servlet container
+        OutputStream output = response.getOutputStream();
+        try (InputStream input = Channels.newInputStream(channel.position(start))) {
+            byte[] buffer = new byte[FlatGeobufWriter.BUFFER_SIZE];
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                int n = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    break;
+                }
+                output.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+    }
+
+    /**
+     * Parses a single byte range, multiple ranges are not supported
+     *
+     * @return The first and last byte of the range, {@link #RANGE_INVALID} if the header cannot be
+     *     parsed, or null if the range cannot be satisfied
+     */
+    static long[] parseRange(String header, long length) {
+        Matcher matcher = RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return RANGE_INVALID;
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        try {
+            if (first.isEmpty()) {
+                // suffix range, the last n bytes
+                if (last.isEmpty()) {
+                    return RANGE_INVALID;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix == 0 || length == 0) {
+                    return null;
+                }
+                return new long[] {Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+            if (end < start) {
+                return RANGE_INVALID;
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new long[] {start, Math.min(end, length - 1)};
+        } catch (NumberFormatException e) {
+            // too many digits
+            return RANGE_INVALID;
+        }
+    }
+
+    static String lastModified(long timeStamp) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss", Locale.ENGLISH);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(timeStamp)) + " GMT";
+    }
+}
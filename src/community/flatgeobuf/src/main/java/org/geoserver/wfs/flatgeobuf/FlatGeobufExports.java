@@ -0,0 +1,234 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.flatgeobuf;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.namespace.QName;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.platform.GeoServerResourceLoader;
+import org.geoserver.platform.resource.Paths;
+import org.geoserver.platform.resource.Resource;
+import org.geoserver.wfs.TransactionCallback;
+import org.geoserver.wfs.TransactionEvent;
+import org.geoserver.wfs.WFSException;
+import org.geoserver.wfs.request.TransactionRequest;
+import org.geoserver.wfs.request.TransactionResponse;
+import org.geotools.data.FeatureSource;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Manages the FlatGeobuf exports of whole layers, materialized with the spatial index in the data
+ * directory, under {@code flatgeobuf/<workspace>/<layer>.fgb}, so that they can be served with HTTP
+ * range requests by {@link FlatGeobufExportController}.
+ *
+ * <p>The export is enabled per layer, by the {@link #EXPORT_ENABLED} feature type metadata, built
+ * on first access, and removed when the layer configuration changes, or when a WFS transaction
+ * modifies its data. Changes made to the data outside of GeoServer are not tracked.
+ */
+public class FlatGeobufExports implements CatalogListener, TransactionCallback {
+
+    static final Logger LOGGER = Logging.getLogger(FlatGeobufExports.class);
+
+    /** Feature type metadata key enabling the export */
+    public static final String EXPORT_ENABLED = "flatgeobuf.export";
+
+    /** Data directory folder containing the exports */
+    static final String EXPORTS_DIRECTORY = "flatgeobuf";
+
+    /** Key of the layers modified by a transaction, in the request extended properties */
+    static final String MODIFIED_LAYERS = "FLATGEOBUF_MODIFIED_LAYERS";
+
+    private final Catalog catalog;
+
+    private final GeoServerResourceLoader resourceLoader;
+
+    public FlatGeobufExports(Catalog catalog, GeoServerResourceLoader resourceLoader) {
+        this.catalog = catalog;
+        this.resourceLoader = resourceLoader;
+        catalog.addListener(this);
+    }
+
+    /** Returns true if the export is enabled for the given feature type */
+    public static boolean isExportEnabled(FeatureTypeInfo featureType) {
+        return Boolean.TRUE.equals(featureType.getMetadata().get(EXPORT_ENABLED, Boolean.class));
+    }
+
+    /**
+     * Returns the export of the given feature type, building it if missing. The returned file might
+     * be removed at any time by a concurrent invalidation, readers should open it right away.
+     */
+    public File getExport(FeatureTypeInfo featureType) throws IOException {
+        Resource resource = getResource(featureType);
+        Resource.Lock lock = resource.lock();
+        try {
+            if (resource.getType() != Resource.Type.RESOURCE) {
+                build(featureType, resource);
+            }
+            // safe under lock, file() would create an empty file if the resource was missing
+            return resource.file();
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void build(FeatureTypeInfo featureType, Resource resource) throws IOException {
+        // the request might come from the secured catalog, read the data with no restrictions
+        FeatureTypeInfo raw = catalog.getFeatureType(featureType.getId());
+        if (raw == null) {
+            throw new IOException("Could not find feature type " + featureType.prefixedName());
+        }
+        FeatureSource<?, ?> source = raw.getFeatureSource(null, null);
+        if (!(source instanceof SimpleFeatureSource)) {
+            throw new IOException("FlatGeobuf does not support complex features");
+        }
+
+        long start = System.currentTimeMillis();
+        // the output is written to a temporary file, and moved in place only once complete, as the
+        // resource output stream would move a partial file in place on failure too
+        Resource temp = resource.parent().get(resource.name() + ".tmp");
+        boolean written = false;
+        try {
+            try (OutputStream os =
+                    new BufferedOutputStream(temp.out(), FlatGeobufWriter.BUFFER_SIZE)) {
+                FlatGeobufWriter.writeIndexed(
+                        ((SimpleFeatureSource) source).getFeatures(), os, Long.MAX_VALUE);
+            }
+            written = temp.renameTo(resource);
+            if (!written) {
+                throw new IOException("Could not move the export in place: " + resource.path());
+            }
+        } finally {
+            if (!written) {
+                temp.delete();
+            }
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(
+                    "Exported "
+                            + raw.prefixedName()
+                            + " to FlatGeobuf in "
+                            + (System.currentTimeMillis() - start)
+                            + "ms");
+        }
+    }
+
+    /** Removes the export of the given feature type, if any */
+    public void invalidate(FeatureTypeInfo featureType) {
+        Resource resource = getResource(featureType);
+        if (resource.getType() == Resource.Type.RESOURCE) {
+            Resource.Lock lock = resource.lock();
+            try {
+                resource.delete();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    Resource getResource(FeatureTypeInfo featureType) {
+        String workspace = featureType.getStore().getWorkspace().getName();
+        return resourceLoader.get(
+                Paths.path(EXPORTS_DIRECTORY, workspace, featureType.getName() + ".fgb"));
+    }
+
+    // catalog listener
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        // nothing to do, exports are built on demand
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        // the source still has the old names, in case of renames
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // nothing to do, already handled before the modification
+    }
+
+    @Override
+    public void reloaded() {
+        // nothing to do
+    }
+
+    private void invalidate(CatalogInfo info) {
+        if (info instanceof FeatureTypeInfo) {
+            invalidate((FeatureTypeInfo) info);
+        } else if (info instanceof DataStoreInfo) {
+            for (FeatureTypeInfo ft : catalog.getFeatureTypesByDataStore((DataStoreInfo) info)) {
+                invalidate(ft);
+            }
+        }
+    }
+
+    // transaction callback
+
+    @Override
+    public TransactionRequest beforeTransaction(TransactionRequest request) throws WFSException {
+        return request;
+    }
+
+    @Override
+    public void beforeCommit(TransactionRequest request) throws WFSException {
+        // nothing to do
+    }
+
+    @Override
+    public void dataStoreChange(TransactionEvent event) throws WFSException {
+        getModifiedLayers(TransactionRequest.adapt(event.getRequest())).add(event.getLayerName());
+    }
+
+    @Override
+    public void afterTransaction(
+            TransactionRequest request, TransactionResponse result, boolean committed) {
+        if (!committed) {
+            return;
+        }
+        for (QName name : getModifiedLayers(request)) {
+            try {
+                FeatureTypeInfo featureType =
+                        catalog.getFeatureTypeByName(name.getNamespaceURI(), name.getLocalPart());
+                if (featureType != null) {
+                    invalidate(featureType);
+                }
+            } catch (RuntimeException e) {
+                // never make the transaction fail because of the exports
+                LOGGER.log(Level.WARNING, "Failed to invalidate the FlatGeobuf export", e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<QName> getModifiedLayers(TransactionRequest request) {
+        Map<Object, Object> properties = request.getExtendedProperties();
+        return (Set<QName>) properties.computeIfAbsent(MODIFIED_LAYERS, k -> new HashSet<>());
+    }
+}
@@ -7,26 +7,45 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geoserver.config.GeoServer;
+import org.geoserver.platform.GeoServerExtensions;
 import org.geoserver.platform.Operation;
 import org.geoserver.platform.ServiceException;
 import org.geoserver.wfs.WFSGetFeatureOutputFormat;
 import org.geoserver.wfs.WFSInfo;
 import org.geoserver.wfs.request.FeatureCollectionResponse;
-import org.geotools.data.flatgeobuf.FeatureCollectionConversions;
+import org.geoserver.wfs.request.GetFeatureRequest;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.FeatureCollection;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
- * A GetFeatureInfo response handler specialized in producing FlatGeobuf data for a GetFeatureInfo
- * request.
+ * A GetFeature response handler specialized in producing FlatGeobuf data.
+ *
+ * <p>By default the features are streamed as they are read, without spatial index. The {@code
+ * INDEX} format option (e.g. {@code format_options=index:true}) requests the packed Hilbert R-tree
+ * index instead, which requires the whole result to be spooled to disk before being written, and is
+ * thus built only for results up to {@link #getMaxIndexedFeatures()} features, larger ones are
+ * written without index.
  *
  * @author Björn Harrtell
  */
 public class FlatGeobufOutputFormat extends WFSGetFeatureOutputFormat {
+
+    /** Format option requesting the spatial index */
+    public static final String INDEX_OPTION = "INDEX";
+
+    /**
+     * System, environment or servlet context variable setting the maximum number of features that
+     * will be indexed
+     */
+    public static final String MAX_INDEXED_FEATURES_KEY = "FLATGEOBUF_MAX_INDEXED_FEATURES";
+
+    static final long DEFAULT_MAX_INDEXED_FEATURES = 1_000_000;
+
     private final Logger LOGGER = org.geotools.util.logging.Logging.getLogger(this.getClass());
 
     public FlatGeobufOutputFormat(GeoServer gs) {
@@ -61,14 +80,44 @@ protected static boolean isComplexFeature(FeatureCollectionResponse results) {
     protected void write(
             FeatureCollectionResponse featureCollection, OutputStream output, Operation operation)
             throws IOException {
-        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("about to encode FlatGeobuf");
+        if (LOGGER.isLoggable(Level.FINE)) LOGGER.fine("about to encode FlatGeobuf");
 
         if (isComplexFeature(featureCollection))
-            throw new RuntimeException("FlatGeobuf does not support complex features");
+            throw new ServiceException("FlatGeobuf does not support complex features");
+        if (featureCollection.getFeature().size() > 1)
+            throw new ServiceException(
+                    "FlatGeobuf supports a single feature type per request",
+                    ServiceException.INVALID_PARAMETER_VALUE,
+                    "typeName");
 
         SimpleFeatureCollection fc =
                 (SimpleFeatureCollection) featureCollection.getFeature().get(0);
-        FeatureCollectionConversions.serialize(fc, 0, output);
+        if (isIndexRequested(operation)) {
+            FlatGeobufWriter.writeIndexed(fc, output, getMaxIndexedFeatures());
+        } else {
+            FlatGeobufWriter.write(fc, output);
+        }
+    }
+
+    /** Checks the INDEX format option */
+    protected boolean isIndexRequested(Operation operation) {
+        if (operation == null || operation.getParameters().length == 0) {
+            return false;
+        }
+        GetFeatureRequest request = GetFeatureRequest.adapt(operation.getParameters()[0]);
+        if (request == null) {
+            // e.g. WMS GetFeatureInfo
+            return false;
+        }
+        Map<String, ?> formatOptions = request.getFormatOptions();
+        return formatOptions != null
+                && Boolean.parseBoolean(String.valueOf(formatOptions.get(INDEX_OPTION)));
+    }
+
+    /** Returns the maximum number of features that will be indexed */
+    static long getMaxIndexedFeatures() {
+        String max = GeoServerExtensions.getProperty(MAX_INDEXED_FEATURES_KEY);
+        return max != null ? Long.parseLong(max) : DEFAULT_MAX_INDEXED_FEATURES;
     }
 
     /** Is WFS configured to return feature and collection bounds? */
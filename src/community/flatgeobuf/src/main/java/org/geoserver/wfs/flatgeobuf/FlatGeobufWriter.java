@@ -0,0 +1,233 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.flatgeobuf;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.geotools.data.flatgeobuf.FeatureCollectionConversions;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+import org.geotools.feature.collection.DecoratingSimpleFeatureIterator;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.wololo.flatgeobuf.HeaderMeta;
+
+/**
+ * Writes feature collections in FlatGeobuf, either streaming the features as they are read, or with
+ * the packed Hilbert R-tree spatial index.
+ *
+ * <p>The index precedes the features, which need to be sorted along the Hilbert curve, so the
+ * indexed output is first spooled to a temporary file, while collecting the feature bounds, and
+ * then rewritten with the feature count, the index, and the features in index order. Features
+ * without a geometry cannot be indexed, if any is found the output is written without the index.
+ */
+final class FlatGeobufWriter {
+
+    /** Number of children per index node, the FlatGeobuf default */
+    static final int NODE_SIZE = 16;
+
+    /** Length of the magic bytes at the beginning of the file */
+    static final int MAGIC_LENGTH = 8;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private FlatGeobufWriter() {}
+
+    /** Streams the features, without index and without the feature count in the header */
+    static void write(SimpleFeatureCollection features, OutputStream out) throws IOException {
+        FeatureCollectionConversions.serialize(features, 0, out);
+    }
+
+    /**
+     * Writes the features with the spatial index, if their number does not exceed the given maximum
+     * and they all have a geometry
+     *
+     * @return True if the index has been written
+     */
+    static boolean writeIndexed(
+            SimpleFeatureCollection features, OutputStream out, long maxIndexedFeatures)
+            throws IOException {
+        File spool = File.createTempFile("flatgeobuf", ".fgb");
+        try {
+            BoundsCollector collector = new BoundsCollector(features, maxIndexedFeatures);
+            try (OutputStream os =
+                    new BufferedOutputStream(Files.newOutputStream(spool.toPath()), BUFFER_SIZE)) {
+                FeatureCollectionConversions.serialize(collector, 0, os);
+            }
+            return rewrite(spool, collector, out);
+        } finally {
+            Files.deleteIfExists(spool.toPath());
+        }
+    }
+
+    private static boolean rewrite(File spool, BoundsCollector collector, OutputStream out)
+            throws IOException {
+        if (spool.length() == 0) {
+            // nothing was written, same as the streaming output
+            return false;
+        }
+        int count = collector.count;
+        boolean indexed = collector.indexable && count > 0;
+        // the offsets and sizes are needed only to reorder the features along the index
+        long[] offsets = indexed ? new long[count] : null;
+        int[] sizes = indexed ? new int[count] : null;
+        byte[] magicAndHeader;
+        try (DataInputStream in =
+                new DataInputStream(
+                        new BufferedInputStream(
+                                Files.newInputStream(spool.toPath()), BUFFER_SIZE))) {
+            byte[] magic = new byte[MAGIC_LENGTH];
+            in.readFully(magic);
+            int headerSize = Integer.reverseBytes(in.readInt());
+            magicAndHeader = new byte[MAGIC_LENGTH + 4 + headerSize];
+            System.arraycopy(magic, 0, magicAndHeader, 0, MAGIC_LENGTH);
+            ByteBuffer.wrap(magicAndHeader, MAGIC_LENGTH, 4)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(headerSize);
+            in.readFully(magicAndHeader, MAGIC_LENGTH + 4, headerSize);
+
+            if (indexed) {
+                // each feature is prefixed by its size
+                long position = magicAndHeader.length;
+                for (int i = 0; i < count; i++) {
+                    int size = Integer.reverseBytes(in.readInt());
+                    offsets[i] = position;
+                    sizes[i] = size + 4;
+                    position += sizes[i];
+                    skipFully(in, size);
+                }
+                if (in.read() != -1) {
+                    throw new IOException("Found more features than collected bounds");
+                }
+            }
+        }
+
+        HeaderMeta headerMeta =
+                HeaderMeta.read(ByteBuffer.wrap(magicAndHeader).order(ByteOrder.LITTLE_ENDIAN));
+        headerMeta.featuresCount = count;
+        headerMeta.indexNodeSize = indexed ? NODE_SIZE : 0;
+        out.write(magicAndHeader, 0, MAGIC_LENGTH);
+        HeaderMeta.write(headerMeta, out, new FlatBufferBuilder(4096));
+
+        try (FileChannel channel = FileChannel.open(spool.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            if (!indexed) {
+                // the features are already in place, after the header
+                transfer(channel, magicAndHeader.length, channel.size(), target);
+                return false;
+            }
+
+            int[] order = PackedRTree.hilbertSort(collector.bounds, count);
+            PackedRTree tree = new PackedRTree(count, NODE_SIZE);
+            double[] bounds = collector.bounds;
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                int feature = order[i];
+                tree.setLeaf(
+                        i,
+                        bounds[feature * 4],
+                        bounds[feature * 4 + 1],
+                        bounds[feature * 4 + 2],
+                        bounds[feature * 4 + 3],
+                        offset);
+                offset += sizes[feature];
+            }
+            tree.write(out);
+
+            for (int feature : order) {
+                transfer(channel, offsets[feature], offsets[feature] + sizes[feature], target);
+            }
+        }
+        return true;
+    }
+
+    private static void transfer(
+            FileChannel channel, long position, long end, WritableByteChannel target)
+            throws IOException {
+        while (position < end) {
+            position += channel.transferTo(position, end - position, target);
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of the FlatGeobuf features");
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Collects the bounds of the default geometry of the features, while they are being read. The
+     * collection stops, and only the features are counted, once they cannot be indexed
+     */
+    static class BoundsCollector extends DecoratingSimpleFeatureCollection {
+
+        final long maxIndexedFeatures;
+
+        double[] bounds;
+
+        int count;
+
+        boolean indexable;
+
+        BoundsCollector(SimpleFeatureCollection delegate, long maxIndexedFeatures) {
+            super(delegate);
+            this.maxIndexedFeatures = maxIndexedFeatures;
+        }
+
+        @Override
+        public SimpleFeatureIterator features() {
+            count = 0;
+            indexable = true;
+            bounds = new double[1024 * 4];
+            return new DecoratingSimpleFeatureIterator(super.features()) {
+                @Override
+                public SimpleFeature next() {
+                    SimpleFeature feature = super.next();
+                    collect((Geometry) feature.getDefaultGeometry());
+                    return feature;
+                }
+            };
+        }
+
+        void collect(Geometry geometry) {
+            if (indexable
+                    && (geometry == null || geometry.isEmpty() || count >= maxIndexedFeatures)) {
+                indexable = false;
+                bounds = null;
+            }
+            if (indexable) {
+                if (count * 4 == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                Envelope envelope = geometry.getEnvelopeInternal();
+                bounds[count * 4] = envelope.getMinX();
+                bounds[count * 4 + 1] = envelope.getMinY();
+                bounds[count * 4 + 2] = envelope.getMaxX();
+                bounds[count * 4 + 3] = envelope.getMaxY();
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.flatgeobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the packed Hilbert R-tree used as the FlatGeobuf spatial index, laid out as described by
+ * the FlatGeobuf specification: the items are sorted along the Hilbert curve, the nodes are stored
+ * top-down, root first and leaves last, each one as its bounds (four little endian doubles) and an
+ * offset. Leaf offsets are the byte offsets of the features in the data section, internal nodes
+ * offsets are the indexes of their first child.
+ */
+class PackedRTree {
+
+    /** Size in bytes of a serialized node */
+    static final int NODE_ITEM_SIZE = 4 * 8 + 8;
+
+    static final int HILBERT_MAX = (1 << 16) - 1;
+
+    private final int numItems;
+
+    private final int nodeSize;
+
+    private final List<long[]> levelBounds;
+
+    private final int numNodes;
+
+    private final double[] bounds;
+
+    private final long[] offsets;
+
+    /**
+     * Builds the tree structure for the given number of items, to be filled with {@link
+     * #setLeaf(int, double, double, double, double, long)} before being written
+     */
+    PackedRTree(int numItems, int nodeSize) {
+        if (numItems <= 0) {
+            throw new IllegalArgumentException("Cannot build an index without items");
+        }
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("Node size must be at least 2");
+        }
+        this.numItems = numItems;
+        this.nodeSize = nodeSize;
+        this.levelBounds = getLevelBounds(numItems, nodeSize);
+        this.numNodes = (int) levelBounds.get(0)[1];
+        this.bounds = new double[numNodes * 4];
+        this.offsets = new long[numNodes];
+    }
+
+    /**
+     * Returns the start (inclusive) and end (exclusive) node index of each level, leaves first,
+     * same as the reference implementation
+     */
+    static List<long[]> getLevelBounds(long numItems, int nodeSize) {
+        List<Long> levelNumNodes = new ArrayList<>();
+        long n = numItems;
+        long numNodes = n;
+        levelNumNodes.add(n);
+        do {
+            n = (n + nodeSize - 1) / nodeSize;
+            levelNumNodes.add(n);
+            numNodes += n;
+        } while (n != 1);
+
+        List<long[]> result = new ArrayList<>();
+        n = numNodes;
+        for (long size : levelNumNodes) {
+            result.add(new long[] {n - size, n});
+            n -= size;
+        }
+        return result;
+    }
+
+    /** Returns the size in bytes of the serialized index */
+    static long getSize(long numItems, int nodeSize) {
+        return getLevelBounds(numItems, nodeSize).get(0)[1] * NODE_ITEM_SIZE;
+    }
+
+    /**
+     * Sets the bounds and the feature offset of the i-th leaf, leaves should be set in Hilbert
+     * order, see {@link #hilbertSort(double[], int)}
+     */
+    void setLeaf(int i, double minX, double minY, double maxX, double maxY, long offset) {
+        int node = numNodes - numItems + i;
+        bounds[node * 4] = minX;
+        bounds[node * 4 + 1] = minY;
+        bounds[node * 4 + 2] = maxX;
+        bounds[node * 4 + 3] = maxY;
+        offsets[node] = offset;
+    }
+
+    /** Computes the internal nodes from the leaves, and writes the whole tree */
+    void write(OutputStream out) throws IOException {
+        generateNodes();
+        ByteBuffer buffer = ByteBuffer.allocate(1024 * NODE_ITEM_SIZE);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < numNodes; i++) {
+            if (!buffer.hasRemaining()) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            buffer.putDouble(bounds[i * 4]);
+            buffer.putDouble(bounds[i * 4 + 1]);
+            buffer.putDouble(bounds[i * 4 + 2]);
+            buffer.putDouble(bounds[i * 4 + 3]);
+            buffer.putLong(offsets[i]);
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    private void generateNodes() {
+        for (int i = 0; i < levelBounds.size() - 1; i++) {
+            int pos = (int) levelBounds.get(i)[0];
+            int end = (int) levelBounds.get(i)[1];
+            int parent = (int) levelBounds.get(i + 1)[0];
+            while (pos < end) {
+                offsets[parent] = pos;
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int j = 0; j < nodeSize && pos < end; j++, pos++) {
+                    minX = Math.min(minX, bounds[pos * 4]);
+                    minY = Math.min(minY, bounds[pos * 4 + 1]);
+                    maxX = Math.max(maxX, bounds[pos * 4 + 2]);
+                    maxY = Math.max(maxY, bounds[pos * 4 + 3]);
+                }
+                bounds[parent * 4] = minX;
+                bounds[parent * 4 + 1] = minY;
+                bounds[parent * 4 + 2] = maxX;
+                bounds[parent * 4 + 3] = maxY;
+                parent++;
+            }
+        }
+    }
+
+    /**
+     * Returns the order of the items along the Hilbert curve, computed on the center of their
+     * bounds, scaled to the extent of all the items
+     *
+     * @param boxes The items bounds, as minX, minY, maxX, maxY quadruples
+     * @param count The number of items
+     * @return The item indexes, sorted
+     */
+    static int[] hilbertSort(double[] boxes, int count) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, boxes[i * 4]);
+            minY = Math.min(minY, boxes[i * 4 + 1]);
+            maxX = Math.max(maxX, boxes[i * 4 + 2]);
+            maxY = Math.max(maxY, boxes[i * 4 + 3]);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+
+        // the Hilbert value in the upper 32 bits, the index in the lower ones, sign flipped so
+        // that the signed sort matches the unsigned order
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int x = 0;
+            int y = 0;
+            if (width != 0) {
+                double cx = (boxes[i * 4] + boxes[i * 4 + 2]) / 2;
+                x = (int) Math.floor(HILBERT_MAX * (cx - minX) / width);
+            }
+            if (height != 0) {
+                double cy = (boxes[i * 4 + 1] + boxes[i * 4 + 3]) / 2;
+                y = (int) Math.floor(HILBERT_MAX * (cy - minY) / height);
+            }
+            keys[i] = ((hilbert(x, y) << 32) | i) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Returns the position of a point along a Hilbert curve covering a 2^16 x 2^16 grid, based on
+     * the public domain "Fast Hilbert curve generation" by rawrunprotected
+     */
+    static long hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >>> 1);
+        int B = (a >>> 1) ^ a;
+        int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >>> 2)) ^ (b & (b >>> 2)));
+        B = ((a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2)));
+        C ^= ((a & (c >>> 2)) ^ (b & (d >>> 2)));
+        D ^= ((b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >>> 4)) ^ (b & (b >>> 4)));
+        B = ((a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4)));
+        C ^= ((a & (c >>> 4)) ^ (b & (d >>> 4)));
+        D ^= ((b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        C ^= ((a & (c >>> 8)) ^ (b & (d >>> 8)));
+        D ^= ((b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8)));
+
+        a = C ^ (C >>> 1);
+        b = D ^ (D >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return ((i1 << 1) | i0) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,221 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.flatgeobuf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.data.test.MockData;
+import org.geoserver.platform.resource.Resource;
+import org.geoserver.wfs.WFSInfo;
+import org.geoserver.wfs.WFSTestSupport;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.wololo.flatgeobuf.generated.Header;
+
+public class FlatGeobufOutputFormatTest extends WFSTestSupport {
+
+    static final String BUILDINGS_REQUEST =
+            "wfs?service=WFS&version=1.0.0&request=GetFeature&typeName=cite:Buildings"
+                    + "&outputFormat=application/flatgeobuf";
+
+    static final String BUILDINGS_EXPORT = "flatgeobuf/cite/Buildings.fgb";
+
+    static final byte[] MAGIC = {0x66, 0x67, 0x62, 0x03};
+
+    @After
+    public void disableExport() {
+        Catalog catalog = getCatalog();
+        FeatureTypeInfo buildings = catalog.getFeatureTypeByName(getLayerId(MockData.BUILDINGS));
+        if (buildings.getMetadata().remove(FlatGeobufExports.EXPORT_ENABLED) != null) {
+            catalog.save(buildings);
+        }
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        MockHttpServletResponse response = getAsServletResponse(BUILDINGS_REQUEST);
+        assertEquals("application/flatgeobuf", response.getContentType());
+        byte[] fgb = response.getContentAsByteArray();
+        assertArrayEquals(MAGIC, Arrays.copyOf(fgb, 4));
+        assertEquals("Buildings", readHeader(fgb).name());
+    }
+
+    @Test
+    public void testIndexed() throws Exception {
+        MockHttpServletResponse response =
+                getAsServletResponse(BUILDINGS_REQUEST + "&format_options=index:true");
+        byte[] fgb = response.getContentAsByteArray();
+        assertArrayEquals(MAGIC, Arrays.copyOf(fgb, 4));
+        assertIndexed(fgb);
+    }
+
+    @Test
+    public void testIndexedLimit() throws Exception {
+        System.setProperty(FlatGeobufOutputFormat.MAX_INDEXED_FEATURES_KEY, "1");
+        try {
+            MockHttpServletResponse response =
+                    getAsServletResponse(BUILDINGS_REQUEST + "&format_options=index:true");
+            Header header = readHeader(response.getContentAsByteArray());
+            // counted, but not indexed
+            assertEquals(2, header.featuresCount());
+            assertEquals(0, header.indexNodeSize());
+        } finally {
+            System.clearProperty(FlatGeobufOutputFormat.MAX_INDEXED_FEATURES_KEY);
+        }
+    }
+
+    @Test
+    public void testExportDisabled() throws Exception {
+        MockHttpServletResponse response = getAsServletResponse(BUILDINGS_EXPORT);
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        enableExport();
+        MockHttpServletResponse response = getAsServletResponse(BUILDINGS_EXPORT);
+        assertEquals(200, response.getStatus());
+        assertEquals(FlatGeobufExportController.MIME_TYPE, response.getContentType());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        byte[] fgb = response.getContentAsByteArray();
+        assertIndexed(fgb);
+
+        // the magic bytes
+        MockHttpServletResponse range = getRange(BUILDINGS_EXPORT, "bytes=0-3");
+        assertEquals(206, range.getStatus());
+        assertEquals("bytes 0-3/" + fgb.length, range.getHeader("Content-Range"));
+        assertArrayEquals(MAGIC, range.getContentAsByteArray());
+
+        // suffix and open ranges
+        range = getRange(BUILDINGS_EXPORT, "bytes=-10");
+        assertEquals(206, range.getStatus());
+        assertArrayEquals(
+                Arrays.copyOfRange(fgb, fgb.length - 10, fgb.length),
+                range.getContentAsByteArray());
+        range = getRange(BUILDINGS_EXPORT, "bytes=8-");
+        assertArrayEquals(Arrays.copyOfRange(fgb, 8, fgb.length), range.getContentAsByteArray());
+
+        // out of the file
+        range = getRange(BUILDINGS_EXPORT, "bytes=" + fgb.length + "-");
+        assertEquals(416, range.getStatus());
+        assertEquals("bytes */" + fgb.length, range.getHeader("Content-Range"));
+
+        // not modified
+        MockHttpServletRequest request = createRequest(BUILDINGS_EXPORT);
+        request.addHeader("If-None-Match", response.getHeader("ETag"));
+        assertEquals(304, dispatch(request).getStatus());
+    }
+
+    @Test
+    public void testExportInvalidation() throws Exception {
+        enableExport();
+        assertEquals(200, getAsServletResponse(BUILDINGS_EXPORT).getStatus());
+        FlatGeobufExports exports = applicationContext.getBean(FlatGeobufExports.class);
+        FeatureTypeInfo buildings =
+                getCatalog().getFeatureTypeByName(getLayerId(MockData.BUILDINGS));
+        assertEquals(Resource.Type.RESOURCE, exports.getResource(buildings).getType());
+
+        // a transaction modifying the layer removes the export
+        String xml =
+                "<wfs:Transaction service=\"WFS\" version=\"1.0.0\""
+                        + " xmlns:cite=\"http://www.opengis.net/cite\""
+                        + " xmlns:ogc=\"http://www.opengis.net/ogc\""
+                        + " xmlns:wfs=\"http://www.opengis.net/wfs\">"
+                        + "<wfs:Update typeName=\"cite:Buildings\">"
+                        + "<wfs:Property><wfs:Name>ADDRESS</wfs:Name>"
+                        + "<wfs:Value>123 Main Street</wfs:Value></wfs:Property>"
+                        + "<ogc:Filter><ogc:FeatureId fid=\"Buildings.1107531701010\"/>"
+                        + "</ogc:Filter></wfs:Update></wfs:Transaction>";
+        postAsDOM("wfs", xml);
+        assertEquals(Resource.Type.UNDEFINED, exports.getResource(buildings).getType());
+
+        // and is built again on the next access
+        assertEquals(200, getAsServletResponse(BUILDINGS_EXPORT).getStatus());
+        assertEquals(Resource.Type.RESOURCE, exports.getResource(buildings).getType());
+    }
+
+    @Test
+    public void testExportUnpublished() throws Exception {
+        enableExport();
+        Catalog catalog = getCatalog();
+        FeatureTypeInfo buildings = catalog.getFeatureTypeByName(getLayerId(MockData.BUILDINGS));
+        buildings.setEnabled(false);
+        catalog.save(buildings);
+        try {
+            assertEquals(404, getAsServletResponse(BUILDINGS_EXPORT).getStatus());
+        } finally {
+            buildings.setEnabled(true);
+            catalog.save(buildings);
+        }
+
+        LayerInfo layer = catalog.getLayerByName(getLayerId(MockData.BUILDINGS));
+        layer.setEnabled(false);
+        catalog.save(layer);
+        try {
+            assertEquals(404, getAsServletResponse(BUILDINGS_EXPORT).getStatus());
+        } finally {
+            layer.setEnabled(true);
+            catalog.save(layer);
+        }
+
+        WFSInfo wfs = getGeoServer().getService(WFSInfo.class);
+        wfs.setEnabled(false);
+        getGeoServer().save(wfs);
+        try {
+            assertEquals(404, getAsServletResponse(BUILDINGS_EXPORT).getStatus());
+        } finally {
+            wfs.setEnabled(true);
+            getGeoServer().save(wfs);
+        }
+
+        assertEquals(200, getAsServletResponse(BUILDINGS_EXPORT).getStatus());
+    }
+
+    private void enableExport() {
+        Catalog catalog = getCatalog();
+        FeatureTypeInfo buildings = catalog.getFeatureTypeByName(getLayerId(MockData.BUILDINGS));
+        buildings.getMetadata().put(FlatGeobufExports.EXPORT_ENABLED, true);
+        catalog.save(buildings);
+    }
+
+    private MockHttpServletResponse getRange(String path, String range) throws Exception {
+        MockHttpServletRequest request = createRequest(path);
+        request.addHeader("Range", range);
+        return dispatch(request);
+    }
+
+    private Header readHeader(byte[] fgb) {
+        ByteBuffer buffer = ByteBuffer.wrap(fgb).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(FlatGeobufWriter.MAGIC_LENGTH + 4);
+        return Header.getRootAsHeader(buffer);
+    }
+
+    private void assertIndexed(byte[] fgb) {
+        Header header = readHeader(fgb);
+        assertEquals(2, header.featuresCount());
+        assertEquals(FlatGeobufWriter.NODE_SIZE, header.indexNodeSize());
+
+        // the first feature follows the index, and the last one ends the file
+        ByteBuffer buffer = ByteBuffer.wrap(fgb).order(ByteOrder.LITTLE_ENDIAN);
+        int headerSize = buffer.getInt(FlatGeobufWriter.MAGIC_LENGTH);
+        long featuresStart =
+                FlatGeobufWriter.MAGIC_LENGTH
+                        + 4
+                        + headerSize
+                        + PackedRTree.getSize(2, FlatGeobufWriter.NODE_SIZE);
+        int first = buffer.getInt((int) featuresStart);
+        int second = buffer.getInt((int) featuresStart + 4 + first);
+        assertEquals(fgb.length, featuresStart + 4 + first + 4 + second);
+    }
+}
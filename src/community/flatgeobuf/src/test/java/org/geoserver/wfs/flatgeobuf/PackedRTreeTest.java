@@ -0,0 +1,120 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.flatgeobuf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class PackedRTreeTest {
+
+    @Test
+    public void testHilbert() {
+        // first order curve, starting at the origin and ending at the lower right corner
+        assertEquals(0, PackedRTree.hilbert(0, 0));
+        assertEquals(0xFFFFFFFFL, PackedRTree.hilbert(PackedRTree.HILBERT_MAX, 0));
+
+        // consecutive positions are adjacent cells, on a small corner of the grid
+        int side = 64;
+        long[][] cells = new long[side * side][];
+        for (int x = 0; x < side; x++) {
+            for (int y = 0; y < side; y++) {
+                long h = PackedRTree.hilbert(x, y);
+                assertTrue(h < cells.length);
+                cells[(int) h] = new long[] {x, y};
+            }
+        }
+        for (int i = 1; i < cells.length; i++) {
+            long distance =
+                    Math.abs(cells[i][0] - cells[i - 1][0])
+                            + Math.abs(cells[i][1] - cells[i - 1][1]);
+            assertEquals(1, distance);
+        }
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(2 * PackedRTree.NODE_ITEM_SIZE, PackedRTree.getSize(1, 16));
+        assertEquals(17 * PackedRTree.NODE_ITEM_SIZE, PackedRTree.getSize(16, 16));
+        assertEquals(20 * PackedRTree.NODE_ITEM_SIZE, PackedRTree.getSize(17, 16));
+        assertEquals(
+                (1000 + 63 + 4 + 1) * PackedRTree.NODE_ITEM_SIZE, PackedRTree.getSize(1000, 16));
+    }
+
+    @Test
+    public void testHilbertSort() {
+        // a 4x4 grid of unit boxes, in row order
+        double[] boxes = new double[16 * 4];
+        for (int i = 0; i < 16; i++) {
+            boxes[i * 4] = i % 4;
+            boxes[i * 4 + 1] = i / 4;
+            boxes[i * 4 + 2] = i % 4 + 1;
+            boxes[i * 4 + 3] = i / 4 + 1;
+        }
+        int[] order = PackedRTree.hilbertSort(boxes, 16);
+        Set<Integer> items = new HashSet<>();
+        for (int i = 0; i < order.length; i++) {
+            items.add(order[i]);
+            if (i > 0) {
+                // the curve moves between adjacent boxes
+                int dx = Math.abs(order[i] % 4 - order[i - 1] % 4);
+                int dy = Math.abs(order[i] / 4 - order[i - 1] / 4);
+                assertEquals(1, dx + dy);
+            }
+        }
+        assertEquals(16, items.size());
+        assertEquals(0, order[0]);
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        int count = 20;
+        PackedRTree tree = new PackedRTree(count, 4);
+        for (int i = 0; i < count; i++) {
+            tree.setLeaf(i, i, -i, i + 1, -i + 1, i * 100L);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        tree.write(bos);
+        assertEquals(PackedRTree.getSize(count, 4), bos.size());
+
+        // 20 leaves, 5 nodes, 2 nodes, root
+        ByteBuffer buffer = ByteBuffer.wrap(bos.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertArrayEquals(new double[] {0, -19, 20, 1}, readBounds(buffer, 0), 0d);
+        assertEquals(1, readOffset(buffer, 0));
+        // first level, two nodes, pointing at the 5 nodes of the second level
+        assertEquals(3, readOffset(buffer, 1));
+        assertEquals(7, readOffset(buffer, 2));
+        assertArrayEquals(new double[] {16, -19, 20, -15}, readBounds(buffer, 2), 0d);
+        // second level, pointing at the leaves
+        assertEquals(8, readOffset(buffer, 3));
+        assertEquals(24, readOffset(buffer, 7));
+        assertArrayEquals(new double[] {0, -3, 4, 1}, readBounds(buffer, 3), 0d);
+        // leaves, with the feature offsets
+        assertEquals(0, readOffset(buffer, 8));
+        assertEquals(1900, readOffset(buffer, 27));
+        assertArrayEquals(new double[] {19, -19, 20, -18}, readBounds(buffer, 27), 0d);
+    }
+
+    private double[] readBounds(ByteBuffer buffer, int node) {
+        int base = node * PackedRTree.NODE_ITEM_SIZE;
+        return new double[] {
+            buffer.getDouble(base),
+            buffer.getDouble(base + 8),
+            buffer.getDouble(base + 16),
+            buffer.getDouble(base + 24)
+        };
+    }
+
+    private long readOffset(ByteBuffer buffer, int node) {
+        return buffer.getLong(node * PackedRTree.NODE_ITEM_SIZE + 32);
+    }
+}
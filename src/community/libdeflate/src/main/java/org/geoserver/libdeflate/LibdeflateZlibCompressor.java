@@ -0,0 +1,66 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.libdeflate;
+
+import java.io.IOException;
+import java.util.Arrays;
+import me.steinborn.libdeflate.CompressionType;
+import me.steinborn.libdeflate.Libdeflate;
+import me.steinborn.libdeflate.LibdeflateCompressor;
+import org.geoserver.config.GeoServer;
+import org.geoserver.config.SettingsInfo;
+import org.geoserver.wms.map.png.ZlibCompressor;
+
+/**
+ * {@link ZlibCompressor} using libdeflate for the PNG map encoding. Follows the same {@link
+ * LibdeflateSettings} used for the TIFF compression: it's used only if the native library is
+ * available, its compression priority is higher than the ZIP Deflater one, and the level is within
+ * the configured range.
+ */
+public class LibdeflateZlibCompressor implements ZlibCompressor {
+
+    /** Priority of the default, java.util.zip based, compressor */
+    static final int ZIP_PRIORITY = 50;
+
+    private final GeoServer geoServer;
+
+    public LibdeflateZlibCompressor(GeoServer geoServer) {
+        this.geoServer = geoServer;
+    }
+
+    @Override
+    public boolean canCompress(int level) {
+        if (!Libdeflate.isAvailable()) {
+            return false;
+        }
+        LibdeflateSettings settings = getSettings();
+        return settings.getCompressionPriority() > ZIP_PRIORITY
+                && level >= settings.getMinLevel()
+                && level <= settings.getMaxLevel();
+    }
+
+    private LibdeflateSettings getSettings() {
+        SettingsInfo settings = geoServer.getGlobal().getSettings();
+        LibdeflateSettings result =
+                settings.getMetadata()
+                        .get(LibdeflateSettings.LIBDEFLATE_SETTINGS_KEY, LibdeflateSettings.class);
+        return result != null ? result : new LibdeflateSettings();
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int level) throws IOException {
+        // libdeflate cannot grow the output, allocate the worst case (stored blocks)
+        byte[] out = new byte[data.length + 5 * (data.length / 4096 + 1) + 64];
+        try (LibdeflateCompressor compressor = new LibdeflateCompressor(level)) {
+            int size =
+                    compressor.compress(
+                            data, 0, data.length, out, 0, out.length, CompressionType.ZLIB);
+            if (size <= 0) {
+                throw new IOException("libdeflate failed to compress " + data.length + " bytes");
+            }
+            return Arrays.copyOf(out, size);
+        }
+    }
+}
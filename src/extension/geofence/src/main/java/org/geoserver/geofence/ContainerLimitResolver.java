@@ -6,6 +6,7 @@
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -14,6 +15,8 @@
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geoserver.catalog.LayerGroupInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.geofence.cache.CachedRuleReader;
 import org.geoserver.geofence.services.RuleReaderService;
 import org.geoserver.geofence.services.dto.AccessInfo;
 import org.geoserver.geofence.services.dto.CatalogModeDTO;
@@ -123,6 +126,9 @@ private ContainerLimitResolver(
     ProcessingResult resolveResourceInGroupLimits() {
         Map<String, AccessInfo> publishedAccessByRole = new HashMap<>();
         Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+        if (ruleService instanceof CachedRuleReader) {
+            ((CachedRuleReader) ruleService).prefetch(collectRuleFilters(authorities));
+        }
         for (GrantedAuthority authority : authorities) {
             RuleFilter filter =
                     ruleFilterByRole(authority, instanceName, workspace, layer, callerIp);
@@ -303,6 +309,41 @@ private void intersectAccesses(
         else multiMap.put(RestrictionType.NONE, result);
     }
 
+    // collects the filters of all the rules needed to resolve the limits, one per role and
+    // container, plus the ones of the resource
+    private List<RuleFilter> collectRuleFilters(
+            Collection<? extends GrantedAuthority> authorities) {
+        List<RuleFilter> filters = new ArrayList<>();
+        for (GrantedAuthority authority : authorities) {
+            filters.add(ruleFilterByRole(authority, instanceName, workspace, layer, callerIp));
+            if (groupSummaries != null) {
+                for (LayerGroupContainmentCache.LayerGroupSummary summary : groupSummaries) {
+                    if (!summary.getMode().equals(LayerGroupInfo.Mode.OPAQUE_CONTAINER)) {
+                        filters.add(
+                                ruleFilterByRole(
+                                        authority,
+                                        instanceName,
+                                        summary.getWorkspace(),
+                                        summary.getName(),
+                                        callerIp));
+                    }
+                }
+            } else if (groupList != null) {
+                for (LayerGroupInfo group : groupList) {
+                    WorkspaceInfo ws = group.getWorkspace();
+                    filters.add(
+                            ruleFilterByRole(
+                                    authority,
+                                    instanceName,
+                                    ws != null ? ws.getName() : null,
+                                    group.getName(),
+                                    callerIp));
+                }
+            }
+        }
+        return filters;
+    }
+
     // collect the containers area by role.
     private ListMultimap<String, AccessInfo> collectContainersAccessInfoByRole(
             Collection<? extends GrantedAuthority> authorities) {
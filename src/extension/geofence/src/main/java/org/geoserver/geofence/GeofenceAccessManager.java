@@ -31,6 +31,7 @@
 import org.geoserver.catalog.WMTSLayerInfo;
 import org.geoserver.catalog.WorkspaceInfo;
 import org.geoserver.catalog.impl.LocalWorkspaceCatalog;
+import org.geoserver.geofence.cache.CachedRuleReader;
 import org.geoserver.geofence.config.GeoFenceConfiguration;
 import org.geoserver.geofence.config.GeoFenceConfigurationManager;
 import org.geoserver.geofence.core.model.LayerAttribute;
@@ -346,6 +347,9 @@ private AccessLimits getAccessLimits(
 
         String ipAddress = retrieveCallerIpAddress();
         RuleFilter ruleFilter = buildRuleFilter(workspace, layer, user, ipAddress);
+        if (info instanceof LayerGroupInfo && rules instanceof CachedRuleReader) {
+            prefetchGroupRules((LayerGroupInfo) info, ruleFilter, user, ipAddress);
+        }
         AccessInfo rule = rules.getAccessInfo(ruleFilter);
 
         if (rule == null) rule = AccessInfo.DENY_ALL;
@@ -716,6 +720,25 @@ private CatalogMode convert(CatalogModeDTO ruleCatalogMode) {
         return catalogMode;
     }
 
+    /**
+     * Loads at once the rules of the group and of the layers in it, which are going to be looked up
+     * right after, instead of loading them one by one
+     */
+    private void prefetchGroupRules(
+            LayerGroupInfo group, RuleFilter groupFilter, Authentication user, String ipAddress) {
+        List<RuleFilter> filters = new ArrayList<>();
+        filters.add(groupFilter);
+        for (LayerInfo layer : group.layers()) {
+            ResourceInfo resource = layer.getResource();
+            if (resource == null || resource.getStore() == null) continue;
+            WorkspaceInfo ws = resource.getStore().getWorkspace();
+            filters.add(
+                    buildRuleFilter(
+                            ws != null ? ws.getName() : null, layer.getName(), user, ipAddress));
+        }
+        ((CachedRuleReader) rules).prefetch(filters);
+    }
+
     // Builds a rule filter to retrieve the AccessInfo for the resource
     private RuleFilter buildRuleFilter(
             String workspace, String layer, Authentication user, String ipAddress) {
@@ -16,6 +16,9 @@ public class CacheConfiguration implements Serializable, Cloneable {
 
     private long expireMilliSec = 30000;
 
+    /** Threads refreshing and prefetching the rules, zero refreshes them synchronously */
+    private int loaderThreads = 4;
+
     private volatile Ticker customTicker = null; // testing only
 
     public long getExpireMilliSec() {
@@ -42,6 +45,14 @@ public void setSize(long size) {
         this.size = size;
     }
 
+    public int getLoaderThreads() {
+        return loaderThreads;
+    }
+
+    public void setLoaderThreads(int loaderThreads) {
+        this.loaderThreads = loaderThreads;
+    }
+
     public Ticker getCustomTicker() {
         return customTicker;
     }
@@ -59,6 +70,8 @@ public String toString() {
                 + refreshMilliSec
                 + ", expMsec="
                 + expireMilliSec
+                + ", loaderThreads="
+                + loaderThreads
                 + ']';
     }
 
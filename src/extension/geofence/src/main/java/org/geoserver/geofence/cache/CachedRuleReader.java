@@ -10,10 +10,21 @@
 import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geoserver.geofence.config.GeoFenceConfigurationManager;
@@ -22,6 +33,8 @@
 import org.geoserver.geofence.services.dto.AuthUser;
 import org.geoserver.geofence.services.dto.RuleFilter;
 import org.geoserver.geofence.services.dto.ShortRule;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
 import org.geotools.util.logging.Logging;
 
 /**
@@ -30,11 +43,15 @@
  * <p>Cache eviction policy is LRU.<br>
  * Cache coherence is handled by entry timeout.<br>
  *
- * <p>
+ * <p>Entries older than the refresh time are reloaded in the background by a pool of {@link
+ * CacheConfiguration#getLoaderThreads()} threads, while the requests keep on using the current
+ * value, so that frequently used entries never expire. Concurrent lookups of a missing entry share
+ * the same load. The rules of many layers can be loaded in parallel with {@link
+ * #prefetch(Collection)}.
  *
  * @author ETj (etj at geo-solutions.it)
  */
-public class CachedRuleReader implements RuleReaderService {
+public class CachedRuleReader implements RuleReaderService, CacheStatisticsProvider {
 
     static final Logger LOGGER = Logging.getLogger(CachedRuleReader.class);
 
@@ -51,6 +68,13 @@ public class CachedRuleReader implements RuleReaderService {
     /** Latest configuration used */
     private CacheConfiguration cacheConfiguration = new CacheConfiguration();
 
+    /** Refreshes and prefetches the rules, null if the rules are refreshed synchronously */
+    private ExecutorService loaderExecutor;
+
+    private final LongAdder prefetchCount = new LongAdder();
+
+    private final LongAdder prefetchLoadCount = new LongAdder();
+
     public CachedRuleReader(GeoFenceConfigurationManager configurationManager) {
         this.configurationManager = configurationManager;
 
@@ -68,9 +92,33 @@ public final void init() {
 
         cacheConfiguration = configurationManager.getCacheConfiguration();
 
-        ruleCache = getCacheBuilder().build(new RuleLoader());
-        userCache = getCacheBuilder().build(new UserLoader());
-        authCache = getCacheBuilder().build(new AuthLoader());
+        // the running refreshes of the previous caches are let complete
+        if (loaderExecutor != null) {
+            loaderExecutor.shutdown();
+            loaderExecutor = null;
+        }
+        int threads = cacheConfiguration.getLoaderThreads();
+        if (threads > 0) {
+            loaderExecutor =
+                    Executors.newFixedThreadPool(
+                            threads,
+                            new ThreadFactoryBuilder()
+                                    .setDaemon(true)
+                                    .setNameFormat("GeoFenceRuleLoader-%d")
+                                    .build());
+        }
+
+        ruleCache = getCacheBuilder().build(reloading(new RuleLoader()));
+        userCache = getCacheBuilder().build(reloading(new UserLoader()));
+        authCache = getCacheBuilder().build(reloading(new AuthLoader()));
+    }
+
+    /** Makes the loader refresh the entries asynchronously, if there are loader threads */
+    private <K, V> CacheLoader<K, V> reloading(CacheLoader<K, V> loader) {
+        if (loaderExecutor == null) {
+            return loader;
+        }
+        return CacheLoader.asyncReloading(loader, loaderExecutor);
     }
 
     protected CacheBuilder<Object, Object> getCacheBuilder() {
@@ -115,19 +163,9 @@ public ListenableFuture<AccessInfo> reload(final RuleFilter filter, AccessInfo a
             // the service, when integrated, may modify the filter
             RuleFilter clone = filter.clone();
 
-            // this is a sync implementation
+            // this is a sync implementation, run in the loader threads, if any (see #reloading)
             AccessInfo ret = realRuleReaderService.getAccessInfo(clone);
             return Futures.immediateFuture(ret);
-
-            // next there is an asynchronous implementation, but in tests it seems to hang
-            // return ListenableFutureTask.create(new Callable<AccessInfo>() {
-            // @Override
-            // public AccessInfo call() throws Exception {
-            // if(LOGGER.isLoggable(Level.FINE))
-            // LOGGER.log(Level.FINE, "Asynch reloading {0}", filter);
-            // return realRuleReaderService.getAccessInfo(filter);
-            // }
-            // });
         }
     }
 
@@ -149,7 +187,7 @@ public ListenableFuture<AccessInfo> reload(final RuleFilter filter, AccessInfo a
             // the service, when integrated, may modify the filter
             RuleFilter clone = filter.clone();
 
-            // this is a sync implementation
+            // this is a sync implementation, run in the loader threads, if any (see #reloading)
             AccessInfo ret = realRuleReaderService.getAdminAuthorization(clone);
             return Futures.immediateFuture(ret);
         }
@@ -172,12 +210,10 @@ public ListenableFuture<AuthUser> reload(final NamePw user, AuthUser authUser)
             if (LOGGER.isLoggable(Level.FINE))
                 LOGGER.log(Level.FINE, "Reloading user '" + user.getName() + "'");
 
-            // this is a sync implementation
+            // this is a sync implementation, run in the loader threads, if any (see #reloading)
             AuthUser auth = realRuleReaderService.authorize(user.getName(), user.getPw());
             if (auth == null) throw new NoAuthException("Can't auth user [" + user.getName() + "]");
             return Futures.immediateFuture(auth);
-
-            // todo: we may want a asynchronous implementation
         }
     }
 
@@ -240,6 +276,48 @@ public AccessInfo getAccessInfo(RuleFilter filter) {
         return accessInfo;
     }
 
+    /**
+     * Loads the access info of the filters not cached yet in parallel, using the loader threads, so
+     * that resolving the layers of a layer group or a capabilities document costs about one round
+     * trip to the rule service, instead of one per layer. Lookups of the same filters running
+     * concurrently share the same loads. Failures are ignored, the filters will be loaded again
+     * when looked up.
+     */
+    public void prefetch(Collection<RuleFilter> filters) {
+        prefetchCount.increment();
+        Set<RuleFilter> missing = new LinkedHashSet<>();
+        for (RuleFilter filter : filters) {
+            // not using getIfPresent, it would be counted as a miss
+            if (filter != null && !ruleCache.asMap().containsKey(filter)) {
+                missing.add(filter);
+            }
+        }
+        ExecutorService executor = loaderExecutor;
+        // a single filter is going to be loaded on lookup anyways
+        if (missing.size() < 2 || executor == null) {
+            return;
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Prefetching {0} rules", missing.size());
+        }
+
+        List<Future<?>> futures = new ArrayList<>(missing.size());
+        for (RuleFilter filter : missing) {
+            futures.add(executor.submit(() -> ruleCache.getUnchecked(filter)));
+        }
+        prefetchLoadCount.add(missing.size());
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to prefetch rule", e);
+            }
+        }
+    }
+
     @Override
     public AccessInfo getAdminAuthorization(RuleFilter filter) {
         // return realRuleReaderService.getAdminAuthorization(filter);
@@ -334,6 +412,28 @@ public long getUserCacheSize() {
         return userCache.size();
     }
 
+    /** Number of {@link #prefetch(Collection)} calls */
+    public long getPrefetchCount() {
+        return prefetchCount.sum();
+    }
+
+    /** Number of rules loaded by {@link #prefetch(Collection)} calls */
+    public long getPrefetchLoadCount() {
+        return prefetchLoadCount.sum();
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        if (ruleCache == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(
+                CacheStatistics.of("geofenceRules", "GeoFence access rules", ruleCache),
+                CacheStatistics.of(
+                        "geofenceAdminAuthorizations", "GeoFence admin authorizations", authCache),
+                CacheStatistics.of("geofenceUsers", "GeoFence user authorizations", userCache));
+    }
+
     /** May be useful if an external peer doesn't want to use the guava dep. */
     public String getStatsString() {
         return ruleCache.stats().toString();
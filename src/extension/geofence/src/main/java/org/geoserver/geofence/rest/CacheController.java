@@ -5,6 +5,7 @@
 package org.geoserver.geofence.rest;
 
 import com.google.common.cache.CacheStats;
+import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geoserver.catalog.Catalog;
@@ -42,70 +43,63 @@ public CacheController(Catalog catalog) {
             path = "/info",
             produces = {MediaType.TEXT_PLAIN_VALUE})
     public String getCacheInfo() {
-        CacheStats stats = cachedRuleReader.getStats();
-
-        StringBuilder sb =
-                new StringBuilder()
-                        .append("RuleStats[")
-                        .append(" size:")
-                        .append(cachedRuleReader.getCacheSize())
-                        .append("/")
-                        .append(cachedRuleReader.getCacheInitParams().getSize())
-                        .append(" hitCount:")
-                        .append(stats.hitCount())
-                        .append(" missCount:")
-                        .append(stats.missCount())
-                        .append(" loadSuccessCount:")
-                        .append(stats.loadSuccessCount())
-                        .append(" loadExceptionCount:")
-                        .append(stats.loadExceptionCount())
-                        .append(" totalLoadTime:")
-                        .append(stats.totalLoadTime())
-                        .append(" evictionCount:")
-                        .append(stats.evictionCount())
-                        .append("] \n");
-
-        stats = cachedRuleReader.getAdminAuthStats();
-        sb.append("AdminAuthStats[")
-                .append(" size:")
-                .append(cachedRuleReader.getCacheSize())
-                .append("/")
-                .append(cachedRuleReader.getCacheInitParams().getSize())
-                .append(" hitCount:")
-                .append(stats.hitCount())
-                .append(" missCount:")
-                .append(stats.missCount())
-                .append(" loadSuccessCount:")
-                .append(stats.loadSuccessCount())
-                .append(" loadExceptionCount:")
-                .append(stats.loadExceptionCount())
-                .append(" totalLoadTime:")
-                .append(stats.totalLoadTime())
-                .append(" evictionCount:")
-                .append(stats.evictionCount())
+        long maxSize = cachedRuleReader.getCacheInitParams().getSize();
+        StringBuilder sb = new StringBuilder();
+        appendStats(
+                sb,
+                "RuleStats",
+                cachedRuleReader.getStats(),
+                cachedRuleReader.getCacheSize(),
+                maxSize);
+        appendStats(
+                sb,
+                "AdminAuthStats",
+                cachedRuleReader.getAdminAuthStats(),
+                cachedRuleReader.getAdminAuthCacheSize(),
+                maxSize);
+        appendStats(
+                sb,
+                "UserStats",
+                cachedRuleReader.getUserStats(),
+                cachedRuleReader.getUserCacheSize(),
+                maxSize);
+        sb.append("PrefetchStats[")
+                .append(" prefetchCount:")
+                .append(cachedRuleReader.getPrefetchCount())
+                .append(" prefetchLoadCount:")
+                .append(cachedRuleReader.getPrefetchLoadCount())
+                .append(" loaderThreads:")
+                .append(cachedRuleReader.getCacheInitParams().getLoaderThreads())
                 .append("] \n");
 
-        stats = cachedRuleReader.getUserStats();
-        sb.append("UserStats[")
+        return sb.toString();
+    }
+
+    private static void appendStats(
+            StringBuilder sb, String name, CacheStats stats, long size, long maxSize) {
+        sb.append(name)
+                .append("[")
                 .append(" size:")
-                .append(cachedRuleReader.getUserCacheSize())
+                .append(size)
                 .append("/")
-                .append(cachedRuleReader.getCacheInitParams().getSize())
+                .append(maxSize)
                 .append(" hitCount:")
                 .append(stats.hitCount())
                 .append(" missCount:")
                 .append(stats.missCount())
+                .append(" hitRate:")
+                .append(String.format(Locale.ENGLISH, "%.3f", stats.hitRate()))
                 .append(" loadSuccessCount:")
                 .append(stats.loadSuccessCount())
                 .append(" loadExceptionCount:")
                 .append(stats.loadExceptionCount())
                 .append(" totalLoadTime:")
                 .append(stats.totalLoadTime())
+                .append(" averageLoadPenalty:")
+                .append(Math.round(stats.averageLoadPenalty()))
                 .append(" evictionCount:")
                 .append(stats.evictionCount())
                 .append("] \n");
-
-        return sb.toString();
     }
 
     @PutMapping(produces = {MediaType.TEXT_PLAIN_VALUE})
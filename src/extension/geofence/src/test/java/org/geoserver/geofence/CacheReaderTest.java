@@ -10,6 +10,7 @@
 import static org.junit.Assert.assertNotSame;
 
 import com.google.common.base.Ticker;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geoserver.geofence.cache.CacheConfiguration;
@@ -247,6 +248,35 @@ public void testExpire() throws InterruptedException {
         // System.out.println(cachedRuleReader.getStats());
     }
 
+    @Test
+    public void testPrefetch() {
+        Assume.assumeTrue(IS_GEOFENCE_AVAILABLE);
+
+        RuleFilter filter1 = new RuleFilter();
+        filter1.setUser("test_1");
+        RuleFilter filter2 = new RuleFilter();
+        filter2.setUser("test_2");
+
+        // already cached filters are not loaded again
+        cachedRuleReader.getAccessInfo(filter1);
+        cachedRuleReader.prefetch(Arrays.asList(filter1, filter1));
+        assertEquals(1, cachedRuleReader.getPrefetchCount());
+        assertEquals(0, cachedRuleReader.getPrefetchLoadCount());
+        assertEquals(1, cachedRuleReader.getStats().loadSuccessCount());
+
+        RuleFilter filter3 = new RuleFilter();
+        filter3.setUser("test_3");
+        cachedRuleReader.prefetch(Arrays.asList(filter1, filter2, filter3, filter2));
+        assertEquals(2, cachedRuleReader.getPrefetchLoadCount());
+        assertEquals(3, cachedRuleReader.getStats().loadSuccessCount());
+
+        // the lookups after the prefetch are hits, and prefetching did not count as a miss
+        cachedRuleReader.getAccessInfo(filter2);
+        cachedRuleReader.getAccessInfo(filter3);
+        assertEquals(2, cachedRuleReader.getStats().hitCount());
+        assertEquals(3, cachedRuleReader.getStats().missCount());
+    }
+
     // public void testSave() throws IOException, URISyntaxException {
     // GeofenceTestUtils.emptyFile("test-cache-config.properties");
     //
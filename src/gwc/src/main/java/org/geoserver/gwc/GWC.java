@@ -2738,6 +2738,14 @@ public static String getETag(byte[] tileBytes) throws NoSuchAlgorithmException {
         return etag;
     }
 
+    /**
+     * Computes and returns the etag of a tile given its size and last modification time, allows to
+     * compute an etag without reading the tile contents
+     */
+    public static String getETag(long size, long lastModified) {
+        return Long.toHexString(lastModified) + "-" + Long.toHexString(size);
+    }
+
     private static String toHexString(byte[] hash) {
 
         StringBuilder sb = new StringBuilder();
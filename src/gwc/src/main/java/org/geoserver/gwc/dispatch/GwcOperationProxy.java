@@ -5,6 +5,9 @@
  */
 package org.geoserver.gwc.dispatch;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 import org.geoserver.ows.Dispatcher;
 
@@ -20,6 +23,8 @@ public class GwcOperationProxy {
 
     private byte[] responseContent;
 
+    private ByteArrayOutputStream responseBuffer;
+
     private Map<String, String> responseHeaders;
 
     public GwcOperationProxy(
@@ -32,14 +37,39 @@ public GwcOperationProxy(
         this.responseHeaders = headers;
     }
 
+    /**
+     * Builds the response around the buffer GWC wrote into, avoiding to copy its contents in a new
+     * array
+     */
+    public GwcOperationProxy(
+            final String contentType,
+            final Map<String, String> headers,
+            final ByteArrayOutputStream responseBuffer) {
+        this.contentType = contentType;
+        this.responseBuffer = responseBuffer;
+        this.responseHeaders = headers;
+    }
+
     public String getMimeType() {
         return contentType;
     }
 
     public byte[] getContents() {
+        if (responseContent == null && responseBuffer != null) {
+            return responseBuffer.toByteArray();
+        }
         return responseContent;
     }
 
+    /** Writes the response contents to the given output stream */
+    public void writeTo(OutputStream output) throws IOException {
+        if (responseBuffer != null) {
+            responseBuffer.writeTo(output);
+        } else if (responseContent != null) {
+            output.write(responseContent);
+        }
+    }
+
     public Map<String, String> getResponseHeaders() {
         return responseHeaders;
     }
@@ -53,8 +53,7 @@ public void write(Object value, OutputStream output, Operation operation)
             throws IOException, ServiceException {
 
         GwcOperationProxy op = (GwcOperationProxy) value;
-        byte[] contents = op.getContents();
-        output.write(contents);
+        op.writeTo(output);
     }
 
     @Override
@@ -81,9 +81,10 @@ public GwcOperationProxy dispatch(HttpServletRequest rawRequest, HttpServletResp
 
         final String contentType = responseWrapper.getContentType();
         final Map<String, String> headers = responseWrapper.getHeaders();
-        final byte[] bytes = responseWrapper.out.getBytes();
+        // hand over the buffer, no need to copy it
+        final ByteArrayOutputStream buffer = responseWrapper.out.outputStream;
 
-        return new GwcOperationProxy(contentType, headers, bytes);
+        return new GwcOperationProxy(contentType, headers, buffer);
     }
 
     /** */
@@ -124,9 +125,5 @@ public void write(int b) throws IOException {
         public void write(byte[] b, int off, int len) throws IOException {
             outputStream.write(b, off, len);
         }
-
-        public byte[] getBytes() {
-            return outputStream.toByteArray();
-        }
     }
 }
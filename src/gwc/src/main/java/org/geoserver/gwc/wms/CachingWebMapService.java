@@ -10,8 +10,10 @@
 import static org.geowebcache.conveyor.Conveyor.CacheResult.MISS;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -31,6 +33,7 @@
 import org.geotools.util.logging.Logging;
 import org.geowebcache.conveyor.ConveyorTile;
 import org.geowebcache.io.ByteArrayResource;
+import org.geowebcache.io.FileResource;
 import org.geowebcache.io.Resource;
 import org.geowebcache.layer.TileLayer;
 
@@ -91,9 +94,31 @@ public WebMap invoke(MethodInvocation invocation) throws Throwable {
             LOGGER.finest("GetMap request intercepted, serving cached content: " + request);
         }
 
-        final byte[] tileBytes;
-        {
-            final Resource mapContents = cachedTile.getBlob();
+        final Resource mapContents = cachedTile.getBlob();
+        final String mimeType = cachedTile.getMimeType().getMimeType();
+        final String etag;
+        final RawMap map;
+        if (mapContents instanceof FileResource) {
+            // stream the file straight to the client, the etag is computed from the file
+            // size and modification time so that the tile does not need to be read
+            final FileChannel channel;
+            try {
+                channel = FileChannel.open(((FileResource) mapContents).getFile().toPath());
+            } catch (IOException e) {
+                // the tile got removed in the meantime (e.g. a truncate), render it
+                LOGGER.log(Level.FINER, "Cached tile not found, rendering it", e);
+                return (WebMap) invocation.proceed();
+            }
+            try {
+                etag = GWC.getETag(channel.size(), cachedTile.getTSCreated());
+                checkNotModified(request, etag);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            map = new RawMap(null, channel, mimeType);
+        } else {
+            final byte[] tileBytes;
             if (mapContents instanceof ByteArrayResource) {
                 tileBytes = ((ByteArrayResource) mapContents).getContents();
             } else {
@@ -101,35 +126,42 @@ public WebMap invoke(MethodInvocation invocation) throws Throwable {
                 mapContents.transferTo(Channels.newChannel(out));
                 tileBytes = out.toByteArray();
             }
-        }
-
-        // Handle Etags
-        final String ifNoneMatch = request.getHttpRequestHeader("If-None-Match");
-        final String etag = GWC.getETag(tileBytes);
-        if (etag.equals(ifNoneMatch)) {
-            // Client already has the current version
-            LOGGER.finer("ETag matches, returning 304");
-            throw new HttpErrorCodeException(HttpServletResponse.SC_NOT_MODIFIED);
+            etag = GWC.getETag(tileBytes);
+            checkNotModified(request, etag);
+            map = new RawMap(null, tileBytes, mimeType);
         }
 
         LOGGER.finer("No matching ETag, returning cached tile");
-        final String mimeType = cachedTile.getMimeType().getMimeType();
-
-        RawMap map = new RawMap(null, tileBytes, mimeType);
 
         map.setContentDispositionHeader(
                 null, "." + cachedTile.getMimeType().getFileExtension(), false);
 
         LinkedHashMap<String, String> headers = new LinkedHashMap<>();
-        GWC.setCacheControlHeaders(headers, layer, (int) cachedTile.getTileIndex()[2]);
-        GWC.setConditionalGetHeaders(
-                headers, cachedTile, etag, request.getHttpRequestHeader("If-Modified-Since"));
-        GWC.setCacheMetadataHeaders(headers, cachedTile, layer);
+        try {
+            GWC.setCacheControlHeaders(headers, layer, (int) cachedTile.getTileIndex()[2]);
+            GWC.setConditionalGetHeaders(
+                    headers, cachedTile, etag, request.getHttpRequestHeader("If-Modified-Since"));
+            GWC.setCacheMetadataHeaders(headers, cachedTile, layer);
+        } catch (RuntimeException e) {
+            // not modified, release the tile file
+            map.dispose();
+            throw e;
+        }
         headers.forEach((k, v) -> map.setResponseHeader(k, v));
 
         return map;
     }
 
+    /** Handles etags, throws a 304 if the client already has the current version of the tile */
+    private void checkNotModified(GetMapRequest request, String etag) {
+        final String ifNoneMatch = request.getHttpRequestHeader("If-None-Match");
+        if (etag.equals(ifNoneMatch)) {
+            // Client already has the current version
+            LOGGER.finer("ETag matches, returning 304");
+            throw new HttpErrorCodeException(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+    }
+
     private GetMapRequest getRequest(MethodInvocation invocation) {
         final Method method = invocation.getMethod();
         checkArgument(method.getDeclaringClass().equals(WebMapService.class));
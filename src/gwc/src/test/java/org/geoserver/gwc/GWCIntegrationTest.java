@@ -20,6 +20,7 @@
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -546,6 +547,38 @@ public void testDirectWMSIntegrationIfModifiedSinceSupport() throws Exception {
         assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
     }
 
+    @Test
+    public void testDirectWMSIntegrationETagSupport() throws Exception {
+        final GWC gwc = GWC.get();
+        gwc.getConfig().setDirectWMSIntegrationEnabled(true);
+
+        final String layerName = BASIC_POLYGONS.getPrefix() + ":" + BASIC_POLYGONS.getLocalPart();
+
+        final String path = buildGetMap(true, layerName, "EPSG:4326", null) + "&tiled=true";
+
+        // first request might render the tile, the second one is streamed from the blob store
+        MockHttpServletResponse first = getAsServletResponse(path);
+        assertEquals(200, first.getStatus());
+        MockHttpServletResponse response = getAsServletResponse(path);
+        assertEquals(200, response.getStatus());
+        assertEquals("image/png", response.getContentType());
+        assertEquals("HIT", response.getHeader("geowebcache-cache-result"));
+        assertArrayEquals(first.getContentAsByteArray(), response.getContentAsByteArray());
+
+        String etag = response.getHeader("ETag");
+        assertNotNull(etag);
+        MockHttpServletRequest httpReq = createGetRequest(path);
+        httpReq.addHeader("If-None-Match", etag);
+        response = dispatch(httpReq, "UTF-8");
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+
+        httpReq = createGetRequest(path);
+        httpReq.addHeader("If-None-Match", "abcdef");
+        response = dispatch(httpReq, "UTF-8");
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(etag, response.getHeader("ETag"));
+    }
+
     private MockHttpServletRequest createGetRequest(final String path) {
         MockHttpServletRequest httpReq = createRequest(path);
         httpReq.setMethod("GET");
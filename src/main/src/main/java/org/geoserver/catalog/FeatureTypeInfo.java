@@ -33,6 +33,12 @@ public interface FeatureTypeInfo extends ResourceInfo {
     /** ONLY FOR WFS-NG Feature Types */
     static final String OTHER_SRS = "OTHER_SRS";
 
+    /**
+     * Maximum time, in milliseconds, a WFS GetFeature waits for the numberMatched count, which is
+     * then computed in parallel, before reporting it as unknown
+     */
+    static final String NUMBER_MATCHED_TIME_BUDGET = "numberMatchedTimeBudget";
+
     /**
      * The data store the feature type is a part of.
      *
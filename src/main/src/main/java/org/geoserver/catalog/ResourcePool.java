@@ -67,6 +67,7 @@
 import org.geoserver.platform.resource.ResourceListener;
 import org.geoserver.platform.resource.ResourceNotification;
 import org.geoserver.platform.resource.Resources;
+import org.geoserver.system.status.CacheStatistics;
 import org.geoserver.util.EntityResolverProvider;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
@@ -106,9 +107,13 @@
 import org.geotools.ows.wmts.model.WMTSCapabilities;
 import org.geotools.ows.wmts.model.WMTSLayer;
 import org.geotools.referencing.CRS;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.NamedLayer;
 import org.geotools.styling.Style;
 import org.geotools.styling.StyleImpl;
+import org.geotools.styling.StyledLayer;
 import org.geotools.styling.StyledLayerDescriptor;
+import org.geotools.styling.UserLayer;
 import org.geotools.util.CanonicalSet;
 import org.geotools.util.SoftValueHashMap;
 import org.geotools.util.URLs;
@@ -183,9 +188,31 @@ public class ResourcePool {
     /** logging */
     static Logger LOGGER = Logging.getLogger("org.geoserver.catalog");
 
-    /** Default number of hard references */
+    /** Default number of feature types in cache */
     static int FEATURETYPE_CACHE_SIZE_DEFAULT = 100;
 
+    /**
+     * Average number of attributes per feature type, used to turn the configured feature type cache
+     * size into a maximum weight, feature types being weighted by their attribute count
+     */
+    static final int FEATURETYPE_CACHE_ATTRIBUTES = 20;
+
+    /** Default maximum number of coordinate reference systems in cache */
+    static final int CRS_CACHE_SIZE_DEFAULT = 10000;
+
+    /** Default maximum number of rules in the style caches */
+    static final int STYLE_CACHE_RULES_DEFAULT = 10000;
+
+    /** Default time to idle, in seconds, of the caches not holding disposable resources */
+    static final int CACHE_EXPIRE_AFTER_ACCESS_DEFAULT = 3600;
+
+    /**
+     * Default time to idle, in seconds, of the coverage readers. Readers are not bounded in number,
+     * as evicting a reader disposes it, and in a busy server a reader could be disposed while in
+     * use
+     */
+    static final int READER_CACHE_EXPIRE_AFTER_ACCESS_DEFAULT = 3600;
+
     Catalog catalog;
     Map<String, CoordinateReferenceSystem> crsCache;
     DataStoreCache dataStoreCache;
@@ -196,6 +223,9 @@ public class ResourcePool {
     Map<CoverageHintReaderKey, GridCoverageReader> hintCoverageReaderCache;
     Map<String, StyledLayerDescriptor> sldCache;
     Map<String, Style> styleCache;
+    /** The style resources watched for changes, at most one listener per style */
+    Map<String, StyleWatcher> styleWatchers;
+
     List<Listener> listeners;
     ThreadPoolExecutor coverageExecutor;
     CatalogRepository repository;
@@ -245,6 +275,7 @@ protected ResourcePool() {
         wmtsCache = createWmtsCache();
         sldCache = createSldCache();
         styleCache = createStyleCache();
+        styleWatchers = new ConcurrentHashMap<>();
 
         cacheKeys = CanonicalSet.newInstance(String.class);
         coverageCacheKeys = CanonicalSet.newInstance(CoverageHintReaderKey.class);
@@ -286,7 +317,12 @@ public Map<String, CoordinateReferenceSystem> getCrsCache() {
     }
 
     protected Map<String, CoordinateReferenceSystem> createCrsCache() {
-        return new ConcurrentHashMap<>();
+        return new ResourcePoolCache<>(
+                "crsCache",
+                "Coordinate reference systems, by identifier",
+                null,
+                CRS_CACHE_SIZE_DEFAULT,
+                CACHE_EXPIRE_AFTER_ACCESS_DEFAULT);
     }
 
     /**
@@ -324,7 +360,7 @@ public Map<String, FeatureType> getFeatureTypeCache() {
     protected Map<String, FeatureType> createFeatureTypeCache(int size) {
         // for each feature type we cache two versions, one with the projection policy applied, one
         // without it
-        return new FeatureTypeCache(size * 2);
+        return new FeatureTypeCache(size * 2 * FEATURETYPE_CACHE_ATTRIBUTES);
     }
 
     /**
@@ -342,7 +378,7 @@ public Map<String, List<AttributeTypeInfo>> getFeatureTypeAttributeCache() {
     protected Map<String, List<AttributeTypeInfo>> createFeatureTypeAttributeCache(int size) {
         // for each feature type we cache two versions, one with the projection policy applied, one
         // without it
-        return new FeatureTypeAttributeCache(size * 2);
+        return new FeatureTypeAttributeCache(size * 2 * FEATURETYPE_CACHE_ATTRIBUTES);
     }
 
     /**
@@ -368,7 +404,12 @@ public Map<String, StyledLayerDescriptor> getSldCache() {
     }
 
     protected Map<String, StyledLayerDescriptor> createSldCache() {
-        return new ConcurrentHashMap<>();
+        return new ResourcePoolCache<>(
+                "sldCache",
+                "Parsed style documents, weighted by number of rules",
+                (String k, StyledLayerDescriptor sld) -> 1 + countRules(sld),
+                STYLE_CACHE_RULES_DEFAULT,
+                CACHE_EXPIRE_AFTER_ACCESS_DEFAULT);
     }
 
     /**
@@ -381,7 +422,38 @@ public Map<String, Style> getStyleCache() {
     }
 
     protected Map<String, Style> createStyleCache() {
-        return new ConcurrentHashMap<>();
+        return new ResourcePoolCache<>(
+                "styleCache",
+                "Styles, weighted by number of rules",
+                (String k, Style style) -> 1 + countRules(style),
+                STYLE_CACHE_RULES_DEFAULT,
+                CACHE_EXPIRE_AFTER_ACCESS_DEFAULT);
+    }
+
+    static int countRules(StyledLayerDescriptor sld) {
+        int rules = 0;
+        for (StyledLayer layer : sld.layers()) {
+            Style[] styles = null;
+            if (layer instanceof NamedLayer) {
+                styles = ((NamedLayer) layer).getStyles();
+            } else if (layer instanceof UserLayer) {
+                styles = ((UserLayer) layer).getUserStyles();
+            }
+            if (styles != null) {
+                for (Style style : styles) {
+                    rules += countRules(style);
+                }
+            }
+        }
+        return rules;
+    }
+
+    static int countRules(Style style) {
+        int rules = 0;
+        for (FeatureTypeStyle fts : style.featureTypeStyles()) {
+            rules += fts.rules().size();
+        }
+        return rules;
     }
 
     /**
@@ -486,8 +558,10 @@ public CoordinateReferenceSystem getCRS(String srsName) throws IOException {
                 crs = crsCache.get(srsName);
                 if (crs == null) {
                     try {
+                        long start = System.nanoTime();
                         crs = CRS.decode(srsName);
                         crsCache.put(srsName, crs);
+                        recordLoad(crsCache, start);
                     } catch (Exception e) {
                         throw (IOException) new IOException().initCause(e);
                     }
@@ -812,8 +886,10 @@ public List<AttributeTypeInfo> getAttributes(FeatureTypeInfo info) throws IOExce
             synchronized (key) {
                 atts = featureTypeAttributeCache.get(key);
                 if (atts == null) {
+                    long start = System.nanoTime();
                     atts = attributeTypeInfos(info);
                     featureTypeAttributeCache.put(key, atts);
+                    recordLoad(featureTypeAttributeCache, start);
                 }
             }
         }
@@ -991,8 +1067,10 @@ FeatureType getCacheableFeatureType(FeatureTypeInfo info, boolean handleProjecti
             synchronized (key) {
                 ft = featureTypeCache.get(key);
                 if (ft == null) {
+                    long start = System.nanoTime();
                     ft = acquireFeatureType(info, handleProjectionPolicy);
                     featureTypeCache.put(key, ft);
+                    recordLoad(featureTypeCache, start);
                 }
             }
         }
@@ -1583,6 +1661,7 @@ private GridCoverageReader getGridCoverageReader(
                         // Getting coverage reader using the format and the real path.
                         //
                         // /////////////////////////////////////////////////////////
+                        long start = System.nanoTime();
                         final String urlString = expandedStore.getURL();
                         Object readObject =
                                 getObjectToRead(urlString, coverageInfo, expandedStore, hints);
@@ -1598,6 +1677,7 @@ private GridCoverageReader getGridCoverageReader(
                         }
                         if (key != null) {
                             hintCoverageReaderCache.put(key, reader);
+                            recordLoad(hintCoverageReaderCache, start);
                         }
                     } catch (Exception e) {
                         disableStoreInfoIfNeeded(info, CoverageStoreInfo.class, e);
@@ -2069,19 +2149,13 @@ public StyledLayerDescriptor getSld(final StyleInfo info) throws IOException {
             synchronized (key) {
                 sld = sldCache.get(key);
                 if (sld == null) {
+                    long start = System.nanoTime();
                     sld = dataDir().parsedSld(info);
 
                     sldCache.put(key, sld);
+                    recordLoad(sldCache, start);
 
-                    final Resource styleResource = dataDir().style(info);
-                    styleResource.addListener(
-                            new ResourceListener() {
-                                @Override
-                                public void changed(ResourceNotification notify) {
-                                    sldCache.remove(key);
-                                    styleResource.removeListener(this);
-                                }
-                            });
+                    watchStyle(info, key);
                 }
             }
         }
@@ -2108,18 +2182,12 @@ public Style getStyle(final StyleInfo info) throws IOException {
             synchronized (key) {
                 style = styleCache.get(key);
                 if (style == null) {
+                    long start = System.nanoTime();
                     style = createStyle(info);
                     styleCache.put(key, style);
+                    recordLoad(styleCache, start);
 
-                    final Resource styleResource = dataDir().style(info);
-                    styleResource.addListener(
-                            new ResourceListener() {
-                                @Override
-                                public void changed(ResourceNotification notify) {
-                                    styleCache.remove(key);
-                                    styleResource.removeListener(this);
-                                }
-                            });
+                    watchStyle(info, key);
                 }
             }
         }
@@ -2127,6 +2195,51 @@ public void changed(ResourceNotification notify) {
         return style;
     }
 
+    /**
+     * Makes sure the style resource is watched, to invalidate the cached style on change. The
+     * cached styles come and go as they are evicted and reloaded, the listener is added only once.
+     */
+    private void watchStyle(StyleInfo info, String key) {
+        Resource resource = dataDir().style(info);
+        StyleWatcher watcher = styleWatchers.get(key);
+        if (watcher != null) {
+            if (watcher.resource.path().equals(resource.path())) {
+                return;
+            }
+            // the style file changed
+            watcher.stop();
+        }
+        watcher = new StyleWatcher(key, resource);
+        styleWatchers.put(key, watcher);
+        resource.addListener(watcher);
+    }
+
+    /** Clears the cached style and sld on style resource changes */
+    class StyleWatcher implements ResourceListener {
+
+        final String key;
+
+        final Resource resource;
+
+        StyleWatcher(String key, Resource resource) {
+            this.key = key;
+            this.resource = resource;
+        }
+
+        @Override
+        public void changed(ResourceNotification notify) {
+            // stop first, so that a concurrent reload registers a new listener
+            stop();
+            sldCache.remove(key);
+            styleCache.remove(key);
+        }
+
+        void stop() {
+            styleWatchers.remove(key, this);
+            resource.removeListener(this);
+        }
+    }
+
     private Style createStyle(StyleInfo info) throws IOException {
         Style style = dataDir().parsedStyle(info);
 
@@ -2285,6 +2398,34 @@ GeoServerDataDirectory dataDir() {
         return new GeoServerDataDirectory(catalog.getResourceLoader());
     }
 
+    /** Records the time spent loading a cache entry, if the cache supports statistics */
+    private static void recordLoad(Map<?, ?> cache, long start) {
+        if (cache instanceof ResourcePoolCache) {
+            ((ResourcePoolCache<?, ?>) cache).recordLoad(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the statistics of the resource pool caches, for the ones supporting them (see {@link
+     * ResourcePoolCache})
+     */
+    public List<CacheStatistics> getCacheStatistics() {
+        List<CacheStatistics> result = new ArrayList<>();
+        for (Map<?, ?> cache :
+                Arrays.asList(
+                        crsCache,
+                        featureTypeCache,
+                        featureTypeAttributeCache,
+                        hintCoverageReaderCache,
+                        sldCache,
+                        styleCache)) {
+            if (cache instanceof ResourcePoolCache) {
+                result.add(((ResourcePoolCache<?, ?>) cache).getCacheStatistics());
+            }
+        }
+        return result;
+    }
+
     /** Disposes all cached resources. */
     public void dispose() {
         crsCache.clear();
@@ -2296,6 +2437,9 @@ public void dispose() {
         wmtsCache.clear();
         sldCache.clear();
         styleCache.clear();
+        for (StyleWatcher watcher : styleWatchers.values()) {
+            watcher.stop();
+        }
         listeners.clear();
 
         cacheKeys.clear();
@@ -2347,10 +2491,15 @@ public void clear() {
         protected abstract void dispose(K key, V object);
     }
 
-    class FeatureTypeCache extends CatalogResourceCache<String, FeatureType> {
+    class FeatureTypeCache extends ResourcePoolCache<String, FeatureType> {
 
-        public FeatureTypeCache(int maxSize) {
-            super(maxSize);
+        public FeatureTypeCache(int maxWeight) {
+            super(
+                    "featureTypeCache",
+                    "Feature types, weighted by number of attributes",
+                    (String k, FeatureType ft) -> 1 + ft.getDescriptors().size(),
+                    maxWeight,
+                    CACHE_EXPIRE_AFTER_ACCESS_DEFAULT);
         }
 
         @Override
@@ -2432,7 +2581,16 @@ protected void dispose(String id, GridCoverageReader reader) {
     }
 
     class CoverageHintReaderCache
-            extends CatalogResourceCache<CoverageHintReaderKey, GridCoverageReader> {
+            extends ResourcePoolCache<CoverageHintReaderKey, GridCoverageReader> {
+
+        public CoverageHintReaderCache() {
+            super(
+                    "hintCoverageReaderCache",
+                    "Coverage readers, by store and hints",
+                    null,
+                    0,
+                    READER_CACHE_EXPIRE_AFTER_ACCESS_DEFAULT);
+        }
 
         @Override
         protected void dispose(CoverageHintReaderKey key, GridCoverageReader reader) {
@@ -2491,10 +2649,15 @@ public boolean equals(Object obj) {
         }
     }
 
-    class FeatureTypeAttributeCache extends CatalogResourceCache<String, List<AttributeTypeInfo>> {
+    class FeatureTypeAttributeCache extends ResourcePoolCache<String, List<AttributeTypeInfo>> {
 
-        FeatureTypeAttributeCache(int size) {
-            super(size);
+        FeatureTypeAttributeCache(int maxWeight) {
+            super(
+                    "featureTypeAttributeCache",
+                    "Feature type attribute descriptions, weighted by number of attributes",
+                    (String k, List<AttributeTypeInfo> atts) -> 1 + atts.size(),
+                    maxWeight,
+                    CACHE_EXPIRE_AFTER_ACCESS_DEFAULT);
         }
 
         @Override
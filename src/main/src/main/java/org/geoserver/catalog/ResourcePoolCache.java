@@ -0,0 +1,185 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.catalog;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ForwardingConcurrentMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.system.status.CacheStatistics;
+import org.geotools.util.logging.Logging;
+
+/**
+ * A {@link ResourcePool} cache with a weight based size limit and time to idle eviction, exposed as
+ * a {@link Map} for backwards compatibility with the existing {@link ResourcePool} API.
+ *
+ * <p>Values are held by strong references, an entry is evicted, and disposed via {@link
+ * #dispose(Object, Object)}, either when the cache exceeds its maximum weight, or when it has not
+ * been accessed for the configured time to idle. This replaces soft references, whose collection is
+ * left to the garbage collector and tends to happen all at once under heap pressure.
+ *
+ * <p>The defaults provided by {@link ResourcePool} can be overridden with the {@code
+ * org.geoserver.catalog.cache.<name>.maxWeight} and {@code
+ * org.geoserver.catalog.cache.<name>.expireAfterAccess} (in seconds) system properties, a value of
+ * zero or less removing the limit.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class ResourcePoolCache<K, V> extends ForwardingConcurrentMap<K, V> {
+
+    static final Logger LOGGER = Logging.getLogger(ResourcePoolCache.class);
+
+    /** Prefix of the system properties configuring the caches, followed by the cache name */
+    public static final String PROPERTY_PREFIX = "org.geoserver.catalog.cache.";
+
+    private final String name;
+
+    private final String description;
+
+    private final Weigher<? super K, ? super V> weigher;
+
+    private final long maxWeight;
+
+    private final long expireAfterAccess;
+
+    private final Cache<K, V> cache;
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder loadTime = new LongAdder();
+
+    /**
+     * Builds a new cache
+     *
+     * @param name The cache name, used for the statistics and the configuration properties
+     * @param description A human readable description of the cache contents
+     * @param weigher The value weigher, or null to give each entry a weight of one
+     * @param maxWeight The default maximum weight, zero or negative for no limit
+     * @param expireAfterAccess The default time to idle, in seconds, zero or negative for no limit
+     */
+    public ResourcePoolCache(
+            String name,
+            String description,
+            Weigher<? super K, ? super V> weigher,
+            long maxWeight,
+            long expireAfterAccess) {
+        this.name = name;
+        this.description = description;
+        this.weigher = weigher;
+        this.maxWeight = lookup(name + ".maxWeight", maxWeight);
+        this.expireAfterAccess = lookup(name + ".expireAfterAccess", expireAfterAccess);
+
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (this.expireAfterAccess > 0) {
+            builder.expireAfterAccess(this.expireAfterAccess, TimeUnit.SECONDS);
+        }
+        RemovalListener<K, V> listener = this::onRemoval;
+        CacheBuilder<K, V> typed = builder.removalListener(listener);
+        if (this.maxWeight > 0) {
+            if (weigher != null) {
+                typed = typed.maximumWeight(this.maxWeight).weigher(weigher);
+            } else {
+                typed = typed.maximumSize(this.maxWeight);
+            }
+        }
+        this.cache = typed.build();
+    }
+
+    static long lookup(String key, long defaultValue) {
+        String value = GeoServerExtensions.getProperty(PROPERTY_PREFIX + key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Invalid value for " + PROPERTY_PREFIX + key + ": " + value + ", ignoring",
+                        e);
+            }
+        }
+        return defaultValue;
+    }
+
+    private void onRemoval(RemovalNotification<K, V> notification) {
+        // a put over an existing key should not dispose the value, it might be the same one
+        if (notification.getCause() != RemovalCause.REPLACED
+                && notification.getKey() != null
+                && notification.getValue() != null) {
+            dispose(notification.getKey(), notification.getValue());
+        }
+    }
+
+    @Override
+    protected ConcurrentMap<K, V> delegate() {
+        return cache.asMap();
+    }
+
+    @Override
+    public V get(Object key) {
+        // the map view does not record hits and misses
+        return key == null ? null : cache.getIfPresent(key);
+    }
+
+    /**
+     * Called when an entry is removed, evicted, or the cache is cleared. Subclasses can override to
+     * release the resources associated to the value.
+     */
+    protected void dispose(K key, V value) {
+        // nothing to do by default
+    }
+
+    /** Records the time it took to load an entry, in nanoseconds */
+    public void recordLoad(long nanos) {
+        loadCount.increment();
+        loadTime.add(nanos);
+    }
+
+    /** Returns the cache name */
+    public String getName() {
+        return name;
+    }
+
+    /** Returns the maximum weight of the cache, zero or negative if not bounded */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /** Returns the time to idle of the entries in seconds, zero or negative if not bounded */
+    public long getExpireAfterAccess() {
+        return expireAfterAccess;
+    }
+
+    /** Returns the current weight of the cache */
+    public long getWeight() {
+        long weight = 0;
+        for (Map.Entry<K, V> entry : cache.asMap().entrySet()) {
+            weight += weigher == null ? 1 : weigher.weigh(entry.getKey(), entry.getValue());
+        }
+        return weight;
+    }
+
+    /** Returns a snapshot of the cache statistics */
+    public CacheStatistics getCacheStatistics() {
+        cache.cleanUp();
+        CacheStatistics stats = CacheStatistics.of(name, description, cache);
+        // loads happen outside of the Guava cache, in the ResourcePool code
+        stats.setLoadCount(loadCount.sum());
+        stats.setTotalLoadTime(TimeUnit.NANOSECONDS.toMillis(loadTime.sum()));
+        stats.setWeight(getWeight());
+        stats.setMaxWeight(maxWeight > 0 ? maxWeight : -1);
+        return stats;
+    }
+}
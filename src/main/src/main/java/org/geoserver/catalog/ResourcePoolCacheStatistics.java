@@ -0,0 +1,27 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.catalog;
+
+import java.util.List;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+
+/**
+ * Reports the statistics of the {@link ResourcePool} caches. The pool is looked up from the
+ * catalog on each call, as it can be replaced during the catalog lifetime.
+ */
+public class ResourcePoolCacheStatistics implements CacheStatisticsProvider {
+
+    private final Catalog catalog;
+
+    public ResourcePoolCacheStatistics(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        return catalog.getResourcePool().getCacheStatistics();
+    }
+}
@@ -0,0 +1,220 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.catalog;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.impl.GeoServerLifecycleHandler;
+import org.geotools.styling.Style;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Parses styles in the background, populating the {@link ResourcePool} style cache, which is the
+ * one used by WMS, WMTS and GeoWebCache when rendering.
+ *
+ * <p>All the styles are parsed once the application context is started, and after a configuration
+ * reload, stopping once the style cache is full, as parsing more would only evict the styles parsed
+ * first. Added and modified styles are parsed again as soon as the catalog notifies the change, so
+ * that the first request using a CSS, YSLD or MBStyle style after an edit does not pay for its
+ * translation. The number of background threads can be set with the {@link #THREADS_KEY} system
+ * property, zero disables the warm up.
+ */
+public class StyleCacheWarmer
+        implements CatalogListener,
+                GeoServerLifecycleHandler,
+                ApplicationListener<ContextRefreshedEvent>,
+                DisposableBean {
+
+    static final Logger LOGGER = Logging.getLogger(StyleCacheWarmer.class);
+
+    /** Number of threads used to parse the styles, zero disables the warm up */
+    public static final String THREADS_KEY = "org.geoserver.catalog.styleCacheWarmer.threads";
+
+    private final Catalog catalog;
+
+    final ExecutorService executor;
+
+    /** Identifiers of the styles waiting to be parsed, to avoid queueing them more than once */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public StyleCacheWarmer(Catalog catalog) {
+        this(catalog, (int) ResourcePoolCache.lookup(THREADS_KEY, 1));
+    }
+
+    StyleCacheWarmer(Catalog catalog, int threads) {
+        this.catalog = catalog;
+        if (threads > 0) {
+            ThreadPoolExecutor executor =
+                    new ThreadPoolExecutor(
+                            threads,
+                            threads,
+                            60,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(),
+                            new ThreadFactoryBuilder()
+                                    .setNameFormat("StyleCacheWarmer-%d")
+                                    .setDaemon(true)
+                                    .setPriority(Thread.MIN_PRIORITY)
+                                    .build());
+            executor.allowCoreThreadTimeOut(true);
+            this.executor = executor;
+            catalog.addListener(this);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /** Returns true if the styles are parsed in the background */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Schedules the parsing of all the styles in the catalog, as long as they fit in the style
+     * cache
+     */
+    public void warmAll() {
+        if (executor == null) {
+            return;
+        }
+        AtomicLong available = new AtomicLong(getAvailableWeight());
+        for (StyleInfo style : catalog.getStyles()) {
+            warm(style, available);
+        }
+    }
+
+    /** Schedules the parsing of a single style, unless it's already scheduled */
+    public void warm(StyleInfo style) {
+        warm(style, null);
+    }
+
+    /**
+     * Schedules the parsing of a style, skipped if the available cache weight, if any, is exhausted
+     * by the time it runs
+     */
+    private void warm(StyleInfo style, AtomicLong available) {
+        if (executor == null || style.getId() == null || !pending.add(style.getId())) {
+            return;
+        }
+        String id = style.getId();
+        try {
+            executor.execute(
+                    () -> {
+                        pending.remove(id);
+                        if (available != null && available.get() <= 0) {
+                            return;
+                        }
+                        // the style might have been removed in the meantime
+                        StyleInfo current = catalog.getStyle(id);
+                        if (current == null) {
+                            return;
+                        }
+                        try {
+                            ResourcePool pool = catalog.getResourcePool();
+                            boolean cached = pool.getStyleCache().containsKey(id);
+                            Style parsed = pool.getStyle(current);
+                            if (available != null && !cached) {
+                                available.addAndGet(-1 - ResourcePool.countRules(parsed));
+                            }
+                        } catch (Exception e) {
+                            // the error will be reported again when the style is used
+                            LOGGER.log(
+                                    Level.FINE,
+                                    "Failed to parse style " + current.prefixedName(),
+                                    e);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            pending.remove(id);
+            LOGGER.log(Level.FINE, "Style cache warmer shut down, not parsing " + id, e);
+        }
+    }
+
+    /** Returns the weight the style cache can still take, without evicting entries */
+    private long getAvailableWeight() {
+        Map<String, Style> cache = catalog.getResourcePool().getStyleCache();
+        if (cache instanceof ResourcePoolCache) {
+            ResourcePoolCache<?, ?> bounded = (ResourcePoolCache<?, ?>) cache;
+            if (bounded.getMaxWeight() > 0) {
+                return bounded.getMaxWeight() - bounded.getWeight();
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        // child contexts are refreshed too, the styles need parsing only once
+        if (event.getApplicationContext().getParent() == null) {
+            warmAll();
+        }
+    }
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) {
+        if (event.getSource() instanceof StyleInfo) {
+            warm((StyleInfo) event.getSource());
+        }
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) {}
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) {}
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) {
+        if (event.getSource() instanceof StyleInfo) {
+            StyleInfo style = (StyleInfo) event.getSource();
+            // make sure the old version is gone, regardless of the listeners order
+            catalog.getResourcePool().clear(style);
+            warm(style);
+        }
+    }
+
+    @Override
+    public void reloaded() {}
+
+    @Override
+    public void onReset() {}
+
+    @Override
+    public void onDispose() {}
+
+    @Override
+    public void beforeReload() {}
+
+    @Override
+    public void onReload() {
+        warmAll();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (executor != null) {
+            catalog.removeListener(this);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -8,8 +8,13 @@
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Function;
@@ -26,6 +31,12 @@
  * A support index for {@link DefaultCatalogFacade}, can perform fast lookups of {@link CatalogInfo}
  * objects by id or by "name", where the name is defined by a a user provided mapping function.
  *
+ * <p>Secondary indexes can be registered with {@link #addIndex(String, Function)}, mapping the
+ * value of a property (usually a reference to another {@link CatalogInfo}, indexed by id) to the
+ * ids of the objects having it. They are kept up to date by {@link #add(CatalogInfo)}, {@link
+ * #remove(CatalogInfo)} and {@link #update(CatalogInfo)}, so like the name map, they require
+ * objects to be modified via {@link ModificationProxy} and saved.
+ *
  * <p>The lookups by predicate have been tested and optimized for performance, in particular the
  * current for loops turned out to be significantly faster than building and returning streams
  *
@@ -37,6 +48,7 @@
     ConcurrentHashMap<Class<T>, Map<String, T>> idMultiMap = new ConcurrentHashMap<>();
     ConcurrentHashMap<Class<T>, Map<Name, T>> nameMultiMap = new ConcurrentHashMap<>();
     Function<T, Name> nameMapper;
+    Map<String, PropertyIndex<T>> indexes = new ConcurrentHashMap<>();
     static final Predicate<?> TRUE = x -> true;
 
     /** Returns {@link CatalogInfoLookup#TRUE} in a type-safe way */
@@ -49,6 +61,38 @@ public CatalogInfoLookup(Function<T, Name> nameMapper) {
         this.nameMapper = nameMapper;
     }
 
+    /**
+     * Registers a secondary index on the given property, to be used before any object is added to
+     * the lookup.
+     *
+     * @param property The property name, used to look up the index in {@link #getIndexed(String,
+     *     String)}
+     * @param keyMapper Extracts the property value, which can be a single value or a collection of
+     *     values. {@link CatalogInfo} values are indexed by id, any other value by its string
+     *     representation.
+     */
+    public CatalogInfoLookup<T> addIndex(String property, Function<T, Object> keyMapper) {
+        indexes.put(property, new PropertyIndex<>(keyMapper));
+        return this;
+    }
+
+    /** Returns true if the given property has a secondary index */
+    public boolean isIndexed(String property) {
+        return indexes != null && indexes.containsKey(property);
+    }
+
+    /**
+     * Returns the ids of the objects whose indexed property matches the given key, or null if the
+     * property is not indexed
+     */
+    public Set<String> getIndexed(String property, String key) {
+        PropertyIndex<T> index = indexes == null ? null : indexes.get(property);
+        if (index == null) {
+            return null;
+        }
+        return index.get(key);
+    }
+
     @SuppressWarnings("unchecked")
     <K> Map<K, T> getMapForValue(ConcurrentHashMap<Class<T>, Map<K, T>> maps, T value) {
         Class<T> vc;
@@ -89,7 +133,16 @@ public T add(T value) {
         Name name = nameMapper.apply(value);
         nameMap.put(name, value);
         Map<String, T> idMap = getMapForValue(idMultiMap, value);
-        return idMap.put(value.getId(), value);
+        T previous = idMap.put(value.getId(), value);
+        if (indexes != null) {
+            for (PropertyIndex<T> index : indexes.values()) {
+                if (previous != null) {
+                    index.remove(previous);
+                }
+                index.add(value);
+            }
+        }
+        return previous;
     }
 
     public Collection<T> values() {
@@ -106,10 +159,19 @@ public T remove(T value) {
         Map<Name, T> nameMap = getMapForValue(nameMultiMap, value);
         nameMap.remove(name);
         Map<String, T> idMap = getMapForValue(idMultiMap, value);
-        return idMap.remove(value.getId());
+        T removed = idMap.remove(value.getId());
+        if (removed != null && indexes != null) {
+            for (PropertyIndex<T> index : indexes.values()) {
+                index.remove(removed);
+            }
+        }
+        return removed;
     }
 
-    /** Updates the value in the name map. The new value must be a ModificationProxy */
+    /**
+     * Updates the value in the name map and in the secondary indexes. The new value must be a
+     * ModificationProxy
+     */
     @SuppressWarnings("unchecked")
     public void update(T proxiedValue) {
         ModificationProxy h = (ModificationProxy) Proxy.getInvocationHandler(proxiedValue);
@@ -122,11 +184,21 @@ public void update(T proxiedValue) {
             nameMap.remove(oldName);
             nameMap.put(newName, actualValue);
         }
+        if (indexes != null) {
+            for (PropertyIndex<T> index : indexes.values()) {
+                index.update(actualValue, proxiedValue);
+            }
+        }
     }
 
     public void clear() {
         idMultiMap.clear();
         nameMultiMap.clear();
+        if (indexes != null) {
+            for (PropertyIndex<T> index : indexes.values()) {
+                index.clear();
+            }
+        }
     }
 
     /**
@@ -157,6 +229,45 @@ <U extends CatalogInfo> List<U> list(Class<U> clazz, Predicate<U> predicate) {
         return result;
     }
 
+    /**
+     * Looks up the objects of the given class among the given identifiers, returning the ones
+     * matching the predicate grouped by concrete class, and sorted by name within each class,
+     * consistently with {@link #list(Class, Predicate)}. The cost is proportional to the number of
+     * identifiers, rather than to the size of the lookup.
+     */
+    <U extends CatalogInfo> List<U> list(
+            Class<U> clazz, Collection<String> ids, Predicate<U> predicate) {
+        List<T> matches = new ArrayList<>(ids.size());
+        for (Class<T> key : nameMultiMap.keySet()) {
+            Map<String, T> valueMap = clazz.isAssignableFrom(key) ? idMultiMap.get(key) : null;
+            if (valueMap == null) {
+                continue;
+            }
+            int start = matches.size();
+            for (String id : ids) {
+                T t = valueMap.get(id);
+                @SuppressWarnings("unchecked")
+                U u = (U) t;
+                if (t != null && (predicate == TRUE || predicate.test(u))) {
+                    matches.add(t);
+                }
+            }
+            if (matches.size() - start > 1) {
+                matches.subList(start, matches.size())
+                        .sort(Comparator.comparing(nameMapper, CatalogInfoLookup::compareNames));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        List<U> result = (List<U>) matches;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareNames(Name n1, Name n2) {
+        return ((Comparable<Name>) n1).compareTo(n2);
+    }
+
     /** Looks up a CatalogInfo by class and identifier */
     public <U extends CatalogInfo> U findById(String id, Class<U> clazz) {
         for (Class<T> key : idMultiMap.keySet()) {
@@ -246,4 +357,103 @@ public CatalogInfoLookup<T> setCatalog(Catalog catalog) {
 
         return this;
     }
+
+    /**
+     * A secondary index, mapping property values to the ids of the objects having them. Updates
+     * rely on the per-bin locking of {@link ConcurrentHashMap#compute}, so that concurrent
+     * modifications of objects sharing different keys do not contend with each other.
+     */
+    static class PropertyIndex<T extends CatalogInfo> {
+
+        final Function<T, Object> keyMapper;
+
+        final ConcurrentHashMap<String, Set<String>> ids = new ConcurrentHashMap<>();
+
+        PropertyIndex(Function<T, Object> keyMapper) {
+            this.keyMapper = keyMapper;
+        }
+
+        Set<String> get(String key) {
+            Set<String> result = ids.get(key);
+            return result == null ? Collections.emptySet() : result;
+        }
+
+        void add(T value) {
+            add(value.getId(), keys(value));
+        }
+
+        void remove(T value) {
+            remove(value.getId(), keys(value));
+        }
+
+        void update(T oldValue, T newValue) {
+            Set<String> oldKeys = keys(oldValue);
+            Set<String> newKeys = keys(newValue);
+            if (!oldKeys.equals(newKeys)) {
+                String id = oldValue.getId();
+                remove(id, oldKeys);
+                add(id, newKeys);
+            }
+        }
+
+        void clear() {
+            ids.clear();
+        }
+
+        private void add(String id, Set<String> keys) {
+            for (String key : keys) {
+                ids.compute(
+                        key,
+                        (k, v) -> {
+                            Set<String> set = v == null ? ConcurrentHashMap.newKeySet() : v;
+                            set.add(id);
+                            return set;
+                        });
+            }
+        }
+
+        private void remove(String id, Set<String> keys) {
+            for (String key : keys) {
+                ids.computeIfPresent(
+                        key,
+                        (k, v) -> {
+                            v.remove(id);
+                            return v.isEmpty() ? null : v;
+                        });
+            }
+        }
+
+        private Set<String> keys(T value) {
+            Object v;
+            try {
+                v = keyMapper.apply(value);
+            } catch (RuntimeException e) {
+                // e.g., a layer without a resource, it cannot be found via index
+                LOGGER.log(Level.FINEST, "Could not compute index key", e);
+                return Collections.emptySet();
+            }
+            if (v == null) {
+                return Collections.emptySet();
+            }
+            if (!(v instanceof Collection)) {
+                String key = toKey(v);
+                return key == null ? Collections.emptySet() : Collections.singleton(key);
+            }
+            Set<String> keys = new HashSet<>();
+            for (Object o : (Collection<?>) v) {
+                String key = toKey(o);
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+            return keys;
+        }
+
+        static String toKey(Object value) {
+            if (value instanceof CatalogInfo) {
+                return ((CatalogInfo) value).getId();
+            }
+            return Objects.toString(value, null);
+        }
+    }
 }
@@ -5,17 +5,24 @@
  */
 package org.geoserver.catalog.impl;
 
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
+import com.google.common.collect.Range;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
@@ -40,13 +47,25 @@
 import org.geoserver.ows.util.OwsUtils;
 import org.geotools.feature.NameImpl;
 import org.opengis.feature.type.Name;
+import org.opengis.filter.And;
 import org.opengis.filter.Filter;
+import org.opengis.filter.MultiValuedFilter.MatchAction;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.sort.SortOrder;
 
 /**
  * Default catalog facade implementation in which all objects are stored in memory.
  *
+ * <p>Besides the lookups by id and name, stores, resources, layers, layer groups and styles are
+ * indexed by the objects they reference (workspace, namespace, store, resource, styles) and by
+ * their enabled/advertised flags. The indexes are used by {@link #list} and {@link #count} to
+ * resolve equality filters against those properties, and their chains (e.g., {@code
+ * resource.store.workspace.name}), without scanning the whole catalog.
+ *
  * @author Justin Deoliveira, OpenGeo
  *     <p>TODO: look for any exceptions, move them back to catalog as they indicate logic
  */
@@ -95,6 +114,9 @@ static final class LayerInfoLookup extends CatalogInfoLookup<LayerInfo> {
 
         public LayerInfoLookup() {
             super(LAYER_NAME_MAPPER);
+            addIndex("resource", LayerInfo::getResource);
+            addIndex("defaultStyle", LayerInfo::getDefaultStyle);
+            addIndex("styles", LayerInfo::getStyles);
         }
 
         public void update(ResourceInfo proxiedValue) {
@@ -121,15 +143,41 @@ public LayerInfoLookup setCatalog(Catalog catalog) {
         }
     }
 
+    /** Properties whose indexes have a low selectivity, used only if no other index applies */
+    static final Set<String> FLAGS = new HashSet<>(Arrays.asList("enabled", "advertised"));
+
+    static CatalogInfoLookup<StoreInfo> newStoreLookup() {
+        return new CatalogInfoLookup<>(STORE_NAME_MAPPER)
+                .addIndex("workspace", StoreInfo::getWorkspace)
+                .addIndex("enabled", StoreInfo::isEnabled);
+    }
+
+    static CatalogInfoLookup<ResourceInfo> newResourceLookup() {
+        return new CatalogInfoLookup<>(RESOURCE_NAME_MAPPER)
+                .addIndex("store", ResourceInfo::getStore)
+                .addIndex("namespace", ResourceInfo::getNamespace)
+                .addIndex("enabled", ResourceInfo::isEnabled)
+                .addIndex("advertised", ResourceInfo::isAdvertised);
+    }
+
+    static CatalogInfoLookup<LayerGroupInfo> newLayerGroupLookup() {
+        return new CatalogInfoLookup<>(LAYERGROUP_NAME_MAPPER)
+                .addIndex("workspace", LayerGroupInfo::getWorkspace);
+    }
+
+    static CatalogInfoLookup<StyleInfo> newStyleLookup() {
+        return new CatalogInfoLookup<>(STYLE_NAME_MAPPER)
+                .addIndex("workspace", StyleInfo::getWorkspace);
+    }
+
     /** Contains the stores keyed by implementation class */
-    protected CatalogInfoLookup<StoreInfo> stores = new CatalogInfoLookup<>(STORE_NAME_MAPPER);
+    protected CatalogInfoLookup<StoreInfo> stores = newStoreLookup();
 
     /** The default store keyed by workspace id */
     protected Map<String, DataStoreInfo> defaultStores = new ConcurrentHashMap<>();
 
     /** resources */
-    protected CatalogInfoLookup<ResourceInfo> resources =
-            new CatalogInfoLookup<>(RESOURCE_NAME_MAPPER);
+    protected CatalogInfoLookup<ResourceInfo> resources = newResourceLookup();
 
     /** The default namespace */
     protected volatile NamespaceInfo defaultNamespace;
@@ -152,11 +200,10 @@ public LayerInfoLookup setCatalog(Catalog catalog) {
     protected List<MapInfo> maps = new CopyOnWriteArrayList<>();
 
     /** layer groups */
-    protected CatalogInfoLookup<LayerGroupInfo> layerGroups =
-            new CatalogInfoLookup<>(LAYERGROUP_NAME_MAPPER);
+    protected CatalogInfoLookup<LayerGroupInfo> layerGroups = newLayerGroupLookup();
 
     /** styles */
-    protected CatalogInfoLookup<StyleInfo> styles = new CatalogInfoLookup<>(STYLE_NAME_MAPPER);
+    protected CatalogInfoLookup<StyleInfo> styles = newStyleLookup();
 
     /** the catalog */
     private CatalogImpl catalog;
@@ -982,7 +1029,7 @@ public void resolve() {
 
         // stores
         if (stores == null) {
-            stores = new CatalogInfoLookup<>(STORE_NAME_MAPPER);
+            stores = newStoreLookup();
         }
         for (Object o : stores.values()) {
             resolve((StoreInfoImpl) o);
@@ -990,7 +1037,7 @@ public void resolve() {
 
         // styles
         if (styles == null) {
-            styles = new CatalogInfoLookup<>(STYLE_NAME_MAPPER);
+            styles = newStyleLookup();
         }
         for (StyleInfo s : styles.values()) {
             resolve(s);
@@ -998,7 +1045,7 @@ public void resolve() {
 
         // resources
         if (resources == null) {
-            resources = new CatalogInfoLookup<>(RESOURCE_NAME_MAPPER);
+            resources = newResourceLookup();
         }
         for (Object o : resources.values()) {
             resolve((ResourceInfo) o);
@@ -1014,7 +1061,7 @@ public void resolve() {
 
         // layer groups
         if (layerGroups == null) {
-            layerGroups = new CatalogInfoLookup<>(LAYERGROUP_NAME_MAPPER);
+            layerGroups = newLayerGroupLookup();
         }
         for (LayerGroupInfo lg : layerGroups.values()) {
             resolve(lg);
@@ -1145,7 +1192,13 @@ public <T extends CatalogInfo> CloseableIterator<T> list(
             }
         }
 
-        Iterable<T> iterable = iterable(of, filter, sortOrder);
+        // when sorting, only the first offset + count objects need to be fully ordered
+        Integer limit = null;
+        if (count != null && count.intValue() >= 0 && sortOrder != null) {
+            long last = (offset != null ? Math.max(0, offset.longValue()) : 0) + count;
+            limit = (int) Math.min(last, Integer.MAX_VALUE);
+        }
+        Iterable<T> iterable = iterable(of, filter, sortOrder, limit);
 
         if (offset != null && offset.intValue() > 0) {
             iterable = Iterables.skip(iterable, offset.intValue());
@@ -1160,9 +1213,21 @@ public <T extends CatalogInfo> CloseableIterator<T> list(
         return new CloseableIteratorAdapter<>(iterator);
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends CatalogInfo> Iterable<T> iterable(
             final Class<T> of, final Filter filter, final SortBy[] sortByList) {
+        return iterable(of, filter, sortByList, null);
+    }
+
+    /**
+     * Returns the objects matching the filter, sorted. If a limit is provided only the first {@code
+     * limit} objects in the sort order are returned.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends CatalogInfo> List<T> iterable(
+            final Class<T> of,
+            final Filter filter,
+            final SortBy[] sortByList,
+            @Nullable Integer limit) {
         List<T> all;
 
         if (NamespaceInfo.class.isAssignableFrom(of)) {
@@ -1170,32 +1235,38 @@ public <T extends CatalogInfo> Iterable<T> iterable(
         } else if (WorkspaceInfo.class.isAssignableFrom(of)) {
             all = workspaces.list(of, toPredicate(filter));
         } else if (StoreInfo.class.isAssignableFrom(of)) {
-            all = stores.list(of, toPredicate(filter));
+            all = query(stores, of, filter);
         } else if (ResourceInfo.class.isAssignableFrom(of)) {
-            all = resources.list(of, toPredicate(filter));
+            all = query(resources, of, filter);
         } else if (LayerInfo.class.isAssignableFrom(of)) {
-            all = layers.list(of, toPredicate(filter));
+            all = query(layers, of, filter);
         } else if (LayerGroupInfo.class.isAssignableFrom(of)) {
-            all = layerGroups.list(of, toPredicate(filter));
+            all = query(layerGroups, of, filter);
         } else if (PublishedInfo.class.isAssignableFrom(of)) {
             all = new ArrayList<>();
-            all.addAll((List<T>) layers.list(LayerInfo.class, toPredicate(filter)));
-            all.addAll((List<T>) layerGroups.list(LayerGroupInfo.class, toPredicate(filter)));
+            all.addAll((List<T>) query(layers, LayerInfo.class, filter));
+            all.addAll((List<T>) query(layerGroups, LayerGroupInfo.class, filter));
         } else if (StyleInfo.class.isAssignableFrom(of)) {
-            all = styles.list(of, toPredicate(filter));
+            all = query(styles, of, filter);
         } else if (MapInfo.class.isAssignableFrom(of)) {
             all = (List<T>) new ArrayList<>(maps);
         } else {
             throw new IllegalArgumentException("Unknown type: " + of);
         }
 
-        if (null != sortByList) {
-            for (int i = sortByList.length - 1; i >= 0; i--) {
-                SortBy sortBy = sortByList[i];
+        if (null != sortByList && sortByList.length > 0) {
+            List<Ordering<Object>> orderings = new ArrayList<>();
+            for (SortBy sortBy : sortByList) {
                 Ordering<Object> ordering = Ordering.from(comparator(sortBy));
                 if (SortOrder.DESCENDING.equals(sortBy.getSortOrder())) {
                     ordering = ordering.reverse();
                 }
+                orderings.add(ordering);
+            }
+            Ordering<Object> ordering = Ordering.compound(orderings);
+            if (limit != null && limit < all.size()) {
+                all = leastOf(all, ordering, limit);
+            } else {
                 all = ordering.sortedCopy(all);
             }
         }
@@ -1203,6 +1274,200 @@ public <T extends CatalogInfo> Iterable<T> iterable(
         return ModificationProxy.createList(all, of);
     }
 
+    /**
+     * Selects the first {@code limit} objects in the given ordering, in O(n + limit * log(limit))
+     * time. Ties are broken by position, so that the result is the same as a stable sort followed
+     * by a limit, and consecutive pages do not overlap.
+     */
+    private <T> List<T> leastOf(List<T> list, Ordering<Object> ordering, int limit) {
+        Ordering<Integer> byPosition =
+                ordering.onResultOf((Integer i) -> list.get(i))
+                        .compound(Ordering.<Integer>natural());
+        ContiguousSet<Integer> positions =
+                ContiguousSet.create(Range.closedOpen(0, list.size()), DiscreteDomain.integers());
+        return new ArrayList<>(Lists.transform(byPosition.leastOf(positions, limit), list::get));
+    }
+
+    /**
+     * Lists the objects of the given type matching the filter, using the secondary indexes to
+     * narrow down the objects to be evaluated if possible
+     */
+    private <T extends CatalogInfo, U extends CatalogInfo> List<U> query(
+            CatalogInfoLookup<T> lookup, Class<U> of, Filter filter) {
+        Set<String> candidates = candidates(of, filter);
+        if (candidates == null) {
+            return lookup.list(of, toPredicate(filter));
+        }
+        return lookup.list(of, candidates, toPredicate(filter));
+    }
+
+    /**
+     * Returns the ids of the objects of the given type that might match the filter, based on the
+     * equality comparisons found in it (at the top level or in a top level {@link And}) that can be
+     * resolved against the indexes. The result is a superset of the matches, the filter still needs
+     * to be evaluated against the objects. Returns null if no index can be used.
+     */
+    Set<String> candidates(Class<?> type, Filter filter) {
+        List<Filter> children;
+        if (filter instanceof And) {
+            children = ((And) filter).getChildren();
+        } else if (filter instanceof PropertyIsEqualTo) {
+            children = Collections.singletonList(filter);
+        } else {
+            return null;
+        }
+
+        // flags match large portions of the catalog, use them only if nothing else is available
+        for (boolean flags : new boolean[] {false, true}) {
+            Set<String> best = null;
+            for (Filter child : children) {
+                if (!(child instanceof PropertyIsEqualTo)) {
+                    continue;
+                }
+                PropertyIsEqualTo equal = (PropertyIsEqualTo) child;
+                if (!equal.isMatchingCase() || equal.getMatchAction() != MatchAction.ANY) {
+                    continue;
+                }
+                Expression e1 = equal.getExpression1();
+                Expression e2 = equal.getExpression2();
+                PropertyName property;
+                Literal literal;
+                if (e1 instanceof PropertyName && e2 instanceof Literal) {
+                    property = (PropertyName) e1;
+                    literal = (Literal) e2;
+                } else if (e2 instanceof PropertyName && e1 instanceof Literal) {
+                    property = (PropertyName) e2;
+                    literal = (Literal) e1;
+                } else {
+                    continue;
+                }
+                String path = property.getPropertyName();
+                if (path == null || isFlag(path) != flags) {
+                    continue;
+                }
+                Set<String> ids = resolve(type, path, literal.getValue());
+                if (ids != null && (best == null || ids.size() < best.size())) {
+                    best = ids;
+                }
+            }
+            if (best != null) {
+                return best;
+            }
+        }
+        return null;
+    }
+
+    private boolean isFlag(String path) {
+        return FLAGS.contains(path.substring(path.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * Returns the ids of the objects of the given type whose property (possibly a nested one)
+     * equals the given value, or null if the property cannot be resolved against the indexes
+     */
+    private Set<String> resolve(Class<?> type, String property, Object value) {
+        if (value == null || value instanceof Collection || value.getClass().isArray()) {
+            return null;
+        }
+        if (value instanceof CatalogInfo) {
+            // comparing references is the same as comparing their ids
+            return resolve(type, property + ".id", ((CatalogInfo) value).getId());
+        }
+        if ("id".equals(property)) {
+            return Collections.singleton(String.valueOf(value));
+        }
+
+        int idx = property.indexOf('.');
+        String head = idx == -1 ? property : property.substring(0, idx);
+        String tail = idx == -1 ? null : property.substring(idx + 1);
+        if (WorkspaceInfo.class.isAssignableFrom(type)) {
+            if ("name".equals(head)) {
+                return byName(workspaces, WorkspaceInfo.class, tail, value);
+            }
+        } else if (NamespaceInfo.class.isAssignableFrom(type)) {
+            if ("prefix".equals(head) || "name".equals(head)) {
+                return byName(namespaces, NamespaceInfo.class, tail, value);
+            }
+        } else if (StoreInfo.class.isAssignableFrom(type)) {
+            if ("workspace".equals(head)) {
+                return join(stores, head, WorkspaceInfo.class, tail, value);
+            } else if ("enabled".equals(head)) {
+                return flag(stores, head, tail, value);
+            }
+        } else if (ResourceInfo.class.isAssignableFrom(type)) {
+            if ("store".equals(head)) {
+                return join(resources, head, StoreInfo.class, tail, value);
+            } else if ("namespace".equals(head)) {
+                return join(resources, head, NamespaceInfo.class, tail, value);
+            } else if (FLAGS.contains(head)) {
+                return flag(resources, head, tail, value);
+            }
+        } else if (LayerInfo.class.isAssignableFrom(type)) {
+            if ("resource".equals(head)) {
+                return join(layers, head, ResourceInfo.class, tail, value);
+            } else if ("defaultStyle".equals(head) || "styles".equals(head)) {
+                return join(layers, head, StyleInfo.class, tail, value);
+            } else if (FLAGS.contains(head) && tail == null) {
+                // the layer flags are delegated to the resource
+                return join(layers, "resource", ResourceInfo.class, head, value);
+            }
+        } else if (LayerGroupInfo.class.isAssignableFrom(type)) {
+            if ("workspace".equals(head)) {
+                return join(layerGroups, head, WorkspaceInfo.class, tail, value);
+            }
+        } else if (StyleInfo.class.isAssignableFrom(type)) {
+            if ("workspace".equals(head)) {
+                return join(styles, head, WorkspaceInfo.class, tail, value);
+            }
+        }
+
+        return null;
+    }
+
+    /** Resolves a property of a referenced object, and maps the result back via the index */
+    private Set<String> join(
+            CatalogInfoLookup<?> lookup,
+            String indexProperty,
+            Class<?> referenced,
+            String tail,
+            Object value) {
+        if (tail == null || !lookup.isIndexed(indexProperty)) {
+            return null;
+        }
+        Set<String> referencedIds = resolve(referenced, tail, value);
+        if (referencedIds == null) {
+            return null;
+        } else if (referencedIds.size() == 1) {
+            return lookup.getIndexed(indexProperty, referencedIds.iterator().next());
+        }
+        Set<String> result = new HashSet<>();
+        for (String id : referencedIds) {
+            result.addAll(lookup.getIndexed(indexProperty, id));
+        }
+        return result;
+    }
+
+    private Set<String> flag(
+            CatalogInfoLookup<?> lookup, String property, String tail, Object value) {
+        if (tail != null) {
+            return null;
+        }
+        String key = String.valueOf(value);
+        if (!"true".equals(key) && !"false".equals(key)) {
+            return null;
+        }
+        return lookup.getIndexed(property, key);
+    }
+
+    private <T extends CatalogInfo> Set<String> byName(
+            CatalogInfoLookup<T> lookup, Class<T> clazz, String tail, Object value) {
+        if (tail != null || !(value instanceof String)) {
+            return null;
+        }
+        T match = lookup.findByName(new NameImpl((String) value), clazz);
+        return match == null ? Collections.emptySet() : Collections.singleton(match.getId());
+    }
+
     private <T> Predicate<T> toPredicate(Filter filter) {
         if (filter != null && filter != Filter.INCLUDE) {
             return o -> filter.evaluate(o);
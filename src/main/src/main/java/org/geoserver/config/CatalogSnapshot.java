@@ -0,0 +1,326 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.config;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.LayerGroupInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.StyleInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.config.util.XStreamPersister;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.platform.GeoServerResourceLoader;
+import org.geoserver.platform.resource.Resource;
+import org.geoserver.platform.resource.Resource.Type;
+import org.geoserver.platform.resource.Resources;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Binary snapshot of the catalog, used to skip parsing the XML configuration files on startup.
+ *
+ * <p>The snapshot stores each catalog object encoded with the same {@link XStreamPersister}
+ * converters used for the XML files, but using the XStream binary token format, which is both
+ * smaller and significantly faster to read back. The objects are stored in dependency order,
+ * workspaces and namespaces first, followed by styles, stores, resources, layers and layer groups,
+ * each one as a separate length prefixed record so that they can be decoded in parallel.
+ *
+ * <p>The snapshot header contains a format version, the GeoServer version, and a fingerprint of the
+ * catalog configuration files (paths and last modification times). The snapshot is used only if all
+ * of them match the current ones, otherwise the catalog is loaded from the XML files and a new
+ * snapshot is written. Snapshots are disabled by default, set {@link #SNAPSHOT_KEY} to true to
+ * enable them.
+ */
+class CatalogSnapshot {
+
+    static final Logger LOGGER = Logging.getLogger(CatalogSnapshot.class);
+
+    /**
+     * System property, environment variable or servlet context parameter enabling the catalog
+     * snapshots
+     */
+    public static final String SNAPSHOT_KEY = "GEOSERVER_CATALOG_SNAPSHOT";
+
+    /** Location of the snapshot, in the data directory */
+    static final String SNAPSHOT_PATH = "temp/catalog.snapshot";
+
+    /** Identifies a snapshot file */
+    static final int MAGIC = 0x47534353; // GSCS
+
+    /** Version of the binary format, to be increased on any change to it */
+    static final int FORMAT_VERSION = 1;
+
+    /** The types of records, in the order they are written */
+    enum RecordType {
+        WORKSPACE(WorkspaceInfo.class),
+        NAMESPACE(NamespaceInfo.class),
+        STYLE(StyleInfo.class),
+        STORE(StoreInfo.class),
+        RESOURCE(ResourceInfo.class),
+        LAYER(LayerInfo.class),
+        LAYERGROUP(LayerGroupInfo.class);
+
+        final Class<? extends CatalogInfo> type;
+
+        RecordType(Class<? extends CatalogInfo> type) {
+            this.type = type;
+        }
+    }
+
+    /** A single encoded catalog object */
+    static final class Record {
+        final RecordType type;
+        final byte[] contents;
+
+        Record(RecordType type, byte[] contents) {
+            this.type = type;
+            this.contents = contents;
+        }
+    }
+
+    final GeoServerResourceLoader resourceLoader;
+
+    CatalogSnapshot(GeoServerResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    /** Returns true if the catalog snapshots are enabled */
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(GeoServerExtensions.getProperty(SNAPSHOT_KEY));
+    }
+
+    static String getGeoServerVersion() {
+        String version = GeoServer.class.getPackage().getImplementationVersion();
+        return version == null ? "unknown" : version;
+    }
+
+    /**
+     * Computes a fingerprint of the catalog configuration files, based on their paths and last
+     * modification times, without reading them.
+     */
+    String fingerprint() {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putInt(FORMAT_VERSION);
+        hasher.putString(getGeoServerVersion(), StandardCharsets.UTF_8);
+        // the global settings control whether stores are checked on startup
+        hash(resourceLoader.get("global.xml"), hasher, 0);
+        hash(resourceLoader.get("styles"), hasher, 1);
+        hash(resourceLoader.get("layergroups"), hasher, 1);
+        // workspace/store/resource/layer.xml
+        hash(resourceLoader.get("workspaces"), hasher, 4);
+        return hasher.hash().toString();
+    }
+
+    private void hash(Resource resource, Hasher hasher, int depth) {
+        if (resource.getType() == Type.RESOURCE) {
+            if (resource.name().toLowerCase().endsWith(".xml")) {
+                hasher.putString(resource.path(), StandardCharsets.UTF_8);
+                hasher.putLong(resource.lastmodified());
+            }
+        } else if (resource.getType() == Type.DIRECTORY && depth > 0) {
+            List<Resource> children = new ArrayList<>(resource.list());
+            children.sort(Comparator.comparing(Resource::name));
+            for (Resource child : children) {
+                hash(child, hasher, depth - 1);
+            }
+        }
+    }
+
+    /** Returns the snapshot resource */
+    Resource getResource() {
+        return resourceLoader.get(SNAPSHOT_PATH);
+    }
+
+    /**
+     * Writes a snapshot of the catalog
+     *
+     * @param catalog The catalog to be written, with all references resolved
+     * @param xp The persister used to encode the catalog objects
+     * @param fingerprint The fingerprint of the configuration files the catalog was loaded from
+     * @return true if the snapshot has been written, false if the catalog cannot be snapshotted
+     */
+    boolean write(Catalog catalog, XStreamPersister xp, String fingerprint) throws IOException {
+        // stores disabled because they could not be connected to would be saved as disabled
+        for (StoreInfo store : catalog.getStores(StoreInfo.class)) {
+            if (store.getError() != null) {
+                LOGGER.info(
+                        "Not writing a catalog snapshot, store "
+                                + store.getName()
+                                + " failed to connect on startup");
+                return false;
+            }
+        }
+
+        Resource resource = getResource();
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(resource.out(), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(getGeoServerVersion());
+            out.writeUTF(fingerprint);
+            WorkspaceInfo ws = catalog.getDefaultWorkspace();
+            NamespaceInfo ns = catalog.getDefaultNamespace();
+            out.writeUTF(ws == null ? "" : ws.getName());
+            out.writeUTF(ns == null ? "" : ns.getPrefix());
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (RecordType type : RecordType.values()) {
+                for (CatalogInfo info : list(catalog, type)) {
+                    buffer.reset();
+                    encode(xp, info, buffer);
+                    out.writeByte(type.ordinal());
+                    out.writeInt(buffer.size());
+                    buffer.writeTo(out);
+                }
+            }
+            // end marker
+            out.writeByte(-1);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // do not leave around a partial snapshot
+            resource.delete();
+            throw e;
+        }
+    }
+
+    static List<? extends CatalogInfo> list(Catalog catalog, RecordType type) {
+        switch (type) {
+            case WORKSPACE:
+                return catalog.getWorkspaces();
+            case NAMESPACE:
+                return catalog.getNamespaces();
+            case STYLE:
+                return catalog.getStyles();
+            case STORE:
+                return catalog.getStores(StoreInfo.class);
+            case RESOURCE:
+                return catalog.getResources(ResourceInfo.class);
+            case LAYER:
+                return catalog.getLayers();
+            case LAYERGROUP:
+                return catalog.getLayerGroups();
+            default:
+                throw new IllegalArgumentException("Unexpected record type " + type);
+        }
+    }
+
+    static void encode(XStreamPersister xp, Object info, OutputStream out) {
+        BinaryStreamWriter writer = new BinaryStreamWriter(out);
+        xp.getXStream().marshal(XStreamPersister.unwrapProxies(info), writer);
+        writer.flush();
+    }
+
+    /**
+     * Decodes a record, the references to other catalog objects are resolved against the catalog
+     */
+    static <T> T decode(XStreamPersister xp, Record record, Class<T> type) {
+        BinaryStreamReader reader =
+                new BinaryStreamReader(new ByteArrayInputStream(record.contents));
+        return type.cast(xp.getXStream().unmarshal(reader));
+    }
+
+    /**
+     * Opens the snapshot for reading
+     *
+     * @param fingerprint The fingerprint of the current configuration files
+     * @return A reader, or null if the snapshot is missing or stale
+     */
+    Reader open(String fingerprint) {
+        Resource resource = getResource();
+        if (!Resources.exists(resource)) {
+            LOGGER.config("No catalog snapshot found");
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(resource.in(), 64 * 1024));
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || !getGeoServerVersion().equals(in.readUTF())) {
+                LOGGER.info("Catalog snapshot written by a different GeoServer version, ignoring");
+                in.close();
+                return null;
+            }
+            if (!fingerprint.equals(in.readUTF())) {
+                LOGGER.info("Catalog snapshot is out of date, the configuration files changed");
+                in.close();
+                return null;
+            }
+            return new Reader(in);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the catalog snapshot, ignoring it", e);
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignore) {
+                    // nothing to do
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Sequential reader of the snapshot records */
+    static final class Reader implements Closeable {
+
+        final DataInputStream in;
+
+        final String defaultWorkspace;
+
+        final String defaultNamespace;
+
+        Reader(DataInputStream in) throws IOException {
+            this.in = in;
+            this.defaultWorkspace = in.readUTF();
+            this.defaultNamespace = in.readUTF();
+        }
+
+        /** Returns the next record, or null if the end of the snapshot has been reached */
+        Record next() throws IOException {
+            int type = in.readByte();
+            if (type < 0) {
+                return null;
+            }
+            if (type >= RecordType.values().length) {
+                throw new IOException("Invalid record type " + type + " in catalog snapshot");
+            }
+            int length = in.readInt();
+            if (length < 0) {
+                throw new EOFException("Invalid record length " + length);
+            }
+            byte[] contents = new byte[length];
+            in.readFully(contents);
+            return new Record(RecordType.values()[type], contents);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
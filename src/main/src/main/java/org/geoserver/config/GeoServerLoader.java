@@ -6,6 +6,8 @@
 package org.geoserver.config;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -13,13 +15,26 @@
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogInfo;
 import org.geoserver.catalog.CoverageInfo;
 import org.geoserver.catalog.CoverageStoreInfo;
 import org.geoserver.catalog.DataStoreInfo;
@@ -29,6 +44,7 @@
 import org.geoserver.catalog.NamespaceInfo;
 import org.geoserver.catalog.ResourceInfo;
 import org.geoserver.catalog.ResourcePool;
+import org.geoserver.catalog.StoreInfo;
 import org.geoserver.catalog.StyleInfo;
 import org.geoserver.catalog.WMSLayerInfo;
 import org.geoserver.catalog.WMSStoreInfo;
@@ -62,6 +78,7 @@
 import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
@@ -76,6 +93,29 @@ public abstract class GeoServerLoader {
 
     static Logger LOGGER = Logging.getLogger("org.geoserver");
 
+    /**
+     * Number of threads used to depersist and add the configuration objects to the catalog, as
+     * opposed to {@link AsynchResourceIterator#ASYNCH_RESOURCE_THREADS} that controls the number of
+     * threads reading the files. Defaults to the number of available processors, a value of 1 loads
+     * the catalog in the calling thread.
+     */
+    public static final int CATALOG_LOADING_THREADS;
+
+    static {
+        String value =
+                GeoServerExtensions.getProperty("org.geoserver.catalog.parallelLoadingThreads");
+        if (value != null) {
+            CATALOG_LOADING_THREADS = Integer.parseInt(value);
+        } else {
+            CATALOG_LOADING_THREADS = Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /** The store configuration files, in lookup order */
+    static final String[] STORE_FILES = {
+        "datastore.xml", "coveragestore.xml", "wmsstore.xml", "wmtsstore.xml"
+    };
+
     /** Workspace IO resources */
     static final class WorkspaceContents {
         Resource resource;
@@ -238,11 +278,94 @@ public void accept(LayerContents lc) {
         }
     }
 
+    /** Maps each store directory into the {@link SingleResourceContents} of its configuration */
+    static final ResourceMapper<SingleResourceContents> STORE_MAPPER =
+            sd -> {
+                for (String name : STORE_FILES) {
+                    Resource f = sd.get(name);
+                    if (Resources.exists(f)) {
+                        return new SingleResourceContents(f, f.getContents());
+                    }
+                }
+                if (!isConfigDirectory(sd)) {
+                    LOGGER.warning("Ignoring store directory '" + sd.name() + "'");
+                }
+                // nothing found
+                return null;
+            };
+
+    /**
+     * A catalog loading phase. The objects of a phase are depersisted and added to the catalog in
+     * parallel, closing the phase waits for all of them, so that the following phases can rely on
+     * the objects loaded by the previous ones (workspaces and namespaces, styles, stores, resources
+     * and layers, layer groups). The time spent in each phase is logged and recorded in {@link
+     * #getCatalogLoadingTimes()}.
+     */
+    final class LoadingPhase implements AutoCloseable {
+
+        final String name;
+
+        final ExecutorService executor;
+
+        final SecurityContext context = SecurityContextHolder.getContext();
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        final List<Future<?>> futures = new ArrayList<>();
+
+        int tasks;
+
+        LoadingPhase(String name, ExecutorService executor) {
+            this.name = name;
+            this.executor = executor;
+        }
+
+        /** Submits a loading task, to be called by the thread that created the phase */
+        void submit(Runnable task) {
+            tasks++;
+            futures.add(
+                    executor.submit(
+                            () -> {
+                                // the loading threads need the admin role, too
+                                SecurityContext previous = SecurityContextHolder.getContext();
+                                SecurityContextHolder.setContext(context);
+                                try {
+                                    task.run();
+                                } finally {
+                                    SecurityContextHolder.setContext(previous);
+                                }
+                            }));
+        }
+
+        /** Waits for all the tasks submitted so far to complete */
+        void await() throws InterruptedException {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Failure while loading " + name, e.getCause());
+                }
+            }
+            futures.clear();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            await();
+            long elapsed = stopwatch.stop().elapsed(TimeUnit.MILLISECONDS);
+            catalogLoadingTimes.put(name, elapsed);
+            LOGGER.info(
+                    String.format(
+                            "Loaded %s in %d ms (%d configuration files)", name, elapsed, tasks));
+        }
+    }
+
     static final ExtensionFilter XML_FILTER = new Resources.ExtensionFilter("XML");
 
     protected GeoServerResourceLoader resourceLoader;
     GeoServer geoserver;
     XStreamPersisterFactory xpf = new XStreamPersisterFactory();
+    Map<String, Long> catalogLoadingTimes = Collections.synchronizedMap(new LinkedHashMap<>());
 
     // JD: this is a hack for the moment, it is used only to maintain tests since the test setup
     // relies
@@ -483,9 +606,169 @@ boolean checkStoresOnStartup(XStreamPersister xp) {
         return true;
     }
 
-    /** Reads the catalog from disk. */
+    /**
+     * Reads the catalog from disk, using the binary snapshot if enabled and up to date, and writing
+     * a new snapshot otherwise.
+     */
     Catalog readCatalog(XStreamPersister xp) throws Exception {
-        CatalogImpl catalog = new CatalogImpl();
+        if (!CatalogSnapshot.isEnabled()) {
+            return readCatalogFiles(xp);
+        }
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(resourceLoader);
+        String fingerprint = snapshot.fingerprint();
+        Catalog catalog = readSnapshot(snapshot, fingerprint, xp);
+        if (catalog != null) {
+            return catalog;
+        }
+
+        catalog = readCatalogFiles(xp);
+        try {
+            Stopwatch sw = Stopwatch.createStarted();
+            if (snapshot.write(catalog, xp, fingerprint)) {
+                LOGGER.info("Wrote catalog snapshot in " + sw.stop());
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to write the catalog snapshot", e);
+        }
+        return catalog;
+    }
+
+    /**
+     * Reads the catalog from the binary snapshot.
+     *
+     * @return the catalog, or null if the snapshot is missing, stale, or could not be fully read
+     */
+    CatalogImpl readSnapshot(CatalogSnapshot snapshot, String fingerprint, XStreamPersister xp)
+            throws InterruptedException {
+        // the partly loaded catalog must be disposed on failure, checking the stores opens them
+        CatalogImpl catalog = null;
+        try (CatalogSnapshot.Reader reader = snapshot.open(fingerprint)) {
+            if (reader == null) {
+                return null;
+            }
+
+            CatalogImpl loading = createCatalog();
+            catalog = loading;
+            catalog.setResourceLoader(resourceLoader);
+            xp.setCatalog(catalog);
+            xp.setUnwrapNulls(false);
+            boolean checkStores = checkStoresOnStartup(xp);
+            if (!checkStores) {
+                catalog.setExtendedValidation(false);
+            }
+
+            catalogLoadingTimes.clear();
+            AtomicInteger failures = new AtomicInteger();
+            ExecutorService executor = createLoadingExecutor();
+            LoadingPhase phase = null;
+            try {
+                CatalogSnapshot.Record record;
+                while ((record = reader.next()) != null) {
+                    String name = record.type.name().toLowerCase() + "s";
+                    if (phase == null || !phase.name.equals(name)) {
+                        if (phase != null) {
+                            phase.close();
+                        }
+                        phase = new LoadingPhase(name, executor);
+                    }
+                    CatalogSnapshot.Record r = record;
+                    phase.submit(
+                            () -> {
+                                try {
+                                    CatalogInfo info = CatalogSnapshot.decode(xp, r, r.type.type);
+                                    add(loading, info);
+                                    if (checkStores && info instanceof DataStoreInfo) {
+                                        checkDataStore((DataStoreInfo) info);
+                                    }
+                                } catch (Exception e) {
+                                    failures.incrementAndGet();
+                                    LOGGER.log(
+                                            Level.WARNING,
+                                            "Failed to load "
+                                                    + r.type.name().toLowerCase()
+                                                    + " from the catalog snapshot",
+                                            e);
+                                }
+                            });
+                }
+            } finally {
+                if (phase != null) {
+                    phase.close();
+                }
+                executor.shutdown();
+            }
+            if (failures.get() > 0) {
+                LOGGER.warning(
+                        "Could not load the catalog snapshot, reading the configuration files");
+                catalog.dispose();
+                return null;
+            }
+
+            if (!reader.defaultWorkspace.isEmpty()) {
+                WorkspaceInfo ws = catalog.getWorkspaceByName(reader.defaultWorkspace);
+                if (ws != null) {
+                    catalog.setDefaultWorkspace(ws);
+                }
+            }
+            if (!reader.defaultNamespace.isEmpty()) {
+                NamespaceInfo ns = catalog.getNamespaceByPrefix(reader.defaultNamespace);
+                if (ns != null) {
+                    catalog.setDefaultNamespace(ns);
+                }
+            }
+
+            Stopwatch sw = Stopwatch.createStarted();
+            xp.setUnwrapNulls(true);
+            catalog.resolve();
+            catalogLoadingTimes.put("resolve", sw.stop().elapsed(TimeUnit.MILLISECONDS));
+            if (!checkStores) {
+                catalog.setExtendedValidation(true);
+            }
+            LOGGER.info("Catalog snapshot loading times (ms): " + catalogLoadingTimes);
+            return catalog;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the catalog snapshot", e);
+            if (catalog != null) {
+                catalog.dispose();
+            }
+            return null;
+        } catch (InterruptedException e) {
+            if (catalog != null) {
+                catalog.dispose();
+            }
+            throw e;
+        }
+    }
+
+    /** Creates the catalog the configuration is read into */
+    CatalogImpl createCatalog() {
+        return new CatalogImpl();
+    }
+
+    private static void add(Catalog catalog, CatalogInfo info) {
+        if (info instanceof WorkspaceInfo) {
+            catalog.add((WorkspaceInfo) info);
+        } else if (info instanceof NamespaceInfo) {
+            catalog.add((NamespaceInfo) info);
+        } else if (info instanceof StyleInfo) {
+            catalog.add((StyleInfo) info);
+        } else if (info instanceof StoreInfo) {
+            catalog.add((StoreInfo) info);
+        } else if (info instanceof ResourceInfo) {
+            catalog.add((ResourceInfo) info);
+        } else if (info instanceof LayerInfo) {
+            catalog.add((LayerInfo) info);
+        } else if (info instanceof LayerGroupInfo) {
+            catalog.add((LayerGroupInfo) info);
+        } else {
+            throw new IllegalArgumentException("Unexpected catalog object " + info);
+        }
+    }
+
+    /** Reads the catalog from the XML configuration files. */
+    Catalog readCatalogFiles(XStreamPersister xp) throws Exception {
+        CatalogImpl catalog = createCatalog();
         catalog.setResourceLoader(resourceLoader);
         xp.setCatalog(catalog);
         xp.setUnwrapNulls(false);
@@ -496,183 +779,283 @@ Catalog readCatalog(XStreamPersister xp) throws Exception {
             catalog.setExtendedValidation(false);
         }
 
-        // global styles
-        loadStyles(resourceLoader.get("styles"), catalog, xp);
-
-        // workspaces, stores, and resources
-        Resource workspaces = resourceLoader.get("workspaces");
-        if (Resources.exists(workspaces)) {
-            // do a first quick scan over all workspaces, setting the default
-            Resource dws = workspaces.get("default.xml");
-            WorkspaceInfo defaultWorkspace = null;
-            if (Resources.exists(dws)) {
-                try {
-                    defaultWorkspace = depersist(xp, dws, WorkspaceInfo.class);
-                    if (LOGGER.isLoggable(Level.CONFIG)) {
-                        LOGGER.config(
-                                "Loaded default workspace '" + defaultWorkspace.getName() + "'");
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Failed to load default workspace", e);
+        catalogLoadingTimes.clear();
+        ExecutorService executor = createLoadingExecutor();
+        try {
+            Resource workspaces = resourceLoader.get("workspaces");
+            List<Resource> workspaceList = new ArrayList<>();
+            if (Resources.exists(workspaces)) {
+                workspaceList =
+                        workspaces
+                                .list()
+                                .parallelStream()
+                                .filter(r -> Resources.DirectoryFilter.INSTANCE.accept(r))
+                                .collect(Collectors.toList());
+                try (LoadingPhase phase = new LoadingPhase("workspaces", executor)) {
+                    loadWorkspaces(workspaces, catalog, xp, phase);
                 }
             } else {
-                LOGGER.warning("No default workspace was found.");
+                LOGGER.warning("No 'workspaces' directory found, unable to load any stores.");
             }
 
-            List<Resource> workspaceList =
-                    workspaces
-                            .list()
-                            .parallelStream()
-                            .filter(r -> Resources.DirectoryFilter.INSTANCE.accept(r))
-                            .collect(Collectors.toList());
-
-            try (AsynchResourceIterator<WorkspaceContents> it =
-                    new AsynchResourceIterator<>(
-                            workspaces,
-                            Resources.DirectoryFilter.INSTANCE,
-                            new WorkspaceMapper())) {
-                while (it.hasNext()) {
-                    WorkspaceContents wc = it.next();
-                    WorkspaceInfo ws;
-                    final Resource workspaceResource = wc.resource;
-                    try {
-                        ws = depersist(xp, wc.contents, WorkspaceInfo.class);
-                        catalog.add(ws);
-                        LOGGER.log(
-                                Level.CONFIG,
-                                () -> String.format("Loaded workspace '%s'", ws.getName()));
-                    } catch (Exception e) {
-                        LOGGER.log(
-                                Level.WARNING,
-                                "Failed to load workspace '" + workspaceResource.name() + "'",
-                                e);
-                        continue;
+            // global and workspace styles
+            try (LoadingPhase phase = new LoadingPhase("styles", executor)) {
+                loadStyles(resourceLoader.get("styles"), catalog, xp, phase);
+                for (Resource wsd : workspaceList) {
+                    Resource styles = wsd.get("styles");
+                    if (styles != null) {
+                        loadStyles(styles, catalog, xp, phase);
                     }
+                }
+            }
 
-                    // load the namespace
-                    NamespaceInfo ns = null;
-                    try {
-                        ns = depersist(xp, wc.nsContents, NamespaceInfo.class);
-                        catalog.add(ns);
-                    } catch (Exception e) {
-                        LOGGER.log(
-                                Level.WARNING,
-                                "Failed to load namespace for '" + workspaceResource.name() + "'",
-                                e);
+            // stores, keeping track of the ones that loaded fine to look for resources in them
+            Queue<Resource> stores = new ConcurrentLinkedQueue<>();
+            try (LoadingPhase phase = new LoadingPhase("stores", executor)) {
+                for (Resource wsd : workspaceList) {
+                    loadStores(wsd, catalog, xp, checkStores, stores, phase);
+                }
+            }
+
+            // resources and their layers
+            try (LoadingPhase phase = new LoadingPhase("resources and layers", executor)) {
+                for (Resource store : stores) {
+                    loadResources(store, catalog, xp, phase);
+                }
+            }
+
+            // workspace and global layer groups
+            try (LoadingPhase phase = new LoadingPhase("layer groups", executor)) {
+                for (Resource wsd : workspaceList) {
+                    Resource layergroups = wsd.get("layergroups");
+                    if (layergroups != null) {
+                        loadLayerGroups(layergroups, catalog, xp, phase);
                     }
+                }
+                Resource layergroups = resourceLoader.get("layergroups");
+                if (layergroups != null) {
+                    loadLayerGroups(layergroups, catalog, xp, phase);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Stopwatch sw = Stopwatch.createStarted();
+        xp.setUnwrapNulls(true);
+        catalog.resolve();
+        catalogLoadingTimes.put("resolve", sw.stop().elapsed(TimeUnit.MILLISECONDS));
+        // re-enable extended validation
+        if (!checkStores) {
+            catalog.setExtendedValidation(true);
+        }
+        LOGGER.info("Catalog loading times (ms): " + catalogLoadingTimes);
+        return catalog;
+    }
+
+    /**
+     * Creates the executor used to load the catalog objects. The work queue is bounded, when full
+     * the tasks run in the submitting thread, which also stops the reading of further files. With a
+     * single loading thread the tasks are all run in the submitting thread.
+     */
+    ExecutorService createLoadingExecutor() {
+        if (CATALOG_LOADING_THREADS <= 1) {
+            return MoreExecutors.newDirectExecutorService();
+        }
+        return new ThreadPoolExecutor(
+                CATALOG_LOADING_THREADS,
+                CATALOG_LOADING_THREADS,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(CATALOG_LOADING_THREADS * 64),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("GeoServerLoader-%d")
+                        .setDaemon(true)
+                        .build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /** Returns the time spent in each catalog loading phase during the last load, in ms */
+    Map<String, Long> getCatalogLoadingTimes() {
+        return Collections.unmodifiableMap(catalogLoadingTimes);
+    }
+
+    private void loadWorkspaces(
+            Resource workspaces, CatalogImpl catalog, XStreamPersister xp, LoadingPhase phase)
+            throws InterruptedException {
+        // do a first quick scan over all workspaces, setting the default
+        Resource dws = workspaces.get("default.xml");
+        WorkspaceInfo defaultWorkspace = null;
+        if (Resources.exists(dws)) {
+            try {
+                defaultWorkspace = depersist(xp, dws, WorkspaceInfo.class);
+                if (LOGGER.isLoggable(Level.CONFIG)) {
+                    LOGGER.config("Loaded default workspace '" + defaultWorkspace.getName() + "'");
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to load default workspace", e);
+            }
+        } else {
+            LOGGER.warning("No default workspace was found.");
+        }
 
-                    // set the default workspace, this value might be null in the case of coming
-                    // from a
-                    // 2.0.0 data directory. See https://osgeo-org.atlassian.net/browse/GEOS-3440
-                    if (defaultWorkspace != null) {
-                        if (ws.getName().equals(defaultWorkspace.getName())) {
-                            catalog.setDefaultWorkspace(ws);
-                            if (ns != null) {
-                                catalog.setDefaultNamespace(ns);
+        final String defaultName = defaultWorkspace == null ? null : defaultWorkspace.getName();
+        AtomicReference<WorkspaceInfo> defaultWs = new AtomicReference<>();
+        AtomicReference<NamespaceInfo> defaultNs = new AtomicReference<>();
+        try (AsynchResourceIterator<WorkspaceContents> it =
+                new AsynchResourceIterator<>(
+                        workspaces, Resources.DirectoryFilter.INSTANCE, new WorkspaceMapper())) {
+            while (it.hasNext()) {
+                WorkspaceContents wc = it.next();
+                phase.submit(
+                        () -> {
+                            WorkspaceInfo ws;
+                            final Resource workspaceResource = wc.resource;
+                            try {
+                                ws = depersist(xp, wc.contents, WorkspaceInfo.class);
+                                catalog.add(ws);
+                                LOGGER.log(
+                                        Level.CONFIG,
+                                        () -> String.format("Loaded workspace '%s'", ws.getName()));
+                            } catch (Exception e) {
+                                LOGGER.log(
+                                        Level.WARNING,
+                                        "Failed to load workspace '"
+                                                + workspaceResource.name()
+                                                + "'",
+                                        e);
+                                return;
                             }
-                        }
-                    } else {
-                        // create the default.xml file
-                        defaultWorkspace = catalog.getDefaultWorkspace();
-                        if (defaultWorkspace != null) {
+
+                            // load the namespace
+                            NamespaceInfo ns = null;
                             try {
-                                persist(xp, defaultWorkspace, dws);
+                                ns = depersist(xp, wc.nsContents, NamespaceInfo.class);
+                                catalog.add(ns);
                             } catch (Exception e) {
                                 LOGGER.log(
                                         Level.WARNING,
-                                        "Failed to persist default workspace '"
+                                        "Failed to load namespace for '"
                                                 + workspaceResource.name()
                                                 + "'",
                                         e);
                             }
-                        }
-                    }
 
-                    // load the styles for the workspace
-                    Resource styles = workspaceResource.get("styles");
-                    if (styles != null) {
-                        loadStyles(styles, catalog, xp);
-                    }
-                }
+                            if (ws.getName().equals(defaultName)) {
+                                defaultWs.set(ws);
+                                defaultNs.set(ns);
+                            }
+                        });
             }
-
-            // maps each store into a SingleResourceContents
-            ResourceMapper<SingleResourceContents> storeMapper =
-                    sd -> {
-                        Resource f = sd.get("datastore.xml");
-                        if (Resources.exists(f)) {
-                            return new SingleResourceContents(f, f.getContents());
-                        }
-                        f = sd.get("coveragestore.xml");
-                        if (Resources.exists(f)) {
-                            return new SingleResourceContents(f, f.getContents());
-                        }
-                        f = sd.get("wmsstore.xml");
-                        if (Resources.exists(f)) {
-                            return new SingleResourceContents(f, f.getContents());
-                        }
-                        f = sd.get("wmtsstore.xml");
-                        if (Resources.exists(f)) {
-                            return new SingleResourceContents(f, f.getContents());
-                        }
-                        if (!isConfigDirectory(sd)) {
-                            LOGGER.warning("Ignoring store directory '" + sd.name() + "'");
-                        }
-                        // nothing found
-                        return null;
-                    };
-
-            for (Resource wsd : workspaceList) {
-                // load the stores for this workspace
-                try (AsynchResourceIterator<SingleResourceContents> it =
-                        new AsynchResourceIterator<>(
-                                wsd, Resources.DirectoryFilter.INSTANCE, storeMapper)) {
-                    while (it.hasNext()) {
-                        SingleResourceContents SingleResourceContents = it.next();
-                        final String resourceName = SingleResourceContents.resource.name();
-                        if ("datastore.xml".equals(resourceName)) {
-                            loadDataStore(SingleResourceContents, catalog, xp, checkStores);
-                        } else if ("coveragestore.xml".equals(resourceName)) {
-                            loadCoverageStore(SingleResourceContents, catalog, xp);
-                        } else if ("wmsstore.xml".equals(resourceName)) {
-                            loadWmsStore(SingleResourceContents, catalog, xp);
-                        } else if ("wmtsstore.xml".equals(resourceName)) {
-                            loadWmtsStore(SingleResourceContents, catalog, xp);
-                        } else if (!isConfigDirectory(SingleResourceContents.resource)) {
-                            LOGGER.warning(
-                                    "Ignoring store directory '"
-                                            + SingleResourceContents.resource.name()
-                                            + "'");
-                            continue;
-                        }
-                    }
+        }
+        // wait for all workspaces to be loaded before picking the default one
+        phase.await();
+
+        // set the default workspace, this value might be null in the case of coming from a
+        // 2.0.0 data directory. See https://osgeo-org.atlassian.net/browse/GEOS-3440
+        if (defaultWs.get() != null) {
+            catalog.setDefaultWorkspace(defaultWs.get());
+            if (defaultNs.get() != null) {
+                catalog.setDefaultNamespace(defaultNs.get());
+            }
+        } else if (defaultWorkspace == null) {
+            // create the default.xml file
+            defaultWorkspace = catalog.getDefaultWorkspace();
+            if (defaultWorkspace != null) {
+                try {
+                    persist(xp, defaultWorkspace, dws);
+                } catch (Exception e) {
+                    LOGGER.log(
+                            Level.WARNING,
+                            "Failed to persist default workspace '"
+                                    + defaultWorkspace.getName()
+                                    + "'",
+                            e);
                 }
+            }
+        }
+    }
 
-                // load the layer groups for this workspace
-                Resource layergroups = wsd.get("layergroups");
-                if (layergroups != null) {
-                    loadLayerGroups(layergroups, catalog, xp);
-                }
+    private void loadStores(
+            Resource workspace,
+            CatalogImpl catalog,
+            XStreamPersister xp,
+            boolean checkStores,
+            Queue<Resource> loaded,
+            LoadingPhase phase) {
+        try (AsynchResourceIterator<SingleResourceContents> it =
+                new AsynchResourceIterator<>(
+                        workspace, Resources.DirectoryFilter.INSTANCE, STORE_MAPPER)) {
+            while (it.hasNext()) {
+                SingleResourceContents contents = it.next();
+                final String resourceName = contents.resource.name();
+                phase.submit(
+                        () -> {
+                            boolean success = false;
+                            if ("datastore.xml".equals(resourceName)) {
+                                success = loadDataStore(contents, catalog, xp, checkStores);
+                            } else if ("coveragestore.xml".equals(resourceName)) {
+                                success = loadCoverageStore(contents, catalog, xp);
+                            } else if ("wmsstore.xml".equals(resourceName)) {
+                                success = loadWmsStore(contents, catalog, xp);
+                            } else if ("wmtsstore.xml".equals(resourceName)) {
+                                success = loadWmtsStore(contents, catalog, xp);
+                            }
+                            if (success) {
+                                loaded.add(contents.resource);
+                            }
+                        });
             }
-        } else {
-            LOGGER.warning("No 'workspaces' directory found, unable to load any stores.");
         }
+    }
 
-        // layergroups
-        Resource layergroups = resourceLoader.get("layergroups");
-        if (layergroups != null) {
-            loadLayerGroups(layergroups, catalog, xp);
+    /** Loads the resources and layers of a store, given the store configuration file */
+    private void loadResources(
+            Resource storeResource, CatalogImpl catalog, XStreamPersister xp, LoadingPhase phase) {
+        final String resourceName = storeResource.name();
+        if ("datastore.xml".equals(resourceName)) {
+            loadResources(
+                    storeResource,
+                    FEATURE_LAYER_MAPPER,
+                    new LayerLoader<>(FeatureTypeInfo.class, xp, catalog),
+                    phase);
+        } else if ("coveragestore.xml".equals(resourceName)) {
+            loadResources(
+                    storeResource,
+                    COVERAGE_LAYER_MAPPER,
+                    new LayerLoader<>(CoverageInfo.class, xp, catalog),
+                    phase);
+        } else if ("wmsstore.xml".equals(resourceName)) {
+            loadResources(
+                    storeResource,
+                    WMS_LAYER_MAPPER,
+                    new LayerLoader<>(WMSLayerInfo.class, xp, catalog),
+                    phase);
+        } else if ("wmtsstore.xml".equals(resourceName)) {
+            loadResources(
+                    storeResource,
+                    WMTS_LAYER_MAPPER,
+                    new LayerLoader<>(WMTSLayerInfo.class, xp, catalog),
+                    phase);
         }
-        xp.setUnwrapNulls(true);
-        catalog.resolve();
-        // re-enable extended validation
-        if (!checkStores) {
-            catalog.setExtendedValidation(true);
+    }
+
+    private void loadResources(
+            Resource storeResource,
+            ResourceLayerMapper mapper,
+            LayerLoader<?> loader,
+            LoadingPhase phase) {
+        try (AsynchResourceIterator<LayerContents> it =
+                new AsynchResourceIterator<>(
+                        storeResource.parent(), Resources.DirectoryFilter.INSTANCE, mapper)) {
+            while (it.hasNext()) {
+                LayerContents lc = it.next();
+                phase.submit(() -> loader.accept(lc));
+            }
         }
-        return catalog;
     }
 
-    private void loadWmsStore(
+    private boolean loadWmsStore(
             SingleResourceContents SingleResourceContents,
             CatalogImpl catalog,
             XStreamPersister xp) {
@@ -687,27 +1070,14 @@ private void loadWmsStore(
                             + wms.getName()
                             + "', "
                             + (wms.isEnabled() ? "enabled" : "disabled"));
+            return true;
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Failed to load wms store '" + storeResource.name() + "'", e);
-            return;
-        }
-
-        // load wms layers
-        LayerLoader<WMSLayerInfo> coverageLoader =
-                new LayerLoader<>(WMSLayerInfo.class, xp, catalog);
-        try (AsynchResourceIterator<LayerContents> it =
-                new AsynchResourceIterator<>(
-                        storeResource.parent(),
-                        Resources.DirectoryFilter.INSTANCE,
-                        WMS_LAYER_MAPPER)) {
-            while (it.hasNext()) {
-                LayerContents lc = it.next();
-                coverageLoader.accept(lc);
-            }
+            return false;
         }
     }
 
-    private void loadWmtsStore(
+    private boolean loadWmtsStore(
             SingleResourceContents SingleResourceContents,
             CatalogImpl catalog,
             XStreamPersister xp) {
@@ -718,28 +1088,15 @@ private void loadWmtsStore(
             catalog.add(wmts);
 
             LOGGER.info("Loaded wmtsstore '" + wmts.getName() + "'");
+            return true;
         } catch (Exception e) {
             LOGGER.log(
                     Level.WARNING, "Failed to load wmts store '" + storeResource.name() + "'", e);
-            return;
-        }
-
-        // load wmts layers
-        LayerLoader<WMTSLayerInfo> coverageLoader =
-                new LayerLoader<>(WMTSLayerInfo.class, xp, catalog);
-        try (AsynchResourceIterator<LayerContents> it =
-                new AsynchResourceIterator<>(
-                        storeResource.parent(),
-                        Resources.DirectoryFilter.INSTANCE,
-                        WMTS_LAYER_MAPPER)) {
-            while (it.hasNext()) {
-                LayerContents lc = it.next();
-                coverageLoader.accept(lc);
-            }
+            return false;
         }
     }
 
-    private void loadCoverageStore(
+    private boolean loadCoverageStore(
             SingleResourceContents SingleResourceContents,
             CatalogImpl catalog,
             XStreamPersister xp) {
@@ -756,30 +1113,17 @@ private void loadCoverageStore(
                                 + "', "
                                 + (cs.isEnabled() ? "enabled" : "disabled"));
             }
+            return true;
         } catch (Exception e) {
             LOGGER.log(
                     Level.WARNING,
                     "Failed to load coverage store '" + storeResource.name() + "'",
                     e);
-            return;
-        }
-
-        // load coverages
-        LayerLoader<CoverageInfo> coverageLoader =
-                new LayerLoader<>(CoverageInfo.class, xp, catalog);
-        try (AsynchResourceIterator<LayerContents> it =
-                new AsynchResourceIterator<>(
-                        storeResource.parent(),
-                        Resources.DirectoryFilter.INSTANCE,
-                        COVERAGE_LAYER_MAPPER)) {
-            while (it.hasNext()) {
-                LayerContents lc = it.next();
-                coverageLoader.accept(lc);
-            }
+            return false;
         }
     }
 
-    private void loadDataStore(
+    private boolean loadDataStore(
             SingleResourceContents SingleResourceContents,
             CatalogImpl catalog,
             XStreamPersister xp,
@@ -798,37 +1142,30 @@ private void loadDataStore(
                                 + (ds.isEnabled() ? "enabled" : "disabled"));
             }
 
-            if (checkStores && ds.isEnabled()) {
-                // connect to the datastore to determine if we should disable it
-                try {
-                    ds.getDataStore(null);
-                } catch (Throwable t) {
-                    LOGGER.warning("Error connecting to '" + ds.getName() + "'. Disabling.");
-                    LOGGER.log(Level.INFO, "", t);
-
-                    ds.setError(t);
-                    ds.setEnabled(false);
-                }
+            if (checkStores) {
+                checkDataStore(ds);
             }
+            return true;
         } catch (Exception e) {
             LOGGER.log(
                     Level.WARNING,
                     "Failed to load data store '" + storeResource.parent().name() + "'",
                     e);
-            return;
+            return false;
         }
+    }
 
-        // load feature types
-        LayerLoader<FeatureTypeInfo> featureLoader =
-                new LayerLoader<>(FeatureTypeInfo.class, xp, catalog);
-        try (AsynchResourceIterator<LayerContents> it =
-                new AsynchResourceIterator<>(
-                        storeResource.parent(),
-                        Resources.DirectoryFilter.INSTANCE,
-                        FEATURE_LAYER_MAPPER)) {
-            while (it.hasNext()) {
-                LayerContents lc = it.next();
-                featureLoader.accept(lc);
+    /** Connects to an enabled data store, disabling it if the connection fails */
+    private void checkDataStore(DataStoreInfo ds) {
+        if (ds.isEnabled()) {
+            try {
+                ds.getDataStore(null);
+            } catch (Throwable t) {
+                LOGGER.warning("Error connecting to '" + ds.getName() + "'. Disabling.");
+                LOGGER.log(Level.INFO, "", t);
+
+                ds.setError(t);
+                ds.setEnabled(false);
             }
         }
     }
@@ -837,7 +1174,7 @@ private void loadDataStore(
      * Some config directories in GeoServer are used to store workspace specific configurations,
      * identify them so that we don't log complaints about their existence
      */
-    private boolean isConfigDirectory(Resource dir) {
+    private static boolean isConfigDirectory(Resource dir) {
         String name = dir.name();
         boolean result = "styles".equals(name) || "layergroups".equals(name);
         return result;
@@ -1006,45 +1343,60 @@ protected void readConfiguration(GeoServer geoServer, XStreamPersister xp) throw
         }
     }
 
-    void loadStyles(Resource styles, Catalog catalog, XStreamPersister xp) throws IOException {
+    void loadStyles(Resource styles, Catalog catalog, XStreamPersister xp, LoadingPhase phase) {
         Filter<Resource> styleFilter =
                 r -> XML_FILTER.accept(r) && !Resources.exists(styles.get(r.name() + ".xml"));
         try (AsynchResourceIterator<SingleResourceContents> it =
                 new AsynchResourceIterator<>(styles, styleFilter, RESOURCE_MAPPER)) {
             while (it.hasNext()) {
                 SingleResourceContents r = it.next();
-                try {
-                    StyleInfo s = depersist(xp, r.contents, StyleInfo.class);
-                    catalog.add(s);
+                phase.submit(
+                        () -> {
+                            try {
+                                StyleInfo s = depersist(xp, r.contents, StyleInfo.class);
+                                catalog.add(s);
 
-                    if (LOGGER.isLoggable(Level.INFO)) {
-                        LOGGER.config("Loaded style '" + s.getName() + "'");
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Failed to load style" + r.resource.name(), e);
-                }
+                                if (LOGGER.isLoggable(Level.INFO)) {
+                                    LOGGER.config("Loaded style '" + s.getName() + "'");
+                                }
+                            } catch (Exception e) {
+                                LOGGER.log(
+                                        Level.WARNING,
+                                        "Failed to load style" + r.resource.name(),
+                                        e);
+                            }
+                        });
             }
         }
     }
 
-    void loadLayerGroups(Resource layerGroups, Catalog catalog, XStreamPersister xp) {
+    void loadLayerGroups(
+            Resource layerGroups, Catalog catalog, XStreamPersister xp, LoadingPhase phase) {
         try (AsynchResourceIterator<SingleResourceContents> it =
                 new AsynchResourceIterator<>(layerGroups, XML_FILTER, RESOURCE_MAPPER)) {
             while (it.hasNext()) {
                 SingleResourceContents r = it.next();
-                try {
-                    LayerGroupInfo lg = depersist(xp, r.contents, LayerGroupInfo.class);
-                    if (lg.getLayers() == null || lg.getLayers().size() == 0) {
-                        LOGGER.warning(
-                                "Skipping empty layer group '" + lg.getName() + "', it is invalid");
-                        continue;
-                    }
-                    catalog.add(lg);
-
-                    LOGGER.config("Loaded layer group '" + lg.getName() + "'");
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Failed to load layer group " + r.resource.name(), e);
-                }
+                phase.submit(
+                        () -> {
+                            try {
+                                LayerGroupInfo lg = depersist(xp, r.contents, LayerGroupInfo.class);
+                                if (lg.getLayers() == null || lg.getLayers().size() == 0) {
+                                    LOGGER.warning(
+                                            "Skipping empty layer group '"
+                                                    + lg.getName()
+                                                    + "', it is invalid");
+                                    return;
+                                }
+                                catalog.add(lg);
+
+                                LOGGER.config("Loaded layer group '" + lg.getName() + "'");
+                            } catch (Exception e) {
+                                LOGGER.log(
+                                        Level.WARNING,
+                                        "Failed to load layer group " + r.resource.name(),
+                                        e);
+                            }
+                        });
             }
         }
     }
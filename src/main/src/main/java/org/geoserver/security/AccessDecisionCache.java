@@ -0,0 +1,382 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.LayerGroupInfo;
+import org.geoserver.catalog.PublishedInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.ows.Dispatcher;
+import org.geoserver.ows.LocalPublished;
+import org.geoserver.ows.LocalWorkspace;
+import org.geoserver.ows.Request;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.security.SecureCatalogImpl.MixedModeBehavior;
+import org.geoserver.security.impl.DataAccessRuleDAO;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+import org.geotools.util.logging.Logging;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Memoizes the {@link WrapperPolicy} computed by {@link SecureCatalogImpl} for a given user,
+ * catalog object and access context, so that the {@link ResourceAccessManager} is not asked the
+ * same question over and over, e.g., while encoding the capabilities document, or checking the
+ * layers of a large layer group.
+ *
+ * <p>The scope of the decisions is set by the {@link #SCOPE_KEY} variable:
+ *
+ * <ul>
+ *   <li>{@code request}, the default, keeps the decisions for the duration of the OWS request
+ *   <li>{@code time} shares them among requests, for {@link #TTL_KEY} seconds. This is only correct
+ *       if the access manager decisions depend solely on the user, the resource, and the service
+ *       and operation being invoked (e.g., not on the client address)
+ *   <li>{@code none} disables the cache
+ * </ul>
+ *
+ * All decisions are dropped on any catalog change, security configuration change, or data access
+ * rules change. The cache statistics report the number of decisions saved as hits.
+ */
+public class AccessDecisionCache
+        implements CatalogListener, SecurityManagerListener, CacheStatisticsProvider {
+
+    static final Logger LOGGER = Logging.getLogger(AccessDecisionCache.class);
+
+    /** System property, environment variable or servlet context parameter setting the scope */
+    public static final String SCOPE_KEY = "org.geoserver.security.decisionCache";
+
+    /** Time to live of the decisions, in seconds, when the scope is time bounded */
+    public static final String TTL_KEY = "org.geoserver.security.decisionCacheTTL";
+
+    static final long DEFAULT_TTL = 10;
+
+    /** Maximum number of decisions shared among requests */
+    static final int MAX_SHARED_DECISIONS = 100000;
+
+    /** Request attribute holding the request scoped decisions */
+    static final String REQUEST_ATTRIBUTE = AccessDecisionCache.class.getName();
+
+    /** Placeholder for a missing authentication in the keys */
+    private static final Object NO_USER = new Object();
+
+    /** Scope of the cached decisions */
+    public enum Scope {
+        NONE,
+        REQUEST,
+        TIME
+    }
+
+    private final Scope scope;
+
+    /** Decisions shared among requests, used with {@link Scope#TIME} */
+    private final Cache<DecisionKey, WrapperPolicy> shared;
+
+    /** Incremented on each invalidation, to discard stale request scoped decisions */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final DataAccessRuleDAO dao;
+
+    private volatile long rulesLastModified;
+
+    public AccessDecisionCache(
+            Catalog catalog, GeoServerSecurityManager securityManager, DataAccessRuleDAO dao) {
+        this(lookupScope(), lookupTTL(), dao);
+        catalog.addListener(this);
+        securityManager.addListener(this);
+    }
+
+    /** For testing only */
+    AccessDecisionCache(Scope scope, long ttlSeconds, DataAccessRuleDAO dao) {
+        this.scope = scope;
+        this.dao = dao;
+        this.rulesLastModified = dao != null ? dao.getLastModified() : 0;
+        this.shared =
+                CacheBuilder.newBuilder()
+                        .maximumSize(scope == Scope.TIME ? MAX_SHARED_DECISIONS : 0)
+                        .expireAfterWrite(Math.max(0, ttlSeconds), TimeUnit.SECONDS)
+                        .recordStats()
+                        .build();
+    }
+
+    static Scope lookupScope() {
+        String value = GeoServerExtensions.getProperty(SCOPE_KEY);
+        if (value != null) {
+            try {
+                return Scope.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Invalid value for " + SCOPE_KEY + ": " + value + ", using default",
+                        e);
+            }
+        }
+        return Scope.REQUEST;
+    }
+
+    static long lookupTTL() {
+        String value = GeoServerExtensions.getProperty(TTL_KEY);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Invalid value for " + TTL_KEY + ": " + value + ", using default",
+                        e);
+            }
+        }
+        return DEFAULT_TTL;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Returns the cached decision for the given access, or computes it with the loader. Decisions
+     * that fail, e.g., challenging the user to authenticate, are not cached.
+     */
+    WrapperPolicy getPolicy(
+            ResourceAccessManager manager,
+            Authentication user,
+            CatalogInfo info,
+            MixedModeBehavior mixedModeBehavior,
+            List<LayerGroupInfo> containers,
+            Supplier<WrapperPolicy> loader) {
+        Map<DecisionKey, WrapperPolicy> decisions = getDecisions();
+        // objects not saved in the catalog yet have no identifier
+        if (decisions == null || info.getId() == null) {
+            return loader.get();
+        }
+
+        DecisionKey key = new DecisionKey(manager, user, info, mixedModeBehavior, containers);
+        WrapperPolicy policy = decisions.get(key);
+        if (policy != null) {
+            hits.increment();
+            return policy;
+        }
+        misses.increment();
+        // not using computeIfAbsent, the access manager might look up other decisions
+        policy = loader.get();
+        if (policy != null) {
+            decisions.put(key, policy);
+        }
+        return policy;
+    }
+
+    /** Returns the decisions in scope, or null if decisions should not be cached */
+    private Map<DecisionKey, WrapperPolicy> getDecisions() {
+        checkRulesModified();
+        if (scope == Scope.TIME) {
+            return shared.asMap();
+        } else if (scope == Scope.REQUEST) {
+            Request request = Dispatcher.REQUEST.get();
+            HttpServletRequest httpRequest = request != null ? request.getHttpRequest() : null;
+            if (httpRequest == null) {
+                return null;
+            }
+            long current = generation.get();
+            RequestDecisions decisions =
+                    (RequestDecisions) httpRequest.getAttribute(REQUEST_ATTRIBUTE);
+            if (decisions == null || decisions.generation != current) {
+                decisions = new RequestDecisions(current);
+                httpRequest.setAttribute(REQUEST_ATTRIBUTE, decisions);
+            }
+            return decisions.decisions;
+        }
+        return null;
+    }
+
+    /** The rules can be modified without notifying the security manager */
+    private void checkRulesModified() {
+        if (dao != null) {
+            long lastModified = dao.getLastModified();
+            if (lastModified != rulesLastModified) {
+                rulesLastModified = lastModified;
+                clear();
+            }
+        }
+    }
+
+    /** Drops all the cached decisions */
+    public void clear() {
+        generation.incrementAndGet();
+        shared.invalidateAll();
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        CacheStatistics statistics =
+                new CacheStatistics(
+                        "accessDecisions",
+                        "Catalog access decisions, hits are the decisions saved ("
+                                + scope.name().toLowerCase()
+                                + " scope)");
+        statistics.setSize(shared.size());
+        statistics.setHitCount(hits.sum());
+        statistics.setMissCount(misses.sum());
+        statistics.setEvictionCount(shared.stats().evictionCount());
+        return Collections.singletonList(statistics);
+    }
+
+    // security manager listener
+
+    @Override
+    public void handlePostChanged(GeoServerSecurityManager securityManager) {
+        clear();
+    }
+
+    // catalog listener, any change can affect the decisions of other objects
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        clear();
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        clear();
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        clear();
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        clear();
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+
+    /** The decisions of a single request */
+    static final class RequestDecisions {
+        final long generation;
+
+        final Map<DecisionKey, WrapperPolicy> decisions = new ConcurrentHashMap<>();
+
+        RequestDecisions(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    /** Identifies a decision, along with the request context the access managers can use */
+    static final class DecisionKey {
+        final ResourceAccessManager manager;
+
+        final Object user;
+
+        final Class<?> type;
+
+        final String id;
+
+        final MixedModeBehavior mixedModeBehavior;
+
+        final List<String> containers;
+
+        final String localWorkspace;
+
+        final String localPublished;
+
+        final boolean adminRequest;
+
+        final String service;
+
+        final String request;
+
+        DecisionKey(
+                ResourceAccessManager manager,
+                Authentication user,
+                CatalogInfo info,
+                MixedModeBehavior mixedModeBehavior,
+                List<LayerGroupInfo> containers) {
+            this.manager = manager;
+            this.user = user != null ? user : NO_USER;
+            this.type = info.getClass();
+            this.id = info.getId();
+            this.mixedModeBehavior = mixedModeBehavior;
+            if (containers == null || containers.isEmpty()) {
+                this.containers = Collections.emptyList();
+            } else {
+                this.containers = new ArrayList<>(containers.size());
+                for (LayerGroupInfo container : containers) {
+                    this.containers.add(container.getId());
+                }
+            }
+            WorkspaceInfo ws = LocalWorkspace.get();
+            this.localWorkspace = ws != null ? ws.getId() : null;
+            PublishedInfo published = LocalPublished.get();
+            this.localPublished = published != null ? published.getId() : null;
+            this.adminRequest = AdminRequest.get() != null;
+            Request owsRequest = Dispatcher.REQUEST.get();
+            this.service = owsRequest != null ? owsRequest.getService() : null;
+            this.request = owsRequest != null ? owsRequest.getRequest() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            DecisionKey that = (DecisionKey) o;
+            return adminRequest == that.adminRequest
+                    && manager == that.manager
+                    && user.equals(that.user)
+                    && type.equals(that.type)
+                    && id.equals(that.id)
+                    && mixedModeBehavior == that.mixedModeBehavior
+                    && containers.equals(that.containers)
+                    && Objects.equals(localWorkspace, that.localWorkspace)
+                    && Objects.equals(localPublished, that.localPublished)
+                    && Objects.equals(service, that.service)
+                    && Objects.equals(request, that.request);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                    System.identityHashCode(manager),
+                    user,
+                    type,
+                    id,
+                    mixedModeBehavior,
+                    containers,
+                    localWorkspace,
+                    localPublished,
+                    adminRequest,
+                    service,
+                    request);
+        }
+    }
+}
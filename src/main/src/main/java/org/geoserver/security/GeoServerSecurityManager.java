@@ -42,6 +42,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedSet;
@@ -69,6 +70,7 @@
 import org.geoserver.platform.resource.Resource;
 import org.geoserver.platform.resource.Resource.Type;
 import org.geoserver.security.auth.AuthenticationCache;
+import org.geoserver.security.auth.ConcurrentAuthenticationCacheImpl;
 import org.geoserver.security.auth.GeoServerRootAuthenticationProvider;
 import org.geoserver.security.auth.GuavaAuthenticationCacheImpl;
 import org.geoserver.security.auth.UsernamePasswordAuthenticationProvider;
@@ -76,6 +78,7 @@
 import org.geoserver.security.concurrent.LockingRoleService;
 import org.geoserver.security.concurrent.LockingUserGroupService;
 import org.geoserver.security.config.AnonymousAuthenticationFilterConfig;
+import org.geoserver.security.config.AuthenticationCacheConfig;
 import org.geoserver.security.config.BasicAuthenticationFilterConfig;
 import org.geoserver.security.config.ExceptionTranslationFilterConfig;
 import org.geoserver.security.config.FileBasedSecurityServiceConfig;
@@ -151,6 +154,7 @@
 import org.geotools.util.logging.Logging;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationEvent;
@@ -278,6 +282,9 @@ public class GeoServerSecurityManager implements ApplicationContextAware, Applic
     /** authentication cache */
     volatile AuthenticationCache authCache;
 
+    /** true if the authentication cache has been built from the security configuration */
+    volatile boolean authCacheConfigured;
+
     /** rememmber me service */
     volatile RememberMeServices rememberMeService;
 
@@ -540,6 +547,7 @@ public void destroy() throws Exception {
 
         rememberMeService = null;
         keyStoreProvider = null;
+        resetAuthenticationCache();
 
         listeners.clear();
 
@@ -648,7 +656,16 @@ synchronized void init(SecurityManagerConfig config) throws Exception {
 
         setProviders(allAuthProviders);
 
+        boolean authCacheChanged =
+                !Objects.equals(
+                        config.getAuthenticationCache(), securityConfig.getAuthenticationCache());
         this.securityConfig = new SecurityManagerConfig(config);
+
+        // rebuild the authentication cache on next use if its configuration changed, once the new
+        // configuration is in place so that it's the one used
+        if (authCacheChanged) {
+            resetAuthenticationCache();
+        }
         this.initialized = true;
     }
 
@@ -695,7 +712,47 @@ public AuthenticationCache getAuthenticationCache() {
 
     AuthenticationCache lookupAuthenticationCache() {
         AuthenticationCache authCache = GeoServerExtensions.bean(AuthenticationCache.class);
-        return authCache != null ? authCache : new GuavaAuthenticationCacheImpl(1000);
+        authCacheConfigured = authCache == null;
+        if (authCache != null) {
+            return authCache;
+        }
+        AuthenticationCacheConfig config = securityConfig.getAuthenticationCache();
+        if (config == null) {
+            config = AuthenticationCacheConfig.DEFAULT;
+        }
+        int cleanUpSeconds = Math.max(config.getTimeToIdleSeconds(), 1) * 2;
+        if (config.getImplementation() == AuthenticationCacheConfig.Implementation.CONCURRENT) {
+            return new ConcurrentAuthenticationCacheImpl(
+                    config.getMaxEntries(),
+                    config.getTimeToIdleSeconds(),
+                    config.getTimeToLiveSeconds(),
+                    cleanUpSeconds);
+        }
+        return new GuavaAuthenticationCacheImpl(
+                config.getMaxEntries(),
+                config.getTimeToIdleSeconds(),
+                config.getTimeToLiveSeconds(),
+                cleanUpSeconds,
+                GuavaAuthenticationCacheImpl.DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Drops the authentication cache built from the security configuration, a new one will be built
+     * on next use. Caches provided as beans are left alone.
+     */
+    synchronized void resetAuthenticationCache() {
+        AuthenticationCache cache = authCache;
+        if (cache == null || !authCacheConfigured) {
+            return;
+        }
+        authCache = null;
+        if (cache instanceof DisposableBean) {
+            try {
+                ((DisposableBean) cache).destroy();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error disposing the authentication cache", e);
+            }
+        }
     }
 
     public RememberMeServices getRememberMeService() {
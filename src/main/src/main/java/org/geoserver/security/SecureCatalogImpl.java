@@ -87,6 +87,11 @@ public enum MixedModeBehavior {
 
     protected ResourceAccessManager accessManager;
 
+    /** Memoizes the access decisions, looked up lazily from the application context */
+    private volatile AccessDecisionCache decisionCache;
+
+    private volatile boolean decisionCacheLookedUp;
+
     public SecureCatalogImpl(Catalog catalog) throws Exception {
         this(catalog, lookupResourceAccessManager());
     }
@@ -903,13 +908,8 @@ public WrapperPolicy buildWrapperPolicy(
             CatalogInfo info,
             String resourceName,
             MixedModeBehavior mixedModeBehavior) {
-        return SecureCatalogImpl.buildWrapperPolicy(
-                accessManager,
-                user,
-                info,
-                resourceName,
-                mixedModeBehavior,
-                Collections.emptyList());
+        return buildWrapperPolicy(
+                user, info, resourceName, mixedModeBehavior, Collections.emptyList());
     }
 
     /**
@@ -922,8 +922,38 @@ public WrapperPolicy buildWrapperPolicy(
             String resourceName,
             MixedModeBehavior mixedModeBehavior,
             List<LayerGroupInfo> containers) {
-        return SecureCatalogImpl.buildWrapperPolicy(
-                accessManager, user, info, resourceName, mixedModeBehavior, containers);
+        AccessDecisionCache cache = getDecisionCache();
+        if (cache == null || info == null) {
+            return SecureCatalogImpl.buildWrapperPolicy(
+                    accessManager, user, info, resourceName, mixedModeBehavior, containers);
+        }
+        return cache.getPolicy(
+                accessManager,
+                user,
+                info,
+                mixedModeBehavior,
+                containers,
+                () ->
+                        SecureCatalogImpl.buildWrapperPolicy(
+                                accessManager,
+                                user,
+                                info,
+                                resourceName,
+                                mixedModeBehavior,
+                                containers));
+    }
+
+    /** Returns the cache of the access decisions, or null if not available or disabled */
+    AccessDecisionCache getDecisionCache() {
+        if (!decisionCacheLookedUp) {
+            AccessDecisionCache cache = GeoServerExtensions.bean(AccessDecisionCache.class);
+            decisionCache =
+                    cache != null && cache.getScope() != AccessDecisionCache.Scope.NONE
+                            ? cache
+                            : null;
+            decisionCacheLookedUp = true;
+        }
+        return decisionCache;
     }
 
     static WrapperPolicy buildWrapperPolicy(
@@ -0,0 +1,33 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security.auth;
+
+import java.util.Collections;
+import java.util.List;
+import org.geoserver.security.GeoServerSecurityManager;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+
+/**
+ * Reports the statistics of the {@link AuthenticationCache}, if it keeps any. The cache is looked
+ * up from the security manager on each call, as it is rebuilt when its configuration changes.
+ */
+public class AuthenticationCacheStatistics implements CacheStatisticsProvider {
+
+    private final GeoServerSecurityManager securityManager;
+
+    public AuthenticationCacheStatistics(GeoServerSecurityManager securityManager) {
+        this.securityManager = securityManager;
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        AuthenticationCache cache = securityManager.getAuthenticationCache();
+        if (cache instanceof CacheStatisticsProvider) {
+            return ((CacheStatisticsProvider) cache).getCacheStatistics();
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,232 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security.auth;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+import org.geotools.util.logging.Logging;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Implementation of GeoServer AuthenticationCache based on a {@link ConcurrentHashMap}, for
+ * installations authenticating many requests per second.
+ *
+ * <p>Lookups do not take any lock, the access time of the entries is updated in place. Each entry
+ * expires according to its own idle and live times, as in {@link AuthenticationCacheEntry}. When
+ * the maximum number of entries is exceeded, a single thread purges the expired entries and, if
+ * needed, the least recently accessed ones, while the others keep on using the cache.
+ */
+public class ConcurrentAuthenticationCacheImpl
+        implements AuthenticationCache, CacheStatisticsProvider, DisposableBean {
+
+    static Logger LOGGER = Logging.getLogger("org.geoserver.security");
+
+    /** Default eviction interval (double of the idle time). */
+    public static final int DEFAULT_CLEANUP_TIME = DEFAULT_IDLE_TIME * 2;
+
+    // Use a counter to ensure a unique prefix for each pool.
+    private static AtomicInteger poolCounter = new AtomicInteger();
+
+    private final Map<AuthenticationCacheKey, AuthenticationCacheEntry> cache =
+            new ConcurrentHashMap<>();
+
+    private final int maxEntries;
+
+    private final int timeToIdleSeconds, timeToLiveSeconds;
+
+    /** Held by the thread purging the cache */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public ConcurrentAuthenticationCacheImpl(int maxEntries) {
+        this(maxEntries, DEFAULT_IDLE_TIME, DEFAULT_LIVE_TIME, DEFAULT_CLEANUP_TIME);
+    }
+
+    /**
+     * @param cleanUpSeconds interval of the periodic removal of the expired entries, zero or less
+     *     to remove them only when the cache is full
+     */
+    public ConcurrentAuthenticationCacheImpl(
+            int maxEntries, int timeToIdleSeconds, int timeToLiveSeconds, int cleanUpSeconds) {
+        this.maxEntries = maxEntries;
+        this.timeToIdleSeconds = timeToIdleSeconds;
+        this.timeToLiveSeconds = timeToLiveSeconds;
+
+        if (cleanUpSeconds > 0) {
+            CustomizableThreadFactory tFactory =
+                    new CustomizableThreadFactory(
+                            String.format(
+                                    "ConcurrentAuthCache-%d-", poolCounter.getAndIncrement()));
+            tFactory.setDaemon(true);
+            scheduler = Executors.newScheduledThreadPool(1, tFactory);
+            scheduler.scheduleAtFixedRate(
+                    this::removeExpired, cleanUpSeconds, cleanUpSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+        if (LOGGER.isLoggable(Level.CONFIG)) {
+            LOGGER.config(
+                    "AuthenticationCache Initialized with "
+                            + maxEntries
+                            + " Max Entries, "
+                            + timeToIdleSeconds
+                            + " seconds idle time, "
+                            + timeToLiveSeconds
+                            + " seconds time to live");
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        cache.clear();
+    }
+
+    @Override
+    public void removeAll(String filterName) {
+        if (filterName == null) return;
+        cache.keySet().removeIf(key -> filterName.equals(key.getFilterName()));
+    }
+
+    @Override
+    public void remove(String filterName, String cacheKey) {
+        cache.remove(new AuthenticationCacheKey(filterName, cacheKey));
+    }
+
+    @Override
+    public Authentication get(String filterName, String cacheKey) {
+        final AuthenticationCacheKey key = new AuthenticationCacheKey(filterName, cacheKey);
+        AuthenticationCacheEntry entry = cache.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long currentTime = System.currentTimeMillis();
+        if (entry.hasExpired(currentTime)) {
+            // only remove this very entry, a fresh one might have been put in the meantime
+            cache.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        entry.setLastAccessed(currentTime);
+        hits.increment();
+        return entry.getAuthentication();
+    }
+
+    @Override
+    public void put(
+            String filterName,
+            String cacheKey,
+            Authentication auth,
+            Integer timeToIdleSeconds,
+            Integer timeToLiveSeconds) {
+        timeToIdleSeconds = timeToIdleSeconds != null ? timeToIdleSeconds : this.timeToIdleSeconds;
+        timeToLiveSeconds = timeToLiveSeconds != null ? timeToLiveSeconds : this.timeToLiveSeconds;
+
+        cache.put(
+                new AuthenticationCacheKey(filterName, cacheKey),
+                new AuthenticationCacheEntry(auth, timeToIdleSeconds, timeToLiveSeconds));
+        if (cache.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    @Override
+    public void put(String filterName, String cacheKey, Authentication auth) {
+        put(filterName, cacheKey, auth, timeToIdleSeconds, timeToLiveSeconds);
+    }
+
+    /** Removes the expired entries */
+    void removeExpired() {
+        long currentTime = System.currentTimeMillis();
+        int size = cache.size();
+        cache.entrySet().removeIf(e -> e.getValue().hasExpired(currentTime));
+        evictions.add(Math.max(0, size - cache.size()));
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(
+                    "AuthenticationCache removed "
+                            + (size - cache.size())
+                            + " expired entries, "
+                            + cache.size()
+                            + " left");
+        }
+    }
+
+    /**
+     * Brings the cache back within its maximum size, removing the expired entries first, and then
+     * the least recently accessed ones. A tenth of the capacity is freed, so that the next
+     * insertions do not trigger another eviction right away. Threads finding another eviction in
+     * progress return immediately.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            removeExpired();
+            int size = cache.size();
+            int target = maxEntries - maxEntries / 10;
+            int excess = cache.size() - target;
+            if (excess > 0) {
+                // find the access time of the excess-th least recently used entry, and drop all
+                // the entries not accessed since then
+                long[] accessed =
+                        cache.values().stream()
+                                .mapToLong(AuthenticationCacheEntry::getLastAccessed)
+                                .sorted()
+                                .toArray();
+                if (accessed.length > 0) {
+                    long threshold = accessed[Math.min(excess, accessed.length) - 1];
+                    cache.values().removeIf(e -> e.getLastAccessed() <= threshold);
+                }
+            }
+            evictions.add(Math.max(0, size - cache.size()));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return cache.isEmpty();
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        CacheStatistics statistics =
+                new CacheStatistics("authentications", "Authentications of the caching filters");
+        statistics.setSize(cache.size());
+        statistics.setHitCount(hits.sum());
+        statistics.setMissCount(misses.sum());
+        statistics.setEvictionCount(evictions.sum());
+        return Collections.singletonList(statistics);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -7,7 +7,9 @@
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -16,6 +18,8 @@
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
 import org.geotools.util.logging.Logging;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
@@ -26,7 +30,8 @@
  *
  * @author Mauro Bartolomeoli (mauro.bartolomeoli at geo-solutions.it)
  */
-public class GuavaAuthenticationCacheImpl implements AuthenticationCache, DisposableBean {
+public class GuavaAuthenticationCacheImpl
+        implements AuthenticationCache, CacheStatisticsProvider, DisposableBean {
 
     /** Default eviction interval (double of the idle time). */
     public static final int DEFAULT_CLEANUP_TIME = DEFAULT_IDLE_TIME * 2;
@@ -99,6 +104,7 @@ public GuavaAuthenticationCacheImpl(
                         .expireAfterAccess(timeToIdleSeconds, TimeUnit.SECONDS)
                         .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
                         .concurrencyLevel(concurrencyLevel)
+                        .recordStats()
                         .build();
         if (LOGGER.isLoggable(Level.CONFIG)) {
             LOGGER.config(
@@ -238,6 +244,13 @@ public boolean isEmpty() {
         return cache.size() == 0;
     }
 
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        return Collections.singletonList(
+                CacheStatistics.of(
+                        "authentications", "Authentications of the caching filters", cache));
+    }
+
     @Override
     public void destroy() {
         scheduler.shutdown();
@@ -0,0 +1,118 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security.config;
+
+import java.util.Objects;
+import org.geoserver.security.auth.AuthenticationCache;
+
+/**
+ * Configuration of the {@link AuthenticationCache} used by the caching authentication filters.
+ * Ignored if an {@link AuthenticationCache} bean is found in the application context.
+ */
+public class AuthenticationCacheConfig implements SecurityConfig {
+
+    private static final long serialVersionUID = -2311745613434526637L;
+
+    /** The available cache implementations */
+    public enum Implementation {
+        /** Guava based cache, expiring all entries with the global idle and live times */
+        GUAVA,
+        /** Lock free cache, honoring the idle and live times of each entry */
+        CONCURRENT
+    }
+
+    /** Default maximum number of cached authentications */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /** Default authentication cache configuration */
+    public static final AuthenticationCacheConfig DEFAULT = new AuthenticationCacheConfig();
+
+    Implementation implementation;
+
+    int maxEntries;
+
+    int timeToIdleSeconds;
+
+    int timeToLiveSeconds;
+
+    /** Configuration based on defaults */
+    public AuthenticationCacheConfig() {
+        this.implementation = Implementation.GUAVA;
+        this.maxEntries = DEFAULT_MAX_ENTRIES;
+        this.timeToIdleSeconds = AuthenticationCache.DEFAULT_IDLE_TIME;
+        this.timeToLiveSeconds = AuthenticationCache.DEFAULT_LIVE_TIME;
+    }
+
+    public AuthenticationCacheConfig(AuthenticationCacheConfig other) {
+        this.implementation = other.implementation;
+        this.maxEntries = other.maxEntries;
+        this.timeToIdleSeconds = other.timeToIdleSeconds;
+        this.timeToLiveSeconds = other.timeToLiveSeconds;
+    }
+
+    private Object readResolve() {
+        // XStream does not call the constructor, restore the defaults of missing values
+        implementation = implementation != null ? implementation : Implementation.GUAVA;
+        maxEntries = maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES;
+        timeToIdleSeconds =
+                timeToIdleSeconds > 0 ? timeToIdleSeconds : AuthenticationCache.DEFAULT_IDLE_TIME;
+        timeToLiveSeconds =
+                timeToLiveSeconds > 0 ? timeToLiveSeconds : AuthenticationCache.DEFAULT_LIVE_TIME;
+        return this;
+    }
+
+    public Implementation getImplementation() {
+        return implementation;
+    }
+
+    public void setImplementation(Implementation implementation) {
+        this.implementation = implementation;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getTimeToIdleSeconds() {
+        return timeToIdleSeconds;
+    }
+
+    public void setTimeToIdleSeconds(int timeToIdleSeconds) {
+        this.timeToIdleSeconds = timeToIdleSeconds;
+    }
+
+    public int getTimeToLiveSeconds() {
+        return timeToLiveSeconds;
+    }
+
+    public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+        this.timeToLiveSeconds = timeToLiveSeconds;
+    }
+
+    @Override
+    public SecurityConfig clone(boolean allowEnvParametrization) {
+        return new AuthenticationCacheConfig(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AuthenticationCacheConfig that = (AuthenticationCacheConfig) o;
+        return maxEntries == that.maxEntries
+                && timeToIdleSeconds == that.timeToIdleSeconds
+                && timeToLiveSeconds == that.timeToLiveSeconds
+                && implementation == that.implementation;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(implementation, maxEntries, timeToIdleSeconds, timeToLiveSeconds);
+    }
+}
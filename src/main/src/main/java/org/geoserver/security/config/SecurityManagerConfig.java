@@ -34,6 +34,7 @@ public class SecurityManagerConfig implements SecurityConfig {
     private GeoServerSecurityFilterChain filterChain = new GeoServerSecurityFilterChain();
     private RememberMeServicesConfig rememberMeService = new RememberMeServicesConfig();
     private BruteForcePreventionConfig bruteForcePrevention = new BruteForcePreventionConfig();
+    private AuthenticationCacheConfig authenticationCache = new AuthenticationCacheConfig();
 
     public SecurityManagerConfig() {}
 
@@ -50,6 +51,7 @@ public SecurityManagerConfig(SecurityManagerConfig config) {
         this.rememberMeService = new RememberMeServicesConfig(config.getRememberMeService());
         this.bruteForcePrevention =
                 new BruteForcePreventionConfig(config.getBruteForcePrevention());
+        this.authenticationCache = new AuthenticationCacheConfig(config.getAuthenticationCache());
         this.encryptingUrlParams = config.isEncryptingUrlParams();
         this.configPasswordEncrypterName = config.getConfigPasswordEncrypterName();
         // this.masterPasswordURL=config.getMasterPasswordURL();
@@ -65,6 +67,8 @@ private Object readResolve() {
                 bruteForcePrevention != null
                         ? bruteForcePrevention
                         : new BruteForcePreventionConfig();
+        authenticationCache =
+                authenticationCache != null ? authenticationCache : new AuthenticationCacheConfig();
         return this;
     }
 
@@ -109,6 +113,15 @@ public void setBruteForcePrevention(BruteForcePreventionConfig bruteForcePrevent
         this.bruteForcePrevention = bruteForcePrevention;
     }
 
+    public AuthenticationCacheConfig getAuthenticationCache() {
+        return authenticationCache;
+    }
+
+    /** The cache of the authentications performed by the caching filters */
+    public void setAuthenticationCache(AuthenticationCacheConfig authenticationCache) {
+        this.authenticationCache = authenticationCache;
+    }
+
     /** Flag controlling if web admin should encrypt url parameters. */
     public boolean isEncryptingUrlParams() {
         return encryptingUrlParams;
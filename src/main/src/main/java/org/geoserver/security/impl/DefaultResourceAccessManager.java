@@ -102,7 +102,10 @@ public SecureTreeNode getNode() {
         }
     }
 
-    SecureTreeNode root;
+    volatile SecureTreeNode root;
+
+    /** The decisions precomputed over {@link #root}, replaced along with it */
+    volatile SecureTreeDecisionTable decisions;
 
     DataAccessRuleDAO dao;
 
@@ -119,7 +122,7 @@ public SecureTreeNode getNode() {
     public DefaultResourceAccessManager(DataAccessRuleDAO dao, Catalog rawCatalog) {
         this.dao = dao;
         this.rawCatalog = rawCatalog;
-        this.root = buildAuthorizationTree(dao);
+        setAuthorizationTree(buildAuthorizationTree(dao));
     }
 
     /**
@@ -137,8 +140,10 @@ public CatalogMode getMode() {
 
     public boolean canAccess(Authentication user, WorkspaceInfo workspace, AccessMode mode) {
         checkPropertyFile();
-        SecureTreeNode node = root.getDeepestNode(new String[] {workspace.getName()});
-        if (node.canAccess(user, mode)) {
+        SecureTreeDecisionTable decisions = this.decisions;
+        SecureTreeNode node =
+                decisions.getRoot().getDeepestNode(new String[] {workspace.getName()});
+        if (decisions.canAccess(user, node, mode)) {
             return true;
         }
 
@@ -146,31 +151,13 @@ public boolean canAccess(Authentication user, WorkspaceInfo workspace, AccessMod
         // if there is anything inside the workspace that can be read (otherwise
         // we are denying access to everything below it, which is not the spirit of the
         // tree override design)
-        if (mode == AccessMode.READ && canAccessChild(node, user, mode)) {
+        if (mode == AccessMode.READ && decisions.canAccessChild(user, node, mode)) {
             return true;
         } else {
             return false;
         }
     }
 
-    /**
-     * Returns true if the user can access the specified node, or one of the nodes below it
-     *
-     * <p>the specified nodes
-     */
-    private boolean canAccessChild(SecureTreeNode node, Authentication user, AccessMode mode) {
-        if (node.canAccess(user, mode)) {
-            return true;
-        }
-        for (SecureTreeNode child : node.getChildren().values()) {
-            if (canAccessChild(child, user, mode)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
     public boolean canAccess(
             Authentication user, LayerInfo layer, AccessMode mode, boolean directAccess) {
         checkPropertyFile();
@@ -205,9 +192,11 @@ public boolean canAccess(
 
         // if we have a catalog rule that is at resource level, it's the most specific type,
         // it wins. Or it could be that we do not need to check layer groups at all
-        SecureTreeNode securityNode = root.getDeepestNode(new String[] {workspace, resourceName});
+        SecureTreeDecisionTable decisions = this.decisions;
+        SecureTreeNode securityNode =
+                decisions.getRoot().getDeepestNode(new String[] {workspace, resourceName});
         int catalogNodeDepth = securityNode.getDepth();
-        boolean rulesAllowAccess = securityNode.canAccess(user, mode);
+        boolean rulesAllowAccess = decisions.canAccess(user, securityNode, mode);
         if (catalogNodeDepth == SecureTreeNode.RESOURCE_DEPTH
                 || !layerGroupContainmentCheckRequired()) {
             return rulesAllowAccess;
@@ -330,11 +319,21 @@ void checkPropertyFile() {
     private void rebuildAuthorizationTree(boolean force) {
         long daoLastModified = dao.getLastModified();
         if (lastLoaded < daoLastModified || force) {
-            root = buildAuthorizationTree(dao);
+            setAuthorizationTree(buildAuthorizationTree(dao));
             lastLoaded = daoLastModified;
         }
     }
 
+    /**
+     * Sets the authorization tree along with its decision table, the table is published first so
+     * that readers of the tree never find a stale table (nodes of a previous tree are still
+     * correctly evaluated by any table)
+     */
+    private void setAuthorizationTree(SecureTreeNode root) {
+        this.decisions = new SecureTreeDecisionTable(root);
+        this.root = root;
+    }
+
     SecureTreeNode buildAuthorizationTree(DataAccessRuleDAO dao) {
         SecureTreeNode root = new SecureTreeNode();
 
@@ -472,7 +471,7 @@ private boolean canAccess(
             Authentication user, LayerGroupInfo layerGroup, boolean directAccess) {
         String[] path = getLayerGroupPath(layerGroup);
         SecureTreeNode node = root.getDeepestNode(path);
-        boolean catalogNodeAllowsAccess = node.canAccess(user, AccessMode.READ);
+        boolean catalogNodeAllowsAccess = decisions.canAccess(user, node, AccessMode.READ);
         boolean allowAccess;
         if (node != null && !catalogNodeAllowsAccess) {
             allowAccess = false;
@@ -666,10 +665,11 @@ else if (rawCatalog.getLayerGroupByName(prefixedName) != null)
     }
 
     private boolean canAccess(Authentication user, SecureTreeNode node) {
-        boolean access = node.canAccess(user, AccessMode.READ);
+        SecureTreeDecisionTable decisions = this.decisions;
+        boolean access = decisions.canAccess(user, node, AccessMode.READ);
         if (access && AdminRequest.get() != null) {
             // admin request, we need to check if we can also admin those
-            return node.canAccess(user, AccessMode.ADMIN);
+            return decisions.canAccess(user, node, AccessMode.ADMIN);
         } else {
             return access;
         }
@@ -0,0 +1,191 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.geoserver.security.AccessMode;
+import org.geoserver.security.GeoServerSecurityFilterChainProxy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Precomputed access decisions over a {@link SecureTreeNode} tree. For each distinct set of roles a
+ * bitset records, for every node and access mode, whether the node can be accessed, and whether the
+ * node or any node below it can be accessed. The bitset of a role set is computed in a single pass
+ * over the tree the first time the role set is seen, after which each decision is a bit lookup,
+ * regardless of the depth of the tree and of the number of roles of the user.
+ *
+ * <p>The table is immutable with respect to the tree it has been built for, a new table must be
+ * built whenever the tree is rebuilt. Nodes not belonging to the tree are delegated to {@link
+ * SecureTreeNode#canAccess(Authentication, AccessMode)}.
+ */
+class SecureTreeDecisionTable {
+
+    /** Maximum number of role sets whose decisions are kept */
+    static final int MAX_ROLE_SETS = 1000;
+
+    /** Maximum number of authentications whose role set is remembered */
+    static final int MAX_USERS = 10000;
+
+    static final AccessMode[] MODES = AccessMode.values();
+
+    /** Bits per node: access to the node, and access to the node or its descendants, per mode */
+    static final int BITS_PER_NODE = MODES.length * 2;
+
+    private final SecureTreeNode root;
+
+    /** The tree nodes, parents always before their children */
+    private final SecureTreeNode[] nodes;
+
+    private final Map<SecureTreeNode, Integer> indexes = new IdentityHashMap<>();
+
+    private final Cache<Set<String>, BitSet> roleSetDecisions =
+            CacheBuilder.newBuilder().maximumSize(MAX_ROLE_SETS).build();
+
+    /** Weak keys are compared by identity, sparing the role set extraction on each check */
+    private final Cache<Authentication, BitSet> userDecisions =
+            CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_USERS).build();
+
+    SecureTreeDecisionTable(SecureTreeNode root) {
+        this.root = root;
+        List<SecureTreeNode> ordered = new ArrayList<>();
+        ordered.add(root);
+        indexes.put(root, 0);
+        for (int i = 0; i < ordered.size(); i++) {
+            for (SecureTreeNode child : ordered.get(i).getChildren().values()) {
+                // guard against malformed trees
+                if (!indexes.containsKey(child)) {
+                    indexes.put(child, ordered.size());
+                    ordered.add(child);
+                }
+            }
+        }
+        this.nodes = ordered.toArray(new SecureTreeNode[ordered.size()]);
+    }
+
+    /** The root of the tree the decisions are computed for */
+    SecureTreeNode getRoot() {
+        return root;
+    }
+
+    /** Same as {@link SecureTreeNode#canAccess(Authentication, AccessMode)} */
+    boolean canAccess(Authentication user, SecureTreeNode node, AccessMode mode) {
+        Integer index = indexes.get(node);
+        if (index == null) {
+            return node.canAccess(user, mode);
+        }
+        if (!GeoServerSecurityFilterChainProxy.isSecurityEnabledForCurrentRequest()) {
+            return true;
+        }
+        return getDecisions(user).get(bit(index, mode, false));
+    }
+
+    /** Returns true if the user can access the specified node, or one of the nodes below it */
+    boolean canAccessChild(Authentication user, SecureTreeNode node, AccessMode mode) {
+        Integer index = indexes.get(node);
+        if (index == null) {
+            return canAccessChildNode(user, node, mode);
+        }
+        if (!GeoServerSecurityFilterChainProxy.isSecurityEnabledForCurrentRequest()) {
+            return true;
+        }
+        return getDecisions(user).get(bit(index, mode, true));
+    }
+
+    private static boolean canAccessChildNode(
+            Authentication user, SecureTreeNode node, AccessMode mode) {
+        if (node.canAccess(user, mode)) {
+            return true;
+        }
+        for (SecureTreeNode child : node.getChildren().values()) {
+            if (canAccessChildNode(user, child, mode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int bit(int index, AccessMode mode, boolean descendants) {
+        return index * BITS_PER_NODE + (descendants ? MODES.length : 0) + mode.ordinal();
+    }
+
+    private BitSet getDecisions(Authentication user) {
+        if (user == null) {
+            return getDecisions(Collections.emptySet());
+        }
+        BitSet decisions = userDecisions.getIfPresent(user);
+        if (decisions == null) {
+            Set<String> roles = new HashSet<>();
+            Collection<? extends GrantedAuthority> authorities = user.getAuthorities();
+            if (authorities != null) {
+                for (GrantedAuthority authority : authorities) {
+                    roles.add(authority.getAuthority());
+                }
+            }
+            decisions = getDecisions(roles);
+            userDecisions.put(user, decisions);
+        }
+        return decisions;
+    }
+
+    private BitSet getDecisions(Set<String> roles) {
+        BitSet decisions = roleSetDecisions.getIfPresent(roles);
+        if (decisions == null) {
+            // concurrent computations for the same role set yield the same bits
+            decisions = computeDecisions(roles);
+            roleSetDecisions.put(roles, decisions);
+        }
+        return decisions;
+    }
+
+    /** Computes the decisions of a role set, mirroring {@link SecureTreeNode#canAccess} */
+    BitSet computeDecisions(Set<String> roles) {
+        boolean admin = roles.contains(SecureTreeNode.ROOT_ROLE);
+        BitSet decisions = new BitSet(nodes.length * BITS_PER_NODE);
+        // parents first, nodes without rules inherit the parent decision
+        for (int i = 0; i < nodes.length; i++) {
+            SecureTreeNode node = nodes[i];
+            Integer parent = node.parent != null ? indexes.get(node.parent) : null;
+            for (AccessMode mode : MODES) {
+                Set<String> authorized = node.getAuthorizedRoles(mode);
+                boolean allowed;
+                if (authorized == null) {
+                    allowed = parent != null && decisions.get(bit(parent, mode, false));
+                } else if (authorized.equals(SecureTreeNode.EVERYBODY)) {
+                    allowed = true;
+                } else {
+                    allowed = admin || !Collections.disjoint(authorized, roles);
+                }
+                if (allowed) {
+                    decisions.set(bit(i, mode, false));
+                    decisions.set(bit(i, mode, true));
+                }
+            }
+        }
+        // children first, propagating the descendants access up to the root
+        for (int i = nodes.length - 1; i > 0; i--) {
+            Integer parent = indexes.get(nodes[i].parent);
+            if (parent == null) {
+                continue;
+            }
+            for (AccessMode mode : MODES) {
+                if (decisions.get(bit(i, mode, true))) {
+                    decisions.set(bit(parent, mode, true));
+                }
+            }
+        }
+        return decisions;
+    }
+}
@@ -0,0 +1,182 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.system.status;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the usage statistics of one of the GeoServer internal caches. Instances are provided
+ * by {@link CacheStatisticsProvider} implementations, and serialized by the REST API to provide
+ * XML, JSON and HTML views of the data.
+ */
+public class CacheStatistics implements Serializable {
+
+    private static final long serialVersionUID = -2465823547238437711L;
+
+    String name;
+
+    String description;
+
+    long size;
+
+    long weight = -1;
+
+    long maxWeight = -1;
+
+    long hitCount;
+
+    long missCount;
+
+    long evictionCount;
+
+    long loadCount;
+
+    long totalLoadTime;
+
+    /**
+     * Creates a new statistics snapshot
+     *
+     * @param name The cache name, should be unique among all caches
+     * @param description A human readable description of the cache contents
+     */
+    public CacheStatistics(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    /**
+     * Creates a statistics snapshot out of a Guava cache. The cache needs to be built with {@link
+     * com.google.common.cache.CacheBuilder#recordStats()} for the counters to be populated, the
+     * weights are not tracked by Guava and are left to the caller.
+     */
+    public static CacheStatistics of(String name, String description, Cache<?, ?> cache) {
+        CacheStatistics result = new CacheStatistics(name, description);
+        CacheStats stats = cache.stats();
+        result.setSize(cache.size());
+        result.setHitCount(stats.hitCount());
+        result.setMissCount(stats.missCount());
+        result.setEvictionCount(stats.evictionCount());
+        result.setLoadCount(stats.loadCount());
+        result.setTotalLoadTime(TimeUnit.NANOSECONDS.toMillis(stats.totalLoadTime()));
+        return result;
+    }
+
+    /** The cache name */
+    public String getName() {
+        return name;
+    }
+
+    /** A human readable description of the cache */
+    public String getDescription() {
+        return description;
+    }
+
+    /** The number of entries in the cache */
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * The current weight of the cache, in the unit used by the cache to bound its size (e.g., the
+     * number of bytes), or -1 if the cache is not weight bound
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    public void setWeight(long weight) {
+        this.weight = weight;
+    }
+
+    /** The maximum weight of the cache, or -1 if the cache is not weight bound */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /** Number of lookups that found an entry in the cache */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    /** Number of lookups that did not find an entry in the cache */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    /** Number of entries removed to make room for new ones, or expired */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public void setEvictionCount(long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+
+    /** Number of entries loaded in the cache */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public void setLoadCount(long loadCount) {
+        this.loadCount = loadCount;
+    }
+
+    /** Total time spent loading entries, in milliseconds */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    public void setTotalLoadTime(long totalLoadTime) {
+        this.totalLoadTime = totalLoadTime;
+    }
+
+    /** The ratio between hits and total lookups, or 0 if no lookup has been performed yet */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics [name="
+                + name
+                + ", size="
+                + size
+                + ", weight="
+                + weight
+                + "/"
+                + maxWeight
+                + ", hitCount="
+                + hitCount
+                + ", missCount="
+                + missCount
+                + ", evictionCount="
+                + evictionCount
+                + ", loadCount="
+                + loadCount
+                + ", totalLoadTime="
+                + totalLoadTime
+                + "]";
+    }
+}
@@ -0,0 +1,17 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.system.status;
+
+import java.util.List;
+
+/**
+ * Extension point for components holding caches whose usage should be reported to administrators.
+ * Implementations are looked up in the application context.
+ */
+public interface CacheStatisticsProvider {
+
+    /** Returns a snapshot of the current statistics of each cache managed by this provider */
+    List<CacheStatistics> getCacheStatistics();
+}
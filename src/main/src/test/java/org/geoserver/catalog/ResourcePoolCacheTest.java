@@ -0,0 +1,100 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.geoserver.system.status.CacheStatistics;
+import org.junit.After;
+import org.junit.Test;
+
+public class ResourcePoolCacheTest {
+
+    List<String> disposed = new ArrayList<>();
+
+    class TestCache extends ResourcePoolCache<String, String> {
+
+        TestCache(long maxWeight) {
+            super("testCache", "Test cache", (String k, String v) -> v.length(), maxWeight, 0);
+        }
+
+        @Override
+        protected void dispose(String key, String value) {
+            disposed.add(key);
+        }
+    }
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(ResourcePoolCache.PROPERTY_PREFIX + "testCache.maxWeight");
+    }
+
+    @Test
+    public void testWeightEviction() {
+        TestCache cache = new TestCache(1000);
+        String value = String.format("%050d", 0);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, value);
+        }
+        // evicted entries got disposed
+        assertTrue(cache.getWeight() <= 1000);
+        assertFalse(disposed.isEmpty());
+        assertEquals(100, cache.size() + disposed.size());
+        for (String key : disposed) {
+            assertNull(cache.get(key));
+        }
+    }
+
+    @Test
+    public void testDisposeOnRemoveAndClear() {
+        TestCache cache = new TestCache(100);
+        cache.put("a", "1");
+        cache.put("a", "2");
+        // replacing does not dispose, the value might be the same
+        assertTrue(disposed.isEmpty());
+
+        cache.put("b", "3");
+        cache.remove("a");
+        assertEquals(1, disposed.size());
+        cache.clear();
+        assertEquals(2, disposed.size());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testStatistics() {
+        TestCache cache = new TestCache(100);
+        assertNull(cache.get("a"));
+        cache.put("a", "abc");
+        cache.recordLoad(2_000_000);
+        assertEquals("abc", cache.get("a"));
+        assertEquals("abc", cache.get("a"));
+
+        CacheStatistics stats = cache.getCacheStatistics();
+        assertEquals("testCache", stats.getName());
+        assertEquals(1, stats.getSize());
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getLoadCount());
+        assertEquals(2, stats.getTotalLoadTime());
+        assertEquals(3, stats.getWeight());
+        assertEquals(100, stats.getMaxWeight());
+    }
+
+    @Test
+    public void testConfigurationOverride() {
+        System.setProperty(ResourcePoolCache.PROPERTY_PREFIX + "testCache.maxWeight", "0");
+        TestCache cache = new TestCache(10);
+        assertEquals(0, cache.getMaxWeight());
+        cache.put("a", "12345678901234567890");
+        assertFalse(cache.isEmpty());
+        assertEquals(-1, cache.getCacheStatistics().getMaxWeight());
+    }
+}
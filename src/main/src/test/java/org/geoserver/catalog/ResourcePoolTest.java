@@ -36,9 +36,14 @@
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -69,6 +74,8 @@
 import org.geoserver.data.test.TestData;
 import org.geoserver.platform.GeoServerEnvironment;
 import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.platform.resource.Resource;
+import org.geoserver.system.status.CacheStatistics;
 import org.geoserver.test.GeoServerSystemTestSupport;
 import org.geoserver.test.RunTestSetup;
 import org.geoserver.test.SystemTest;
@@ -103,7 +110,6 @@
 import org.geotools.styling.Style;
 import org.geotools.styling.StyleFactory;
 import org.geotools.styling.StyledLayerDescriptor;
-import org.geotools.util.SoftValueHashMap;
 import org.geotools.util.URLs;
 import org.geotools.util.Version;
 import org.geotools.util.factory.GeoTools;
@@ -340,11 +346,52 @@ public void testConfigureFeatureTypeCacheSize() {
 
         Catalog catalog = getCatalog();
         // we actually keep two versions of the feature type in the cache, so we need it
-        // twice as big
+        // twice as big, and the cache is weighted by number of attributes
         assertEquals(
-                400,
-                ((SoftValueHashMap) catalog.getResourcePool().getFeatureTypeCache())
-                        .getHardReferencesCount());
+                400 * ResourcePool.FEATURETYPE_CACHE_ATTRIBUTES,
+                ((ResourcePoolCache) catalog.getResourcePool().getFeatureTypeCache())
+                        .getMaxWeight());
+    }
+
+    @Test
+    public void testCacheStatistics() throws Exception {
+        ResourcePool pool = ResourcePool.create(getCatalog());
+        try {
+            StyleInfo info = getCatalog().getStyleByName(HUMANS);
+            Style style = pool.getStyle(info);
+            assertSame(style, pool.getStyle(info));
+            pool.getCRS("EPSG:4326");
+
+            Map<String, CacheStatistics> stats = new HashMap<>();
+            for (CacheStatistics cs : pool.getCacheStatistics()) {
+                stats.put(cs.getName(), cs);
+            }
+            assertEquals(
+                    new HashSet<>(
+                            Arrays.asList(
+                                    "crsCache",
+                                    "featureTypeCache",
+                                    "featureTypeAttributeCache",
+                                    "hintCoverageReaderCache",
+                                    "sldCache",
+                                    "styleCache")),
+                    stats.keySet());
+
+            CacheStatistics styles = stats.get("styleCache");
+            assertEquals(1, styles.getSize());
+            assertEquals(1, styles.getLoadCount());
+            assertTrue(styles.getHitCount() >= 1);
+            // weighted by number of rules
+            assertEquals(1 + ResourcePool.countRules(style), styles.getWeight());
+            assertEquals(ResourcePool.STYLE_CACHE_RULES_DEFAULT, styles.getMaxWeight());
+
+            CacheStatistics crs = stats.get("crsCache");
+            assertEquals(1, crs.getSize());
+            assertEquals(1, crs.getLoadCount());
+            assertEquals(-1, stats.get("hintCoverageReaderCache").getMaxWeight());
+        } finally {
+            pool.dispose();
+        }
     }
 
     @Test
@@ -1150,6 +1197,72 @@ public void testConcurrencyOnCRSCache() throws Exception {
         }
     }
 
+    @Test
+    public void testStyleListenersOnReload() throws Exception {
+        AtomicInteger listeners = new AtomicInteger();
+        // caches holding a single style, so that loading a style evicts the other one
+        ResourcePool pool =
+                new ResourcePool(getCatalog()) {
+                    @Override
+                    protected Map<String, StyledLayerDescriptor> createSldCache() {
+                        return new ResourcePoolCache<>("sldCache", "test", null, 1, 0);
+                    }
+
+                    @Override
+                    protected Map<String, Style> createStyleCache() {
+                        return new ResourcePoolCache<>("styleCache", "test", null, 1, 0);
+                    }
+
+                    @Override
+                    GeoServerDataDirectory dataDir() {
+                        return new GeoServerDataDirectory(getCatalog().getResourceLoader()) {
+                            @Override
+                            public Resource style(StyleInfo s) {
+                                return countListeners(super.style(s), listeners);
+                            }
+                        };
+                    }
+                };
+        try {
+            StyleInfo humans = getCatalog().getStyleByName(HUMANS);
+            StyleInfo polygon = getCatalog().getStyleByName(StyleInfo.DEFAULT_POLYGON);
+            pool.getStyle(humans);
+            pool.getSld(humans);
+            assertEquals(1, listeners.get());
+
+            // evicts humans, and reloads it
+            pool.getStyle(polygon);
+            assertNull(pool.getStyleCache().get(humans.getId()));
+            pool.getStyle(humans);
+            pool.getSld(polygon);
+            pool.getSld(humans);
+            assertEquals(2, listeners.get());
+        } finally {
+            pool.dispose();
+        }
+        assertEquals(0, listeners.get());
+    }
+
+    /** Wraps the resource, tracking the number of listeners added and not removed yet */
+    private Resource countListeners(Resource resource, AtomicInteger listeners) {
+        return (Resource)
+                Proxy.newProxyInstance(
+                        getClass().getClassLoader(),
+                        new Class[] {Resource.class},
+                        (proxy, method, args) -> {
+                            if ("addListener".equals(method.getName())) {
+                                listeners.incrementAndGet();
+                            } else if ("removeListener".equals(method.getName())) {
+                                listeners.decrementAndGet();
+                            }
+                            try {
+                                return method.invoke(resource, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+    }
+
     @Test
     public void testConcurrencyOnStyleCache() throws Exception {
         ResourcePool pool = null;
@@ -0,0 +1,142 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoserver.test.GeoServerSystemTestSupport;
+import org.geotools.styling.Style;
+import org.junit.Test;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.GenericApplicationContext;
+
+public class StyleCacheWarmerTest extends GeoServerSystemTestSupport {
+
+    @Test
+    public void testWarmAll() throws Exception {
+        Catalog catalog = getCatalog();
+        ResourcePool pool = catalog.getResourcePool();
+        pool.getStyleCache().clear();
+
+        StyleCacheWarmer warmer = new StyleCacheWarmer(catalog, 2);
+        try {
+            assertTrue(warmer.isEnabled());
+            warmer.warmAll();
+            StyleInfo polygon = catalog.getStyleByName(StyleInfo.DEFAULT_POLYGON);
+            assertNotNull(waitForStyle(pool.getStyleCache(), polygon.getId()));
+        } finally {
+            warmer.destroy();
+        }
+    }
+
+    @Test
+    public void testWarmOnModify() throws Exception {
+        Catalog catalog = getCatalog();
+        ResourcePool pool = catalog.getResourcePool();
+        StyleInfo info = catalog.getStyleByName(StyleInfo.DEFAULT_LINE);
+        Style original = pool.getStyle(info);
+
+        StyleCacheWarmer warmer = new StyleCacheWarmer(catalog, 1);
+        try {
+            info.getMetadata().put("warmed", true);
+            catalog.save(info);
+            // the modified style is parsed again without anyone asking for it
+            Style reparsed = waitForStyle(pool.getStyleCache(), info.getId());
+            assertNotNull(reparsed);
+            assertNotSame(original, reparsed);
+        } finally {
+            warmer.destroy();
+            info = catalog.getStyleByName(StyleInfo.DEFAULT_LINE);
+            info.getMetadata().remove("warmed");
+            catalog.save(info);
+        }
+    }
+
+    @Test
+    public void testWarmAllBounded() throws Exception {
+        Catalog catalog = getCatalog();
+        ResourcePool original = catalog.getResourcePool();
+        AtomicInteger parsed = new AtomicInteger();
+        // a cache filled by any style, as they all have at least one rule
+        ResourcePool pool =
+                new ResourcePool(original.getCatalog()) {
+                    @Override
+                    protected Map<String, Style> createStyleCache() {
+                        return new ResourcePoolCache<>(
+                                "styleCache",
+                                "test",
+                                (String k, Style style) -> 1 + countRules(style),
+                                2,
+                                0);
+                    }
+
+                    @Override
+                    public Style getStyle(StyleInfo info) throws IOException {
+                        Style style = super.getStyle(info);
+                        parsed.incrementAndGet();
+                        return style;
+                    }
+                };
+        catalog.setResourcePool(pool);
+        StyleCacheWarmer warmer = new StyleCacheWarmer(catalog, 1);
+        try {
+            warmer.warmAll();
+            warmer.executor.shutdown();
+            assertTrue(warmer.executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertTrue(catalog.getStyles().size() > 1);
+            assertEquals(1, parsed.get());
+        } finally {
+            warmer.destroy();
+            catalog.setResourcePool(original);
+            original.setCatalog(original.getCatalog());
+            pool.dispose();
+        }
+    }
+
+    @Test
+    public void testChildContextRefresh() throws Exception {
+        Catalog catalog = getCatalog();
+        catalog.getResourcePool().getStyleCache().clear();
+
+        StyleCacheWarmer warmer = new StyleCacheWarmer(catalog, 1);
+        try {
+            GenericApplicationContext child = new GenericApplicationContext(applicationContext);
+            warmer.onApplicationEvent(new ContextRefreshedEvent(child));
+            warmer.executor.shutdown();
+            assertTrue(warmer.executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertTrue(catalog.getResourcePool().getStyleCache().isEmpty());
+        } finally {
+            warmer.destroy();
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        StyleCacheWarmer warmer = new StyleCacheWarmer(getCatalog(), 0);
+        assertFalse(warmer.isEnabled());
+        // no-op
+        warmer.warmAll();
+        warmer.destroy();
+    }
+
+    private Style waitForStyle(Map<String, Style> cache, String id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Style style = cache.get(id);
+            if (style != null) {
+                return style;
+            }
+            Thread.sleep(50);
+        }
+        return null;
+    }
+}
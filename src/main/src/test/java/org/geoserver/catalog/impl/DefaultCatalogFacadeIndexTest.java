@@ -0,0 +1,274 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.catalog.impl;
+
+import static org.geoserver.catalog.Predicates.and;
+import static org.geoserver.catalog.Predicates.equal;
+import static org.geoserver.catalog.Predicates.sortBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.geoserver.catalog.CatalogFactory;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.CoverageStoreInfo;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.Predicates;
+import org.geoserver.catalog.PublishedInfo;
+import org.geoserver.catalog.StoreInfo;
+import org.geoserver.catalog.StyleInfo;
+import org.geoserver.catalog.WMSStoreInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.util.CloseableIterator;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.filter.sort.SortBy;
+
+/** Checks the secondary indexes of {@link DefaultCatalogFacade} and their use in list/count */
+public class DefaultCatalogFacadeIndexTest {
+
+    static final int LAYERS = 20;
+
+    CatalogImpl catalog;
+
+    DefaultCatalogFacade facade;
+
+    StyleInfo point;
+
+    StyleInfo line;
+
+    @Before
+    public void setUp() {
+        catalog = new CatalogImpl();
+        facade = new DefaultCatalogFacade(catalog);
+        catalog.setFacade(facade);
+
+        point = addStyle("point");
+        line = addStyle("line");
+        for (String name : new String[] {"ws1", "ws2"}) {
+            DataStoreInfo store = addStore(name);
+            NamespaceInfo ns = catalog.getNamespaceByPrefix(name);
+            for (int i = 0; i < LAYERS; i++) {
+                addLayer(store, ns, String.format("layer%02d", i), i % 2 == 0 ? point : line);
+            }
+        }
+    }
+
+    @Test
+    public void testListByWorkspace() {
+        Filter filter = equal("resource.store.workspace.name", "ws1");
+        assertEquals(LAYERS, facade.candidates(LayerInfo.class, filter).size());
+        assertEquals(LAYERS, catalog.count(LayerInfo.class, filter));
+        for (LayerInfo layer : list(LayerInfo.class, filter, null, null)) {
+            assertEquals("ws1", layer.getResource().getStore().getWorkspace().getName());
+        }
+
+        filter = equal("resource.namespace.prefix", "ws2");
+        assertEquals(LAYERS, facade.candidates(LayerInfo.class, filter).size());
+        assertEquals(LAYERS, catalog.count(LayerInfo.class, filter));
+
+        filter = equal("resource.store.workspace.name", "notThere");
+        assertEquals(0, facade.candidates(LayerInfo.class, filter).size());
+        assertEquals(0, catalog.count(LayerInfo.class, filter));
+    }
+
+    @Test
+    public void testListByStyle() {
+        Filter filter =
+                and(
+                        equal("resource.store.workspace.name", "ws1"),
+                        equal("defaultStyle.id", point.getId()));
+        assertEquals(LAYERS / 2, facade.candidates(LayerInfo.class, filter).size());
+        assertEquals(LAYERS / 2, catalog.count(LayerInfo.class, filter));
+
+        // references are resolved by id
+        assertEquals(
+                LAYERS, facade.candidates(LayerInfo.class, equal("defaultStyle", line)).size());
+        filter = equal("defaultStyle.id", line.getId());
+        assertEquals(LAYERS, catalog.count(LayerInfo.class, filter));
+        assertEquals(LAYERS, catalog.count(PublishedInfo.class, filter));
+    }
+
+    @Test
+    public void testNotIndexable() {
+        // a filter on a non indexed property still works, via a full scan
+        Filter filter = Predicates.contains("name", "layer1");
+        assertNull(facade.candidates(LayerInfo.class, filter));
+        assertEquals(20, catalog.count(LayerInfo.class, filter));
+
+        // mixed filters use the indexable part, and evaluate the rest
+        filter = and(equal("resource.store.workspace.name", "ws2"), filter);
+        assertNotNull(facade.candidates(LayerInfo.class, filter));
+        assertEquals(10, catalog.count(LayerInfo.class, filter));
+    }
+
+    @Test
+    public void testIndexesUpdatedOnSave() {
+        // rename the workspace, the index is by id
+        WorkspaceInfo ws = catalog.getWorkspaceByName("ws1");
+        ws.setName("renamed");
+        catalog.save(ws);
+        assertEquals(
+                LAYERS,
+                catalog.count(LayerInfo.class, equal("resource.store.workspace.name", "renamed")));
+        assertEquals(
+                0, catalog.count(LayerInfo.class, equal("resource.store.workspace.name", "ws1")));
+
+        // move a resource to another store
+        DataStoreInfo ws2Store = catalog.getDataStoreByName("ws2", "ws2");
+        FeatureTypeInfo ft = catalog.getFeatureTypeByName("ws1", "layer00");
+        ft.setStore(ws2Store);
+        ft.setNamespace(catalog.getNamespaceByPrefix("ws2"));
+        ft.setName("moved");
+        catalog.save(ft);
+        assertEquals(
+                LAYERS + 1,
+                catalog.count(LayerInfo.class, equal("resource.store.id", ws2Store.getId())));
+        assertEquals(
+                LAYERS - 1,
+                catalog.count(LayerInfo.class, equal("resource.store.workspace.name", "renamed")));
+
+        // change the default style and the additional styles
+        LayerInfo layer = catalog.getLayerByName("ws2:moved");
+        assertEquals(point, layer.getDefaultStyle());
+        layer.setDefaultStyle(line);
+        layer.getStyles().add(point);
+        catalog.save(layer);
+        assertEquals(
+                LAYERS - 1,
+                catalog.count(LayerInfo.class, equal("defaultStyle.id", point.getId())));
+        assertEquals(1, catalog.count(LayerInfo.class, equal("styles.id", point.getId())));
+
+        // disable the resource, the layer follows
+        ft = catalog.getFeatureTypeByName("ws2", "moved");
+        ft.setEnabled(false);
+        catalog.save(ft);
+        assertEquals(1, facade.candidates(LayerInfo.class, equal("enabled", false)).size());
+        assertEquals(2 * LAYERS - 1, catalog.count(LayerInfo.class, equal("enabled", true)));
+
+        // removal
+        catalog.remove(catalog.getLayerByName("ws2:moved"));
+        assertEquals(0, catalog.count(LayerInfo.class, equal("styles.id", point.getId())));
+        assertEquals(0, catalog.count(LayerInfo.class, equal("enabled", false)));
+    }
+
+    @Test
+    public void testPagingSorted() {
+        Filter filter = equal("resource.store.workspace.name", "ws1");
+        SortBy order = sortBy("defaultStyle.name", true);
+        List<LayerInfo> all = list(LayerInfo.class, filter, null, order);
+        assertEquals(LAYERS, all.size());
+
+        List<LayerInfo> paged = new ArrayList<>();
+        for (int offset = 0; offset < LAYERS; offset += 3) {
+            paged.addAll(list(LayerInfo.class, filter, offset, order));
+        }
+        assertEquals(all, paged);
+        // ties are broken consistently, no duplicates across pages
+        assertEquals(LAYERS, new HashSet<>(paged).size());
+        for (int i = 1; i < LAYERS; i++) {
+            String previous = paged.get(i - 1).getDefaultStyle().getName();
+            assertTrue(previous.compareTo(paged.get(i).getDefaultStyle().getName()) <= 0);
+        }
+    }
+
+    @Test
+    public void testUnsortedOrder() {
+        // stores of different classes, named so that sorting by name would mix them
+        CatalogFactory factory = catalog.getFactory();
+        CoverageStoreInfo coverages = factory.createCoverageStore();
+        coverages.setName("aaa");
+        coverages.setWorkspace(catalog.getWorkspaceByName("ws1"));
+        catalog.add(coverages);
+        WMSStoreInfo wms = factory.createWebMapServer();
+        wms.setName("zzz");
+        wms.setWorkspace(catalog.getWorkspaceByName("ws1"));
+        catalog.add(wms);
+
+        // same order, grouped by class then by name, with and without an index
+        Filter indexed = equal("workspace.name", "ws1");
+        Filter scanned = Predicates.contains("workspace.name", "ws1");
+        assertNotNull(facade.candidates(StoreInfo.class, indexed));
+        assertNull(facade.candidates(StoreInfo.class, scanned));
+        List<StoreInfo> expected = list(StoreInfo.class, scanned, null, null);
+        assertEquals(3, expected.size());
+        assertEquals(expected, list(StoreInfo.class, indexed, null, null));
+    }
+
+    @Test
+    public void testCandidatesSuperset() {
+        Filter filter = equal("resource.namespace.prefix", "ws1");
+        Set<String> candidates = facade.candidates(LayerInfo.class, filter);
+        for (LayerInfo layer : catalog.getLayers()) {
+            if (filter.evaluate(layer)) {
+                assertTrue(candidates.contains(layer.getId()));
+            }
+        }
+    }
+
+    private <T extends CatalogInfo> List<T> list(
+            Class<T> clazz, Filter filter, Integer offset, SortBy sortBy) {
+        List<T> result = new ArrayList<>();
+        Integer count = offset == null ? null : 3;
+        try (CloseableIterator<T> it = catalog.list(clazz, filter, offset, count, sortBy)) {
+            while (it.hasNext()) {
+                result.add(it.next());
+            }
+        }
+        return result;
+    }
+
+    private StyleInfo addStyle(String name) {
+        StyleInfo style = catalog.getFactory().createStyle();
+        style.setName(name);
+        style.setFilename(name + ".sld");
+        catalog.add(style);
+        return catalog.getStyleByName(name);
+    }
+
+    private DataStoreInfo addStore(String name) {
+        CatalogFactory factory = catalog.getFactory();
+        WorkspaceInfo ws = factory.createWorkspace();
+        ws.setName(name);
+        catalog.add(ws);
+
+        NamespaceInfo ns = factory.createNamespace();
+        ns.setPrefix(name);
+        ns.setURI("http://geoserver.org/" + name);
+        catalog.add(ns);
+
+        DataStoreInfo store = factory.createDataStore();
+        store.setName(name);
+        store.setWorkspace(catalog.getWorkspaceByName(name));
+        store.setEnabled(true);
+        catalog.add(store);
+        return catalog.getDataStoreByName(name, name);
+    }
+
+    private void addLayer(DataStoreInfo store, NamespaceInfo ns, String name, StyleInfo style) {
+        CatalogFactory factory = catalog.getFactory();
+        FeatureTypeInfo ft = factory.createFeatureType();
+        ft.setName(name);
+        ft.setNativeName(name);
+        ft.setStore(store);
+        ft.setNamespace(ns);
+        ft.setEnabled(true);
+        catalog.add(ft);
+
+        LayerInfo layer = factory.createLayer();
+        layer.setResource(catalog.getFeatureTypeByName(ns.getPrefix(), name));
+        layer.setDefaultStyle(style);
+        catalog.add(layer);
+    }
+}
@@ -0,0 +1,130 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.LayerGroupInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.impl.CatalogImpl;
+import org.geoserver.config.util.XStreamPersister;
+import org.geoserver.config.util.XStreamPersisterFactory;
+import org.geoserver.platform.GeoServerExtensionsHelper;
+import org.geoserver.platform.GeoServerResourceLoader;
+import org.geoserver.platform.resource.Resources;
+import org.geotools.util.URLs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CatalogSnapshotTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    File dataDirectory;
+
+    GeoServerResourceLoader resourceLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        URL url = CatalogSnapshotTest.class.getResource("/data_dir/nested_layer_groups");
+        dataDirectory = folder.newFolder("data");
+        FileUtils.copyDirectory(URLs.urlToFile(url), dataDirectory);
+        resourceLoader = new GeoServerResourceLoader(dataDirectory);
+        GeoServerExtensionsHelper.singleton(
+                "resourceLoader", resourceLoader, GeoServerResourceLoader.class);
+        System.setProperty(CatalogSnapshot.SNAPSHOT_KEY, "true");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(CatalogSnapshot.SNAPSHOT_KEY);
+        GeoServerExtensionsHelper.clear();
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        // first load from the XML files, writes the snapshot
+        DefaultGeoServerLoader loader = new DefaultGeoServerLoader(resourceLoader);
+        Catalog fromFiles = readCatalog(loader);
+        assertTrue(loader.getCatalogLoadingTimes().containsKey("resources and layers"));
+        assertTrue(Resources.exists(resourceLoader.get(CatalogSnapshot.SNAPSHOT_PATH)));
+
+        // second load uses the snapshot
+        loader = new DefaultGeoServerLoader(resourceLoader);
+        Catalog fromSnapshot = readCatalog(loader);
+        Map<String, Long> times = loader.getCatalogLoadingTimes();
+        assertTrue(times.containsKey("layers"));
+        assertFalse(times.containsKey("resources and layers"));
+
+        assertEquals(fromFiles.getLayers().size(), fromSnapshot.getLayers().size());
+        assertEquals(fromFiles.getStyles().size(), fromSnapshot.getStyles().size());
+        assertEquals(
+                fromFiles.getDefaultWorkspace().getName(),
+                fromSnapshot.getDefaultWorkspace().getName());
+        for (LayerInfo layer : fromSnapshot.getLayers()) {
+            LayerInfo original = fromFiles.getLayer(layer.getId());
+            assertEquals(original.getName(), layer.getName());
+            assertEquals(original.getDefaultStyle().getId(), layer.getDefaultStyle().getId());
+            assertEquals(original.getResource().getTitle(), layer.getResource().getTitle());
+            assertNotNull(layer.getResource().getStore().getWorkspace());
+        }
+        LayerGroupInfo nested = fromSnapshot.getLayerGroupByName("topp", "nestedgroup");
+        assertEquals(2, nested.getLayers().size());
+        assertTrue(nested.getLayers().get(0) instanceof LayerGroupInfo);
+    }
+
+    @Test
+    public void testStaleSnapshot() throws Exception {
+        readCatalog(new DefaultGeoServerLoader(resourceLoader));
+
+        // touch a layer configuration file, the snapshot is stale
+        File layer = new File(dataDirectory, "workspaces/topp/datastore/layer1/layer.xml");
+        assertTrue(layer.setLastModified(layer.lastModified() - 10000));
+
+        DefaultGeoServerLoader loader = new DefaultGeoServerLoader(resourceLoader);
+        readCatalog(loader);
+        assertTrue(loader.getCatalogLoadingTimes().containsKey("resources and layers"));
+
+        // and then it's rewritten and used again
+        loader = new DefaultGeoServerLoader(resourceLoader);
+        readCatalog(loader);
+        assertTrue(loader.getCatalogLoadingTimes().containsKey("layers"));
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws Exception {
+        readCatalog(new DefaultGeoServerLoader(resourceLoader));
+        File snapshot = resourceLoader.get(CatalogSnapshot.SNAPSHOT_PATH).file();
+        byte[] contents = FileUtils.readFileToByteArray(snapshot);
+        byte[] truncated = new byte[contents.length / 2];
+        System.arraycopy(contents, 0, truncated, 0, truncated.length);
+        FileUtils.writeByteArrayToFile(snapshot, truncated);
+
+        // falls back on the XML files
+        DefaultGeoServerLoader loader = new DefaultGeoServerLoader(resourceLoader);
+        Catalog catalog = readCatalog(loader);
+        assertTrue(loader.getCatalogLoadingTimes().containsKey("resources and layers"));
+        assertFalse(catalog.getLayers().isEmpty());
+    }
+
+    private Catalog readCatalog(DefaultGeoServerLoader loader) throws Exception {
+        Catalog catalog = new CatalogImpl();
+        catalog.setResourceLoader(resourceLoader);
+        XStreamPersister xp = new XStreamPersisterFactory().createXMLPersister();
+        loader.readCatalog(catalog, xp);
+        return catalog;
+    }
+}
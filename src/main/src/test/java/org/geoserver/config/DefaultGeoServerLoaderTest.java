@@ -11,9 +11,17 @@
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
 import org.geoserver.catalog.Catalog;
 import org.geoserver.catalog.LayerGroupInfo;
 import org.geoserver.catalog.LayerInfo;
@@ -30,9 +38,13 @@
 import org.geotools.util.URLs;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class DefaultGeoServerLoaderTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
     DefaultGeoServerLoader loader;
 
     Catalog catalog;
@@ -131,6 +143,30 @@ public void testLoadNestedLayerGroups() throws Exception {
         assertTrue(nestedLayerGroup.getLayers().get(1) instanceof LayerInfo);
     }
 
+    @Test
+    public void testLoadingPhases() throws Exception {
+        loader.readCatalog(catalog, xp);
+
+        // phases run in dependency order, and are all timed
+        assertEquals(
+                Arrays.asList(
+                        "workspaces",
+                        "styles",
+                        "stores",
+                        "resources and layers",
+                        "layer groups",
+                        "resolve"),
+                new ArrayList<>(loader.getCatalogLoadingTimes().keySet()));
+
+        // all references got resolved, regardless of the loading order within a phase
+        assertFalse(catalog.getLayers().isEmpty());
+        for (LayerInfo layer : catalog.getLayers()) {
+            assertNotNull(layer.getResource().getStore().getWorkspace());
+            assertNotNull(layer.getDefaultStyle());
+        }
+        assertNotNull(catalog.getDefaultWorkspace());
+    }
+
     @Test
     public void testLoadWithoutResaving() throws Exception {
         GeoServerImpl gs = new GeoServerImpl();
@@ -143,4 +179,87 @@ public void testLoadWithoutResaving() throws Exception {
 
         assertFalse("hello.xml should not have been saved during load", helloServiceSaved);
     }
+
+    @Test
+    public void testFailedSnapshotDisposed() throws Exception {
+        URL url = DefaultGeoServerLoaderTest.class.getResource("/data_dir/nested_layer_groups");
+        File dataDirectory = folder.newFolder("data");
+        FileUtils.copyDirectory(URLs.urlToFile(url), dataDirectory);
+        GeoServerResourceLoader resourceLoader = new GeoServerResourceLoader(dataDirectory);
+        GeoServerExtensionsHelper.singleton(
+                "resourceLoader", resourceLoader, GeoServerResourceLoader.class);
+        System.setProperty(CatalogSnapshot.SNAPSHOT_KEY, "true");
+        try {
+            // writes the snapshot, then breaks its last record
+            Catalog catalog = new CatalogImpl();
+            catalog.setResourceLoader(resourceLoader);
+            new DefaultGeoServerLoader(resourceLoader)
+                    .readCatalog(catalog, new XStreamPersisterFactory().createXMLPersister());
+            File snapshot = resourceLoader.get(CatalogSnapshot.SNAPSHOT_PATH).file();
+            corruptLastRecord(snapshot);
+
+            List<CatalogImpl> created = new ArrayList<>();
+            List<Integer> openStores = new ArrayList<>();
+            DefaultGeoServerLoader loader =
+                    new DefaultGeoServerLoader(resourceLoader) {
+                        @Override
+                        CatalogImpl createCatalog() {
+                            CatalogImpl result =
+                                    new CatalogImpl() {
+                                        @Override
+                                        public void dispose() {
+                                            openStores.add(
+                                                    getResourcePool().getDataStoreCache().size());
+                                            super.dispose();
+                                        }
+                                    };
+                            created.add(result);
+                            return result;
+                        }
+                    };
+            catalog = new CatalogImpl();
+            catalog.setResourceLoader(resourceLoader);
+            loader.readCatalog(catalog, new XStreamPersisterFactory().createXMLPersister());
+
+            // fell back on the configuration files
+            assertTrue(loader.getCatalogLoadingTimes().containsKey("resources and layers"));
+            assertFalse(catalog.getLayers().isEmpty());
+            // the stores opened by the snapshot attempt have been released
+            CatalogImpl fromSnapshot = created.get(0);
+            assertEquals(Arrays.asList(1), openStores);
+            assertTrue(fromSnapshot.getResourcePool().getDataStoreCache().isEmpty());
+        } finally {
+            System.clearProperty(CatalogSnapshot.SNAPSHOT_KEY);
+        }
+    }
+
+    /** Rewrites the snapshot replacing the contents of its last record with garbage */
+    private void corruptLastRecord(File snapshot) throws IOException {
+        byte[] contents = FileUtils.readFileToByteArray(snapshot);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents));
+                DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeInt(in.readInt());
+            out.writeInt(in.readInt());
+            out.writeUTF(in.readUTF());
+            out.writeUTF(in.readUTF());
+            CatalogSnapshot.Reader reader = new CatalogSnapshot.Reader(in);
+            out.writeUTF(reader.defaultWorkspace);
+            out.writeUTF(reader.defaultNamespace);
+            List<CatalogSnapshot.Record> records = new ArrayList<>();
+            CatalogSnapshot.Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+            for (int i = 0; i < records.size(); i++) {
+                record = records.get(i);
+                byte[] bytes = i < records.size() - 1 ? record.contents : new byte[] {1, 2, 3};
+                out.writeByte(record.type.ordinal());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeByte(-1);
+        }
+        FileUtils.writeByteArrayToFile(snapshot, bos.toByteArray());
+    }
 }
@@ -0,0 +1,161 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.geoserver.catalog.impl.WorkspaceInfoImpl;
+import org.geoserver.ows.Dispatcher;
+import org.geoserver.ows.Request;
+import org.geoserver.security.AccessDecisionCache.Scope;
+import org.geoserver.security.SecureCatalogImpl.MixedModeBehavior;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+public class AccessDecisionCacheTest {
+
+    ResourceAccessManager manager;
+
+    Authentication user;
+
+    WorkspaceInfoImpl workspace;
+
+    AtomicInteger computed;
+
+    Supplier<WrapperPolicy> loader;
+
+    @Before
+    public void setup() {
+        manager = new TestResourceAccessManager();
+        user = new UsernamePasswordAuthenticationToken("user", "password");
+        workspace = new WorkspaceInfoImpl();
+        workspace.setId("ws-id");
+        workspace.setName("ws");
+        computed = new AtomicInteger();
+        loader =
+                () -> {
+                    computed.incrementAndGet();
+                    return WrapperPolicy.readOnlyHide(null);
+                };
+    }
+
+    @After
+    public void cleanup() {
+        Dispatcher.REQUEST.remove();
+    }
+
+    private WrapperPolicy getPolicy(AccessDecisionCache cache, MixedModeBehavior behavior) {
+        return cache.getPolicy(manager, user, workspace, behavior, Collections.emptyList(), loader);
+    }
+
+    private Request newRequest() {
+        Request request = new Request();
+        request.setHttpRequest(new MockHttpServletRequest());
+        request.setService("WMS");
+        request.setRequest("GetCapabilities");
+        return request;
+    }
+
+    @Test
+    public void testTimeScope() {
+        AccessDecisionCache cache = new AccessDecisionCache(Scope.TIME, 60, null);
+
+        WrapperPolicy policy = getPolicy(cache, MixedModeBehavior.HIDE);
+        assertSame(policy, getPolicy(cache, MixedModeBehavior.HIDE));
+        assertEquals(1, computed.get());
+        assertEquals(1, cache.getCacheStatistics().get(0).getHitCount());
+
+        // the mixed mode behavior is part of the decision
+        getPolicy(cache, MixedModeBehavior.CHALLENGE);
+        assertEquals(2, computed.get());
+
+        // any catalog change drops the decisions
+        cache.handleModifyEvent(null);
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        assertEquals(3, computed.get());
+    }
+
+    @Test
+    public void testRequestScope() {
+        AccessDecisionCache cache = new AccessDecisionCache(Scope.REQUEST, 60, null);
+
+        // outside of a request nothing is cached
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        assertEquals(2, computed.get());
+
+        Dispatcher.REQUEST.set(newRequest());
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        assertEquals(3, computed.get());
+
+        // a new request starts from scratch
+        Dispatcher.REQUEST.set(newRequest());
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        assertEquals(4, computed.get());
+
+        // and so does the current one, once the security configuration changed
+        cache.handlePostChanged(null);
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        assertEquals(5, computed.get());
+        assertEquals(1, cache.getCacheStatistics().get(0).getHitCount());
+    }
+
+    @Test
+    public void testUserAndContext() {
+        AccessDecisionCache cache = new AccessDecisionCache(Scope.TIME, 60, null);
+        getPolicy(cache, MixedModeBehavior.HIDE);
+
+        user = new UsernamePasswordAuthenticationToken("other", "password");
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        assertEquals(2, computed.get());
+
+        AdminRequest.start(this);
+        try {
+            getPolicy(cache, MixedModeBehavior.HIDE);
+            assertEquals(3, computed.get());
+        } finally {
+            AdminRequest.finish();
+        }
+    }
+
+    @Test
+    public void testFailuresNotCached() {
+        AccessDecisionCache cache = new AccessDecisionCache(Scope.TIME, 60, null);
+        loader =
+                () -> {
+                    computed.incrementAndGet();
+                    throw new InsufficientAuthenticationException("challenge");
+                };
+        for (int i = 0; i < 2; i++) {
+            try {
+                getPolicy(cache, MixedModeBehavior.CHALLENGE);
+                fail("Expected the access to be challenged");
+            } catch (InsufficientAuthenticationException e) {
+                // fine
+            }
+        }
+        assertEquals(2, computed.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        AccessDecisionCache cache = new AccessDecisionCache(Scope.NONE, 60, null);
+        Dispatcher.REQUEST.set(newRequest());
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        getPolicy(cache, MixedModeBehavior.HIDE);
+        assertEquals(2, computed.get());
+    }
+}
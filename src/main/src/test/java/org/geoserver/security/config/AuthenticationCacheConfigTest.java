@@ -0,0 +1,61 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security.config;
+
+import static org.junit.Assert.assertEquals;
+
+import org.geoserver.config.util.SecureXStream;
+import org.geoserver.security.auth.AuthenticationCache;
+import org.junit.Test;
+
+public class AuthenticationCacheConfigTest {
+
+    private AuthenticationCacheConfig read(String xml) {
+        SecureXStream xs = new SecureXStream();
+        xs.allowTypes(new Class[] {AuthenticationCacheConfig.class});
+        xs.alias("authenticationCache", AuthenticationCacheConfig.class);
+        return (AuthenticationCacheConfig) xs.fromXML(xml);
+    }
+
+    @Test
+    public void testMissingValues() {
+        AuthenticationCacheConfig config =
+                read(
+                        "<authenticationCache><implementation>CONCURRENT</implementation>"
+                                + "</authenticationCache>");
+        assertEquals(
+                AuthenticationCacheConfig.Implementation.CONCURRENT, config.getImplementation());
+        assertEquals(AuthenticationCacheConfig.DEFAULT_MAX_ENTRIES, config.getMaxEntries());
+        assertEquals(AuthenticationCache.DEFAULT_IDLE_TIME, config.getTimeToIdleSeconds());
+        assertEquals(AuthenticationCache.DEFAULT_LIVE_TIME, config.getTimeToLiveSeconds());
+    }
+
+    @Test
+    public void testInvalidValues() {
+        AuthenticationCacheConfig config =
+                read(
+                        "<authenticationCache><maxEntries>0</maxEntries>"
+                                + "<timeToIdleSeconds>-1</timeToIdleSeconds>"
+                                + "<timeToLiveSeconds>0</timeToLiveSeconds>"
+                                + "</authenticationCache>");
+        assertEquals(AuthenticationCacheConfig.Implementation.GUAVA, config.getImplementation());
+        assertEquals(AuthenticationCacheConfig.DEFAULT_MAX_ENTRIES, config.getMaxEntries());
+        assertEquals(AuthenticationCache.DEFAULT_IDLE_TIME, config.getTimeToIdleSeconds());
+        assertEquals(AuthenticationCache.DEFAULT_LIVE_TIME, config.getTimeToLiveSeconds());
+    }
+
+    @Test
+    public void testConfiguredValues() {
+        AuthenticationCacheConfig config =
+                read(
+                        "<authenticationCache><maxEntries>10</maxEntries>"
+                                + "<timeToIdleSeconds>20</timeToIdleSeconds>"
+                                + "<timeToLiveSeconds>30</timeToLiveSeconds>"
+                                + "</authenticationCache>");
+        assertEquals(10, config.getMaxEntries());
+        assertEquals(20, config.getTimeToIdleSeconds());
+        assertEquals(30, config.getTimeToLiveSeconds());
+    }
+}
@@ -51,6 +51,7 @@
 import org.eclipse.emf.ecore.EObject;
 import org.geoserver.ows.util.CaseInsensitiveMap;
 import org.geoserver.ows.util.KvpMap;
+import org.geoserver.ows.util.KvpParserRegistry;
 import org.geoserver.ows.util.KvpUtils;
 import org.geoserver.ows.util.OwsUtils;
 import org.geoserver.ows.util.RequestUtils;
@@ -134,6 +135,9 @@ public class Dispatcher extends AbstractController {
     /** list of callbacks */
     List<DispatcherCallback> callbacks = Collections.emptyList();
 
+    /** the kvp parsers, resolved once per service, version and request */
+    KvpParserRegistry kvpParsers = new KvpParserRegistry();
+
     /** SOAP namespaces */
     public static final String SOAP_12_NS = "http://www.w3.org/2003/05/soap-envelope";
 
@@ -182,6 +186,7 @@ public boolean isCiteCompliant() {
     protected void initApplicationContext(ApplicationContext context) {
         // load life cycle callbacks
         callbacks = GeoServerExtensions.extensions(DispatcherCallback.class, context);
+        kvpParsers = new KvpParserRegistry();
 
         // setup the xml lookahead value
         String lookahead = GeoServerExtensions.getProperty("XML_LOOKAHEAD", context);
@@ -1480,7 +1485,7 @@ void parseKVP(Request req) throws ServiceException {
     }
 
     Map<String, Object> parseKVP(Request req, Map<String, Object> kvp) {
-        List<Throwable> errors = KvpUtils.parse(kvp);
+        List<Throwable> errors = KvpUtils.parse(kvp, kvpParsers);
         if (!errors.isEmpty()) {
             req.setError(errors.get(0));
         }
@@ -0,0 +1,113 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.ows.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import org.geoserver.ows.KvpParser;
+import org.geoserver.platform.GeoServerExtensions;
+
+/**
+ * Registry of the {@link KvpParser} extensions, resolving the parser of a key for a given service,
+ * version and request the same way {@link KvpUtils#findParser(String, String, String, String,
+ * java.util.Collection)} does, but only once per service, version and request combination, instead
+ * of filtering the whole list of parsers for each parameter of each request.
+ *
+ * <p>The parsers are looked up on first use, a new registry should be created when the application
+ * context changes.
+ */
+public class KvpParserRegistry {
+
+    /** Maximum number of service, version and request combinations kept */
+    static final int MAX_COMBINATIONS = 1000;
+
+    private volatile List<KvpParser> parsers;
+
+    private final Cache<List<String>, Lookup> lookups =
+            CacheBuilder.newBuilder().maximumSize(MAX_COMBINATIONS).build();
+
+    /**
+     * Returns the parser for the specified key
+     *
+     * @param key the key matching the value to parse
+     * @param service the service parameter from the kvp (can be null)
+     * @param request the request parameter from the kvp (can be null)
+     * @param version the version parameter from the kvp (can be null)
+     * @return the found parser or null (if no parser is found)
+     * @throws IllegalStateException if more than one candidate parser is found
+     */
+    public KvpParser getParser(String key, String service, String request, String version) {
+        return lookup(service, request, version).get(key);
+    }
+
+    /** Returns the parsers matching the specified service, request and version, by key */
+    Lookup lookup(String service, String request, String version) {
+        try {
+            return lookups.get(
+                    Arrays.asList(service, request, version),
+                    () -> new Lookup(getParsers(), service, request, version));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private List<KvpParser> getParsers() {
+        List<KvpParser> result = parsers;
+        if (result == null) {
+            result = GeoServerExtensions.extensions(KvpParser.class);
+            parsers = result;
+        }
+        return result;
+    }
+
+    /** The parsers of a service, request and version combination, by key */
+    static class Lookup {
+
+        private final Map<String, KvpParser> parsers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        /** Keys with more than one equally specific parser, and the error to report */
+        private final Map<String, String> ambiguities =
+                new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        Lookup(List<KvpParser> all, String service, String request, String version) {
+            List<KvpParser> purged = new ArrayList<>(all);
+            KvpUtils.purgeParsers(purged, service, version, request);
+            // same selection as KvpUtils.findParser, including the order the candidates are
+            // compared in
+            for (KvpParser candidate : purged) {
+                String key = candidate.getKey();
+                if (key == null || ambiguities.containsKey(key)) {
+                    continue;
+                }
+                KvpParser parser = parsers.get(key);
+                if (parser == null) {
+                    parsers.put(key, candidate);
+                } else {
+                    int result = KvpUtils.KVP_PARSER_COMPARATOR.compare(candidate, parser);
+                    if (result == 0) {
+                        parsers.remove(key);
+                        ambiguities.put(key, "Multiple kvp parsers: " + parser + "," + candidate);
+                    } else if (result < 0) {
+                        parsers.put(key, candidate);
+                    }
+                }
+            }
+        }
+
+        KvpParser get(String key) {
+            String ambiguity = ambiguities.get(key);
+            if (ambiguity != null) {
+                throw new IllegalStateException(ambiguity);
+            }
+            return parsers.get(key);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.collections4.comparators.NullComparator;
@@ -45,7 +46,7 @@ public class KvpUtils {
      * Comparator used to compare two parsers matching the same service/version/request
      * specification, and returning the most specific one (nulls are high, put at the end of list)
      */
-    private static final Comparator<KvpParser> KVP_PARSER_COMPARATOR =
+    static final Comparator<KvpParser> KVP_PARSER_COMPARATOR =
             Comparator.comparing(KvpParser::getService, new NullComparator<>())
                     .thenComparing(KvpParser::getVersion, new NullComparator<>())
                     .thenComparing(KvpParser::getRequest, new NullComparator<>());
@@ -421,13 +422,34 @@ public static List<Throwable> parse(Map<String, Object> kvp) {
 
         purgeParsers(parsers, service, version, request);
 
+        return parse(kvp, key -> findParser(key, service, request, version, parsers));
+    }
+
+    /**
+     * Parses a map of key value pairs, same as {@link #parse(Map)}, looking up the parsers in the
+     * provided registry.
+     *
+     * @param kvp raw or unparsed kvp.
+     * @param registry the registry resolving the parsers
+     * @return A list of errors that occured.
+     */
+    public static List<Throwable> parse(Map<String, Object> kvp, KvpParserRegistry registry) {
+        String service = KvpUtils.getSingleValue(kvp, "service");
+        String version = KvpUtils.getSingleValue(kvp, "version");
+        String request = KvpUtils.getSingleValue(kvp, "request");
+
+        return parse(kvp, registry.lookup(service, request, version)::get);
+    }
+
+    private static List<Throwable> parse(
+            Map<String, Object> kvp, Function<String, KvpParser> parsers) {
         // parser the kvp's
         ArrayList<Throwable> errors = new ArrayList<>();
         for (Map.Entry<String, Object> entry : kvp.entrySet()) {
             String key = entry.getKey();
 
             // find the parser for this key value pair
-            KvpParser parser = findParser(key, service, request, version, parsers);
+            KvpParser parser = parsers.apply(key);
 
             // parse the value
             Object parsed = null;
@@ -0,0 +1,79 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.ows.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import org.geoserver.ows.KvpParser;
+import org.geoserver.ows.kvp.IntegerKvpParser;
+import org.geotools.util.Version;
+import org.junit.Test;
+
+public class KvpParserRegistryTest {
+
+    static KvpParser parser(String key, String service, String version, String request) {
+        KvpParser parser = new IntegerKvpParser(key);
+        parser.setService(service);
+        parser.setVersion(version != null ? new Version(version) : null);
+        parser.setRequest(request);
+        return parser;
+    }
+
+    @Test
+    public void testSameParsersAsFindParser() {
+        List<KvpParser> parsers =
+                Arrays.asList(
+                        parser("width", null, null, null),
+                        parser("width", "WMS", null, null),
+                        parser("width", "WMS", "1.3.0", null),
+                        parser("width", "WMS", "1.3.0", "GetMap"),
+                        parser("height", "WFS", null, null),
+                        parser("count", "WFS", "2.0.0", "GetFeature"));
+        List<String> services = Arrays.asList("WMS", "wms", "WFS", "WCS", null);
+        List<String> versions = Arrays.asList("1.1.1", "1.3.0", "2.0.0", null);
+        List<String> requests = Arrays.asList("GetMap", "getmap", "GetFeature", null);
+        List<String> keys = Arrays.asList("width", "WIDTH", "height", "count", "other");
+        for (String service : services) {
+            for (String version : versions) {
+                for (String request : requests) {
+                    KvpParserRegistry.Lookup lookup =
+                            new KvpParserRegistry.Lookup(parsers, service, request, version);
+                    for (String key : keys) {
+                        assertSame(
+                                key + " " + service + " " + version + " " + request,
+                                KvpUtils.findParser(key, service, request, version, parsers),
+                                lookup.get(key));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAmbiguousParsers() {
+        List<KvpParser> parsers =
+                Arrays.asList(
+                        parser("width", "WMS", null, null),
+                        parser("width", "WMS", null, null),
+                        parser("height", "WMS", null, null));
+        KvpParserRegistry.Lookup lookup =
+                new KvpParserRegistry.Lookup(parsers, "WMS", "GetMap", "1.3.0");
+        try {
+            lookup.get("width");
+            fail("Should have failed with multiple parsers");
+        } catch (IllegalStateException e) {
+            assertEquals(
+                    "Multiple kvp parsers: " + parsers.get(0) + "," + parsers.get(1),
+                    e.getMessage());
+        }
+        assertSame(parsers.get(2), lookup.get("height"));
+        assertNull(lookup.get("other"));
+    }
+}
@@ -0,0 +1,78 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.rest.system.status;
+
+import com.thoughtworks.xstream.XStream;
+import freemarker.template.ObjectWrapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.geoserver.config.util.XStreamPersister;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.rest.ObjectToMapWrapper;
+import org.geoserver.rest.RestBaseController;
+import org.geoserver.rest.converters.XStreamMessageConverter;
+import org.geoserver.rest.wrapper.RestWrapper;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST endpoint returning the usage statistics of the GeoServer internal caches, as reported by the
+ * {@link CacheStatisticsProvider} extensions found in the application context.
+ *
+ * <p>HTML, XML and JSON are supported.
+ */
+@RestController
+@RequestMapping(path = RestBaseController.ROOT_PATH + "/about/caches")
+public class CacheStatisticsController extends RestBaseController {
+
+    @GetMapping(
+            value = "",
+            produces = {
+                MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_XML_VALUE,
+                MediaType.TEXT_HTML_VALUE
+            })
+    @ResponseStatus(HttpStatus.OK)
+    public RestWrapper<Caches> getCaches() {
+        Caches caches = new Caches();
+        for (CacheStatisticsProvider provider :
+                GeoServerExtensions.extensions(CacheStatisticsProvider.class)) {
+            caches.getCaches().addAll(provider.getCacheStatistics());
+        }
+        caches.getCaches().sort(Comparator.comparing(CacheStatistics::getName));
+        return wrapObject(caches, Caches.class);
+    }
+
+    @Override
+    public void configurePersister(XStreamPersister persister, XStreamMessageConverter converter) {
+        XStream xs = persister.getXStream();
+        xs.alias("cache", CacheStatistics.class);
+        xs.alias("caches", Caches.class);
+        xs.addImplicitCollection(Caches.class, "caches");
+    }
+
+    @Override
+    protected <T> ObjectWrapper createObjectWrapper(Class<T> clazz) {
+        return new ObjectToMapWrapper<>(clazz, Arrays.asList(CacheStatistics.class));
+    }
+
+    /** Container for the cache statistics */
+    public static class Caches {
+
+        private List<CacheStatistics> caches = new ArrayList<>();
+
+        public List<CacheStatistics> getCaches() {
+            return caches;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+<html>
+	<head>
+		<style>
+		 	body {
+		   		margin:0;
+		   		padding:0;
+				background: #fff;
+				color: #0076a1;
+				font-family: Tahoma, "Lucida Sans Unicode", "Lucida Grande", Verdana, sans-serif;
+		 	}
+			td{
+				padding: 4px 10px 4px 5px;
+			}
+			thead th {
+				background: #c6e09b;
+				border: 1px solid #0076a1;
+				border-width: 0 0 1px;
+			}
+			tr.even td,
+			tr.even th {
+				background: #e2efcd;
+			}
+		</style>
+	</head>
+  	<body>
+	  	<table width="100%">
+	  		<thead>
+	  			<th>Cache</th>
+	  			<th>Entries</th>
+	  			<th>Weight</th>
+	  			<th>Max weight</th>
+	  			<th>Hits</th>
+	  			<th>Misses</th>
+	  			<th>Evictions</th>
+	  			<th>Loads</th>
+	  			<th>Load time (ms)</th>
+	  		</thead>
+		  	<#list properties.caches as c>
+		  	<tr class="${["odd", "even"][c_index%2]}">
+		  		<td title="${c.description}">${c.name}</td>
+		  		<td>${c.size}</td>
+		  		<td>${c.weight}</td>
+		  		<td>${c.maxWeight}</td>
+		  		<td>${c.hitCount}</td>
+		  		<td>${c.missCount}</td>
+		  		<td>${c.evictionCount}</td>
+		  		<td>${c.loadCount}</td>
+		  		<td>${c.totalLoadTime}</td>
+		  	</tr>
+		  	</#list>
+		</table>
+	</body>
+ </html>
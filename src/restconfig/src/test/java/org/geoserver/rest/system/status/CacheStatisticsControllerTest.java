@@ -0,0 +1,79 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.rest.system.status;
+
+import static org.custommonkey.xmlunit.XMLAssert.assertXpathEvaluatesTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.geoserver.data.test.SystemTestData;
+import org.geoserver.rest.RestBaseController;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+import org.geoserver.test.GeoServerSystemTestSupport;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.w3c.dom.Document;
+
+public class CacheStatisticsControllerTest extends GeoServerSystemTestSupport {
+
+    @Override
+    protected void onSetUp(SystemTestData testData) throws Exception {
+        applicationContext
+                .getBeanFactory()
+                .registerSingleton(
+                        "testCacheStatisticsProvider",
+                        (CacheStatisticsProvider)
+                                () -> {
+                                    CacheStatistics stats =
+                                            new CacheStatistics("testCache", "A test cache");
+                                    stats.setSize(10);
+                                    stats.setHitCount(30);
+                                    stats.setMissCount(10);
+                                    return Collections.singletonList(stats);
+                                });
+    }
+
+    @Test
+    public void testJSON() throws Exception {
+        JSONObject json =
+                (JSONObject) getAsJSON(RestBaseController.ROOT_PATH + "/about/caches.json", 200);
+        Object cacheList = json.getJSONObject("caches").get("cache");
+        // single elements are not wrapped in an array
+        JSONArray caches = cacheList instanceof JSONArray ? (JSONArray) cacheList : new JSONArray();
+        if (cacheList instanceof JSONObject) {
+            caches.add(cacheList);
+        }
+        JSONObject testCache = null;
+        for (Object o : caches) {
+            JSONObject cache = (JSONObject) o;
+            if ("testCache".equals(cache.getString("name"))) {
+                testCache = cache;
+            }
+        }
+        assertEquals("A test cache", testCache.getString("description"));
+        assertEquals(10, testCache.getInt("size"));
+        assertEquals(30, testCache.getInt("hitCount"));
+        assertEquals(10, testCache.getInt("missCount"));
+    }
+
+    @Test
+    public void testXML() throws Exception {
+        Document dom = getAsDOM(RestBaseController.ROOT_PATH + "/about/caches.xml", 200);
+        assertXpathEvaluatesTo("10", "/caches/cache[name='testCache']/size", dom);
+        assertXpathEvaluatesTo("30", "/caches/cache[name='testCache']/hitCount", dom);
+    }
+
+    @Test
+    public void testHTML() throws Exception {
+        MockHttpServletResponse response =
+                getAsServletResponse(RestBaseController.ROOT_PATH + "/about/caches.html");
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getContentAsString().contains("testCache"));
+    }
+}
@@ -0,0 +1,81 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security.auth;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.geoserver.system.status.CacheStatistics;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+/** Unit tests for the concurrent AuthenticationCache implementation. */
+public class ConcurrentAuthenticationCacheTest extends BaseAuthenticationCacheTest {
+
+    protected static final int TIME_CLEANUP = 3;
+
+    @Override
+    protected AuthenticationCache createAuthenticationCache() {
+        return new ConcurrentAuthenticationCacheImpl(
+                MAX_ENTRIES, TIME_IDLE, TIME_LIVE, TIME_CLEANUP);
+    }
+
+    @After
+    public void destroy() {
+        ((ConcurrentAuthenticationCacheImpl) cache).destroy();
+    }
+
+    @Test
+    public void testCleanUp() throws InterruptedException {
+        putAuthenticationInCache();
+        await().atMost(TIME_CLEANUP + 1, SECONDS)
+                .until(() -> ((ConcurrentAuthenticationCacheImpl) cache).isEmpty());
+    }
+
+    @Test
+    public void testEntryTimes() throws InterruptedException {
+        // the entry times are honored even if longer than the cache defaults
+        cache.put(
+                SAMPLE_FILTER,
+                SAMPLE_CACHE_KEY,
+                new UsernamePasswordAuthenticationToken("user", "password"),
+                TIME_LIVE * 2,
+                TIME_LIVE * 2);
+        Thread.sleep((TIME_IDLE + 1) * 1000);
+        assertNotNull(cache.get(SAMPLE_FILTER, SAMPLE_CACHE_KEY));
+    }
+
+    @Test
+    public void testMaxEntries() throws InterruptedException {
+        destroy();
+        cache = new ConcurrentAuthenticationCacheImpl(10, TIME_IDLE * 60, TIME_LIVE * 60, 0);
+        putAuthenticationInCache();
+        for (int i = 0; i < 10; i++) {
+            // make sure the first entry is the most recently used one
+            Thread.sleep(2);
+            assertNotNull(cache.get(SAMPLE_FILTER, SAMPLE_CACHE_KEY));
+            cache.put(
+                    SAMPLE_FILTER,
+                    "key" + i,
+                    new UsernamePasswordAuthenticationToken("user" + i, "password"));
+        }
+
+        // the least recently used entries have been evicted
+        assertNotNull(cache.get(SAMPLE_FILTER, SAMPLE_CACHE_KEY));
+        assertNull(cache.get(SAMPLE_FILTER, "key0"));
+        assertNotNull(cache.get(SAMPLE_FILTER, "key9"));
+
+        CacheStatistics statistics =
+                ((ConcurrentAuthenticationCacheImpl) cache).getCacheStatistics().get(0);
+        assertEquals(12, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(2, statistics.getEvictionCount());
+        assertEquals(9, statistics.getSize());
+    }
+}
@@ -0,0 +1,96 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.security.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.geoserver.security.AccessMode;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+public class SecureTreeDecisionTableTest {
+
+    SecureTreeNode root;
+
+    SecureTreeNode topp;
+
+    SecureTreeNode states;
+
+    SecureTreeNode roads;
+
+    List<Authentication> users;
+
+    @Before
+    public void setUp() throws Exception {
+        // a tree with rules at all levels, and a node without rules
+        root = new SecureTreeNode();
+        root.setAuthorizedRoles(AccessMode.WRITE, Collections.singleton("WRITER"));
+        topp = root.addChild("topp");
+        topp.setAuthorizedRoles(AccessMode.READ, Collections.singleton("TOPP"));
+        states = topp.addChild("states");
+        states.setAuthorizedRoles(
+                AccessMode.READ, new HashSet<>(Arrays.asList("MILITARY", "STATES")));
+        roads = topp.addChild("roads");
+        SecureTreeNode secret = root.addChild("secret");
+        secret.setAuthorizedRoles(AccessMode.READ, Collections.emptySet());
+
+        users =
+                Arrays.asList(
+                        null,
+                        new TestingAuthenticationToken("anonymous", null),
+                        new TestingAuthenticationToken("writer", null, "WRITER"),
+                        new TestingAuthenticationToken("topp", null, "TOPP", "OTHER"),
+                        new TestingAuthenticationToken("military", null, "MILITARY"),
+                        new TestingAuthenticationToken("admin", null, "ROLE_ADMINISTRATOR"));
+    }
+
+    @Test
+    public void testSameDecisionsAsTree() {
+        SecureTreeDecisionTable table = new SecureTreeDecisionTable(root);
+        List<SecureTreeNode> nodes =
+                Arrays.asList(root, topp, states, roads, root.getChild("secret"));
+        // twice, to check the cached decisions too
+        for (int i = 0; i < 2; i++) {
+            for (Authentication user : users) {
+                for (SecureTreeNode node : nodes) {
+                    for (AccessMode mode : AccessMode.values()) {
+                        assertEquals(
+                                user + " " + node + " " + mode,
+                                node.canAccess(user, mode),
+                                table.canAccess(user, node, mode));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCanAccessChild() {
+        SecureTreeDecisionTable table = new SecureTreeDecisionTable(root);
+        Authentication military = users.get(4);
+        assertFalse(table.canAccess(military, topp, AccessMode.READ));
+        assertTrue(table.canAccessChild(military, topp, AccessMode.READ));
+        assertFalse(table.canAccessChild(military, root.getChild("secret"), AccessMode.READ));
+        assertTrue(table.canAccessChild(users.get(1), root, AccessMode.READ));
+    }
+
+    @Test
+    public void testForeignNode() {
+        SecureTreeDecisionTable table = new SecureTreeDecisionTable(new SecureTreeNode());
+        // nodes of another tree are evaluated directly
+        Authentication anonymous = users.get(1);
+        assertFalse(table.canAccess(anonymous, states, AccessMode.READ));
+        assertTrue(table.canAccess(users.get(4), states, AccessMode.READ));
+        assertTrue(table.canAccessChild(users.get(4), topp, AccessMode.READ));
+    }
+}
@@ -31,6 +31,7 @@
 import org.geoserver.config.GeoServerDataDirectory;
 import org.geoserver.config.GeoServerInfo;
 import org.geoserver.config.JAIInfo;
+import org.geoserver.system.status.CacheStatistics;
 import org.geoserver.web.util.MapModel;
 import org.geoserver.web.wicket.ParamResourceModel;
 import org.geotools.data.DataAccess;
@@ -83,6 +84,8 @@ public class StatusPanel extends Panel {
 
     private static final String RESOURCE_CACHE = "resource_cache";
 
+    private static final String RESOURCE_CACHE_STATISTICS = "resource_cache_statistics";
+
     private static final String KEY_JAVA_RENDERER = "renderer";
 
     private static final Logger LOGGER = Logging.getLogger(StatusPanel.class);
@@ -139,6 +142,10 @@ public void initUI() {
                                                 values, KEY_COVERAGEACCESS_KEEP_ALIVE_TIME))));
         add(new Label("updateSequence", new MapModel<>(values, KEY_UPDATE_SEQUENCE)));
         add(new Label("resourceCache", new MapModel<>(values, RESOURCE_CACHE)));
+        add(
+                new Label(
+                        "resourceCacheStatistics",
+                        new MapModel<>(values, RESOURCE_CACHE_STATISTICS)));
         add(new Label("renderer", new MapModel<>(values, KEY_JAVA_RENDERER)));
         // serialization error here
         add(
@@ -280,6 +287,7 @@ private void updateModel() {
 
         values.put(KEY_UPDATE_SEQUENCE, geoServerInfo.getUpdateSequence());
         values.put(RESOURCE_CACHE, getResourceCache());
+        values.put(RESOURCE_CACHE_STATISTICS, getResourceCacheStatistics());
 
         values.put(KEY_JAVA_RENDERER, checkRenderer());
     }
@@ -402,6 +410,28 @@ private int getResourceCache() {
         return count;
     }
 
+    /** Summarizes the size and hit ratio of the bounded resource pool caches */
+    private String getResourceCacheStatistics() {
+        ResourcePool pool = parent.getGeoServer().getCatalog().getResourcePool();
+        StringBuilder sb = new StringBuilder();
+        for (CacheStatistics stats : pool.getCacheStatistics()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            long requests = stats.getHitCount() + stats.getMissCount();
+            long hitRatio = requests == 0 ? 0 : stats.getHitCount() * 100 / requests;
+            sb.append(stats.getName())
+                    .append(": ")
+                    .append(stats.getSize())
+                    .append(" (")
+                    .append(hitRatio)
+                    .append("% hits, ")
+                    .append(stats.getEvictionCount())
+                    .append(" evicted)");
+        }
+        return sb.toString();
+    }
+
     /**
      * Count number of stores that are enabled (and available).
      *
@@ -19,8 +19,10 @@
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.model.StringResourceModel;
 import org.apache.wicket.validation.validator.RangeValidator;
+import org.geoserver.catalog.FeatureTypeInfo;
 import org.geoserver.catalog.LayerInfo;
 import org.geoserver.web.publish.PublishedConfigurationPanel;
+import org.geoserver.web.util.MetadataMapModel;
 import org.geoserver.web.wicket.GeoServerDialog;
 import org.geoserver.web.wicket.LiveCollectionModel;
 import org.geoserver.web.wicket.SRSListTextArea;
@@ -63,6 +65,18 @@ public WFSLayerConfig(String id, IModel<LayerInfo> model) {
                         "skipNumberMatched",
                         new PropertyModel<>(model, "resource.skipNumberMatched"));
         add(skipNumberMatched);
+        TextField<Long> numberMatchedTimeBudget =
+                new TextField<>(
+                        "numberMatchedTimeBudget",
+                        new MetadataMapModel<>(
+                                new PropertyModel<>(model, "resource.metadata"),
+                                FeatureTypeInfo.NUMBER_MATCHED_TIME_BUDGET,
+                                Long.class),
+                        Long.class);
+        numberMatchedTimeBudget.add(RangeValidator.minimum(0L));
+        Border nmtbb = new FormComponentFeedbackBorder("numberMatchedTimeBudgetBorder");
+        nmtbb.add(numberMatchedTimeBudget);
+        add(nmtbb);
 
         // coordinates measures encoding
         CheckBox encodeMeasures =
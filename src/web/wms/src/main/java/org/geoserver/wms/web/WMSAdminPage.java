@@ -254,6 +254,22 @@ public void onClick(AjaxRequestTarget target) {
                 new TextField<>("png.compression", pngCompression, Integer.class);
         pngCompressionField.add(new RangeValidator<>(0, 100));
         form.add(pngCompressionField);
+        // png parallel encoding
+        MapModel pngParallelEncoding =
+                defaultedModel(
+                        metadataModel,
+                        WMS.PNG_PARALLEL_ENCODING,
+                        WMS.PNG_PARALLEL_ENCODING_DEFAULT);
+        form.add(new CheckBox("png.parallelEncoding", pngParallelEncoding));
+        MapModel pngParallelThreshold =
+                defaultedModel(
+                        metadataModel,
+                        WMS.PNG_PARALLEL_THRESHOLD,
+                        WMS.PNG_PARALLEL_THRESHOLD_DEFAULT);
+        TextField<Integer> pngParallelThresholdField =
+                new TextField<>("png.parallelThreshold", pngParallelThreshold, Integer.class);
+        pngParallelThresholdField.add(RangeValidator.minimum(0));
+        form.add(pngParallelThresholdField);
         // jpeg compression levels
         MapModel jpegCompression =
                 defaultedModel(metadataModel, WMS.JPEG_COMPRESSION, WMS.JPEG_COMPRESSION_DEFAULT);
@@ -6,31 +6,112 @@
 package org.geoserver.wfs;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoserver.ows.Dispatcher;
+import org.geoserver.threadlocals.ThreadLocalsTransfer;
 import org.geotools.data.FeatureSource;
 import org.geotools.data.Query;
+import org.geotools.util.logging.Logging;
 
 /**
  * A class executing a feature count, but also able to return a pre-computed one. Used as an
  * accessory to compute the numberMatched attribute for WFS 2.0, and running the actual counts only
- * when strictly necessary
+ * when strictly necessary.
+ *
+ * <p>When a time budget is provided, the count starts right away in a background thread, in
+ * parallel with the rest of the request processing, and {@link #getCount()} waits for it at most
+ * until the budget, starting from its first call, expires, returning -1 (unknown) afterwards.
+ * Background counts still running when the request ends are cancelled by {@link
+ * CountExecutorCallback}.
  *
  * @author Andrea Aime - GeoSolutions
  */
 class CountExecutor {
 
+    static final Logger LOGGER = Logging.getLogger(CountExecutor.class);
+
     private static final int COUNT_UNSET = -1;
 
+    static final ThreadPoolExecutor EXECUTOR =
+            new ThreadPoolExecutor(
+                    0,
+                    Math.max(2, Runtime.getRuntime().availableProcessors() * 2),
+                    60L,
+                    TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "WFS-NumberMatched");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /** The background counts started by the current request */
+    static final ThreadLocal<List<CountExecutor>> PENDING = new ThreadLocal<>();
+
     FeatureSource source;
 
     Query query;
 
     int providedCount = COUNT_UNSET;
 
+    Future<Integer> asyncCount;
+
+    long timeBudget;
+
+    /** Set on the first read of the background count */
+    long deadline;
+
     public CountExecutor(FeatureSource source, Query query) {
         this.source = source;
         this.query = query;
     }
 
+    /**
+     * Builds a count executor that starts counting in the background, if the time budget is
+     * positive, the count is run within a dispatched request, and a thread is available
+     *
+     * @param timeBudget The maximum time, in milliseconds, the count will be waited for
+     */
+    public CountExecutor(FeatureSource source, Query query, long timeBudget) {
+        this(source, query);
+        // outside of a request nothing would cancel the count when no longer needed
+        if (timeBudget > 0 && Dispatcher.REQUEST.get() != null) {
+            ThreadLocalsTransfer threadLocalsTransfer = new ThreadLocalsTransfer();
+            try {
+                this.asyncCount =
+                        EXECUTOR.submit(
+                                () -> {
+                                    threadLocalsTransfer.apply();
+                                    try {
+                                        return count();
+                                    } finally {
+                                        threadLocalsTransfer.cleanup();
+                                    }
+                                });
+                this.timeBudget = timeBudget;
+                List<CountExecutor> pending = PENDING.get();
+                if (pending == null) {
+                    pending = new ArrayList<>();
+                    PENDING.set(pending);
+                }
+                pending.add(this);
+            } catch (RejectedExecutionException e) {
+                LOGGER.fine("No thread available for the numberMatched count, running it inline");
+            }
+        }
+    }
+
     public CountExecutor(int providedCount) {
         this.providedCount = providedCount;
     }
@@ -38,14 +119,60 @@ public CountExecutor(int providedCount) {
     public int getCount() throws IOException {
         if (isCountSet()) {
             return providedCount;
+        } else if (asyncCount != null) {
+            return getAsyncCount();
         } else {
-            // make sure we get a count by getting a feature colleciton
-            // FeatureSource.getCount(...) can return -1
-            return source.getFeatures(query).size();
+            return count();
+        }
+    }
+
+    private int count() throws IOException {
+        // make sure we get a count by getting a feature colleciton
+        // FeatureSource.getCount(...) can return -1
+        return source.getFeatures(query).size();
+    }
+
+    private int getAsyncCount() throws IOException {
+        try {
+            if (deadline == 0) {
+                deadline = System.currentTimeMillis() + timeBudget;
+            }
+            long wait = Math.max(0, deadline - System.currentTimeMillis());
+            return asyncCount.get(wait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.log(Level.FINE, "numberMatched count took too long, reporting it as unknown");
+            asyncCount.cancel(true);
+            return -1;
+        } catch (CancellationException e) {
+            // timed out on a previous call
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            asyncCount.cancel(true);
+            return -1;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to compute the numberMatched count", cause);
         }
     }
 
     public boolean isCountSet() {
         return providedCount != COUNT_UNSET;
     }
+
+    /** Cancels the background counts started by the current request, if still running */
+    static void cancelPending() {
+        List<CountExecutor> pending = PENDING.get();
+        if (pending != null) {
+            PENDING.remove();
+            for (CountExecutor executor : pending) {
+                executor.asyncCount.cancel(true);
+            }
+        }
+    }
 }
@@ -0,0 +1,17 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs;
+
+import org.geoserver.ows.AbstractDispatcherCallback;
+import org.geoserver.ows.Request;
+
+/** Cancels the numberMatched counts still running in background when the request ends */
+public class CountExecutorCallback extends AbstractDispatcherCallback {
+
+    @Override
+    public void finished(Request request) {
+        CountExecutor.cancelPending();
+    }
+}
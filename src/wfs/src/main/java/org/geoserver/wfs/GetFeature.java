@@ -334,6 +334,15 @@ public FeatureCollectionResponse run(GetFeatureRequest request) throws WFSExcept
         List<FeatureCollection<? extends FeatureType, ? extends Feature>> results =
                 new ArrayList<>();
         final List<CountExecutor> totalCountExecutors = new ArrayList<>();
+
+        // with multiple queries, read the next result while the current one is being encoded
+        int prefetchSize =
+                queries.size() > 1
+                                && !request.isResultTypeHits()
+                                && PrefetchingFeatureCollection.isEnabled()
+                        ? PrefetchingFeatureCollection.getPrefetchSize()
+                        : 0;
+        PrefetchingFeatureCollection lastPrefetching = null;
         try {
             for (int i = 0; (i < queries.size()) && (count < maxFeatures); i++) {
 
@@ -569,7 +578,11 @@ public FeatureCollectionResponse run(GetFeatureRequest request) throws WFSExcept
                                             joins,
                                             primaryTypeName,
                                             primaryAlias);
-                            totalCountExecutors.add(new CountExecutor(source, qTotal));
+                            totalCountExecutors.add(
+                                    new CountExecutor(
+                                            source,
+                                            qTotal,
+                                            getNumberMatchedTimeBudget(request, meta)));
                         }
                     }
 
@@ -615,6 +628,19 @@ public FeatureCollectionResponse run(GetFeatureRequest request) throws WFSExcept
                         features = retypeToRequestedProperties(features, metaPropNames);
                     }
 
+                    if (prefetchSize > 0 && features instanceof SimpleFeatureCollection) {
+                        PrefetchingFeatureCollection prefetching =
+                                new PrefetchingFeatureCollection(
+                                        (SimpleFeatureCollection) features, prefetchSize);
+                        if (lastPrefetching != null) {
+                            lastPrefetching.setNext(prefetching);
+                        }
+                        lastPrefetching = prefetching;
+                        features = prefetching;
+                    } else {
+                        lastPrefetching = null;
+                    }
+
                     // allow encoders to grab information about this layer if needs be
                     if (primaryMeta != null) {
                         features = TypeInfoCollectionWrapper.wrap(features, primaryMeta);
@@ -896,6 +922,23 @@ private String filterRequestToLocked(GetFeatureRequest request, List<Query> quer
         return lockId;
     }
 
+    /**
+     * Returns the time budget for the numberMatched count of the given feature type, or zero if the
+     * count should be run in full. Hits requests are always counted in full, and the count is not
+     * needed before WFS 2.0.
+     */
+    private long getNumberMatchedTimeBudget(GetFeatureRequest request, FeatureTypeInfo meta) {
+        // only WFS 2.0 reports numberMatched in the results
+        if (request.isResultTypeHits()
+                || request.getVersion() == null
+                || !request.getVersion().startsWith("2")) {
+            return 0;
+        }
+        Long budget =
+                meta.getMetadata().get(FeatureTypeInfo.NUMBER_MATCHED_TIME_BUDGET, Long.class);
+        return budget != null ? budget : 0;
+    }
+
     /** Returns true if all count executors are given a static count value */
     private boolean isPreComputed(List<CountExecutor> totalCountExecutors) {
         for (CountExecutor q : totalCountExecutors) {
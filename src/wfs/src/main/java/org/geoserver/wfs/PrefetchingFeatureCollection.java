@@ -0,0 +1,299 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.threadlocals.ThreadLocalsTransfer;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Feature collection used for the results of GetFeature requests with multiple queries, which
+ * overlaps the encoding of one query result with the reading of the next one.
+ *
+ * <p>The results are linked in order, when the encoder starts iterating over one of them, the next
+ * one is opened in a background thread, and its first features are read into a bounded buffer,
+ * which the encoder will drain once it gets there. This hides the latency of running the query in
+ * the store (planning, first row fetch), which would otherwise be paid, in sequence, by each query
+ * of the request, and keeps at most two queries open at any given time for each request.
+ *
+ * <p>The background threads are bounded, when none is available the next result is read directly by
+ * the encoder, as if there was no prefetching. Prefetching can be disabled by setting the {@link
+ * #PREFETCH_KEY} system property to false, the buffer size is controlled by {@link
+ * #PREFETCH_SIZE_KEY}.
+ */
+class PrefetchingFeatureCollection extends DecoratingSimpleFeatureCollection {
+
+    static final Logger LOGGER = Logging.getLogger(PrefetchingFeatureCollection.class);
+
+    /** System property that can be used to disable prefetching */
+    public static final String PREFETCH_KEY = "org.geoserver.wfs.getfeature.prefetch";
+
+    /** System property setting the maximum number of features buffered by the prefetching */
+    public static final String PREFETCH_SIZE_KEY = "org.geoserver.wfs.getfeature.prefetchSize";
+
+    static final int DEFAULT_PREFETCH_SIZE = 1000;
+
+    /**
+     * Time a prefetch waits for the encoder to start reading the buffer, before giving up, in case
+     * the encoding failed and the result is never going to be read
+     */
+    static final long PREFETCH_TIMEOUT_SECONDS = 60;
+
+    static final ThreadPoolExecutor EXECUTOR =
+            new ThreadPoolExecutor(
+                    0,
+                    Math.max(2, Runtime.getRuntime().availableProcessors() * 2),
+                    60L,
+                    TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    new ThreadFactory() {
+                        final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread =
+                                    new Thread(r, "WFS-Prefetch-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+
+    /** Marks the end of the prefetched features */
+    private static final Object END = new Object();
+
+    private final int prefetchSize;
+
+    private PrefetchingFeatureCollection next;
+
+    /** The prefetch in progress, if any, that has not been handed to an iterator yet */
+    private Prefetch prefetch;
+
+    /** Prefetching happens at most once, later iterations read the delegate directly */
+    private boolean prefetchStarted;
+
+    PrefetchingFeatureCollection(SimpleFeatureCollection delegate, int prefetchSize) {
+        super(delegate);
+        this.prefetchSize = prefetchSize;
+    }
+
+    /** Returns true if prefetching is enabled */
+    static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(GeoServerExtensions.getProperty(PREFETCH_KEY));
+    }
+
+    /** Returns the configured number of features buffered by the prefetching */
+    static int getPrefetchSize() {
+        String size = GeoServerExtensions.getProperty(PREFETCH_SIZE_KEY);
+        return size != null ? Integer.parseInt(size) : DEFAULT_PREFETCH_SIZE;
+    }
+
+    /** Sets the collection that will be prefetched when this one starts being iterated */
+    void setNext(PrefetchingFeatureCollection next) {
+        this.next = next;
+    }
+
+    @Override
+    public SimpleFeatureIterator features() {
+        if (next != null) {
+            next.startPrefetch();
+        }
+        Prefetch started;
+        synchronized (this) {
+            started = prefetch;
+            prefetch = null;
+        }
+        if (started != null && started.claim()) {
+            return new PrefetchedIterator(started);
+        }
+        return delegate.features();
+    }
+
+    @Override
+    protected boolean canDelegate(FeatureVisitor visitor) {
+        return true;
+    }
+
+    /** Starts reading the features in the background, if a thread is available */
+    synchronized void startPrefetch() {
+        if (prefetchStarted) {
+            return;
+        }
+        prefetchStarted = true;
+        Prefetch created = new Prefetch(prefetchSize);
+        ThreadLocalsTransfer threadLocalsTransfer = new ThreadLocalsTransfer();
+        try {
+            EXECUTOR.execute(
+                    () -> {
+                        threadLocalsTransfer.apply();
+                        try {
+                            created.run();
+                        } finally {
+                            threadLocalsTransfer.cleanup();
+                        }
+                    });
+            prefetch = created;
+        } catch (RejectedExecutionException e) {
+            LOGGER.fine("No thread available for prefetching, features will be read directly");
+        }
+    }
+
+    /** Reads the delegate features into a bounded buffer */
+    class Prefetch implements Runnable {
+
+        final BlockingQueue<Object> queue;
+
+        volatile boolean cancelled;
+
+        /** Set once an iterator reads the features, from then on the prefetch won't expire */
+        private boolean claimed;
+
+        Prefetch(int size) {
+            this.queue = new ArrayBlockingQueue<>(size);
+        }
+
+        @Override
+        public void run() {
+            try (SimpleFeatureIterator it = delegate.features()) {
+                while (it.hasNext()) {
+                    if (!put(it.next())) {
+                        return;
+                    }
+                }
+                put(END);
+            } catch (Throwable t) {
+                put(new Failure(t));
+            }
+        }
+
+        private boolean put(Object item) {
+            try {
+                long waited = 0;
+                while (!cancelled) {
+                    if (queue.offer(item, 1, TimeUnit.SECONDS)) {
+                        return true;
+                    }
+                    if (++waited >= PREFETCH_TIMEOUT_SECONDS && expire()) {
+                        LOGGER.log(
+                                Level.FINE, "Prefetched features were not read in time, giving up");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        /** Marks the prefetch as being read, returns false if it already expired */
+        synchronized boolean claim() {
+            if (cancelled) {
+                return false;
+            }
+            claimed = true;
+            return true;
+        }
+
+        /** Cancels the prefetch if no iterator is reading it, returns true if cancelled */
+        synchronized boolean expire() {
+            if (claimed) {
+                return false;
+            }
+            cancel();
+            return true;
+        }
+
+        void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+    }
+
+    /** A failure while reading the features, to be rethrown by the iterator */
+    static class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    /** Returns the prefetched features, waiting for them if necessary */
+    static class PrefetchedIterator implements SimpleFeatureIterator {
+
+        private final Prefetch prefetch;
+
+        private SimpleFeature next;
+
+        private boolean done;
+
+        PrefetchedIterator(Prefetch prefetch) {
+            this.prefetch = prefetch;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            Object item;
+            try {
+                item = prefetch.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for features", e);
+            }
+            if (item == END) {
+                done = true;
+                return false;
+            } else if (item instanceof Failure) {
+                done = true;
+                Throwable cause = ((Failure) item).cause;
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException("Failed to read features", cause);
+            }
+            next = (SimpleFeature) item;
+            return true;
+        }
+
+        @Override
+        public SimpleFeature next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SimpleFeature result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            // stops the reading if the iteration did not complete
+            done = true;
+            prefetch.cancel();
+        }
+    }
+}
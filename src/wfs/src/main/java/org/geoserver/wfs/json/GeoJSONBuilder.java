@@ -10,6 +10,7 @@
 import java.util.List;
 import java.util.Map;
 import net.sf.json.JSONException;
+import net.sf.json.JSONString;
 import net.sf.json.util.JSONBuilder;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Converters;
@@ -39,6 +40,15 @@ public class GeoJSONBuilder extends JSONBuilder {
 
     private boolean encodeMeasures = false;
 
+    /**
+     * Buffer the coordinates of a geometry are formatted into, reused across geometries. Writing
+     * them in a single chunk avoids going through the generic value conversion for each ordinate.
+     */
+    private final StringBuilder coordinates = new StringBuilder();
+
+    /** Exposes the {@link #coordinates} buffer as a pre-encoded JSON value */
+    private final JSONString coordinatesValue = coordinates::toString;
+
     public GeoJSONBuilder(Writer w) {
         super(w);
     }
@@ -60,50 +70,48 @@ public JSONBuilder writeGeom(Geometry geometry) throws JSONException {
 
         if (geometryType != MULTIGEOMETRY) {
             this.key("coordinates");
+            coordinates.setLength(0);
 
             switch (geometryType) {
                 case POINT:
-                    Point point = (Point) geometry;
-                    writeCoordinate(point);
+                    appendCoordinate(((Point) geometry).getCoordinateSequence(), 0);
                     break;
                 case LINESTRING:
-                    writeCoordinates(((LineString) geometry).getCoordinateSequence());
+                    appendCoordinates(((LineString) geometry).getCoordinateSequence());
                     break;
                 case MULTIPOINT:
-                    this.array();
+                    coordinates.append('[');
                     for (int i = 0, n = geometry.getNumGeometries(); i < n; i++) {
-                        writeCoordinate((Point) geometry.getGeometryN(i));
+                        if (i > 0) coordinates.append(',');
+                        Point point = (Point) geometry.getGeometryN(i);
+                        appendCoordinate(point.getCoordinateSequence(), 0);
                     }
-                    this.endArray();
+                    coordinates.append(']');
                     break;
                 case POLYGON:
-                    writePolygon((Polygon) geometry);
-
+                    appendPolygon((Polygon) geometry);
                     break;
-
                 case MULTILINESTRING:
-                    this.array();
-
+                    coordinates.append('[');
                     for (int i = 0, n = geometry.getNumGeometries(); i < n; i++) {
-                        writeCoordinates(
-                                ((LineString) geometry.getGeometryN(i)).getCoordinateSequence());
+                        if (i > 0) coordinates.append(',');
+                        LineString line = (LineString) geometry.getGeometryN(i);
+                        appendCoordinates(line.getCoordinateSequence());
                     }
-
-                    this.endArray();
-
+                    coordinates.append(']');
                     break;
-
                 case MULTIPOLYGON:
-                    this.array();
-
+                    coordinates.append('[');
                     for (int i = 0, n = geometry.getNumGeometries(); i < n; i++) {
-                        writePolygon((Polygon) geometry.getGeometryN(i));
+                        if (i > 0) coordinates.append(',');
+                        appendPolygon((Polygon) geometry.getGeometryN(i));
                     }
-
-                    this.endArray();
-
+                    coordinates.append(']');
                     break;
             }
+
+            // the whole coordinates array is written in one go
+            super.value(coordinatesValue);
         } else {
             writeGeomCollection((GeometryCollection) geometry);
         }
@@ -123,40 +131,34 @@ private JSONBuilder writeGeomCollection(GeometryCollection collection) {
     }
 
     /**
-     * Helper method that encodes a {@see Point} coordinate to the JSON output. This method will
-     * respect the configured axis order. If activated, coordinates measures (M) will be encoded,
-     * otherwise measures will be ignored.
+     * Helper method that appends a coordinate of the sequence to the coordinates buffer. This
+     * method will respect the configured axis order. If activated, coordinates measures (M) will be
+     * encoded, otherwise measures will be ignored.
      *
-     * @param point the point whose coordinate will be encoded
-     * @return the JSON builder instance, this allow chained calls
+     * @param sequence the coordinate sequence
+     * @param i the index of the coordinate to encode
      */
-    private JSONBuilder writeCoordinate(Point point) throws JSONException {
-        CoordinateSequence coordinates = point.getCoordinateSequence();
+    private void appendCoordinate(CoordinateSequence sequence, int i) {
         // let's see if we need to encode measures, NaN values will not be encoded
-        double m = encodeMeasures ? coordinates.getM(0) : Double.NaN;
-        return writeCoordinate(coordinates.getX(0), coordinates.getY(0), coordinates.getZ(0), m);
+        double m = encodeMeasures ? sequence.getM(i) : Double.NaN;
+        appendCoordinate(sequence.getX(i), sequence.getY(i), sequence.getZ(i), m);
     }
 
     /**
-     * Helper method that encodes a sequence of coordinates to the JSON output as an array. This
-     * method will respect the configured axis order. If activated, coordinates measures (M) will be
-     * encoded, otherwise measures will be ignored.
+     * Helper method that appends a sequence of coordinates to the coordinates buffer as an array.
+     * The ordinates are read directly from the sequence, without creating {@link
+     * org.locationtech.jts.geom.Coordinate} objects.
      *
-     * @param coordinates the coordinates sequence that will be encoded
-     * @return the JSON builder instance, this allow chained calls
+     * @param sequence the coordinates sequence that will be encoded
      */
-    private JSONBuilder writeCoordinates(CoordinateSequence coordinates) throws JSONException {
-        // start encoding the JSON array of coordinates
-        this.array();
+    private void appendCoordinates(CoordinateSequence sequence) {
+        coordinates.append('[');
         // each coordinate will be encoded has an array of ordinates
-        for (int i = 0; i < coordinates.size(); i++) {
-            // let's see if we need to encode measures, NaN values will not be encoded
-            double m = encodeMeasures ? coordinates.getM(i) : Double.NaN;
-            // encode the coordinate ordinates to the JSON output
-            writeCoordinate(coordinates.getX(i), coordinates.getY(i), coordinates.getZ(i), m);
+        for (int i = 0, n = sequence.size(); i < n; i++) {
+            if (i > 0) coordinates.append(',');
+            appendCoordinate(sequence, i);
         }
-        // we are done with the array
-        return this.endArray();
+        coordinates.append(']');
     }
 
     /**
@@ -171,41 +173,42 @@ private JSONBuilder writeCoordinates(CoordinateSequence coordinates) throws JSON
      * @param y X ordinate
      * @param z Z ordinate, can be {@code NaN}
      * @param m M ordinate, can be {@code NaN}
-     * @return the JSON builder instance, this allow chained calls
      */
-    private JSONBuilder writeCoordinate(double x, double y, double z, double m) {
-        // start encoding JSON array
-        this.array();
+    private void appendCoordinate(double x, double y, double z, double m) {
+        coordinates.append('[');
         // adjust the order of X and Y ordinates if needed
         if (axisOrder == CRS.AxisOrder.NORTH_EAST) {
             // encode latitude first and then longitude
             if (!Double.isNaN(y)) { // for 1d linear referencing cases
-                roundedValue(y);
+                appendOrdinate(y);
+                coordinates.append(',');
             }
-            roundedValue(x);
+            appendOrdinate(x);
         } else {
             // encode longitude first and then latitude
-            roundedValue(x);
+            appendOrdinate(x);
             if (!Double.isNaN(y)) { // for 1d linear referencing cases
-                roundedValue(y);
+                coordinates.append(',');
+                appendOrdinate(y);
             }
         }
         // if Z value is not available but we have a measure, we set Z value to zero
         z = Double.isNaN(z) && !Double.isNaN(m) ? 0 : z;
         // encode Z value if available
         if (!Double.isNaN(z)) {
-            roundedValue(z);
+            coordinates.append(',');
+            appendOrdinate(z);
         }
         // encode M value if available
         if (!Double.isNaN(m)) {
-            roundedValue(m);
+            coordinates.append(',');
+            appendOrdinate(m);
         }
-        // we are done with the array
-        return this.endArray();
+        coordinates.append(']');
     }
 
-    private void roundedValue(double value) {
-        super.value(RoundingUtil.round(value, numDecimals));
+    private void appendOrdinate(double value) {
+        RoundingUtil.appendRounded(coordinates, value, numDecimals);
     }
 
     /**
@@ -216,36 +219,44 @@ private void roundedValue(double value) {
      */
     protected JSONBuilder writeBoundingBox(Envelope env) {
         this.key("bbox");
-        this.array();
+        coordinates.setLength(0);
+        coordinates.append('[');
         if (axisOrder == CRS.AxisOrder.NORTH_EAST) {
-            roundedValue(env.getMinY());
-            roundedValue(env.getMinX());
-            roundedValue(env.getMaxY());
-            roundedValue(env.getMaxX());
+            appendOrdinate(env.getMinY());
+            coordinates.append(',');
+            appendOrdinate(env.getMinX());
+            coordinates.append(',');
+            appendOrdinate(env.getMaxY());
+            coordinates.append(',');
+            appendOrdinate(env.getMaxX());
         } else {
-            roundedValue(env.getMinX());
-            roundedValue(env.getMinY());
-            roundedValue(env.getMaxX());
-            roundedValue(env.getMaxY());
+            appendOrdinate(env.getMinX());
+            coordinates.append(',');
+            appendOrdinate(env.getMinY());
+            coordinates.append(',');
+            appendOrdinate(env.getMaxX());
+            coordinates.append(',');
+            appendOrdinate(env.getMaxY());
         }
-        return this.endArray();
+        coordinates.append(']');
+        return super.value(coordinatesValue);
     }
 
     /**
-     * Writes a polygon
+     * Appends a polygon
      *
      * @param geometry The polygon to write
      */
-    private void writePolygon(Polygon geometry) throws JSONException {
-        this.array();
-        writeCoordinates(geometry.getExteriorRing().getCoordinateSequence());
+    private void appendPolygon(Polygon geometry) {
+        coordinates.append('[');
+        appendCoordinates(geometry.getExteriorRing().getCoordinateSequence());
 
         for (int i = 0, ii = geometry.getNumInteriorRing(); i < ii; i++) {
-            writeCoordinates(geometry.getInteriorRingN(i).getCoordinateSequence());
+            coordinates.append(',');
+            appendCoordinates(geometry.getInteriorRingN(i).getCoordinateSequence());
         }
 
-        this.endArray(); // end the linear ring
-        // this.endObject(); //end the
+        coordinates.append(']');
     }
 
     /** Internal representation of OGC SF Point */
@@ -4,6 +4,8 @@
  */
 package org.geoserver.wfs.json;
 
+import net.sf.json.util.JSONUtils;
+
 /**
  * Utility class for rounding double values.
  *
@@ -15,6 +17,11 @@ public class RoundingUtil {
         1d, 10d, 100d, 1000d, 10000d, 100000d, 1000000d, 10000000d, 100000000d
     };
 
+    // Same as SCALE, as longs
+    private static long[] LONG_SCALE = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L
+    };
+
     /**
      * Round a value to the specified number of decimal places using the "Round Half Up" strategy.
      *
@@ -44,4 +51,54 @@ public static double round(double value, int numDecimals) {
 
         return Math.floor(value * scale + 0.5) / scale;
     }
+
+    /**
+     * Rounds the value as {@link #round(double, int)} does, and appends it to the builder using the
+     * same format as the JSON encoder, that is, {@link Double#toString(double)} with trailing zeros
+     * removed.
+     *
+     * <p>Values between 10<sup>-3</sup> and 10<sup>7</sup> (those {@link Double#toString(double)}
+     * writes without exponent) rounded to at most 8 decimals are formatted directly from the
+     * rounded long value, without creating any intermediate object, the others are delegated to the
+     * JSON encoder.
+     *
+     * @param sb The target builder
+     * @param value The value to round
+     * @param numDecimals The number of decimal places to round to.
+     */
+    public static void appendRounded(StringBuilder sb, double value, int numDecimals) {
+        double rounded = round(value, numDecimals);
+        double abs = Math.abs(rounded);
+        if (rounded == 0 && numDecimals >= 0) {
+            sb.append('0');
+            return;
+        } else if (numDecimals < 0
+                || numDecimals >= LONG_SCALE.length
+                || !(abs >= 1e-3 && abs < 1e7)) {
+            // also throws an exception for NaN and infinite values, as the encoder does
+            sb.append(JSONUtils.numberToString(rounded));
+            return;
+        }
+
+        // at most 15 significant digits, the rounded double maps back to an exact long
+        long scaled = Math.round(abs * SCALE[numDecimals]);
+        long factor = LONG_SCALE[numDecimals];
+        if (rounded < 0) {
+            sb.append('-');
+        }
+        sb.append(scaled / factor);
+        long fraction = scaled % factor;
+        if (fraction != 0) {
+            sb.append('.');
+            int digits = numDecimals;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            for (long p = LONG_SCALE[digits - 1]; p > fraction; p /= 10) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+    }
 }
@@ -5,8 +5,6 @@
  */
 package org.geoserver.wfs.response;
 
-import com.google.common.escape.Escaper;
-import com.google.common.escape.Escapers;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -19,8 +17,6 @@
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.Locale;
-import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xsd.XSDElementDeclaration;
@@ -36,6 +32,7 @@
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.type.DateUtil;
 import org.geotools.xsd.EMFUtils;
+import org.locationtech.jts.geom.Geometry;
 import org.opengis.feature.Feature;
 import org.opengis.feature.Property;
 import org.opengis.feature.simple.SimpleFeature;
@@ -54,7 +51,8 @@
  */
 public class CSVOutputFormat extends WFSGetFeatureOutputFormat {
 
-    static Pattern CSV_ESCAPES;
+    /** Size of the output buffer, in chars */
+    static final int BUFFER_SIZE = 64 * 1024;
 
     public CSVOutputFormat(GeoServer gs) {
         // this is the name of your output format, it is the string
@@ -92,12 +90,15 @@ protected void write(
         Object o = getFeature.getParameters()[0];
 
         String csvSeparator = getCsvSeparator(o);
-        CSV_ESCAPES = Pattern.compile("[\"\n\r\t" + csvSeparator + "]");
 
         // create a writer
         BufferedWriter w =
                 new BufferedWriter(
-                        new OutputStreamWriter(output, gs.getGlobal().getSettings().getCharset()));
+                        new OutputStreamWriter(output, gs.getGlobal().getSettings().getCharset()),
+                        BUFFER_SIZE);
+        CSVWriter csv =
+                new CSVWriter(
+                        w, csvSeparator, getInfo().getGeoServer().getSettings().getNumDecimals());
 
         // get the feature collection
         FeatureCollection<?, ?> fc = featureCollection.getFeature().get(0);
@@ -112,7 +113,7 @@ protected void write(
             w.write("FID" + csvSeparator);
             for (int i = 0; i < ft.getAttributeCount(); i++) {
                 AttributeDescriptor ad = ft.getDescriptor(i);
-                w.write(prepCSVField(ad.getLocalName()));
+                csv.writeField(ad.getLocalName());
 
                 if (i < ft.getAttributeCount() - 1) {
                     w.write(csvSeparator);
@@ -138,19 +139,16 @@ protected void write(
                         elName = xsdEl.getQName();
                     }
                     elName = resolveNamespacePrefixName(elName);
-                    w.write(prepCSVField(elName));
+                    csv.writeField(elName);
                     i++;
                 }
             }
         }
         // by RFC each line is terminated by CRLF
-        w.write("\r\n");
+        csv.endRecord();
 
         // prepare the formatter for numbers
-        NumberFormat coordFormatter = NumberFormat.getInstance(Locale.US);
-        coordFormatter.setMaximumFractionDigits(
-                getInfo().getGeoServer().getSettings().getNumDecimals());
-        coordFormatter.setGroupingUsed(false);
+        NumberFormat coordFormatter = csv.getNumberFormat();
 
         // prepare the list of formatters
         AttrFormatter[] formatters = getFormatters(fc.getSchema());
@@ -160,18 +158,19 @@ protected void write(
             while (i.hasNext()) {
                 Feature f = i.next();
                 // dump fid
-                w.write(prepCSVField(f.getIdentifier().getID()));
-                w.write(csvSeparator);
+                csv.writeField(f.getIdentifier().getID());
+                csv.writeSeparator();
                 if (f instanceof SimpleFeature) {
                     // dump attributes
-                    for (int j = 0; j < ((SimpleFeature) f).getAttributeCount(); j++) {
-                        Object att = ((SimpleFeature) f).getAttribute(j);
+                    SimpleFeature sf = (SimpleFeature) f;
+                    int count = sf.getAttributeCount();
+                    for (int j = 0; j < count; j++) {
+                        Object att = sf.getAttribute(j);
                         if (att != null) {
-                            String value = formatters[j].format(att);
-                            w.write(value);
+                            formatters[j].format(att, csv);
                         }
-                        if (j < ((SimpleFeature) f).getAttributeCount() - 1) {
-                            w.write(csvSeparator);
+                        if (j < count - 1) {
+                            csv.writeSeparator();
                         }
                     }
                 } else {
@@ -189,7 +188,7 @@ protected void write(
                             continue;
                         }
                         if (j > 0) {
-                            w.write(csvSeparator);
+                            csv.writeSeparator();
                         }
                         j++;
                         // Returns the list of values as a comma separated string
@@ -202,7 +201,7 @@ protected void write(
                                 sb.append(value).append(",");
                             }
                             sb.setLength(sb.length() - 1);
-                            w.write(prepCSVField(sb.toString()));
+                            csv.writeField(sb.toString());
                         } else {
                             Object att = null;
                             if (!values.isEmpty()) {
@@ -211,13 +210,13 @@ protected void write(
 
                             if (att != null) {
                                 String value = formatToString(att, coordFormatter);
-                                w.write(prepCSVField(value));
+                                csv.writeField(value);
                             }
                         }
                     }
                 }
                 // by RFC each line is terminated by CRLF
-                w.write("\r\n");
+                csv.endRecord();
             }
         }
 
@@ -251,19 +250,15 @@ private String getCsvSeparator(Object o) {
 
     private AttrFormatter[] getFormatters(FeatureType schema) {
         if (schema instanceof SimpleFeatureType) {
-            // prepare the formatter for numbers
-            NumberFormat coordFormatter = NumberFormat.getInstance(Locale.US);
-            coordFormatter.setMaximumFractionDigits(
-                    getInfo().getGeoServer().getSettings().getNumDecimals());
-            coordFormatter.setGroupingUsed(false);
-
             SimpleFeatureType sft = (SimpleFeatureType) schema;
             AttrFormatter[] formatters = new AttrFormatter[sft.getAttributeCount()];
             int i = 0;
             for (AttributeDescriptor attributeDescriptor : sft.getAttributeDescriptors()) {
                 Class<?> binding = attributeDescriptor.getType().getBinding();
                 if (Number.class.isAssignableFrom(binding)) {
-                    formatters[i] = new NumberFormatter(coordFormatter);
+                    formatters[i] = numberFormatter;
+                } else if (Geometry.class.isAssignableFrom(binding)) {
+                    formatters[i] = geometryFormatter;
                 } else if (java.sql.Date.class.isAssignableFrom(binding)) {
                     formatters[i] = sqlDateFormatter;
                 } else if (java.sql.Time.class.isAssignableFrom(binding)) {
@@ -281,32 +276,42 @@ private AttrFormatter[] getFormatters(FeatureType schema) {
         }
     }
 
+    /** Writes a non null attribute value, escaping it if needed */
     private interface AttrFormatter {
-        String format(Object att);
+        void format(Object att, CSVWriter csv) throws IOException;
     }
 
     private static class NumberFormatter implements AttrFormatter {
-        private final NumberFormat coordFormatter;
-
-        public NumberFormatter(NumberFormat coordFormatter) {
-            this.coordFormatter = coordFormatter;
+        @Override
+        public void format(Object att, CSVWriter csv) throws IOException {
+            if (att instanceof Number) {
+                csv.writeNumber((Number) att);
+            } else {
+                defaultFormatter.format(att, csv);
+            }
         }
+    }
 
-        @Override
-        public String format(Object att) {
+    private static AttrFormatter numberFormatter = new NumberFormatter();
 
-            // check for negative numbers
-            if (coordFormatter.format(att).contains("-")) {
-                return prepCSVField(coordFormatter.format(att));
+    private static class GeometryFormatter implements AttrFormatter {
+        @Override
+        public void format(Object att, CSVWriter csv) throws IOException {
+            if (att instanceof Geometry) {
+                // WKT written straight from the coordinate sequences
+                csv.writeGeometry((Geometry) att);
+            } else {
+                defaultFormatter.format(att, csv);
             }
-            return coordFormatter.format(att);
         }
     }
 
+    private static AttrFormatter geometryFormatter = new GeometryFormatter();
+
     private static class JUDateFormatter implements AttrFormatter {
         @Override
-        public String format(Object att) {
-            return prepCSVField(DateUtil.serializeDateTime((Date) att));
+        public void format(Object att, CSVWriter csv) throws IOException {
+            csv.writeField(DateUtil.serializeDateTime((Date) att));
         }
     }
 
@@ -314,8 +319,8 @@ public String format(Object att) {
 
     private static class SQLDateFormatter implements AttrFormatter {
         @Override
-        public String format(Object att) {
-            return prepCSVField(DateUtil.serializeSqlDate((java.sql.Date) att));
+        public void format(Object att, CSVWriter csv) throws IOException {
+            csv.writeField(DateUtil.serializeSqlDate((java.sql.Date) att));
         }
     }
 
@@ -323,8 +328,8 @@ public String format(Object att) {
 
     private static class SQLTimeFormatter implements AttrFormatter {
         @Override
-        public String format(Object att) {
-            return prepCSVField(DateUtil.serializeSqlTime((java.sql.Time) att));
+        public void format(Object att, CSVWriter csv) throws IOException {
+            csv.writeField(DateUtil.serializeSqlTime((java.sql.Time) att));
         }
     }
 
@@ -332,8 +337,8 @@ public String format(Object att) {
 
     private static class DefaultFormatter implements AttrFormatter {
         @Override
-        public String format(Object att) {
-            return prepCSVField(att.toString());
+        public void format(Object att, CSVWriter csv) throws IOException {
+            csv.writeField(att.toString());
         }
     }
 
@@ -359,29 +364,6 @@ else if (att instanceof java.sql.Time)
         return value;
     }
 
-    private static Escaper escaper = Escapers.builder().addEscape('"', "\"\"").build();
-
-    /*
-     * The CSV "spec" explains that fields with certain properties must be
-     * delimited by double quotes, and also that double quotes within fields
-     * must be escaped.  This method takes a field and returns one that
-     * obeys the CSV spec.
-     */
-    private static String prepCSVField(String field) {
-        // "embedded double-quote characters must be represented by a pair of double-quote
-        // characters."
-        String mod = escaper.escape(field);
-
-        /*
-         * Enclose string in double quotes if it contains double quotes, commas, or newlines
-         */
-        if (CSV_ESCAPES.matcher(mod).find()) {
-            mod = "\"" + mod + "\"";
-        }
-
-        return mod;
-    }
-
     @Override
     public String getCapabilitiesElementName() {
         return "CSV";
@@ -0,0 +1,239 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.response;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.NumberFormat;
+import java.util.Locale;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTWriter;
+
+/**
+ * Writes CSV records as described in RFC 4180, formatting numbers and geometries directly in the
+ * output, and quoting the fields only when they contain a quote, a line break, a tab or one of the
+ * separator characters.
+ *
+ * <p>Numbers are formatted like a {@link NumberFormat} for the US locale, without grouping and with
+ * the configured maximum number of fraction digits, but integers, and most doubles, are written
+ * without going through it. Not thread safe, meant to be used by a single request.
+ */
+class CSVWriter {
+
+    static final String LINE_END = "\r\n";
+
+    /** Powers of ten that can be represented exactly as longs */
+    static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** Doubles whose scaled absolute value is above this limit are formatted by the fallback */
+    static final double MAX_SCALED = 1e13;
+
+    /** Scaled doubles this close to a rounding tie are formatted by the fallback */
+    static final double TIE_TOLERANCE = 1e-3;
+
+    private final Writer writer;
+
+    private final String separator;
+
+    private final String specials;
+
+    private final int numDecimals;
+
+    private final NumberFormat numberFormat;
+
+    private final char[] digits = new char[40];
+
+    private final WKTWriter wktWriter = new WKTWriter();
+
+    private final CharBuffer wkt = new CharBuffer();
+
+    /** Numbers need to be checked for quoting only if the separator can appear in them */
+    private final boolean checkNumbers;
+
+    /**
+     * Builds a new CSV writer
+     *
+     * @param writer The target writer, should be buffered
+     * @param separator The field separator
+     * @param numDecimals The maximum number of fraction digits for non integral numbers
+     */
+    CSVWriter(Writer writer, String separator, int numDecimals) {
+        this.writer = writer;
+        this.separator = separator;
+        this.specials = "\"\n\r\t" + separator;
+        this.checkNumbers =
+                separator.chars().anyMatch(c -> !Character.isWhitespace(c) && c != ',' && c != ';');
+        this.numDecimals = numDecimals;
+        this.numberFormat = NumberFormat.getInstance(Locale.US);
+        this.numberFormat.setMaximumFractionDigits(numDecimals);
+        this.numberFormat.setGroupingUsed(false);
+    }
+
+    /** Returns the number format used for the numbers that cannot be written directly */
+    NumberFormat getNumberFormat() {
+        return numberFormat;
+    }
+
+    void writeSeparator() throws IOException {
+        writer.write(separator);
+    }
+
+    void endRecord() throws IOException {
+        writer.write(LINE_END);
+    }
+
+    /** Writes a field, quoting and escaping it if needed */
+    void writeField(String field) throws IOException {
+        if (!needsQuoting(field)) {
+            writer.write(field);
+            return;
+        }
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) == '"') {
+                // embedded double quotes must be represented by a pair of double quotes
+                writer.write(field, start, i + 1 - start);
+                writer.write('"');
+                start = i + 1;
+            }
+        }
+        writer.write(field, start, field.length() - start);
+        writer.write('"');
+    }
+
+    boolean needsQuoting(CharSequence field) {
+        for (int i = 0; i < field.length(); i++) {
+            if (specials.indexOf(field.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes a number, the integral types and finite doubles are formatted directly */
+    void writeNumber(Number number) throws IOException {
+        if (number instanceof Integer
+                || number instanceof Long
+                || number instanceof Short
+                || number instanceof Byte) {
+            writeLong(number.longValue());
+        } else if (number instanceof Double || number instanceof Float) {
+            writeDouble(number.doubleValue());
+        } else {
+            writeField(numberFormat.format(number));
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeDigits(Long.toString(value));
+            return;
+        }
+        int pos = digits.length;
+        long abs = Math.abs(value);
+        do {
+            digits[--pos] = (char) ('0' + abs % 10);
+            abs /= 10;
+        } while (abs > 0);
+        if (value < 0) {
+            digits[--pos] = '-';
+        }
+        writeDigits(pos);
+    }
+
+    void writeDouble(double value) throws IOException {
+        if (numDecimals >= POWERS_OF_TEN.length || Double.isNaN(value)) {
+            writeDigits(numberFormat.format(value));
+            return;
+        }
+        long scale = POWERS_OF_TEN[numDecimals];
+        double scaled = Math.abs(value) * scale;
+        double fraction = scaled - Math.floor(scaled);
+        if (!(scaled < MAX_SCALED) || Math.abs(fraction - 0.5) < TIE_TOLERANCE) {
+            // too large, infinite, or too close to a tie for the double product to be trusted
+            writeDigits(numberFormat.format(value));
+            return;
+        }
+
+        long rounded = Math.round(scaled);
+        long integral = rounded / scale;
+        long decimals = rounded % scale;
+        int pos = digits.length;
+        if (decimals != 0) {
+            // skip the trailing zeros
+            int count = numDecimals;
+            while (decimals % 10 == 0) {
+                decimals /= 10;
+                count--;
+            }
+            for (int i = 0; i < count; i++) {
+                digits[--pos] = (char) ('0' + decimals % 10);
+                decimals /= 10;
+            }
+            digits[--pos] = '.';
+        }
+        do {
+            digits[--pos] = (char) ('0' + integral % 10);
+            integral /= 10;
+        } while (integral > 0);
+        // same as NumberFormat, negative numbers rounding to zero keep their sign
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            digits[--pos] = '-';
+        }
+        writeDigits(pos);
+    }
+
+    private void writeDigits(int pos) throws IOException {
+        if (checkNumbers) {
+            writeField(new String(digits, pos, digits.length - pos));
+        } else {
+            writer.write(digits, pos, digits.length - pos);
+        }
+    }
+
+    private void writeDigits(String number) throws IOException {
+        if (checkNumbers) {
+            writeField(number);
+        } else {
+            writer.write(number);
+        }
+    }
+
+    /** Writes a geometry as WKT, the same as {@link Geometry#toString()}, quoting it if needed */
+    void writeGeometry(Geometry geometry) throws IOException {
+        wkt.reset();
+        wktWriter.write(geometry, wkt);
+        if (!wkt.containsAny(specials)) {
+            wkt.writeTo(writer);
+            return;
+        }
+        // WKT cannot contain quotes
+        writer.write('"');
+        wkt.writeTo(writer);
+        writer.write('"');
+    }
+
+    /** A char buffer that can be searched without copying its contents */
+    static class CharBuffer extends CharArrayWriter {
+
+        boolean containsAny(String chars) {
+            for (int i = 0; i < count; i++) {
+                if (chars.indexOf(buf[i]) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -103,17 +103,16 @@ protected XSDSchema buildSchema() throws IOException {
                 this.featureTypes.values().stream()
                         .flatMap(Collection::stream)
                         .toArray(FeatureTypeInfo[]::new);
-        XSDSchema schema;
         if (containsComplexTypes(types)) {
             // we have complex features so we add all the available catalog feature types
-            schema = schemaBuilder.build(new FeatureTypeInfo[0], baseURL, true, true);
+            XSDSchema schema = schemaBuilder.build(new FeatureTypeInfo[0], baseURL, true, true);
             schemaBuilder.addApplicationTypes(schema);
-        } else {
-            // simple feature so we add only the feature types we need
-            schema = schemaBuilder.build(types, baseURL, true, true);
+            // add an explicit dependency on WFS 1.0.0 schema
+            return importWfsSchema(schema);
         }
-        // add an explicit dependency on WFS 1.0.0 schema
-        return importWfsSchema(schema);
+        // simple feature so we add only the feature types we need, the schema can be shared
+        return schemaBuilder.buildShared(
+                types, baseURL, true, "wfs11", ApplicationSchemaXSD1::importWfsSchema);
     }
 
     /** Checks if the provided feature types contains complex types. */
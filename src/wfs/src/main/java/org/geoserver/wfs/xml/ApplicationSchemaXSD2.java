@@ -31,10 +31,15 @@ protected XSDSchema buildSchema() throws IOException {
         for (Set<FeatureTypeInfo> fts : featureTypes.values()) {
             types.addAll(fts);
         }
-        XSDSchema schema =
-                schemaBuilder.build(types.toArray(new FeatureTypeInfo[types.size()]), baseURL, 1);
-        // make sure that GML 3.2 namespace is used
-        schema.getQNamePrefixToNamespaceMap().put("gml", GML.NAMESPACE);
-        return schema;
+        return schemaBuilder.buildShared(
+                types.toArray(new FeatureTypeInfo[types.size()]),
+                baseURL,
+                true,
+                "wfs20",
+                schema -> {
+                    // make sure that GML 3.2 namespace is used
+                    schema.getQNamePrefixToNamespaceMap().put("gml", GML.NAMESPACE);
+                    return schema;
+                });
     }
 }
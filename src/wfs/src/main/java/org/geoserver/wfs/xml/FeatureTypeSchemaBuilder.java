@@ -50,6 +50,7 @@
 import org.geoserver.ows.LocalWorkspace;
 import org.geoserver.ows.URLMangler.URLType;
 import org.geoserver.ows.util.ResponseUtils;
+import org.geoserver.platform.GeoServerExtensions;
 import org.geoserver.platform.GeoServerResourceLoader;
 import org.geoserver.platform.resource.Resource;
 import org.geoserver.platform.resource.Resource.Type;
@@ -159,6 +160,104 @@ public XSDSchema build(
         return schema;
     }
 
+    /**
+     * Builds a schema that can be shared among requests, and cached by the {@link
+     * FeatureTypeSchemaCache}. The schema is built and customized once, and must not be modified
+     * afterwards. When the feature types cannot be cached the schema is built and customized for
+     * the current request only, and disposed at its end.
+     *
+     * @param variant Identifies the customization, schemas with different variants are cached
+     *     separately
+     * @param customizer Customizes the built schema, before it gets cached
+     */
+    public XSDSchema buildShared(
+            FeatureTypeInfo[] featureTypeInfos,
+            String baseUrl,
+            boolean resolveAppSchemaImports,
+            String variant,
+            SchemaCustomizer customizer)
+            throws IOException {
+        FeatureTypeSchemaCache cache = GeoServerExtensions.bean(FeatureTypeSchemaCache.class);
+        FeatureTypeSchemaCache.SchemaKey key =
+                cache != null && cache.isEnabled()
+                        ? getCacheKey(featureTypeInfos, baseUrl, resolveAppSchemaImports, variant)
+                        : null;
+        if (key == null) {
+            return customizer.customize(
+                    build(featureTypeInfos, baseUrl, resolveAppSchemaImports, true));
+        }
+        return cache.getSchema(
+                key,
+                () ->
+                        customizer.customize(
+                                build(featureTypeInfos, baseUrl, resolveAppSchemaImports, false)));
+    }
+
+    /** Returns the cache key for the given feature types, or null if they cannot be cached */
+    private FeatureTypeSchemaCache.SchemaKey getCacheKey(
+            FeatureTypeInfo[] featureTypeInfos,
+            String baseUrl,
+            boolean resolveAppSchemaImports,
+            String variant) {
+        if (featureTypeInfos.length == 0) {
+            return null;
+        }
+        List<String> ids = new ArrayList<>();
+        List<List<String>> attributes = new ArrayList<>();
+        List<Long> schemaFiles = new ArrayList<>();
+        Set<String> namespaces = new HashSet<>();
+        for (FeatureTypeInfo info : featureTypeInfos) {
+            FeatureType featureType;
+            try {
+                featureType = info.getFeatureType();
+            } catch (IOException e) {
+                // broken feature types are left out of the schema, don't cache it
+                return null;
+            }
+            if (!(featureType instanceof SimpleFeatureType)) {
+                // complex features may depend on other feature types
+                return null;
+            }
+            ids.add(info.getId());
+            // the secure catalog removes the attributes the user cannot read from the type
+            List<String> names = new ArrayList<>();
+            for (AttributeDescriptor ad :
+                    ((SimpleFeatureType) featureType).getAttributeDescriptors()) {
+                names.add(ad.getLocalName());
+            }
+            attributes.add(names);
+            // the custom schema.xsd can be edited at any time
+            Resource schemaFile = getSchemaFile(info);
+            schemaFiles.add(
+                    schemaFile.getType() == Type.RESOURCE ? schemaFile.lastmodified() : -1L);
+            namespaces.add(info.getNamespace().getPrefix());
+        }
+        if (resolveAppSchemaImports && namespaces.size() > 1) {
+            // the imported schemas are built for the current request only
+            return null;
+        }
+        if (baseUrl == null) baseUrl = gs.getService(WFSInfo.class).getSchemaBaseURL();
+        // the URL manglers may depend on the request, e.g., on the user or virtual service
+        String mangledUrl =
+                buildURL(baseUrl, "wfs", null, URLType.RESOURCE)
+                        + " "
+                        + ResponseUtils.buildSchemaURL(baseUrl, gmlSchemaLocation);
+        return new FeatureTypeSchemaCache.SchemaKey(
+                getClass(),
+                variant,
+                ids,
+                attributes,
+                schemaFiles,
+                mangledUrl,
+                resolveAppSchemaImports);
+    }
+
+    /** Customizes a schema built by {@link #buildShared} */
+    @FunctionalInterface
+    public interface SchemaCustomizer {
+        XSDSchema customize(XSDSchema schema) throws IOException;
+    }
+
     public final XSDSchema buildSchemaInternal(
             FeatureTypeInfo[] featureTypeInfos, String baseUrl, boolean resolveAppSchemaImports)
             throws IOException {
@@ -608,16 +707,19 @@ public XSDSchema addApplicationTypes(XSDSchema wfsSchema) throws IOException {
         return wfsSchema;
     }
 
-    @SuppressWarnings("unchecked") // EMF model without generics
-    boolean findTypeInSchema(FeatureTypeInfo featureTypeMeta, XSDSchema schema, XSDFactory factory)
-            throws IOException {
-        // look if the schema for the type is already defined
+    /** Returns the custom schema file of the feature type, which might not exist */
+    private Resource getSchemaFile(FeatureTypeInfo featureTypeMeta) {
         String ws = featureTypeMeta.getStore().getWorkspace().getName();
         String ds = featureTypeMeta.getStore().getName();
         String name = featureTypeMeta.getName();
+        return resourceLoader.get("workspaces/" + ws + "/" + ds + "/" + name + "/schema.xsd");
+    }
 
-        Resource schemaFile =
-                resourceLoader.get("workspaces/" + ws + "/" + ds + "/" + name + "/schema.xsd");
+    @SuppressWarnings("unchecked") // EMF model without generics
+    boolean findTypeInSchema(FeatureTypeInfo featureTypeMeta, XSDSchema schema, XSDFactory factory)
+            throws IOException {
+        // look if the schema for the type is already defined
+        Resource schemaFile = getSchemaFile(featureTypeMeta);
 
         if (schemaFile.getType() == Type.RESOURCE) {
             if (logger.isLoggable(Level.FINE)) {
@@ -0,0 +1,328 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.xml;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.xsd.XSDSchema;
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.ConfigurationListenerAdapter;
+import org.geoserver.config.GeoServer;
+import org.geoserver.config.GeoServerInfo;
+import org.geoserver.config.ServiceInfo;
+import org.geoserver.config.SettingsInfo;
+import org.geoserver.config.impl.GeoServerLifecycleHandler;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+import org.geotools.util.logging.Logging;
+import org.geotools.xsd.Schemas;
+
+/**
+ * Caches the application schemas built by {@link FeatureTypeSchemaBuilder} for DescribeFeatureType
+ * responses and for the GML encoding of GetFeature responses, keyed by feature types, attributes
+ * readable by the current user, last modification time of their custom schema files, GML version,
+ * base URL and purpose of the schema.
+ *
+ * <p>Cached schemas are shared among concurrent requests, and must not be modified once built. They
+ * are invalidated when the feature types, or their stores and namespaces, are modified or removed,
+ * and on any change of the service configuration. Building a schema attaches it to the global GML
+ * and WFS schemas it imports, so evicted schemas are disposed only after {@link #DISPOSE_DELAY}
+ * milliseconds, giving the requests still using them time to complete.
+ *
+ * <p>The cache size is set by the {@link #CACHE_SIZE_KEY} variable, zero disables caching. The
+ * cache statistics report the time spent building the schemas as load time.
+ */
+public class FeatureTypeSchemaCache
+        implements CatalogListener, GeoServerLifecycleHandler, CacheStatisticsProvider {
+
+    static final Logger LOGGER = Logging.getLogger(FeatureTypeSchemaCache.class);
+
+    /**
+     * System property, environment variable or servlet context parameter setting the maximum number
+     * of cached schemas
+     */
+    public static final String CACHE_SIZE_KEY = "org.geoserver.wfs.schemaCacheSize";
+
+    static final int DEFAULT_CACHE_SIZE = 100;
+
+    /** Time an evicted schema is kept before being disposed */
+    static final long DISPOSE_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+    private final Cache<SchemaKey, XSDSchema> schemas;
+
+    private final Queue<EvictedSchema> evicted = new ConcurrentLinkedQueue<>();
+
+    private final int maxSize;
+
+    public FeatureTypeSchemaCache(GeoServer geoServer) {
+        this(lookupMaxSize());
+        geoServer.getCatalog().addListener(this);
+        geoServer.addListener(
+                new ConfigurationListenerAdapter() {
+                    @Override
+                    public void handlePostGlobalChange(GeoServerInfo global) {
+                        clear();
+                    }
+
+                    @Override
+                    public void handleSettingsPostModified(SettingsInfo settings) {
+                        clear();
+                    }
+
+                    @Override
+                    public void handlePostServiceChange(ServiceInfo service) {
+                        clear();
+                    }
+
+                    @Override
+                    public void reloaded() {
+                        clear();
+                    }
+                });
+    }
+
+    /** For testing only */
+    FeatureTypeSchemaCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.schemas =
+                CacheBuilder.newBuilder()
+                        .maximumSize(Math.max(0, maxSize))
+                        .recordStats()
+                        .removalListener(
+                                (RemovalListener<SchemaKey, XSDSchema>)
+                                        n -> evicted.add(new EvictedSchema(n.getValue())))
+                        .build();
+    }
+
+    static int lookupMaxSize() {
+        String value = GeoServerExtensions.getProperty(CACHE_SIZE_KEY);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Invalid value for " + CACHE_SIZE_KEY + ": " + value + ", using default",
+                        e);
+            }
+        }
+        return DEFAULT_CACHE_SIZE;
+    }
+
+    /** Returns true if schemas are being cached */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Returns the cached schema for the given key, building it with the given loader if missing.
+     * The loader must not schedule the schema for disposal at the end of the request.
+     */
+    XSDSchema getSchema(SchemaKey key, Callable<XSDSchema> loader) throws IOException {
+        disposeEvicted(false);
+        try {
+            return schemas.get(key, loader);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to build the application schema", e.getCause());
+        }
+    }
+
+    /** Drops all the cached schemas */
+    public void clear() {
+        schemas.invalidateAll();
+    }
+
+    /** Disposes the evicted schemas, either all of them, or those evicted long enough ago */
+    private void disposeEvicted(boolean all) {
+        long threshold = System.currentTimeMillis() - DISPOSE_DELAY;
+        // the queue is ordered by eviction time
+        EvictedSchema schema;
+        while ((schema = evicted.peek()) != null && (all || schema.evictedAt < threshold)) {
+            // another thread might be disposing the same schema
+            if (evicted.remove(schema)) {
+                try {
+                    Schemas.dispose(schema.schema);
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Failed to dispose cached schema", e);
+                }
+            }
+        }
+    }
+
+    private void invalidate(CatalogInfo info) {
+        if (info instanceof FeatureTypeInfo) {
+            String id = info.getId();
+            schemas.asMap().keySet().removeIf(k -> k.featureTypeIds.contains(id));
+        } else if (info instanceof DataStoreInfo
+                || info instanceof NamespaceInfo
+                || info instanceof WorkspaceInfo) {
+            clear();
+        }
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        return Collections.singletonList(
+                CacheStatistics.of(
+                        "featureTypeSchemas",
+                        "Application schemas of DescribeFeatureType and GetFeature responses",
+                        schemas));
+    }
+
+    // catalog listener
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        // nothing to do, schemas are built on demand
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // a schema built while the modification was in progress might be stale
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+
+    // lifecycle handler
+
+    @Override
+    public void onReset() {
+        clear();
+    }
+
+    @Override
+    public void onDispose() {
+        clear();
+        disposeEvicted(true);
+    }
+
+    @Override
+    public void beforeReload() {
+        // nothing to do
+    }
+
+    @Override
+    public void onReload() {
+        clear();
+    }
+
+    /** A schema removed from the cache, waiting to be disposed */
+    private static final class EvictedSchema {
+        final XSDSchema schema;
+
+        final long evictedAt = System.currentTimeMillis();
+
+        EvictedSchema(XSDSchema schema) {
+            this.schema = schema;
+        }
+    }
+
+    /** Identifies a cached schema */
+    static final class SchemaKey {
+
+        /** The builder class, which determines the GML version */
+        final Class<?> builder;
+
+        /** The purpose of the schema, determining how it has been customized after being built */
+        final String variant;
+
+        /** The feature type identifiers, in schema order */
+        final List<String> featureTypeIds;
+
+        /** The attributes of each feature type the current user can read */
+        final List<List<String>> attributes;
+
+        /** The last modification time of the custom schema file of each feature type, if any */
+        final List<Long> schemaFiles;
+
+        /** The base URL, as mangled for the current request */
+        final String baseUrl;
+
+        final boolean resolveAppSchemaImports;
+
+        SchemaKey(
+                Class<?> builder,
+                String variant,
+                List<String> featureTypeIds,
+                List<List<String>> attributes,
+                List<Long> schemaFiles,
+                String baseUrl,
+                boolean resolveAppSchemaImports) {
+            this.builder = builder;
+            this.variant = variant;
+            this.featureTypeIds = featureTypeIds;
+            this.attributes = attributes;
+            this.schemaFiles = schemaFiles;
+            this.baseUrl = baseUrl;
+            this.resolveAppSchemaImports = resolveAppSchemaImports;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SchemaKey schemaKey = (SchemaKey) o;
+            return resolveAppSchemaImports == schemaKey.resolveAppSchemaImports
+                    && builder.equals(schemaKey.builder)
+                    && variant.equals(schemaKey.variant)
+                    && featureTypeIds.equals(schemaKey.featureTypeIds)
+                    && attributes.equals(schemaKey.attributes)
+                    && schemaFiles.equals(schemaKey.schemaFiles)
+                    && baseUrl.equals(schemaKey.baseUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                    builder,
+                    variant,
+                    featureTypeIds,
+                    attributes,
+                    schemaFiles,
+                    baseUrl,
+                    resolveAppSchemaImports);
+        }
+    }
+}
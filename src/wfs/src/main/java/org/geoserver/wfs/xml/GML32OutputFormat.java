@@ -125,11 +125,24 @@ protected Encoder createEncoder(
     protected void setAdditionalSchemaLocations(
             Encoder encoder, GetFeatureRequest request, WFSInfo wfs) {
         // since wfs 2.0 schema does not depend on gml 3.2 schema we register it manually
-        String loc =
-                wfs.isCanonicalSchemaLocation()
-                        ? GML.CANONICAL_SCHEMA_LOCATION
-                        : ResponseUtils.buildSchemaURL(request.getBaseUrl(), "gml/3.2.1/gml.xsd");
-        encoder.setSchemaLocation(GML.NAMESPACE, loc);
+        encoder.setSchemaLocation(GML.NAMESPACE, getGmlSchemaLocation(request, wfs));
+    }
+
+    @Override
+    String[] getAdditionalSchemaLocation(GetFeatureRequest request, WFSInfo wfs) {
+        return new String[] {GML.NAMESPACE, getGmlSchemaLocation(request, wfs)};
+    }
+
+    private String getGmlSchemaLocation(GetFeatureRequest request, WFSInfo wfs) {
+        return wfs.isCanonicalSchemaLocation()
+                ? GML.CANONICAL_SCHEMA_LOCATION
+                : ResponseUtils.buildSchemaURL(request.getBaseUrl(), "gml/3.2.1/gml.xsd");
+    }
+
+    @Override
+    GMLEncodingPlan.Dialect getCompiledDialect(GetFeatureRequest request) {
+        String version = request.getVersion();
+        return version != null && version.startsWith("2.0") ? GMLEncodingPlan.Dialect.GML32 : null;
     }
 
     @Override
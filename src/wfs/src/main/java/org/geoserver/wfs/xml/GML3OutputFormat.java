@@ -8,6 +8,9 @@
 import static org.geoserver.ows.util.ResponseUtils.buildSchemaURL;
 import static org.geoserver.ows.util.ResponseUtils.buildURL;
 import static org.geoserver.ows.util.ResponseUtils.params;
+import static org.geoserver.wfs.xml.GMLEncodingPlan.GML_PREFIX;
+import static org.geoserver.wfs.xml.GMLEncodingPlan.WFS_PREFIX;
+import static org.geoserver.wfs.xml.GMLEncodingPlan.XSI_PREFIX;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -19,6 +22,7 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -28,8 +32,12 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -46,8 +54,10 @@
 import org.geoserver.ows.Dispatcher;
 import org.geoserver.ows.Request;
 import org.geoserver.ows.URLMangler.URLType;
+import org.geoserver.platform.GeoServerExtensions;
 import org.geoserver.platform.Operation;
 import org.geoserver.platform.ServiceException;
+import org.geoserver.wfs.GMLInfo;
 import org.geoserver.wfs.WFSException;
 import org.geoserver.wfs.WFSGetFeatureOutputFormat;
 import org.geoserver.wfs.WFSInfo;
@@ -58,11 +68,16 @@
 import org.geoserver.wfs.xml.v1_1_0.WFS;
 import org.geoserver.wfs.xml.v1_1_0.WFSConfiguration;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.NameImpl;
 import org.geotools.feature.simple.SimpleFeatureTypeImpl;
+import org.geotools.gml.producer.CoordinateFormatter;
 import org.geotools.gml3.GMLConfiguration;
+import org.geotools.xs.bindings.XSDateTimeBinding;
 import org.geotools.xsd.Configuration;
 import org.geotools.xsd.Encoder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.feature.type.Name;
 import org.w3c.dom.Document;
@@ -79,6 +94,8 @@ public class GML3OutputFormat extends WFSGetFeatureOutputFormat
     WFSConfiguration configuration;
     protected static DOMSource xslt;
 
+    static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
     static {
         DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
         docFactory.setNamespaceAware(true);
@@ -197,6 +214,19 @@ protected void write(
 
         WFSInfo wfs = getInfo();
 
+        if (GMLEncodingPlanCache.isEnabled()
+                && writeCompiled(
+                        results,
+                        output,
+                        request,
+                        ns2metas,
+                        wfs,
+                        numDecimals,
+                        padWithZeros,
+                        forcedDecimal)) {
+            return;
+        }
+
         // set feature bounding parameter
         // JD: this is quite bad as its not at all thread-safe, once we remove the configuration
         // as being a singleton on trunk/2.0.x this should not be an issue
@@ -324,6 +354,188 @@ protected void write(
         }
     }
 
+    /**
+     * Returns the GML version used by the compiled encoding of the request, or null if the request
+     * cannot be encoded by a {@link GMLEncodingPlan}
+     */
+    GMLEncodingPlan.Dialect getCompiledDialect(GetFeatureRequest request) {
+        String version = request.getVersion();
+        return version != null && version.startsWith("1.1") ? GMLEncodingPlan.Dialect.GML31 : null;
+    }
+
+    /**
+     * Returns the namespace and schema location to be declared by the compiled encoding, in
+     * addition to the WFS and application schema ones, or null if there is none
+     */
+    String[] getAdditionalSchemaLocation(GetFeatureRequest request, WFSInfo wfs) {
+        return null;
+    }
+
+    /**
+     * Writes the results with the compiled {@link GMLEncodingPlan} of their feature type, when the
+     * request is a plain GetFeature on a single simple feature type that can be compiled
+     *
+     * @return True if the results have been written, false if they should be encoded by the XSD
+     *     encoder instead
+     */
+    private boolean writeCompiled(
+            FeatureCollectionResponse results,
+            OutputStream output,
+            GetFeatureRequest request,
+            Map<String, Set<ResourceInfo>> ns2metas,
+            WFSInfo wfs,
+            int numDecimals,
+            boolean padWithZeros,
+            boolean forcedDecimal)
+            throws IOException {
+        GMLEncodingPlan.Dialect dialect = request != null ? getCompiledDialect(request) : null;
+        List<FeatureCollection> collections = results.getFeatures();
+        Request dispatcherRequest = Dispatcher.REQUEST.get();
+        if (dialect == null
+                || collections.size() != 1
+                || ns2metas.size() != 1
+                || results.isGetFeatureById()
+                || results.getLockId() != null
+                || wfs.isFeatureBounding()
+                || wfs.isVerbose()
+                || geoServer.getSettings().isVerbose()
+                || (dispatcherRequest != null && dispatcherRequest.isSOAP())
+                || !(collections.get(0).getSchema() instanceof SimpleFeatureType)
+                || encodeMeasures(collections, catalog)) {
+            return false;
+        }
+        Set<ResourceInfo> metas = ns2metas.values().iterator().next();
+        ResourceInfo resource = metas.size() == 1 ? metas.iterator().next() : null;
+        GMLEncodingPlanCache cache = GeoServerExtensions.bean(GMLEncodingPlanCache.class);
+        if (!(resource instanceof FeatureTypeInfo) || cache == null) {
+            return false;
+        }
+        FeatureTypeInfo info = (FeatureTypeInfo) resource;
+        if (info.getFeatureType().getUserData().get("schemaURI") instanceof Map) {
+            // user provided schema, its encoding might not match the feature type one
+            return false;
+        }
+        GMLInfo gml = wfs.getGML().get(dialect.version);
+        SimpleFeatureType schema = (SimpleFeatureType) collections.get(0).getSchema();
+        GMLEncodingPlan plan =
+                cache.getPlan(
+                        info, schema, dialect, Boolean.TRUE.equals(gml.getOverrideGMLAttributes()));
+        if (plan == null) {
+            return false;
+        }
+
+        StringBuilder schemaLocation = new StringBuilder(dialect.wfsNamespace).append(' ');
+        if (wfs.isCanonicalSchemaLocation()) {
+            schemaLocation.append(getCanonicalWfsSchemaLocation());
+        } else {
+            schemaLocation.append(
+                    buildSchemaURL(request.getBaseURL(), getRelativeWfsSchemaLocation()));
+        }
+        Map<String, String> params =
+                params(
+                        "service",
+                        "WFS",
+                        "version",
+                        request.getVersion(),
+                        "request",
+                        "DescribeFeatureType",
+                        "typeName",
+                        info.prefixedName());
+        schemaLocation
+                .append(' ')
+                .append(plan.namespaceURI)
+                .append(' ')
+                .append(buildURL(request.getBaseURL(), "wfs", params, URLType.SERVICE));
+        String[] additional = getAdditionalSchemaLocation(request, wfs);
+        if (additional != null) {
+            schemaLocation.append(' ').append(additional[0]).append(' ').append(additional[1]);
+        }
+
+        CoordinateFormatter formatter = new CoordinateFormatter(numDecimals);
+        formatter.setPadWithZeros(padWithZeros);
+        formatter.setForcedDecimal(forcedDecimal);
+        String charset = Charset.forName(geoServer.getSettings().getCharset()).name();
+        String wfsNamespace = dialect.wfsNamespace;
+        String gmlNamespace = dialect.gmlNamespace;
+        try {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(output, charset);
+            writer.writeStartDocument(charset, "1.0");
+            writer.writeStartElement(WFS_PREFIX, "FeatureCollection", wfsNamespace);
+            writer.writeNamespace(WFS_PREFIX, wfsNamespace);
+            writer.writeNamespace(GML_PREFIX, gmlNamespace);
+            writer.writeNamespace(XSI_PREFIX, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+            writer.writeNamespace(plan.prefix, plan.namespaceURI);
+            if (dialect == GMLEncodingPlan.Dialect.GML31) {
+                if (results.getNumberOfFeatures() != null) {
+                    writer.writeAttribute(
+                            "numberOfFeatures", results.getNumberOfFeatures().toString());
+                }
+            } else {
+                BigInteger matched = results.getTotalNumberOfFeatures();
+                writer.writeAttribute(
+                        "numberMatched", matched != null ? matched.toString() : "unknown");
+                if (results.getNumberOfFeatures() != null) {
+                    writer.writeAttribute(
+                            "numberReturned", results.getNumberOfFeatures().toString());
+                }
+                if (results.getNext() != null) {
+                    writer.writeAttribute("next", results.getNext());
+                }
+                if (results.getPrevious() != null) {
+                    writer.writeAttribute("previous", results.getPrevious());
+                }
+            }
+            if (results.getTimeStamp() != null) {
+                writer.writeAttribute(
+                        "timeStamp", new XSDateTimeBinding().encode(results.getTimeStamp(), null));
+            }
+            writer.writeAttribute(
+                    XSI_PREFIX,
+                    XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+                    "schemaLocation",
+                    schemaLocation.toString());
+
+            GMLEncodingPlan.FeatureWriter featureWriter =
+                    plan.writer(
+                            writer,
+                            formatter,
+                            gml.getSrsNameStyle().getPrefix(),
+                            !wfs.isCiteCompliant());
+            // GML 3.2 features are wrapped in wfs:member, GML 3.1 ones either in
+            // gml:featureMember, or all together in gml:featureMembers
+            boolean wrapEach =
+                    dialect == GMLEncodingPlan.Dialect.GML32 || wfs.isEncodeFeatureMember();
+            boolean membersStarted = false;
+            try (FeatureIterator<?> it = collections.get(0).features()) {
+                while (it.hasNext()) {
+                    SimpleFeature feature = (SimpleFeature) it.next();
+                    if (dialect == GMLEncodingPlan.Dialect.GML32) {
+                        writer.writeStartElement(WFS_PREFIX, "member", wfsNamespace);
+                    } else if (wrapEach) {
+                        writer.writeStartElement(GML_PREFIX, "featureMember", gmlNamespace);
+                    } else if (!membersStarted) {
+                        writer.writeStartElement(GML_PREFIX, "featureMembers", gmlNamespace);
+                        membersStarted = true;
+                    }
+                    featureWriter.writeFeature(feature);
+                    if (wrapEach) {
+                        writer.writeEndElement();
+                    }
+                }
+            }
+            if (membersStarted) {
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            // does not close the output stream
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to encode the features as GML", e);
+        }
+        return true;
+    }
+
     protected void updateConfiguration(
             Configuration configuration,
             int numDecimals,
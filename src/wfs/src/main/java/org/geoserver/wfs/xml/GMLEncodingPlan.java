@@ -0,0 +1,531 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.xml;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.wfs.WFSInfo;
+import org.geotools.geometry.jts.coordinatesequence.CoordinateSequences;
+import org.geotools.gml.producer.CoordinateFormatter;
+import org.geotools.referencing.CRS;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.geotools.xs.bindings.XSDateBinding;
+import org.geotools.xs.bindings.XSDateTimeBinding;
+import org.geotools.xs.bindings.XSTimeBinding;
+import org.geotools.xsd.SimpleBinding;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Encoding plan for the features of a simple feature type, compiled once out of the feature type
+ * and its configuration, and then used to stream the features as GML 3 with a {@link
+ * XMLStreamWriter}, without going through the schema driven XSD {@link org.geotools.xsd.Encoder}.
+ *
+ * <p>The plan resolves upfront what the encoder would otherwise look up for each property of each
+ * feature: the element names, how each value is turned into text, and the EPSG code of each
+ * geometry property. Only the most common feature types can be compiled, {@link #compile} returns
+ * null for the others (curved geometries, attributes overlapping with the GML ones, non EPSG
+ * reference systems, types without a well known XML Schema mapping), which are left to the XSD
+ * encoder.
+ */
+class GMLEncodingPlan {
+
+    static final Logger LOGGER = Logging.getLogger(GMLEncodingPlan.class);
+
+    static final String GML_PREFIX = "gml";
+
+    static final String WFS_PREFIX = "wfs";
+
+    static final String XSI_PREFIX = "xsi";
+
+    /** Names of the properties inherited from the GML abstract feature type */
+    static final Set<String> GML_PROPERTIES =
+            new HashSet<>(
+                    Arrays.asList(
+                            "name",
+                            "description",
+                            "descriptionReference",
+                            "identifier",
+                            "boundedBy",
+                            "location",
+                            "metaDataProperty"));
+
+    /** The GML versions supported by the compiled encoding */
+    enum Dialect {
+        GML31(
+                org.geotools.gml3.GML.NAMESPACE,
+                org.geoserver.wfs.xml.v1_1_0.WFS.NAMESPACE,
+                WFSInfo.Version.V_11,
+                "MultiLineString",
+                "lineStringMember",
+                false),
+        GML32(
+                org.geotools.gml3.v3_2.GML.NAMESPACE,
+                org.geotools.wfs.v2_0.WFS.NAMESPACE,
+                WFSInfo.Version.V_20,
+                "MultiCurve",
+                "curveMember",
+                true);
+
+        final String gmlNamespace;
+
+        final String wfsNamespace;
+
+        /** The WFS version whose GML settings apply */
+        final WFSInfo.Version version;
+
+        final String multiLineString;
+
+        final String lineStringMember;
+
+        /** GML 3.2 geometries are identified objects, and need a gml:id */
+        final boolean geometryIds;
+
+        Dialect(
+                String gmlNamespace,
+                String wfsNamespace,
+                WFSInfo.Version version,
+                String multiLineString,
+                String lineStringMember,
+                boolean geometryIds) {
+            this.gmlNamespace = gmlNamespace;
+            this.wfsNamespace = wfsNamespace;
+            this.version = version;
+            this.multiLineString = multiLineString;
+            this.lineStringMember = lineStringMember;
+            this.geometryIds = geometryIds;
+        }
+    }
+
+    /** How the value of a property is turned into XML */
+    enum Kind {
+        TEXT,
+        FLOATING,
+        DECIMAL,
+        BINDING,
+        GEOMETRY
+    }
+
+    /** The compiled encoding of a single property */
+    static class PropertyPlan {
+        final String name;
+
+        final Kind kind;
+
+        /** Null values are skipped if the property is optional, encoded as nil otherwise */
+        final boolean optional;
+
+        final boolean nillable;
+
+        /** The simple binding used to encode values of {@link Kind#BINDING} properties */
+        final SimpleBinding binding;
+
+        /** The EPSG code of {@link Kind#GEOMETRY} properties, null if not referenced */
+        final String epsgCode;
+
+        PropertyPlan(
+                String name,
+                Kind kind,
+                boolean optional,
+                boolean nillable,
+                SimpleBinding binding,
+                String epsgCode) {
+            this.name = name;
+            this.kind = kind;
+            this.optional = optional;
+            this.nillable = nillable;
+            this.binding = binding;
+            this.epsgCode = epsgCode;
+        }
+    }
+
+    final Dialect dialect;
+
+    final String prefix;
+
+    final String namespaceURI;
+
+    final String typeName;
+
+    final PropertyPlan[] properties;
+
+    GMLEncodingPlan(
+            Dialect dialect,
+            String prefix,
+            String namespaceURI,
+            String typeName,
+            PropertyPlan[] properties) {
+        this.dialect = dialect;
+        this.prefix = prefix;
+        this.namespaceURI = namespaceURI;
+        this.typeName = typeName;
+        this.properties = properties;
+    }
+
+    /**
+     * Compiles the encoding plan for the given feature type
+     *
+     * @param info The feature type configuration
+     * @param schema The schema of the features to be encoded, which might be a subset or a
+     *     reprojection of the feature type one
+     * @param dialect The GML version
+     * @param overrideGMLAttributes Whether the attributes named as the GML ones are encoded in the
+     *     feature type namespace
+     * @return The plan, or null if the feature type cannot be compiled
+     */
+    static GMLEncodingPlan compile(
+            FeatureTypeInfo info,
+            SimpleFeatureType schema,
+            Dialect dialect,
+            boolean overrideGMLAttributes) {
+        if (info.isCircularArcPresent()) {
+            return null;
+        }
+        NamespaceInfo ns = info.getNamespace();
+        if (ns == null) {
+            return null;
+        }
+        List<AttributeDescriptor> descriptors = schema.getAttributeDescriptors();
+        PropertyPlan[] properties = new PropertyPlan[descriptors.size()];
+        for (int i = 0; i < properties.length; i++) {
+            AttributeDescriptor ad = descriptors.get(i);
+            String name = ad.getLocalName();
+            if (!overrideGMLAttributes && GML_PROPERTIES.contains(name)) {
+                return null;
+            }
+            PropertyPlan property = compile(ad);
+            if (property == null) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(
+                            "Cannot compile the GML encoding of "
+                                    + info.prefixedName()
+                                    + ", unsupported attribute "
+                                    + name);
+                }
+                return null;
+            }
+            properties[i] = property;
+        }
+        return new GMLEncodingPlan(
+                dialect, ns.getPrefix(), ns.getURI(), schema.getTypeName(), properties);
+    }
+
+    private static PropertyPlan compile(AttributeDescriptor ad) {
+        Class<?> binding = ad.getType().getBinding();
+        String name = ad.getLocalName();
+        boolean optional = ad.getMinOccurs() == 0;
+        boolean nillable = ad.isNillable();
+        if (ad instanceof GeometryDescriptor) {
+            if (!isSupportedGeometry(binding)) {
+                return null;
+            }
+            CoordinateReferenceSystem crs =
+                    ((GeometryDescriptor) ad).getCoordinateReferenceSystem();
+            String code = null;
+            if (crs != null) {
+                try {
+                    Integer epsg = CRS.lookupEpsgCode(crs, false);
+                    if (epsg == null) {
+                        return null;
+                    }
+                    code = String.valueOf(epsg);
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Failed to look up the EPSG code of " + name, e);
+                    return null;
+                }
+            }
+            return new PropertyPlan(name, Kind.GEOMETRY, optional, nillable, null, code);
+        }
+        Kind kind;
+        SimpleBinding simpleBinding = null;
+        if (String.class.equals(binding)
+                || Boolean.class.equals(binding)
+                || Integer.class.equals(binding)
+                || Long.class.equals(binding)
+                || Short.class.equals(binding)
+                || Byte.class.equals(binding)
+                || BigInteger.class.equals(binding)) {
+            kind = Kind.TEXT;
+        } else if (Double.class.equals(binding) || Float.class.equals(binding)) {
+            kind = Kind.FLOATING;
+        } else if (BigDecimal.class.equals(binding)) {
+            kind = Kind.DECIMAL;
+        } else if (java.sql.Date.class.equals(binding)) {
+            kind = Kind.BINDING;
+            simpleBinding = new XSDateBinding();
+        } else if (java.sql.Time.class.equals(binding)) {
+            kind = Kind.BINDING;
+            simpleBinding = new XSTimeBinding();
+        } else if (java.util.Date.class.equals(binding)
+                || java.sql.Timestamp.class.equals(binding)) {
+            kind = Kind.BINDING;
+            simpleBinding = new XSDateTimeBinding();
+        } else {
+            return null;
+        }
+        return new PropertyPlan(name, kind, optional, nillable, simpleBinding, null);
+    }
+
+    private static boolean isSupportedGeometry(Class<?> binding) {
+        return Geometry.class.equals(binding)
+                || Point.class.equals(binding)
+                || LineString.class.equals(binding)
+                || LinearRing.class.equals(binding)
+                || Polygon.class.equals(binding)
+                || MultiPoint.class.equals(binding)
+                || MultiLineString.class.equals(binding)
+                || MultiPolygon.class.equals(binding)
+                || GeometryCollection.class.equals(binding);
+    }
+
+    /**
+     * Returns a writer encoding features according to this plan
+     *
+     * @param writer The target writer
+     * @param formatter The coordinate formatter, configured for the request
+     * @param srsNamePrefix The prefix of the srsName attribute, followed by the EPSG code
+     * @param encodeSrsDimension Whether the srsDimension attribute is encoded
+     */
+    FeatureWriter writer(
+            XMLStreamWriter writer,
+            CoordinateFormatter formatter,
+            String srsNamePrefix,
+            boolean encodeSrsDimension) {
+        return new FeatureWriter(writer, formatter, srsNamePrefix, encodeSrsDimension);
+    }
+
+    /** Writes the features, and their geometries, for a single request */
+    class FeatureWriter {
+
+        final XMLStreamWriter writer;
+
+        final CoordinateFormatter formatter;
+
+        final String[] srsNames;
+
+        final boolean encodeSrsDimension;
+
+        final String gml;
+
+        final StringBuilder coordinates = new StringBuilder();
+
+        FeatureWriter(
+                XMLStreamWriter writer,
+                CoordinateFormatter formatter,
+                String srsNamePrefix,
+                boolean encodeSrsDimension) {
+            this.writer = writer;
+            this.formatter = formatter;
+            this.encodeSrsDimension = encodeSrsDimension;
+            this.gml = dialect.gmlNamespace;
+            this.srsNames = new String[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                if (properties[i].epsgCode != null) {
+                    srsNames[i] = srsNamePrefix + properties[i].epsgCode;
+                }
+            }
+        }
+
+        void writeFeature(SimpleFeature feature) throws XMLStreamException {
+            String id = feature.getID();
+            writer.writeStartElement(prefix, typeName, namespaceURI);
+            writer.writeAttribute(GML_PREFIX, gml, "id", id);
+            for (int i = 0; i < properties.length; i++) {
+                PropertyPlan property = properties[i];
+                Object value = feature.getAttribute(i);
+                if (value == null) {
+                    if (!property.optional) {
+                        writer.writeStartElement(prefix, property.name, namespaceURI);
+                        if (property.nillable) {
+                            writer.writeAttribute(
+                                    XSI_PREFIX,
+                                    XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+                                    "nil",
+                                    "true");
+                        }
+                        writer.writeEndElement();
+                    }
+                    continue;
+                }
+                writer.writeStartElement(prefix, property.name, namespaceURI);
+                if (property.kind == Kind.GEOMETRY) {
+                    String geometryId = dialect.geometryIds ? id + "." + property.name : null;
+                    writeGeometry((Geometry) value, srsNames[i], geometryId);
+                } else {
+                    writer.writeCharacters(encode(property, value));
+                }
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        }
+
+        private String encode(PropertyPlan property, Object value) throws XMLStreamException {
+            switch (property.kind) {
+                case FLOATING:
+                    double d = ((Number) value).doubleValue();
+                    if (Double.isInfinite(d)) {
+                        return d > 0 ? "INF" : "-INF";
+                    }
+                    return value.toString();
+                case DECIMAL:
+                    if (value instanceof BigDecimal) {
+                        return ((BigDecimal) value).toPlainString();
+                    }
+                    return value.toString();
+                case BINDING:
+                    try {
+                        return property.binding.encode(value, null);
+                    } catch (Exception e) {
+                        throw new XMLStreamException(
+                                "Failed to encode " + property.name + " value " + value, e);
+                    }
+                default:
+                    if (value instanceof String) {
+                        return (String) value;
+                    }
+                    String converted = Converters.convert(value, String.class);
+                    return converted != null ? converted : value.toString();
+            }
+        }
+
+        /** Writes a root geometry, with the reference system and dimension attributes */
+        void writeGeometry(Geometry geometry, String srsName, String id) throws XMLStreamException {
+            int dimension = CoordinateSequences.coordinateDimension(geometry);
+            writeGeometry(geometry, srsName, dimension, id);
+        }
+
+        private void writeGeometry(Geometry geometry, String srsName, int dimension, String id)
+                throws XMLStreamException {
+            if (geometry instanceof Point) {
+                startGeometry("Point", srsName, dimension, id);
+                writer.writeStartElement(GML_PREFIX, "pos", gml);
+                writeCoordinates(((Point) geometry).getCoordinateSequence(), dimension);
+                writer.writeEndElement();
+                writer.writeEndElement();
+            } else if (geometry instanceof LineString) {
+                String name = geometry instanceof LinearRing ? "LinearRing" : "LineString";
+                startGeometry(name, srsName, dimension, id);
+                writePosList(((LineString) geometry).getCoordinateSequence(), dimension);
+                writer.writeEndElement();
+            } else if (geometry instanceof Polygon) {
+                Polygon polygon = (Polygon) geometry;
+                startGeometry("Polygon", srsName, dimension, id);
+                writeRing("exterior", polygon.getExteriorRing(), dimension);
+                for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                    writeRing("interior", polygon.getInteriorRingN(i), dimension);
+                }
+                writer.writeEndElement();
+            } else if (geometry instanceof MultiPoint) {
+                writeCollection(geometry, "MultiPoint", "pointMember", srsName, dimension, id);
+            } else if (geometry instanceof MultiLineString) {
+                writeCollection(
+                        geometry,
+                        dialect.multiLineString,
+                        dialect.lineStringMember,
+                        srsName,
+                        dimension,
+                        id);
+            } else if (geometry instanceof MultiPolygon) {
+                writeCollection(geometry, "MultiSurface", "surfaceMember", srsName, dimension, id);
+            } else if (geometry instanceof GeometryCollection) {
+                writeCollection(
+                        geometry, "MultiGeometry", "geometryMember", srsName, dimension, id);
+            } else {
+                throw new XMLStreamException(
+                        "Unsupported geometry type " + geometry.getGeometryType());
+            }
+        }
+
+        private void startGeometry(String name, String srsName, int dimension, String id)
+                throws XMLStreamException {
+            writer.writeStartElement(GML_PREFIX, name, gml);
+            if (id != null) {
+                writer.writeAttribute(GML_PREFIX, gml, "id", id);
+            }
+            // reference system and dimension are inherited by the nested geometries
+            if (srsName != null) {
+                writer.writeAttribute("srsName", srsName);
+            }
+            if (srsName != null && encodeSrsDimension) {
+                writer.writeAttribute("srsDimension", String.valueOf(dimension));
+            }
+        }
+
+        private void writeCollection(
+                Geometry collection,
+                String name,
+                String member,
+                String srsName,
+                int dimension,
+                String id)
+                throws XMLStreamException {
+            startGeometry(name, srsName, dimension, id);
+            for (int i = 0; i < collection.getNumGeometries(); i++) {
+                writer.writeStartElement(GML_PREFIX, member, gml);
+                String memberId = id != null ? id + "." + (i + 1) : null;
+                writeGeometry(collection.getGeometryN(i), null, dimension, memberId);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        }
+
+        private void writeRing(String name, LineString ring, int dimension)
+                throws XMLStreamException {
+            writer.writeStartElement(GML_PREFIX, name, gml);
+            writer.writeStartElement(GML_PREFIX, "LinearRing", gml);
+            writePosList(ring.getCoordinateSequence(), dimension);
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+
+        private void writePosList(CoordinateSequence cs, int dimension) throws XMLStreamException {
+            writer.writeStartElement(GML_PREFIX, "posList", gml);
+            writeCoordinates(cs, dimension);
+            writer.writeEndElement();
+        }
+
+        private void writeCoordinates(CoordinateSequence cs, int dimension)
+                throws XMLStreamException {
+            StringBuilder sb = coordinates;
+            sb.setLength(0);
+            for (int i = 0; i < cs.size(); i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                sb.append(formatter.format(cs.getX(i))).append(' ');
+                sb.append(formatter.format(cs.getY(i)));
+                if (dimension > 2) {
+                    sb.append(' ').append(formatter.format(cs.getZ(i)));
+                }
+            }
+            writer.writeCharacters(sb.toString());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.xml;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.CatalogException;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.DataStoreInfo;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.catalog.NamespaceInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Caches the compiled {@link GMLEncodingPlan} of each feature type, used by {@link
+ * GML3OutputFormat} and {@link GML32OutputFormat} when the compiled encoding is enabled with the
+ * {@link #COMPILED_ENCODING_KEY} system property. The plans are dropped when the feature type, or
+ * its store and namespace, are modified or removed.
+ */
+public class GMLEncodingPlanCache implements CatalogListener, CacheStatisticsProvider {
+
+    /** System property enabling the compiled GML encoding of simple features */
+    public static final String COMPILED_ENCODING_KEY = "org.geoserver.wfs.gml.compiledEncoding";
+
+    /** Maximum number of plans, a feature type has one plan per GML version and output schema */
+    static final int MAX_PLANS = 1000;
+
+    private final Cache<PlanKey, Optional<GMLEncodingPlan>> plans =
+            CacheBuilder.newBuilder().maximumSize(MAX_PLANS).recordStats().build();
+
+    public GMLEncodingPlanCache(Catalog catalog) {
+        catalog.addListener(this);
+    }
+
+    /** Returns true if the compiled encoding is enabled */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(GeoServerExtensions.getProperty(COMPILED_ENCODING_KEY));
+    }
+
+    /**
+     * Returns the plan for the given feature type, compiling it if needed
+     *
+     * @return The plan, or null if the feature type cannot be compiled, and should be encoded by
+     *     the XSD encoder
+     */
+    GMLEncodingPlan getPlan(
+            FeatureTypeInfo info,
+            SimpleFeatureType schema,
+            GMLEncodingPlan.Dialect dialect,
+            boolean overrideGMLAttributes) {
+        PlanKey key = new PlanKey(info.getId(), schema, dialect, overrideGMLAttributes);
+        try {
+            return plans.get(
+                            key,
+                            () ->
+                                    Optional.ofNullable(
+                                            GMLEncodingPlan.compile(
+                                                    info, schema, dialect, overrideGMLAttributes)))
+                    .orElse(null);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to compile the GML encoding plan", e.getCause());
+        }
+    }
+
+    /** Drops all the cached plans */
+    public void clear() {
+        plans.invalidateAll();
+    }
+
+    private void invalidate(CatalogInfo info) {
+        if (info instanceof FeatureTypeInfo) {
+            String id = info.getId();
+            plans.asMap().keySet().removeIf(k -> k.featureTypeId.equals(id));
+        } else if (info instanceof DataStoreInfo
+                || info instanceof NamespaceInfo
+                || info instanceof WorkspaceInfo) {
+            clear();
+        }
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        return Collections.singletonList(
+                CacheStatistics.of(
+                        "gmlEncodingPlans", "Compiled GML encoding plans of feature types", plans));
+    }
+
+    // catalog listener
+
+    @Override
+    public void handleAddEvent(CatalogAddEvent event) throws CatalogException {
+        // nothing to do, plans are compiled on demand
+    }
+
+    @Override
+    public void handleRemoveEvent(CatalogRemoveEvent event) throws CatalogException {
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void handleModifyEvent(CatalogModifyEvent event) throws CatalogException {
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void handlePostModifyEvent(CatalogPostModifyEvent event) throws CatalogException {
+        // a plan compiled while the modification was in progress might be stale
+        invalidate(event.getSource());
+    }
+
+    @Override
+    public void reloaded() {
+        clear();
+    }
+
+    /** Identifies a plan, the schema accounts for property selection and reprojection */
+    static final class PlanKey {
+        final String featureTypeId;
+
+        final SimpleFeatureType schema;
+
+        final GMLEncodingPlan.Dialect dialect;
+
+        final boolean overrideGMLAttributes;
+
+        PlanKey(
+                String featureTypeId,
+                SimpleFeatureType schema,
+                GMLEncodingPlan.Dialect dialect,
+                boolean overrideGMLAttributes) {
+            this.featureTypeId = featureTypeId;
+            this.schema = schema;
+            this.dialect = dialect;
+            this.overrideGMLAttributes = overrideGMLAttributes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PlanKey planKey = (PlanKey) o;
+            return overrideGMLAttributes == planKey.overrideGMLAttributes
+                    && featureTypeId.equals(planKey.featureTypeId)
+                    && schema.equals(planKey.schema)
+                    && dialect == planKey.dialect;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(featureTypeId, schema, dialect, overrideGMLAttributes);
+        }
+    }
+}
@@ -94,12 +94,19 @@ protected void doWrite(
         Object request = describeFeatureType.getParameters()[0];
         DescribeFeatureTypeRequest req = DescribeFeatureTypeRequest.adapt(request);
 
-        XSDSchema schema = schemaBuilder.build(featureTypeInfos, req.getBaseURL());
+        XSDSchema schema =
+                schemaBuilder.buildShared(
+                        featureTypeInfos, req.getBaseURL(), false, "describeFeatureType", s -> s);
 
-        // serialize
-        schema.updateElement();
+        // serialize, the schema might be shared with other requests, so don't let a slow client
+        // hold the lock
         final String encoding = gs.getSettings().getCharset();
-        XSDResourceImpl.serialize(output, schema.getElement(), encoding);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        synchronized (schema) {
+            schema.updateElement();
+            XSDResourceImpl.serialize(bytes, schema.getElement(), encoding);
+        }
+        bytes.writeTo(output);
     }
 
     public static class V20 extends XmlSchemaEncoder {
@@ -0,0 +1,121 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import org.geoserver.ows.Dispatcher;
+import org.geoserver.ows.Request;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CountExecutorTest {
+
+    @Before
+    public void setupRequest() {
+        // background counts are run only within a request
+        Dispatcher.REQUEST.set(new Request());
+    }
+
+    @After
+    public void clearRequest() {
+        CountExecutor.cancelPending();
+        Dispatcher.REQUEST.remove();
+    }
+
+    @Test
+    public void testAsyncCount() throws Exception {
+        SimpleFeatureSource source = mockSource(null);
+        CountExecutor executor = new CountExecutor(source, Query.ALL, 60000);
+        assertEquals(0, executor.getCount());
+    }
+
+    @Test
+    public void testAsyncCountOverBudget() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleFeatureSource source = mockSource(release);
+        try {
+            CountExecutor executor = new CountExecutor(source, Query.ALL, 50);
+            // unknown, and stays so
+            assertEquals(-1, executor.getCount());
+            assertEquals(-1, executor.getCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testBudgetStartsOnFirstRead() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleFeatureSource source = mockSource(release);
+        CountExecutor executor = new CountExecutor(source, Query.ALL, 1000);
+        // the time spent before reading the count does not consume the budget
+        Thread.sleep(1500);
+        new Thread(release::countDown).start();
+        assertEquals(0, executor.getCount());
+    }
+
+    @Test
+    public void testCancelPending() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleFeatureSource source = mockSource(release);
+        try {
+            CountExecutor executor = new CountExecutor(source, Query.ALL, 60000);
+            CountExecutor.cancelPending();
+            assertTrue(executor.asyncCount.isCancelled());
+            assertNull(CountExecutor.PENDING.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testNoRequest() throws Exception {
+        Dispatcher.REQUEST.remove();
+        SimpleFeatureSource source = mockSource(null);
+        CountExecutor executor = new CountExecutor(source, Query.ALL, 60000);
+        assertNull(executor.asyncCount);
+        assertEquals(0, executor.getCount());
+    }
+
+    @Test
+    public void testNoBudget() throws Exception {
+        SimpleFeatureSource source = mockSource(null);
+        CountExecutor executor = new CountExecutor(source, Query.ALL, 0);
+        assertEquals(0, executor.getCount());
+    }
+
+    /** A source whose count waits for the latch to be released, if any */
+    private SimpleFeatureSource mockSource(CountDownLatch latch) throws Exception {
+        ListFeatureCollection collection =
+                new ListFeatureCollection(DataUtilities.createType("test", "id:int")) {
+                    @Override
+                    public int size() {
+                        if (latch != null) {
+                            try {
+                                latch.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return super.size();
+                    }
+                };
+        SimpleFeatureSource source = mock(SimpleFeatureSource.class);
+        when(source.getFeatures(any(Query.class))).thenReturn(collection);
+        return source;
+    }
+}
@@ -0,0 +1,146 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.collection.DecoratingSimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class PrefetchingFeatureCollectionTest {
+
+    private SimpleFeatureType type;
+
+    @Before
+    public void setUp() throws Exception {
+        type = DataUtilities.createType("test", "id:int");
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        PrefetchingFeatureCollection first = new PrefetchingFeatureCollection(features(3), 10);
+        PrefetchingFeatureCollection second = new PrefetchingFeatureCollection(features(25), 10);
+        first.setNext(second);
+
+        // iterating the first starts reading the second
+        assertEquals(ids(3), read(first.features()));
+        try (SimpleFeatureIterator it = second.features()) {
+            assertTrue(it instanceof PrefetchingFeatureCollection.PrefetchedIterator);
+            assertEquals(ids(25), read(it));
+        }
+
+        // later iterations read the delegate directly
+        try (SimpleFeatureIterator it = second.features()) {
+            assertFalse(it instanceof PrefetchingFeatureCollection.PrefetchedIterator);
+            assertEquals(ids(25), read(it));
+        }
+    }
+
+    @Test
+    public void testNoPrefetchForFirst() throws Exception {
+        PrefetchingFeatureCollection first = new PrefetchingFeatureCollection(features(3), 10);
+        try (SimpleFeatureIterator it = first.features()) {
+            assertFalse(it instanceof PrefetchingFeatureCollection.PrefetchedIterator);
+            assertEquals(ids(3), read(it));
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        SimpleFeatureCollection failing =
+                new ListFeatureCollection(type) {
+                    @Override
+                    public SimpleFeatureIterator features() {
+                        throw new IllegalStateException("Cannot read");
+                    }
+                };
+        PrefetchingFeatureCollection first = new PrefetchingFeatureCollection(features(1), 10);
+        PrefetchingFeatureCollection second = new PrefetchingFeatureCollection(failing, 10);
+        first.setNext(second);
+
+        read(first.features());
+        try (SimpleFeatureIterator it = second.features()) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, it::hasNext);
+            assertEquals("Cannot read", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseStopsReading() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        SimpleFeatureCollection large =
+                new ListFeatureCollection(type, featureList(1000)) {
+                    @Override
+                    public SimpleFeatureIterator features() {
+                        return new DecoratingSimpleFeatureIterator(super.features()) {
+                            @Override
+                            public void close() {
+                                super.close();
+                                closed.countDown();
+                            }
+                        };
+                    }
+                };
+        PrefetchingFeatureCollection first = new PrefetchingFeatureCollection(features(1), 10);
+        PrefetchingFeatureCollection second = new PrefetchingFeatureCollection(large, 10);
+        first.setNext(second);
+
+        read(first.features());
+        SimpleFeature feature;
+        try (SimpleFeatureIterator it = second.features()) {
+            feature = it.next();
+        }
+        assertEquals(0, feature.getAttribute("id"));
+        // the background reader stops, and closes the delegate iterator
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+    }
+
+    private ListFeatureCollection features(int count) {
+        return new ListFeatureCollection(type, featureList(count));
+    }
+
+    private List<SimpleFeature> featureList(int count) {
+        List<SimpleFeature> features = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            features.add(SimpleFeatureBuilder.build(type, new Object[] {i}, "test." + i));
+        }
+        return features;
+    }
+
+    private List<Integer> ids(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    private List<Integer> read(SimpleFeatureIterator it) {
+        List<Integer> ids = new ArrayList<>();
+        try {
+            while (it.hasNext()) {
+                ids.add((Integer) it.next().getAttribute("id"));
+            }
+        } finally {
+            it.close();
+        }
+        return ids;
+    }
+}
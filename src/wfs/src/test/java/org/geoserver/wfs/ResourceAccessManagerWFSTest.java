@@ -24,6 +24,7 @@
 import org.geoserver.security.ResourceAccessManager;
 import org.geoserver.security.TestResourceAccessManager;
 import org.geoserver.security.VectorAccessLimits;
+import org.geoserver.wfs.xml.FeatureTypeSchemaCache;
 import org.geotools.factory.CommonFactoryFinder;
 import org.junit.Before;
 import org.junit.Test;
@@ -307,6 +308,41 @@ public void testDescribeLimitedAttributes() throws Exception {
         assertXpathEvaluatesTo("1", "count(//xsd:element[@name='ADDRESS'])", doc);
     }
 
+    @Test
+    public void testCachedSchemaLimitedAttributes() throws Exception {
+        applicationContext.getBean(FeatureTypeSchemaCache.class).clear();
+        String describe =
+                "wfs?request=DescribeFeatureType&version=1.1.0&service=wfs&typeName="
+                        + getLayerId(SystemTestData.BUILDINGS);
+
+        // the restricted user builds the schema first, the others must not get it
+        for (int i = 0; i < 2; i++) {
+            setRequestAuth("cite_readatts", "cite");
+            Document doc = getAsDOM(describe);
+            assertXpathEvaluatesTo("1", "count(//xsd:element[@name='FID'])", doc);
+            assertXpathEvaluatesTo("0", "count(//xsd:element[@name='ADDRESS'])", doc);
+
+            setRequestAuth("cite", "cite");
+            doc = getAsDOM(describe);
+            assertXpathEvaluatesTo("1", "count(//xsd:element[@name='FID'])", doc);
+            assertXpathEvaluatesTo("1", "count(//xsd:element[@name='ADDRESS'])", doc);
+        }
+
+        // same for the schema used to encode the features
+        String getFeature =
+                "wfs?request=GetFeature&version=2.0.0&service=wfs&typeNames="
+                        + getLayerId(SystemTestData.BUILDINGS);
+        setRequestAuth("cite_readattsnf", "cite");
+        Document doc = getAsDOM(getFeature);
+        assertXpathEvaluatesTo("2", "count(//cite:Buildings)", doc);
+        assertXpathEvaluatesTo("0", "count(//cite:ADDRESS)", doc);
+
+        setRequestAuth("cite", "cite");
+        doc = getAsDOM(getFeature);
+        assertXpathEvaluatesTo("2", "count(//cite:Buildings)", doc);
+        assertXpathEvaluatesTo("2", "count(//cite:ADDRESS)", doc);
+    }
+
     @Test
     public void testCapabilitiesMixed() throws Exception {
         setRequestAuth("admin", "geoserver");
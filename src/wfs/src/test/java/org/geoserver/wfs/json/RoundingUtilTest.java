@@ -11,6 +11,7 @@
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Random;
+import net.sf.json.util.JSONUtils;
 import org.junit.Test;
 
 /**
@@ -94,4 +95,36 @@ public void testRandomRoundingVsBigDecimal() {
             }
         }
     }
+
+    @Test
+    public void testAppendRounded() {
+        assertThat(appendRounded(0d, 6), is(equalTo("0")));
+        assertThat(appendRounded(-0.0000001, 6), is(equalTo("0")));
+        assertThat(appendRounded(1d, 6), is(equalTo("1")));
+        assertThat(appendRounded(-2.1234567, 4), is(equalTo("-2.1235")));
+        assertThat(appendRounded(0.0005, 4), is(equalTo("5.0E-4")));
+        assertThat(appendRounded(0.001, 6), is(equalTo("0.001")));
+        assertThat(appendRounded(12.0001, 3), is(equalTo("12")));
+        assertThat(appendRounded(12345678.5, 1), is(equalTo("1.23456785E7")));
+        assertThat(appendRounded(1E-10, 10), is(equalTo("1.0E-10")));
+    }
+
+    @Test
+    public void testAppendRoundedSameAsEncoder() {
+        // the fast formatting must match what the JSON encoder writes for the rounded double
+        Random r = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int numDecimals = r.nextInt(9);
+            double magnitude = Math.pow(10, r.nextInt(14) - 5);
+            double value = (r.nextDouble() * 2 - 1) * magnitude;
+            String expected = JSONUtils.numberToString(RoundingUtil.round(value, numDecimals));
+            assertThat(appendRounded(value, numDecimals), is(equalTo(expected)));
+        }
+    }
+
+    private String appendRounded(double value, int numDecimals) {
+        StringBuilder sb = new StringBuilder();
+        RoundingUtil.appendRounded(sb, value, numDecimals);
+        return sb.toString();
+    }
 }
@@ -15,6 +15,7 @@
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.math.BigDecimal;
 import java.security.InvalidParameterException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -49,6 +50,7 @@
 import org.junit.Test;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 import org.opengis.feature.Feature;
 import org.opengis.feature.Property;
@@ -201,6 +203,55 @@ public void testEscapes() throws Exception {
         assertEquals(f2.getAttribute("d"), Double.parseDouble(lines.get(2)[5]));
     }
 
+    @Test
+    public void testNumbersAndGeometries() throws Exception {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.add("geom", LineString.class);
+        builder.add("d", Double.class);
+        builder.add("l", Long.class);
+        builder.add("f", Float.class);
+        builder.add("b", BigDecimal.class);
+        builder.setName("numbers");
+        SimpleFeatureType type = builder.buildFeatureType();
+        LineString line =
+                new GeometryFactory()
+                        .createLineString(
+                                new Coordinate[] {new Coordinate(0, 0), new Coordinate(1.5, -2)});
+        SimpleFeature feature =
+                SimpleFeatureBuilder.build(
+                        type,
+                        new Object[] {line, -1e-12, -42L, 1.25f, new BigDecimal("12.5")},
+                        "numbers.1");
+        MemoryDataStore data = new MemoryDataStore();
+        data.addFeature(feature);
+        SimpleFeatureSource fs = data.getFeatureSource("numbers");
+
+        // the line contains commas, needs quoting with the default separator, but not with others
+        assertEquals(
+                "numbers.1,\"LINESTRING (0 0, 1.5 -2)\",-0,-42,1.25,12.5",
+                writeCSV(fs, null).split("\r\n")[1]);
+        assertEquals(
+                "numbers.1;LINESTRING (0 0, 1.5 -2);-0;-42;1.25;12.5",
+                writeCSV(fs, "semicolon").split("\r\n")[1]);
+    }
+
+    private String writeCSV(SimpleFeatureSource fs, String separator) throws Exception {
+        GetFeatureType gft = WfsFactory.eINSTANCE.createGetFeatureType();
+        if (separator != null) {
+            HashMap<String, String> formatOptions = new HashMap<>();
+            formatOptions.put("CSVSEPARATOR", separator);
+            gft.setFormatOptions(formatOptions);
+        }
+        Operation op =
+                new Operation("GetFeature", getServiceDescriptor10(), null, new Object[] {gft});
+        FeatureCollectionResponse fct =
+                FeatureCollectionResponse.adapt(WfsFactory.eINSTANCE.createFeatureCollectionType());
+        fct.getFeature().add(fs.getFeatures());
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new CSVOutputFormat(getGeoServer()).write(fct, bos, op);
+        return bos.toString("UTF-8");
+    }
+
     /** Convenience to read the csv content and */
     private List<String[]> readLines(String csvContent, Character separator) throws IOException {
         CSVReader reader = new CSVReader(new StringReader(csvContent), separator);
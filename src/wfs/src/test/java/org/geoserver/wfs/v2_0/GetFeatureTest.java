@@ -96,6 +96,24 @@ public void testSkipNumberMatched() throws Exception {
         this.getCatalog().save(fti);
     }
 
+    @Test
+    public void testNumberMatchedTimeBudget() throws Exception {
+        FeatureTypeInfo fti = this.getCatalog().getFeatureTypeByName("Fifteen");
+        fti.getMetadata().put(FeatureTypeInfo.NUMBER_MATCHED_TIME_BUDGET, 60000L);
+        this.getCatalog().save(fti);
+        try {
+            // paged, the count needs to be run, and completes within the budget
+            Document dom =
+                    getAsDOM(
+                            "wfs?request=GetFeature&typenames=cdf:Fifteen&version=2.0.0&service=wfs&count=5");
+            assertEquals("15", dom.getDocumentElement().getAttribute("numberMatched"));
+            assertEquals("5", dom.getDocumentElement().getAttribute("numberReturned"));
+        } finally {
+            fti.getMetadata().remove(FeatureTypeInfo.NUMBER_MATCHED_TIME_BUDGET);
+            this.getCatalog().save(fti);
+        }
+    }
+
     @Test
     public void testGet() throws Exception {
         testGetFifteenAll("wfs?request=GetFeature&typenames=cdf:Fifteen&version=2.0.0&service=wfs");
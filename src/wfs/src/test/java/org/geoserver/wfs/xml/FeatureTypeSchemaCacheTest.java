@@ -0,0 +1,159 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.data.test.MockData;
+import org.geoserver.platform.resource.Resource;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.wfs.WFSInfo;
+import org.geoserver.wfs.WFSTestSupport;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class FeatureTypeSchemaCacheTest extends WFSTestSupport {
+
+    static final String BUILDINGS =
+            MockData.BUILDINGS.getPrefix() + ":" + MockData.BUILDINGS.getLocalPart();
+
+    static final String DESCRIBE =
+            "wfs?service=WFS&version=1.1.0&request=DescribeFeatureType&typeName=" + BUILDINGS;
+
+    FeatureTypeSchemaCache cache;
+
+    @Before
+    public void clearCache() {
+        cache = applicationContext.getBean(FeatureTypeSchemaCache.class);
+        cache.clear();
+    }
+
+    private CacheStatistics getStatistics() {
+        return cache.getCacheStatistics().get(0);
+    }
+
+    @Test
+    public void testDescribeFeatureType() throws Exception {
+        long hits = getStatistics().getHitCount();
+        long loads = getStatistics().getLoadCount();
+
+        Document first = getAsDOM(DESCRIBE);
+        Document second = getAsDOM(DESCRIBE);
+
+        // built once, then served from the cache
+        assertEquals(1, getStatistics().getSize());
+        assertEquals(loads + 1, getStatistics().getLoadCount());
+        assertEquals(hits + 1, getStatistics().getHitCount());
+        for (Document dom : new Document[] {first, second}) {
+            assertEquals("xsd:schema", dom.getDocumentElement().getNodeName());
+            assertEquals(
+                    MockData.BUILDINGS.getNamespaceURI(),
+                    dom.getDocumentElement().getAttribute("targetNamespace"));
+            assertNotNull(getFirstElementByTagName(dom, "xsd:complexType"));
+        }
+    }
+
+    @Test
+    public void testGetFeature() throws Exception {
+        long hits = getStatistics().getHitCount();
+        String request = "wfs?request=GetFeature&version=2.0.0&typenames=" + BUILDINGS;
+
+        for (int i = 0; i < 2; i++) {
+            Document dom = getAsDOM(request);
+            assertEquals(2, dom.getElementsByTagName("cite:Buildings").getLength());
+        }
+
+        // the GML 3.2 schema used by the encoder is shared by the two requests
+        assertEquals(1, getStatistics().getSize());
+        assertTrue(getStatistics().getHitCount() > hits);
+    }
+
+    @Test
+    public void testInvalidateOnCatalogChange() throws Exception {
+        getAsDOM(DESCRIBE);
+        assertEquals(1, getStatistics().getSize());
+
+        Catalog catalog = getCatalog();
+        FeatureTypeInfo info = catalog.getFeatureTypeByName(BUILDINGS);
+        info.setTitle("Modified buildings");
+        catalog.save(info);
+        assertEquals(0, getStatistics().getSize());
+    }
+
+    @Test
+    public void testInvalidateOnServiceChange() throws Exception {
+        getAsDOM(DESCRIBE);
+        assertEquals(1, getStatistics().getSize());
+
+        WFSInfo wfs = getWFS();
+        getGeoServer().save(wfs);
+        assertEquals(0, getStatistics().getSize());
+    }
+
+    @Test
+    public void testCustomSchemaChange() throws Exception {
+        Resource schemaFile = getResourceLoader().get("workspaces/cite/cite/Buildings/schema.xsd");
+        try {
+            writeSchema(schemaFile, "firstCustomProperty");
+            Document dom = getAsDOM(DESCRIBE);
+            assertEquals(1, getElementsByName(dom, "firstCustomProperty"));
+
+            // the edit is picked up on the next request, no reload needed
+            writeSchema(schemaFile, "secondCustomProperty");
+            File file = schemaFile.file();
+            assertTrue(file.setLastModified(file.lastModified() + 10000));
+            dom = getAsDOM(DESCRIBE);
+            assertEquals(0, getElementsByName(dom, "firstCustomProperty"));
+            assertEquals(1, getElementsByName(dom, "secondCustomProperty"));
+        } finally {
+            schemaFile.delete();
+        }
+    }
+
+    private int getElementsByName(Document dom, String name) {
+        int count = 0;
+        NodeList elements = dom.getElementsByTagName("xsd:element");
+        for (int i = 0; i < elements.getLength(); i++) {
+            if (name.equals(((Element) elements.item(i)).getAttribute("name"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void writeSchema(Resource schemaFile, String property) throws IOException {
+        String schema =
+                "<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\""
+                        + " xmlns:cite=\"http://www.opengis.net/cite\""
+                        + " xmlns:gml=\"http://www.opengis.net/gml\""
+                        + " elementFormDefault=\"qualified\""
+                        + " targetNamespace=\"http://www.opengis.net/cite\">"
+                        + "<xsd:import namespace=\"http://www.opengis.net/gml\""
+                        + " schemaLocation=\"http://schemas.opengis.net/gml/3.1.1/base/gml.xsd\"/>"
+                        + "<xsd:complexType name=\"BuildingsType\"><xsd:complexContent>"
+                        + "<xsd:extension base=\"gml:AbstractFeatureType\"><xsd:sequence>"
+                        + "<xsd:element name=\""
+                        + property
+                        + "\" type=\"xsd:string\"/>"
+                        + "</xsd:sequence></xsd:extension></xsd:complexContent></xsd:complexType>"
+                        + "<xsd:element name=\"Buildings\" substitutionGroup=\"gml:_Feature\""
+                        + " type=\"cite:BuildingsType\"/>"
+                        + "</xsd:schema>";
+        try (OutputStream out = schemaFile.out()) {
+            out.write(schema.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
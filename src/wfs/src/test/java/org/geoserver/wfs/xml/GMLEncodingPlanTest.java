@@ -0,0 +1,174 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wfs.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.custommonkey.xmlunit.SimpleNamespaceContext;
+import org.custommonkey.xmlunit.XMLUnit;
+import org.custommonkey.xmlunit.XpathEngine;
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.data.test.CiteTestData;
+import org.geoserver.data.test.MockData;
+import org.geoserver.wfs.WFSInfo;
+import org.geoserver.wfs.WFSTestSupport;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.w3c.dom.Document;
+
+public class GMLEncodingPlanTest extends WFSTestSupport {
+
+    static final String BUILDINGS =
+            MockData.BUILDINGS.getPrefix() + ":" + MockData.BUILDINGS.getLocalPart();
+
+    static final String FIRST = "Buildings.1107531701010";
+
+    XpathEngine xpath;
+
+    @Before
+    public void enableCompiledEncoding() {
+        System.setProperty(GMLEncodingPlanCache.COMPILED_ENCODING_KEY, "true");
+
+        // GML 3.2 and WFS 2.0 namespaces, in addition to the default ones
+        Map<String, String> namespaces = new HashMap<>();
+        namespaces.put("wfs", "http://www.opengis.net/wfs");
+        namespaces.put("gml", "http://www.opengis.net/gml");
+        namespaces.put("wfs2", "http://www.opengis.net/wfs/2.0");
+        namespaces.put("gml32", "http://www.opengis.net/gml/3.2");
+        CiteTestData.registerNamespaces(namespaces);
+        xpath = XMLUnit.newXpathEngine();
+        xpath.setNamespaceContext(new SimpleNamespaceContext(namespaces));
+    }
+
+    @After
+    public void disableCompiledEncoding() {
+        System.clearProperty(GMLEncodingPlanCache.COMPILED_ENCODING_KEY);
+    }
+
+    @Test
+    public void testGML31() throws Exception {
+        Document dom = getAsDOM("wfs?request=GetFeature&version=1.1.0&typename=" + BUILDINGS);
+
+        assertEquals("2", xpath.evaluate("/wfs:FeatureCollection/@numberOfFeatures", dom));
+        String feature = "//gml:featureMembers/cite:Buildings[@gml:id='" + FIRST + "']";
+        assertEquals("113", xpath.evaluate(feature + "/cite:FID", dom));
+        assertEquals("123 Main Street", xpath.evaluate(feature + "/cite:ADDRESS", dom));
+        String polygon = feature + "/cite:the_geom/gml:MultiSurface/gml:surfaceMember/gml:Polygon";
+        assertEquals(
+                "1", xpath.evaluate("count(" + polygon + "/gml:exterior/gml:LinearRing)", dom));
+        // no identifiers on GML 3.1 geometries
+        assertEquals("0", xpath.evaluate("count(" + polygon + "[@gml:id])", dom));
+        assertEquals(
+                "urn:x-ogc:def:crs:EPSG:4326",
+                xpath.evaluate(feature + "/cite:the_geom/gml:MultiSurface/@srsName", dom));
+        assertEquals(
+                "2",
+                xpath.evaluate(feature + "/cite:the_geom/gml:MultiSurface/@srsDimension", dom));
+    }
+
+    @Test
+    public void testGML32() throws Exception {
+        Document dom = getAsDOM("wfs?request=GetFeature&version=2.0.0&typenames=" + BUILDINGS);
+
+        assertEquals("2", xpath.evaluate("/wfs2:FeatureCollection/@numberMatched", dom));
+        assertEquals("2", xpath.evaluate("/wfs2:FeatureCollection/@numberReturned", dom));
+        String feature = "//wfs2:member/cite:Buildings[@gml32:id='" + FIRST + "']";
+        assertEquals("123 Main Street", xpath.evaluate(feature + "/cite:ADDRESS", dom));
+        String surface = feature + "/cite:the_geom/gml32:MultiSurface";
+        assertEquals(FIRST + ".the_geom", xpath.evaluate(surface + "/@gml32:id", dom));
+        assertEquals(
+                "1",
+                xpath.evaluate(
+                        "count("
+                                + surface
+                                + "/gml32:surfaceMember/gml32:Polygon/gml32:exterior"
+                                + "/gml32:LinearRing/gml32:posList)",
+                        dom));
+    }
+
+    @Test
+    public void testSameContentAsEncoder() throws Exception {
+        String request = "wfs?request=GetFeature&version=1.1.0&typename=" + BUILDINGS;
+        Document compiled = getAsDOM(request);
+        System.clearProperty(GMLEncodingPlanCache.COMPILED_ENCODING_KEY);
+        Document encoded = getAsDOM(request);
+
+        for (String id : new String[] {FIRST, "Buildings.1107531701011"}) {
+            String feature = "//cite:Buildings[@gml:id='" + id + "']";
+            for (String path : new String[] {"/cite:FID", "/cite:ADDRESS", "//gml:posList"}) {
+                assertEquals(
+                        xpath.evaluate(feature + path, encoded),
+                        xpath.evaluate(feature + path, compiled));
+            }
+        }
+    }
+
+    @Test
+    public void testFallbackOnFeatureBounding() throws Exception {
+        GMLEncodingPlanCache cache = applicationContext.getBean(GMLEncodingPlanCache.class);
+        cache.clear();
+        WFSInfo wfs = getWFS();
+        boolean featureBounding = wfs.isFeatureBounding();
+        wfs.setFeatureBounding(true);
+        getGeoServer().save(wfs);
+        try {
+            Document dom = getAsDOM("wfs?request=GetFeature&version=1.1.0&typename=" + BUILDINGS);
+            assertNotNull(
+                    getFirstElementByTagName(
+                            getFirstElementByTagName(dom, "cite:Buildings"), "gml:boundedBy"));
+            // the XSD encoder has been used, no plan was compiled
+            assertEquals(0, cache.getCacheStatistics().get(0).getSize());
+        } finally {
+            wfs.setFeatureBounding(featureBounding);
+            getGeoServer().save(wfs);
+        }
+    }
+
+    @Test
+    public void testInvalidateOnCatalogChange() throws Exception {
+        GMLEncodingPlanCache cache = applicationContext.getBean(GMLEncodingPlanCache.class);
+        Catalog catalog = getCatalog();
+        FeatureTypeInfo info = catalog.getFeatureTypeByName(BUILDINGS);
+
+        getAsDOM("wfs?request=GetFeature&version=1.1.0&typename=" + BUILDINGS);
+        SimpleFeatureType schema = (SimpleFeatureType) info.getFeatureType();
+        assertNotNull(cache.getPlan(info, schema, GMLEncodingPlan.Dialect.GML31, false));
+        assertTrue(cache.getCacheStatistics().get(0).getSize() > 0);
+
+        // only buildings plans have been compiled by this test
+        info.setTitle("Modified buildings");
+        catalog.save(info);
+        assertEquals(0, cache.getCacheStatistics().get(0).getSize());
+    }
+
+    @Test
+    public void testUnsupportedAttributes() throws Exception {
+        FeatureTypeInfo info = getCatalog().getFeatureTypeByName(BUILDINGS);
+        SimpleFeatureType schema = (SimpleFeatureType) info.getFeatureType();
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.init(schema);
+        tb.add("name", String.class);
+        SimpleFeatureType withName = tb.buildFeatureType();
+
+        // clashes with gml:name, unless the GML attributes are overridden
+        assertNull(GMLEncodingPlan.compile(info, withName, GMLEncodingPlan.Dialect.GML31, false));
+        assertNotNull(GMLEncodingPlan.compile(info, withName, GMLEncodingPlan.Dialect.GML31, true));
+
+        tb.init(schema);
+        tb.add("payload", byte[].class);
+        assertNull(
+                GMLEncodingPlan.compile(
+                        info, tb.buildFeatureType(), GMLEncodingPlan.Dialect.GML32, false));
+    }
+}
@@ -122,6 +122,15 @@ public class WMS implements ApplicationContextAware {
 
     public static final int PNG_COMPRESSION_DEFAULT = 25;
 
+    public static final String PNG_PARALLEL_ENCODING = "pngParallelEncoding";
+
+    public static final boolean PNG_PARALLEL_ENCODING_DEFAULT = false;
+
+    public static final String PNG_PARALLEL_THRESHOLD = "pngParallelThreshold";
+
+    /** Minimum number of pixels for the parallel PNG encoding to kick in, 2048x2048 */
+    public static final int PNG_PARALLEL_THRESHOLD_DEFAULT = 2048 * 2048;
+
     public static final String SCALEHINT_MAPUNITS_PIXEL = "scalehintMapunitsPixel";
 
     public static final Boolean SCALEHINT_MAPUNITS_PIXEL_DEFAULT = Boolean.FALSE;
@@ -517,6 +526,18 @@ public int getPngCompression() {
                 serviceInfo.getMetadata(), PNG_COMPRESSION, PNG_COMPRESSION_DEFAULT);
     }
 
+    /** Returns true if large PNG images should be compressed using multiple threads */
+    public boolean isPNGParallelEncoding() {
+        return getMetadataValue(
+                PNG_PARALLEL_ENCODING, PNG_PARALLEL_ENCODING_DEFAULT, Boolean.class);
+    }
+
+    /** Returns the minimum number of pixels in a PNG image for the parallel encoding to be used */
+    public int getPNGParallelThreshold() {
+        return getMetadataValue(
+                PNG_PARALLEL_THRESHOLD, PNG_PARALLEL_THRESHOLD_DEFAULT, Integer.class);
+    }
+
     public int getJpegCompression() {
         WMSInfo serviceInfo = getServiceInfo();
         return getMetadataPercentage(
@@ -5,12 +5,18 @@
  */
 package org.geoserver.wms.capabilities;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import org.geoserver.ows.Response;
+import org.geoserver.platform.GeoServerExtensions;
 import org.geoserver.platform.Operation;
 import org.geoserver.platform.ServiceException;
+import org.geoserver.wms.GetCapabilitiesRequest;
 
 /**
- * Base class that handles common behavior between 1.1.1 and 1.3.0
+ * Base class that handles common behavior between 1.1.1 and 1.3.0, including the lookup of the
+ * documents in the {@link CapabilitiesCache}
  *
  * @author Simone Giannecchini, GeoSolutions
  */
@@ -24,6 +30,44 @@ protected BaseCapabilitiesResponse(Class<?> binding, String mime) {
         this.mime = mime;
     }
 
+    /**
+     * Writes the capabilities document, returning the cached copy if the {@link CapabilitiesCache}
+     * is enabled, or delegating to {@link #encode(Object, GetCapabilitiesRequest, OutputStream)}
+     * otherwise
+     */
+    @Override
+    public void write(final Object value, final OutputStream output, final Operation operation)
+            throws IOException, ServiceException {
+        final GetCapabilitiesRequest request =
+                (GetCapabilitiesRequest) operation.getParameters()[0];
+
+        CapabilitiesCache cache = GeoServerExtensions.bean(CapabilitiesCache.class);
+        if (cache == null || !cache.isEnabled()) {
+            encode(value, request, output);
+        } else {
+            byte[] document =
+                    cache.getDocument(
+                            request,
+                            () -> {
+                                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                                encode(value, request, bos);
+                                return bos.toByteArray();
+                            });
+            output.write(document);
+        }
+    }
+
+    /**
+     * Encodes the capabilities document
+     *
+     * @param value the capabilities transformer
+     * @param request the capabilities request
+     * @param output destination
+     */
+    protected abstract void encode(
+            Object value, GetCapabilitiesRequest request, OutputStream output)
+            throws IOException, ServiceException;
+
     @Override
     public String getAttachmentFileName(Object value, Operation operation) {
         return "getcapabilities_" + operation.getService().getVersion().toString() + ".xml";
@@ -0,0 +1,292 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.capabilities;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import org.geoserver.catalog.PublishedInfo;
+import org.geoserver.catalog.WorkspaceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
+import org.geoserver.config.ConfigurationListenerAdapter;
+import org.geoserver.config.GeoServer;
+import org.geoserver.config.GeoServerInfo;
+import org.geoserver.config.ServiceInfo;
+import org.geoserver.config.SettingsInfo;
+import org.geoserver.ows.Dispatcher;
+import org.geoserver.ows.LocalPublished;
+import org.geoserver.ows.LocalWorkspace;
+import org.geoserver.ows.ProxifyingURLMangler;
+import org.geoserver.ows.Request;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.platform.ServiceException;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
+import org.geoserver.wms.GetCapabilitiesRequest;
+import org.geoserver.wms.WMSInfo;
+import org.geotools.util.logging.Logging;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Caches the encoded WMS capabilities documents, which can take seconds to build on catalogs with
+ * thousands of layers.
+ *
+ * <p>Documents are keyed by the request version and parameters, the virtual service the request is
+ * targeting (workspace and layer), the headers that can influence the proxy base URL, and the
+ * security principal. Anonymous requests share the same entries, authenticated users are keyed by
+ * their roles and name, as resource access managers can grant access on a user basis.
+ *
+ * <p>The whole cache is invalidated on any catalog change, and on changes to the global settings,
+ * the workspace settings and the WMS configuration. Dimension domains and extended capabilities
+ * (e.g., tile caching) can change without catalog events, so entries also expire after a
+ * configurable time to live. The cache is disabled by default, set {@link #CACHE_TTL_KEY} to a
+ * positive value to enable it.
+ */
+public class CapabilitiesCache implements CacheStatisticsProvider {
+
+    static final Logger LOGGER = Logging.getLogger(CapabilitiesCache.class);
+
+    /**
+     * System property, environment variable or servlet context parameter setting the time to live
+     * of the cached documents, in seconds. Zero, the default, disables the cache
+     */
+    public static final String CACHE_TTL_KEY = "GEOSERVER_WMS_CAPABILITIES_CACHE_TTL";
+
+    /**
+     * System property, environment variable or servlet context parameter setting the maximum amount
+     * of memory used by the cached documents, in megabytes
+     */
+    public static final String CACHE_SIZE_KEY = "GEOSERVER_WMS_CAPABILITIES_CACHE_SIZE";
+
+    /** Default cache size, 32MB */
+    static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+
+    private final Cache<String, byte[]> cache;
+
+    private final long ttl;
+
+    private final long maxSize;
+
+    public CapabilitiesCache(GeoServer geoServer) {
+        this(lookup(CACHE_TTL_KEY, 0), lookup(CACHE_SIZE_KEY, DEFAULT_MAX_SIZE / 1024 / 1024));
+        geoServer.addListener(new ConfigurationInvalidator());
+        geoServer.getCatalog().addListener(new CatalogInvalidator());
+    }
+
+    /**
+     * Builds the cache
+     *
+     * @param ttl the time to live, in seconds, zero or negative to disable the cache
+     * @param maxSize the maximum size, in megabytes
+     */
+    CapabilitiesCache(long ttl, long maxSize) {
+        this.ttl = ttl;
+        this.maxSize = maxSize * 1024 * 1024;
+        this.cache =
+                CacheBuilder.newBuilder()
+                        .expireAfterWrite(Math.max(ttl, 0), TimeUnit.SECONDS)
+                        .maximumWeight(this.maxSize)
+                        .<String, byte[]>weigher((k, v) -> k.length() * 2 + v.length)
+                        .recordStats()
+                        .build();
+    }
+
+    static long lookup(String key, long defaultValue) {
+        String value = GeoServerExtensions.getProperty(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.log(
+                        Level.WARNING, "Invalid value for " + key + ": " + value + ", ignoring", e);
+            }
+        }
+        return defaultValue;
+    }
+
+    /** Returns true if the cache is enabled */
+    public boolean isEnabled() {
+        return ttl > 0 && maxSize > 0;
+    }
+
+    /**
+     * Returns the cached document for the given request, or encodes it with the provided encoder
+     * and caches it. Concurrent requests for the same document wait for the first one to encode it.
+     */
+    public byte[] getDocument(GetCapabilitiesRequest request, Callable<byte[]> encoder)
+            throws IOException, ServiceException {
+        try {
+            return cache.get(getKey(request), encoder);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ServiceException) {
+                throw (ServiceException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ServiceException(cause);
+        }
+    }
+
+    /** Builds the cache key for the given request, using the current request context */
+    String getKey(GetCapabilitiesRequest request) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(request.getVersion()).append('|').append(request.getBaseUrl());
+        sb.append("|namespace=").append(request.getNamespace());
+        sb.append("|rootLayer=").append(request.isRootLayerEnabled());
+        String[] languages = request.getAcceptLanguages();
+        sb.append("|languages=").append(languages == null ? "" : Arrays.toString(languages));
+        if (request.getRawKvp() != null) {
+            // case insensitive and sorted, so that parameter order does not matter
+            Map<String, String> kvp = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            kvp.putAll(request.getRawKvp());
+            sb.append('|').append(kvp);
+        }
+
+        WorkspaceInfo ws = LocalWorkspace.get();
+        PublishedInfo published = LocalPublished.get();
+        sb.append("|ws=").append(ws == null ? "" : ws.getName());
+        sb.append("|published=").append(published == null ? "" : published.prefixedName());
+
+        Request owsRequest = Dispatcher.REQUEST.get();
+        HttpServletRequest http = owsRequest == null ? null : owsRequest.getHttpRequest();
+        if (http != null) {
+            for (ProxifyingURLMangler.Headers header : ProxifyingURLMangler.Headers.values()) {
+                String value = http.getHeader(header.asString());
+                if (value != null) {
+                    sb.append('|').append(header.asString()).append('=').append(value);
+                }
+            }
+        }
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && !(auth instanceof AnonymousAuthenticationToken)) {
+            TreeSet<String> roles = new TreeSet<>();
+            for (GrantedAuthority authority : auth.getAuthorities()) {
+                roles.add(authority.getAuthority());
+            }
+            sb.append("|user=").append(auth.getName()).append("|roles=").append(roles);
+        }
+
+        return sb.toString();
+    }
+
+    /** Removes all the cached documents */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        CacheStatistics stats =
+                CacheStatistics.of(
+                        "wmsCapabilitiesCache", "WMS capabilities documents, size in bytes", cache);
+        long weight = 0;
+        for (Map.Entry<String, byte[]> entry : cache.asMap().entrySet()) {
+            weight += entry.getKey().length() * 2 + entry.getValue().length;
+        }
+        stats.setWeight(weight);
+        stats.setMaxWeight(maxSize);
+        return Collections.singletonList(stats);
+    }
+
+    /** Clears the cache on any catalog change */
+    class CatalogInvalidator implements CatalogListener {
+
+        @Override
+        public void handleAddEvent(CatalogAddEvent event) {
+            clear();
+        }
+
+        @Override
+        public void handleRemoveEvent(CatalogRemoveEvent event) {
+            clear();
+        }
+
+        @Override
+        public void handleModifyEvent(CatalogModifyEvent event) {
+            // wait for the post modify event
+        }
+
+        @Override
+        public void handlePostModifyEvent(CatalogPostModifyEvent event) {
+            clear();
+        }
+
+        @Override
+        public void reloaded() {
+            clear();
+        }
+    }
+
+    /** Clears the cache on changes to the configuration objects used in the documents */
+    class ConfigurationInvalidator extends ConfigurationListenerAdapter {
+
+        @Override
+        public void handlePostGlobalChange(GeoServerInfo global) {
+            clear();
+        }
+
+        @Override
+        public void handleSettingsAdded(SettingsInfo settings) {
+            clear();
+        }
+
+        @Override
+        public void handleSettingsPostModified(SettingsInfo settings) {
+            clear();
+        }
+
+        @Override
+        public void handleSettingsRemoved(SettingsInfo settings) {
+            clear();
+        }
+
+        @Override
+        public void handlePostServiceChange(ServiceInfo service) {
+            // other services are not referenced by the WMS capabilities
+            if (service instanceof WMSInfo) {
+                clear();
+            }
+        }
+
+        @Override
+        public void handleServiceRemove(ServiceInfo service) {
+            if (service instanceof WMSInfo) {
+                clear();
+            }
+        }
+
+        @Override
+        public void reloaded() {
+            clear();
+        }
+    }
+}
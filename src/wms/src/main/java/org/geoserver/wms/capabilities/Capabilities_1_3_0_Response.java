@@ -9,7 +9,6 @@
 import java.io.OutputStream;
 import javax.xml.transform.TransformerException;
 import org.geoserver.ows.Response;
-import org.geoserver.platform.Operation;
 import org.geoserver.platform.ServiceException;
 import org.geoserver.wms.GetCapabilities;
 import org.geoserver.wms.GetCapabilitiesRequest;
@@ -27,19 +26,17 @@ public Capabilities_1_3_0_Response() {
 
     /**
      * @param value {@link Capabilities_1_3_0_Transformer}
+     * @param request The capabilities request
      * @param output destination
-     * @param operation The operation identifier which resulted in <code>value</code>
-     * @see org.geoserver.ows.Response#write(java.lang.Object, java.io.OutputStream,
-     *     org.geoserver.platform.Operation)
      */
     @Override
-    public void write(final Object value, final OutputStream output, final Operation operation)
+    protected void encode(
+            final Object value, final GetCapabilitiesRequest request, final OutputStream output)
             throws IOException, ServiceException {
 
         Capabilities_1_3_0_Transformer transformer = (Capabilities_1_3_0_Transformer) value;
 
         try {
-            GetCapabilitiesRequest request = (GetCapabilitiesRequest) operation.getParameters()[0];
             transformer.transform(request, output);
         } catch (TransformerException e) {
             throw new ServiceException(e);
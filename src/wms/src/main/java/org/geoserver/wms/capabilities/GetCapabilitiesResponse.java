@@ -83,18 +83,15 @@ public GetCapabilitiesResponse(final WMS wms) {
 
     /**
      * @param value {@link GetCapabilitiesTransformer}
+     * @param request The capabilities request
      * @param output destination
-     * @param operation The operation identifier which resulted in <code>value</code>
-     * @see org.geoserver.ows.Response#write(java.lang.Object, java.io.OutputStream,
-     *     org.geoserver.platform.Operation)
      */
     @Override
-    public void write(final Object value, final OutputStream output, final Operation operation)
+    protected void encode(
+            final Object value, final GetCapabilitiesRequest request, final OutputStream output)
             throws IOException, ServiceException {
 
         final GetCapabilitiesTransformer transformer = (GetCapabilitiesTransformer) value;
-        final GetCapabilitiesRequest request =
-                (GetCapabilitiesRequest) operation.getParameters()[0];
 
         final String internalDTDDeclaration = getInternalDTDDeclaration(request);
 
@@ -0,0 +1,300 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.geoserver.ows.Dispatcher;
+import org.geoserver.ows.Request;
+import org.geoserver.ows.Response;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.platform.Operation;
+import org.geoserver.wms.GetMapRequest;
+import org.geoserver.wms.WebMap;
+import org.geoserver.wms.WebMapService;
+import org.geotools.util.logging.Logging;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * {@link WebMapService#getMap(GetMapRequest)} method interceptor collapsing concurrent identical
+ * requests.
+ *
+ * <p>The first request for a given map (same path, parameters, user and language) renders it, the
+ * identical requests arriving while it's still being rendered wait for it and share its result.
+ * When there are requests waiting, the first one encodes the map in memory, and all of them return
+ * a {@link RawMap} with the same contents. When there are none, the map is returned as is, so the
+ * interceptor does not add overhead to requests that are not duplicated.
+ *
+ * <p>The interceptor is placed before the GeoWebCache direct integration, so it applies to both
+ * dynamic and cached maps. It can be disabled by setting the {@link #COLLAPSING_KEY} system
+ * property to false. The requests waiting for longer than the {@link #COLLAPSING_TIMEOUT_KEY}
+ * system property (one minute by default) render the map on their own.
+ */
+public class GetMapCollapser implements MethodInterceptor {
+
+    static final Logger LOGGER = Logging.getLogger(GetMapCollapser.class);
+
+    /** System property that can be used to disable the request collapsing */
+    public static final String COLLAPSING_KEY = "org.geoserver.wms.getMapCollapsing";
+
+    /**
+     * System property setting how long, in milliseconds, a request waits for an identical one
+     * before rendering the map on its own
+     */
+    public static final String COLLAPSING_TIMEOUT_KEY = "org.geoserver.wms.getMapCollapsingTimeout";
+
+    static final long DEFAULT_TIMEOUT = 60000;
+
+    /**
+     * Parameter added by GeoWebCache to the meta tile requests, these need the rendered image and
+     * cannot be collapsed (GeoWebCache already avoids rendering the same meta tile twice)
+     */
+    static final String GWC_SEED_INTERCEPT_TOKEN = "GWC_SEED_INTERCEPT";
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+
+    private final long timeout;
+
+    private final LongAdder collapsed = new LongAdder();
+
+    public GetMapCollapser() {
+        this(
+                !"false".equalsIgnoreCase(GeoServerExtensions.getProperty(COLLAPSING_KEY)),
+                getTimeout());
+    }
+
+    GetMapCollapser(boolean enabled) {
+        this(enabled, DEFAULT_TIMEOUT);
+    }
+
+    GetMapCollapser(boolean enabled, long timeout) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+    }
+
+    private static long getTimeout() {
+        String value = GeoServerExtensions.getProperty(COLLAPSING_TIMEOUT_KEY);
+        if (value != null) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Invalid " + COLLAPSING_TIMEOUT_KEY + " value: " + value);
+            }
+        }
+        return DEFAULT_TIMEOUT;
+    }
+
+    /** Returns true if the collapsing is enabled */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns the number of requests that have been served using another request result */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Request owsRequest = Dispatcher.REQUEST.get();
+        String key = enabled ? getKey(invocation, owsRequest) : null;
+        if (key == null) {
+            return invocation.proceed();
+        }
+
+        InFlight created = new InFlight();
+        InFlight existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            if (existing.join()) {
+                SharedMap shared = existing.await(timeout);
+                if (shared != null) {
+                    collapsed.increment();
+                    return shared.newMap();
+                }
+            }
+            // the other request failed, took too long, or was done already, render the map
+            return invocation.proceed();
+        }
+
+        SharedMap shared = null;
+        try {
+            WebMap map = (WebMap) invocation.proceed();
+            // no more requests can join from here on
+            int waiting = created.close();
+            inFlight.remove(key, created);
+            if (map == null || waiting == 0) {
+                return map;
+            }
+            shared = encode(map, owsRequest.getOperation());
+            if (shared == null) {
+                return map;
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Sharing map with " + waiting + " identical requests: " + key);
+            }
+            return shared.newMap();
+        } finally {
+            created.close();
+            inFlight.remove(key, created);
+            created.complete(shared);
+        }
+    }
+
+    /**
+     * Builds the key identifying identical requests, or returns null if the request cannot be
+     * collapsed
+     */
+    String getKey(MethodInvocation invocation, Request owsRequest) {
+        Object[] arguments = invocation.getArguments();
+        if (owsRequest == null
+                || owsRequest.getOperation() == null
+                || arguments.length != 1
+                || !(arguments[0] instanceof GetMapRequest)) {
+            return null;
+        }
+        GetMapRequest request = (GetMapRequest) arguments[0];
+        Map<String, String> rawKvp = request.getRawKvp();
+        if (rawKvp == null || rawKvp.isEmpty() || rawKvp.containsKey(GWC_SEED_INTERCEPT_TOKEN)) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        // virtual services
+        sb.append(owsRequest.getContext()).append('/').append(owsRequest.getPath());
+        // the user, the map contents depend on its permissions
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        sb.append('|').append(auth == null ? "" : auth.getName());
+        HttpServletRequest httpRequest = owsRequest.getHttpRequest();
+        if (httpRequest != null) {
+            sb.append('|').append(httpRequest.getHeader("Accept-Language"));
+        }
+        // normalized parameters
+        Map<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<String, String> entry : rawKvp.entrySet()) {
+            sorted.put(entry.getKey().toUpperCase(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            sb.append('|').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /** Encodes the map in memory, returns null if no response able to encode it could be found */
+    SharedMap encode(WebMap map, Operation operation) throws Exception {
+        Response response = null;
+        List<Response> responses = GeoServerExtensions.extensions(Response.class);
+        for (Response r : responses) {
+            if (r.getBinding().isAssignableFrom(map.getClass())
+                    && r.canHandle(operation)
+                    && (response == null
+                            || response.getBinding().isAssignableFrom(r.getBinding()))) {
+                response = r;
+            }
+        }
+        if (response == null) {
+            return null;
+        }
+
+        SharedMap shared = new SharedMap();
+        shared.mimeType = response.getMimeType(map, operation);
+        shared.headers = response.getHeaders(map, operation);
+        shared.disposition = response.getPreferredDisposition(map, operation);
+        shared.fileName = response.getAttachmentFileName(map, operation);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        // disposes the map
+        response.write(map, bos, operation);
+        shared.contents = bos.toByteArray();
+        return shared;
+    }
+
+    /** A map being rendered, and the requests waiting for it */
+    static final class InFlight {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private int waiting;
+
+        private boolean closed;
+
+        private volatile SharedMap result;
+
+        /** Registers a request waiting for the map, returns false if it's too late to join */
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            waiting++;
+            return true;
+        }
+
+        /** Stops accepting requests, returns the number of requests waiting */
+        synchronized int close() {
+            closed = true;
+            return waiting;
+        }
+
+        void complete(SharedMap result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        /** Waits for the map, returns null if it failed or is not ready within the timeout */
+        SharedMap await(long timeout) throws InterruptedException {
+            if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+            return result;
+        }
+    }
+
+    /** The encoded map, shared between the identical requests */
+    static final class SharedMap {
+
+        byte[] contents;
+
+        String mimeType;
+
+        String[][] headers;
+
+        String disposition;
+
+        String fileName;
+
+        WebMap newMap() {
+            RawMap map =
+                    new RawMap(null, contents, mimeType) {
+                        @Override
+                        public String getDisposition() {
+                            return disposition;
+                        }
+
+                        @Override
+                        public String getAttachmentFileName() {
+                            return fileName;
+                        }
+                    };
+            if (headers != null) {
+                for (String[] header : headers) {
+                    map.setResponseHeader(header[0], header[1]);
+                }
+            }
+            return map;
+        }
+    }
+}
@@ -20,6 +20,9 @@
 import org.geoserver.wms.WMS;
 import org.geoserver.wms.WMSMapContent;
 import org.geoserver.wms.map.png.PNGJWriter;
+import org.geoserver.wms.map.png.ParallelPNGWriter;
+import org.geoserver.wms.map.png.ZlibCompressor;
+import org.geoserver.wms.map.png.ZlibPNGWriter;
 import org.geotools.image.ImageWorker;
 import org.geotools.util.logging.Logging;
 
@@ -98,7 +101,19 @@ public void formatImageOutputStream(
         float quality = (100 - wms.getPngCompression()) / 100.0f;
         JAIInfo.PngEncoderType encoder = wms.getPNGEncoderType();
         if (encoder == JAIInfo.PngEncoderType.PNGJ) {
-            image = new PNGJWriter().writePNG(image, outStream, quality, mapContent);
+            PNGJWriter writer = new PNGJWriter();
+            if (wms.isPNGParallelEncoding()
+                    && (long) image.getWidth() * image.getHeight()
+                            >= wms.getPNGParallelThreshold()) {
+                writer = new ParallelPNGWriter();
+            } else {
+                // use a native compressor if available, e.g., the libdeflate one
+                ZlibCompressor compressor = ZlibPNGWriter.lookupCompressor(quality);
+                if (compressor != null) {
+                    writer = new ZlibPNGWriter(compressor);
+                }
+            }
+            image = writer.writePNG(image, outStream, quality, mapContent);
             RasterCleaner.addImage(image);
         } else {
             Boolean PNGNativeAcc = (encoder == JAIInfo.PngEncoderType.NATIVE);
@@ -7,33 +7,83 @@
 
 import java.awt.Point;
 import java.awt.geom.Point2D;
+import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.namespace.QName;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.geoserver.catalog.CatalogInfo;
+import org.geoserver.catalog.LayerInfo;
+import org.geoserver.catalog.ResourceInfo;
+import org.geoserver.catalog.event.CatalogAddEvent;
+import org.geoserver.catalog.event.CatalogEvent;
+import org.geoserver.catalog.event.CatalogListener;
+import org.geoserver.catalog.event.CatalogModifyEvent;
+import org.geoserver.catalog.event.CatalogPostModifyEvent;
+import org.geoserver.catalog.event.CatalogRemoveEvent;
 import org.geoserver.config.ConfigurationListenerAdapter;
 import org.geoserver.config.GeoServer;
 import org.geoserver.config.GeoServerInfo;
 import org.geoserver.config.ServiceInfo;
 import org.geoserver.config.impl.GeoServerLifecycleHandler;
+import org.geoserver.platform.GeoServerExtensions;
 import org.geoserver.platform.ServiceException;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.system.status.CacheStatisticsProvider;
 import org.geoserver.wfs.TransactionEvent;
 import org.geoserver.wfs.TransactionListener;
 import org.geoserver.wfs.WFSException;
 import org.geoserver.wms.GetMapRequest;
+import org.geoserver.wms.MapLayerInfo;
+import org.geoserver.wms.WMSInfo;
+import org.geotools.feature.NameImpl;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.CRS.AxisOrder;
 import org.geotools.util.CanonicalSet;
+import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.type.Name;
+
+/**
+ * Caches the meta-tiles rendered for tiled=true GetMap requests, so that the other tiles of the
+ * same meta-tile can be served without rendering again.
+ *
+ * <p>The cache is bounded by the amount of memory used by the tiles images, set with the {@link
+ * #CACHE_SIZE_KEY} variable, and evicts the least recently used meta-tiles when full. Cached
+ * meta-tiles are invalidated on a per layer basis when the layer data is modified by a WFS
+ * transaction, or its configuration is changed in the catalog.
+ */
+public class QuickTileCache
+        implements TransactionListener, GeoServerLifecycleHandler, CacheStatisticsProvider {
+
+    static final Logger LOGGER = Logging.getLogger(QuickTileCache.class);
+
+    /**
+     * System property, environment variable or servlet context parameter setting the maximum amount
+     * of memory used by the cached meta-tiles, in megabytes
+     */
+    public static final String CACHE_SIZE_KEY = "GEOSERVER_METATILE_CACHE_SIZE";
+
+    /** Default cache size, 64MB, enough for a few dozens of 768x768 RGBA meta-tiles */
+    static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
 
-public class QuickTileCache implements TransactionListener, GeoServerLifecycleHandler {
     /**
      * Set of parameters that we can ignore, since they do not define a map, are either unrelated,
      * or define the tiling instead
@@ -55,9 +105,27 @@ public class QuickTileCache implements TransactionListener, GeoServerLifecycleHa
     /** Canonicalizer used to return the same object when two threads ask for the same meta-tile */
     private CanonicalSet<MetaTileKey> metaTileKeys = CanonicalSet.newInstance(MetaTileKey.class);
 
-    private WeakHashMap<MetaTileKey, CacheElement> tileCache = new WeakHashMap<>();
+    private final Map<MetaTileKey, CacheElement> tileCache = new ConcurrentHashMap<>();
+
+    /** Amount of memory used by the cached tiles */
+    private final AtomicLong size = new AtomicLong();
+
+    /** Logical clock used to track the last access to each element */
+    private final AtomicLong clock = new AtomicLong();
+
+    /** Ensures a single thread at a time performs evictions, the others do not wait on it */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final long maxSize;
 
     public QuickTileCache(GeoServer geoServer) {
+        this(lookupMaxSize());
         geoServer.addListener(
                 new ConfigurationListenerAdapter() {
                     @Override
@@ -66,7 +134,7 @@ public void handleGlobalChange(
                             List<String> propertyNames,
                             List<Object> oldValues,
                             List<Object> newValues) {
-                        tileCache.clear();
+                        clear();
                     }
 
                     @Override
@@ -75,18 +143,44 @@ public void handleServiceChange(
                             List<String> propertyNames,
                             List<Object> oldValues,
                             List<Object> newValues) {
-                        tileCache.clear();
+                        // other services do not affect rendering
+                        if (service instanceof WMSInfo) {
+                            clear();
+                        }
                     }
 
                     @Override
                     public void reloaded() {
-                        tileCache.clear();
+                        clear();
                     }
                 });
+        geoServer.getCatalog().addListener(new CacheInvalidator());
+    }
+
+    /** For testing only */
+    QuickTileCache() {
+        this(DEFAULT_MAX_SIZE);
     }
 
     /** For testing only */
-    QuickTileCache() {}
+    QuickTileCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    static long lookupMaxSize() {
+        String value = GeoServerExtensions.getProperty(CACHE_SIZE_KEY);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim()) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Invalid value for " + CACHE_SIZE_KEY + ": " + value + ", using default",
+                        e);
+            }
+        }
+        return DEFAULT_MAX_SIZE;
+    }
 
     /**
      * Given a tiled request, builds a key that can be used to access the cache looking for a
@@ -112,7 +206,11 @@ public MetaTileKey getMetaTileKey(GetMapRequest request) {
             }
         }
         MapKey mapKey =
-                new MapKey(mapDefinition, normalize(bbox.getWidth() / request.getWidth()), origin);
+                new MapKey(
+                        mapDefinition,
+                        normalize(bbox.getWidth() / request.getWidth()),
+                        origin,
+                        getLayerNames(request));
         Point tileCoords = getTileCoordinates(bbox, origin);
         Point metaTileCoords = getMetaTileCoordinates(tileCoords);
         ReferencedEnvelope metaTileEnvelope = getMetaTileEnvelope(bbox, tileCoords, metaTileCoords);
@@ -189,6 +287,18 @@ static double normalize(double d) {
         return Math.round(d * 10e6) / 10e6;
     }
 
+    /** Collects the qualified names of the local layers used by the request */
+    private Set<Name> getLayerNames(GetMapRequest request) {
+        Set<Name> names = new HashSet<>();
+        for (MapLayerInfo layer : request.getLayers()) {
+            LayerInfo info = layer.getLayerInfo();
+            if (info != null && info.getResource() != null) {
+                names.add(info.getResource().getQualifiedName());
+            }
+        }
+        return names;
+    }
+
     /** Turns the request back into a sort of GET request (not url-encoded) for fast comparison */
     private String buildMapDefinition(Map<String, String> map) {
         StringBuffer sb = new StringBuffer();
@@ -221,11 +331,19 @@ static class MapKey {
 
         Point2D origin;
 
+        /** The layers in the map, not part of the key identity as they are in the definition */
+        Set<Name> layers;
+
         public MapKey(String mapDefinition, double resolution, Point2D origin) {
+            this(mapDefinition, resolution, origin, Collections.emptySet());
+        }
+
+        public MapKey(String mapDefinition, double resolution, Point2D origin, Set<Name> layers) {
             super();
             this.mapDefinition = mapDefinition;
             this.resolution = resolution;
             this.origin = origin;
+            this.layers = layers;
         }
 
         @Override
@@ -328,12 +446,15 @@ public String toString() {
     }
 
     /** Gathers a tile from the cache, if available */
-    public synchronized RenderedImage getTile(MetaTileKey key, GetMapRequest request) {
+    public RenderedImage getTile(MetaTileKey key, GetMapRequest request) {
         CacheElement ce = tileCache.get(key);
 
         if (ce == null) {
+            misses.increment();
             return null;
         }
+        hits.increment();
+        ce.lastAccess = clock.incrementAndGet();
 
         return getTile(key, request, ce.tiles);
     }
@@ -351,38 +472,128 @@ public RenderedImage getTile(MetaTileKey key, GetMapRequest request, RenderedIma
     }
 
     /**
-     * Puts the specified tile array in the cache, and returns the tile the request was looking for
+     * Puts the specified tile array in the cache, evicting the least recently used meta-tiles if
+     * the cache grows beyond its maximum size
      */
-    public synchronized void storeTiles(MetaTileKey key, RenderedImage[] tiles) {
-        tileCache.put(key, new CacheElement(tiles));
+    public void storeTiles(MetaTileKey key, RenderedImage[] tiles) {
+        CacheElement element = new CacheElement(tiles, clock.incrementAndGet());
+        if (element.weight > maxSize) {
+            return;
+        }
+        CacheElement previous = tileCache.put(key, element);
+        size.addAndGet(element.weight - (previous != null ? previous.weight : 0));
+        evictIfNeeded();
+    }
+
+    /** Removes the least recently used elements until the cache fits its maximum size */
+    void evictIfNeeded() {
+        if (size.get() <= maxSize || !evictionLock.tryLock()) {
+            // within bounds, or another thread is already taking care of it
+            return;
+        }
+        try {
+            List<Map.Entry<MetaTileKey, CacheElement>> entries =
+                    new ArrayList<>(tileCache.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Iterator<Map.Entry<MetaTileKey, CacheElement>> it = entries.iterator();
+                    it.hasNext() && size.get() > maxSize; ) {
+                Map.Entry<MetaTileKey, CacheElement> entry = it.next();
+                if (remove(entry.getKey(), entry.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean remove(MetaTileKey key, CacheElement element) {
+        if (tileCache.remove(key, element)) {
+            size.addAndGet(-element.weight);
+            return true;
+        }
+        return false;
+    }
+
+    /** Removes all the meta-tiles containing the specified layer */
+    void invalidate(Name layerName) {
+        for (Map.Entry<MetaTileKey, CacheElement> entry : tileCache.entrySet()) {
+            if (entry.getKey().mapKey.layers.contains(layerName)) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /** Removes all the cached meta-tiles */
+    void clear() {
+        for (Map.Entry<MetaTileKey, CacheElement> entry : tileCache.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** Returns the amount of memory used by the cached tiles, in bytes */
+    long getSize() {
+        return size.get();
+    }
+
+    @Override
+    public List<CacheStatistics> getCacheStatistics() {
+        CacheStatistics stats =
+                new CacheStatistics("metaTileCache", "WMS tiled=true meta-tiles, size in bytes");
+        stats.setSize(tileCache.size());
+        stats.setWeight(size.get());
+        stats.setMaxWeight(maxSize);
+        stats.setHitCount(hits.sum());
+        stats.setMissCount(misses.sum());
+        stats.setEvictionCount(evictions.sum());
+        return Collections.singletonList(stats);
     }
 
-    class CacheElement {
+    static class CacheElement {
         RenderedImage[] tiles;
 
-        public CacheElement(RenderedImage[] tiles) {
+        long weight;
+
+        volatile long lastAccess;
+
+        public CacheElement(RenderedImage[] tiles, long lastAccess) {
             this.tiles = tiles;
+            this.lastAccess = lastAccess;
+            for (RenderedImage tile : tiles) {
+                weight += getWeight(tile);
+            }
+        }
+
+        /** Estimates the memory used by the image pixels */
+        static long getWeight(RenderedImage image) {
+            SampleModel sm = image.getSampleModel();
+            long bytesPerElement = DataBuffer.getDataTypeSize(sm.getDataType()) / 8;
+            return (long) image.getWidth()
+                    * image.getHeight()
+                    * sm.getNumDataElements()
+                    * Math.max(1, bytesPerElement);
         }
     }
 
     @Override
     public void dataStoreChange(TransactionEvent event) throws WFSException {
-        // if anything changes we just wipe out the cache. the mapkey
-        // contains a string with part of the map request where the layer
-        // name is included, but we would have to parse it and consider
-        // also that the namespace may be missing in the getmap request
-        tileCache.clear();
+        QName layerName = event.getLayerName();
+        if (layerName == null) {
+            clear();
+        } else {
+            invalidate(new NameImpl(layerName.getNamespaceURI(), layerName.getLocalPart()));
+        }
     }
 
     @Override
     public void onReset() {
         // data might have changed in the meantime
-        tileCache.clear();
+        clear();
     }
 
     @Override
     public void onDispose() {
-        tileCache.clear();
+        clear();
     }
 
     @Override
@@ -392,6 +603,54 @@ public void beforeReload() {
 
     @Override
     public void onReload() {
-        tileCache.clear();
+        clear();
+    }
+
+    /**
+     * Drops the meta-tiles affected by catalog changes. Changes to resources and layers only affect
+     * the maps containing them, anything else (styles, groups, stores, workspaces) is harder to
+     * track down and wipes out the whole cache.
+     */
+    class CacheInvalidator implements CatalogListener {
+
+        @Override
+        public void handleAddEvent(CatalogAddEvent event) {
+            // new objects cannot be part of any cached map
+        }
+
+        @Override
+        public void handleRemoveEvent(CatalogRemoveEvent event) {
+            invalidate(event);
+        }
+
+        @Override
+        public void handleModifyEvent(CatalogModifyEvent event) {
+            invalidate(event);
+        }
+
+        @Override
+        public void handlePostModifyEvent(CatalogPostModifyEvent event) {
+            // tiles might have been rendered while the change was being applied
+            invalidate(event);
+        }
+
+        @Override
+        public void reloaded() {
+            clear();
+        }
+
+        private void invalidate(CatalogEvent event) {
+            CatalogInfo source = event.getSource();
+            if (source instanceof ResourceInfo) {
+                QuickTileCache.this.invalidate(((ResourceInfo) source).getQualifiedName());
+            } else if (source instanceof LayerInfo) {
+                ResourceInfo resource = ((LayerInfo) source).getResource();
+                if (resource != null) {
+                    QuickTileCache.this.invalidate(resource.getQualifiedName());
+                }
+            } else {
+                clear();
+            }
+        }
     }
 }
@@ -9,6 +9,9 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import org.apache.commons.io.IOUtils;
 import org.geoserver.wms.WMSMapContent;
 import org.geoserver.wms.WebMap;
@@ -27,6 +30,8 @@ public class RawMap extends WebMap {
 
     private InputStream stream;
 
+    private FileChannel channel;
+
     public RawMap(final WMSMapContent mapContent, final byte[] mapContents, final String mimeType) {
         super(mapContent);
         this.mapContents = mapContents;
@@ -48,6 +53,17 @@ public RawMap(final WMSMapContent mapContent, final InputStream stream, final St
         setMimeType(mimeType);
     }
 
+    /**
+     * Builds a map streaming the contents of a file, without loading it in memory. The channel is
+     * closed when the map is disposed.
+     */
+    public RawMap(
+            final WMSMapContent mapContent, final FileChannel channel, final String mimeType) {
+        super(mapContent);
+        this.channel = channel;
+        setMimeType(mimeType);
+    }
+
     public void writeTo(OutputStream out) throws IOException {
         if (mapContents != null) {
             out.write(mapContents);
@@ -55,6 +71,17 @@ public void writeTo(OutputStream out) throws IOException {
             buffer.writeTo(out);
         } else if (stream != null) {
             IOUtils.copy(stream, out);
+        } else if (channel != null) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
         } else {
             throw new IllegalStateException();
         }
@@ -71,5 +98,12 @@ public void disposeInternal() {
                 //
             }
         }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (Exception ignore) {
+                //
+            }
+        }
     }
 }
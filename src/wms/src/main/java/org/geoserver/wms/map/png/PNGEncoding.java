@@ -0,0 +1,214 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map.png;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Low level PNG encoding helpers shared by the writers that filter and compress the image data
+ * themselves, rather than delegating to PNGJ. Only 8 bits per sample, pixel interleaved, gray, RGB
+ * and paletted images are supported, see {@link #isSupported(RenderedImage)}.
+ */
+final class PNGEncoding {
+
+    static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    static final byte FILTER_NONE = 0;
+
+    static final byte FILTER_SUB = 1;
+
+    static final int COLOR_GRAY = 0;
+
+    static final int COLOR_RGB = 2;
+
+    static final int COLOR_PALETTE = 3;
+
+    static final int COLOR_GRAY_ALPHA = 4;
+
+    static final int COLOR_RGB_ALPHA = 6;
+
+    private PNGEncoding() {}
+
+    /** Returns true if the image layout is supported */
+    static boolean isSupported(RenderedImage image) {
+        SampleModel sm = image.getSampleModel();
+        ColorModel cm = image.getColorModel();
+        if (!(sm instanceof ComponentSampleModel)
+                || sm.getDataType() != DataBuffer.TYPE_BYTE
+                || cm == null) {
+            return false;
+        }
+        for (int size : sm.getSampleSize()) {
+            if (size != 8) {
+                return false;
+            }
+        }
+        return getColorType(sm, cm) >= 0;
+    }
+
+    /** Returns the PNG color type matching the image, or -1 if not supported */
+    static int getColorType(SampleModel sm, ColorModel cm) {
+        int bands = sm.getNumBands();
+        if (cm instanceof IndexColorModel) {
+            return bands == 1 ? COLOR_PALETTE : -1;
+        } else if (cm instanceof ComponentColorModel && !cm.isAlphaPremultiplied()) {
+            int csType = cm.getColorSpace().getType();
+            if (csType == ColorSpace.TYPE_GRAY && bands == 1) {
+                return COLOR_GRAY;
+            } else if (csType == ColorSpace.TYPE_GRAY && bands == 2 && cm.hasAlpha()) {
+                return COLOR_GRAY_ALPHA;
+            } else if (csType == ColorSpace.TYPE_RGB && bands == 3) {
+                return COLOR_RGB;
+            } else if (csType == ColorSpace.TYPE_RGB && bands == 4 && cm.hasAlpha()) {
+                return COLOR_RGB_ALPHA;
+            }
+        }
+        return -1;
+    }
+
+    /** Maps the WMS PNG quality, between 0 and 1, to a deflate level, same as PNGJ */
+    static int getDeflateLevel(float quality) {
+        return Math.round(9 * (1f - quality));
+    }
+
+    /** Returns the size in bytes of a filtered row, including the filter type byte */
+    static int getRowSize(RenderedImage image) {
+        return image.getWidth() * image.getSampleModel().getNumBands() + 1;
+    }
+
+    /**
+     * Writes the PNG signature and the chunks preceding the image data (header, palette and palette
+     * transparency)
+     */
+    static void writeHeader(RenderedImage image, OutputStream out) throws IOException {
+        SampleModel sm = image.getSampleModel();
+        ColorModel cm = image.getColorModel();
+        int colorType = getColorType(sm, cm);
+
+        out.write(SIGNATURE);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bos);
+        header.writeInt(image.getWidth());
+        header.writeInt(image.getHeight());
+        header.writeByte(8); // bit depth
+        header.writeByte(colorType);
+        header.writeByte(0); // deflate compression
+        header.writeByte(0); // adaptive filtering
+        header.writeByte(0); // no interlace
+        writeChunk(out, "IHDR", bos.toByteArray());
+
+        if (colorType == COLOR_PALETTE) {
+            IndexColorModel icm = (IndexColorModel) cm;
+            int size = icm.getMapSize();
+            byte[] palette = new byte[size * 3];
+            byte[] alphas = new byte[size];
+            int transparent = 0;
+            for (int i = 0; i < size; i++) {
+                palette[i * 3] = (byte) icm.getRed(i);
+                palette[i * 3 + 1] = (byte) icm.getGreen(i);
+                palette[i * 3 + 2] = (byte) icm.getBlue(i);
+                alphas[i] = (byte) icm.getAlpha(i);
+                if (icm.getAlpha(i) != 255) {
+                    // trailing opaque entries can be omitted
+                    transparent = i + 1;
+                }
+            }
+            writeChunk(out, "PLTE", palette);
+            if (transparent > 0) {
+                byte[] trns = new byte[transparent];
+                System.arraycopy(alphas, 0, trns, 0, transparent);
+                writeChunk(out, "tRNS", trns);
+            }
+        }
+    }
+
+    /**
+     * Reads and filters the specified rows, returning them in a single buffer, each row preceded by
+     * its filter type
+     */
+    static byte[] filter(RenderedImage image, int firstRow, int rows, boolean sub) {
+        int width = image.getWidth();
+        int bands = image.getSampleModel().getNumBands();
+        int rowSize = getRowSize(image);
+
+        // the raster might be a copy, or a view of the backing image, read only
+        Rectangle bounds = new Rectangle(image.getMinX(), image.getMinY() + firstRow, width, rows);
+        Raster raster = image.getData(bounds);
+        byte[] filtered = new byte[rowSize * rows];
+        byte[] row = new byte[width * bands];
+        for (int r = 0; r < rows; r++) {
+            raster.getDataElements(bounds.x, bounds.y + r, width, 1, row);
+            int offset = r * rowSize;
+            if (sub) {
+                filtered[offset] = FILTER_SUB;
+                System.arraycopy(row, 0, filtered, offset + 1, bands);
+                for (int i = bands; i < row.length; i++) {
+                    filtered[offset + 1 + i] = (byte) (row[i] - row[i - bands]);
+                }
+            } else {
+                filtered[offset] = FILTER_NONE;
+                System.arraycopy(row, 0, filtered, offset + 1, row.length);
+            }
+        }
+        return filtered;
+    }
+
+    /** Returns the two bytes zlib stream header for the given deflate level, see RFC 1950 */
+    static byte[] getZlibHeader(int level) {
+        int flevel = level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+        int cmf = 0x78;
+        int flg = flevel << 6;
+        flg += 31 - ((cmf << 8) + flg) % 31;
+        return new byte[] {(byte) cmf, (byte) flg};
+    }
+
+    /** Writes a chunk whose data is a portion of the given array */
+    static void writeChunk(OutputStream out, String type, byte[] data, int offset, int length)
+            throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(length);
+        dos.write(typeBytes);
+        dos.write(data, offset, length);
+        dos.writeInt((int) crc.getValue());
+    }
+
+    /** Writes a chunk whose data is the concatenation of the given parts */
+    static void writeChunk(OutputStream out, String type, byte[]... parts) throws IOException {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(length);
+        dos.write(typeBytes);
+        for (byte[] part : parts) {
+            dos.write(part);
+            crc.update(part);
+        }
+        dos.writeInt((int) crc.getValue());
+    }
+}
@@ -56,7 +56,7 @@ public RenderedImage writePNG(
      * SUB filtering is useful for raster images with "high" variation, otherwise we go for NONE,
      * empirically it provides better compression at lower effort
      */
-    private FilterType getFilterType(WMSMapContent mapContent) {
+    FilterType getFilterType(WMSMapContent mapContent) {
         RasterSymbolizerVisitor visitor = new RasterSymbolizerVisitor();
         if (mapContent != null) {
             for (Layer layer : mapContent.layers()) {
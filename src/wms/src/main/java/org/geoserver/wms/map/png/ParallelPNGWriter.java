@@ -0,0 +1,191 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map.png;
+
+import ar.com.hjg.pngj.FilterType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import org.geoserver.platform.ServiceException;
+import org.geoserver.wms.WMSMapContent;
+
+/**
+ * Encodes the image in PNG compressing horizontal strips of the image in parallel.
+ *
+ * <p>Each strip is filtered and deflated on its own, using the tail of the previous strip as the
+ * preset dictionary, and flushed to a byte boundary, so that the compressed strips can be
+ * concatenated in a single zlib stream, whose checksum is combined from the strips ones. The result
+ * is a standard PNG with a slightly lower compression ratio than the one produced by {@link
+ * PNGJWriter}, which is used as a fallback for the images whose layout is not supported (anything
+ * that is not 8 bits per sample, pixel interleaved, gray, RGB or paletted).
+ */
+public class ParallelPNGWriter extends PNGJWriter {
+
+    /** Target size of the uncompressed strips */
+    static final int STRIP_SIZE = 1024 * 1024;
+
+    /** Maximum size of a deflate dictionary */
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /** Shared among all requests, the number of threads matches the available processors */
+    static final ExecutorService EXECUTOR =
+            Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("ParallelPNGWriter-%d")
+                            .setDaemon(true)
+                            .build());
+
+    @Override
+    public RenderedImage writePNG(
+            RenderedImage image, OutputStream outStream, float quality, WMSMapContent mapContent) {
+        if (!isSupported(image)) {
+            return super.writePNG(image, outStream, quality, mapContent);
+        }
+        FilterType filterType = getFilterType(mapContent);
+        int level = PNGEncoding.getDeflateLevel(quality);
+        try {
+            writePNG(image, outStream, level, filterType == FilterType.FILTER_SUB);
+        } catch (Exception e) {
+            throw new ServiceException("Failed to encode the PNG", e);
+        }
+        return image;
+    }
+
+    /** Returns true if the image can be encoded in parallel */
+    public static boolean isSupported(RenderedImage image) {
+        return PNGEncoding.isSupported(image);
+    }
+
+    void writePNG(RenderedImage image, OutputStream out, int level, boolean sub)
+            throws IOException, InterruptedException, ExecutionException {
+        int height = image.getHeight();
+        int rowSize = PNGEncoding.getRowSize(image);
+        int stripRows = Math.max(1, STRIP_SIZE / rowSize);
+
+        List<Future<Strip>> strips = new ArrayList<>();
+        for (int y = 0; y < height; y += stripRows) {
+            int startRow = y;
+            int rows = Math.min(stripRows, height - y);
+            boolean last = y + rows >= height;
+            strips.add(EXECUTOR.submit(() -> compress(image, startRow, rows, last, level, sub)));
+        }
+
+        try {
+            PNGEncoding.writeHeader(image, out);
+            byte[] zlibHeader = PNGEncoding.getZlibHeader(level);
+            long adler = 1;
+            for (int i = 0; i < strips.size(); i++) {
+                Strip strip = strips.get(i).get();
+                adler = combineAdler32(adler, strip.adler, strip.length);
+                byte[] prefix = i == 0 ? zlibHeader : new byte[0];
+                byte[] suffix = new byte[0];
+                if (i == strips.size() - 1) {
+                    suffix =
+                            new byte[] {
+                                (byte) (adler >>> 24),
+                                (byte) (adler >>> 16),
+                                (byte) (adler >>> 8),
+                                (byte) adler
+                            };
+                }
+                PNGEncoding.writeChunk(out, "IDAT", prefix, strip.data, suffix);
+            }
+            PNGEncoding.writeChunk(out, "IEND");
+        } finally {
+            // don't keep the pool busy if writing failed
+            for (Future<Strip> strip : strips) {
+                strip.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Filters and compresses a strip of rows. The rows preceding the strip are filtered too, to be
+     * used as the deflate dictionary.
+     */
+    static Strip compress(
+            RenderedImage image, int startRow, int rows, boolean last, int level, boolean sub) {
+        int rowSize = PNGEncoding.getRowSize(image);
+        int dictionaryRows = Math.min(startRow, (DICTIONARY_SIZE + rowSize - 1) / rowSize);
+        byte[] filtered =
+                PNGEncoding.filter(image, startRow - dictionaryRows, rows + dictionaryRows, sub);
+
+        int start = dictionaryRows * rowSize;
+        int length = filtered.length - start;
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (start > 0) {
+                int dictionary = Math.min(start, DICTIONARY_SIZE);
+                deflater.setDictionary(filtered, start - dictionary, dictionary);
+            }
+            deflater.setInput(filtered, start, length);
+            if (last) {
+                deflater.finish();
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 4 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (true) {
+                int count =
+                        deflater.deflate(
+                                buffer,
+                                0,
+                                buffer.length,
+                                last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                bos.write(buffer, 0, count);
+                // a full buffer means there might be more output pending
+                if (last ? deflater.finished() : count < buffer.length) {
+                    break;
+                }
+            }
+
+            Adler32 adler = new Adler32();
+            adler.update(filtered, start, length);
+            return new Strip(bos.toByteArray(), adler.getValue(), length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Combines the Adler-32 checksums of two consecutive blocks, same as zlib adler32_combine */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        final long base = 65521;
+        long remainder = length2 % base;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % base;
+        sum1 += (adler2 & 0xffff) + base - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + base - remainder;
+        if (sum1 >= base) sum1 -= base;
+        if (sum1 >= base) sum1 -= base;
+        if (sum2 >= (base << 1)) sum2 -= (base << 1);
+        if (sum2 >= base) sum2 -= base;
+        return sum1 | (sum2 << 16);
+    }
+
+    /** A compressed strip */
+    static final class Strip {
+        final byte[] data;
+
+        final long adler;
+
+        final long length;
+
+        Strip(byte[] data, long adler, long length) {
+            this.data = data;
+            this.adler = adler;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map.png;
+
+import java.io.IOException;
+
+/**
+ * Extension point allowing to plug an alternative zlib compressor, typically a native one, in the
+ * PNG map encoding. Implementations are looked up in the application context, the PNGJ encoder,
+ * based on {@link java.util.zip.Deflater}, is used when none is available or willing to compress at
+ * the requested level.
+ */
+public interface ZlibCompressor {
+
+    /** Returns true if the compressor is available, and should be used for the given level */
+    boolean canCompress(int level);
+
+    /**
+     * Compresses the data in one shot, returning a complete zlib stream (header, deflate data and
+     * checksum)
+     *
+     * @param data The data to compress
+     * @param level The compression level, between 0 and 9
+     */
+    byte[] compress(byte[] data, int level) throws IOException;
+}
@@ -0,0 +1,79 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map.png;
+
+import ar.com.hjg.pngj.FilterType;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.geoserver.platform.GeoServerExtensions;
+import org.geoserver.platform.ServiceException;
+import org.geoserver.wms.WMSMapContent;
+
+/**
+ * Encodes the image in PNG compressing the image data in one shot with a {@link ZlibCompressor},
+ * such as the libdeflate one. Block compressors do not support streaming, so the whole filtered
+ * image is kept in memory while compressing. Falls back on {@link PNGJWriter} for the images whose
+ * layout is not supported.
+ */
+public class ZlibPNGWriter extends PNGJWriter {
+
+    /** Maximum size of a single IDAT chunk */
+    static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final ZlibCompressor compressor;
+
+    public ZlibPNGWriter(ZlibCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Returns the first {@link ZlibCompressor} in the application context willing to compress at
+     * the given level, or null if none is found
+     */
+    public static ZlibCompressor lookupCompressor(float quality) {
+        int level = PNGEncoding.getDeflateLevel(quality);
+        for (ZlibCompressor compressor : GeoServerExtensions.extensions(ZlibCompressor.class)) {
+            if (compressor.canCompress(level)) {
+                return compressor;
+            }
+        }
+        return null;
+    }
+
+    /** Returns true if the image can be encoded by this writer */
+    public static boolean isSupported(RenderedImage image) {
+        return PNGEncoding.isSupported(image);
+    }
+
+    @Override
+    public RenderedImage writePNG(
+            RenderedImage image, OutputStream outStream, float quality, WMSMapContent mapContent) {
+        if (!isSupported(image)) {
+            return super.writePNG(image, outStream, quality, mapContent);
+        }
+        FilterType filterType = getFilterType(mapContent);
+        int level = PNGEncoding.getDeflateLevel(quality);
+        try {
+            writePNG(image, outStream, level, filterType == FilterType.FILTER_SUB);
+        } catch (Exception e) {
+            throw new ServiceException("Failed to encode the PNG", e);
+        }
+        return image;
+    }
+
+    void writePNG(RenderedImage image, OutputStream out, int level, boolean sub)
+            throws IOException {
+        byte[] filtered = PNGEncoding.filter(image, 0, image.getHeight(), sub);
+        byte[] compressed = compressor.compress(filtered, level);
+
+        PNGEncoding.writeHeader(image, out);
+        for (int offset = 0; offset < compressed.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, compressed.length - offset);
+            PNGEncoding.writeChunk(out, "IDAT", compressed, offset, length);
+        }
+        PNGEncoding.writeChunk(out, "IEND");
+    }
+}
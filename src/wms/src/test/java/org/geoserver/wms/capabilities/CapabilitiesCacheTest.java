@@ -0,0 +1,133 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.capabilities;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.geoserver.catalog.Catalog;
+import org.geoserver.catalog.FeatureTypeInfo;
+import org.geoserver.config.GeoServer;
+import org.geoserver.data.test.MockData;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.wms.GetCapabilitiesRequest;
+import org.geoserver.wms.WMSInfo;
+import org.geoserver.wms.WMSTestSupport;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CapabilitiesCacheTest extends WMSTestSupport {
+
+    static final String CAPS_111 = "wms?version=1.1.1&request=GetCapabilities&service=WMS";
+
+    static final String CAPS_130 = "wms?version=1.3.0&request=GetCapabilities&service=WMS";
+
+    @BeforeClass
+    public static void enableCache() {
+        System.setProperty(CapabilitiesCache.CACHE_TTL_KEY, "600");
+    }
+
+    @AfterClass
+    public static void disableCache() {
+        System.clearProperty(CapabilitiesCache.CACHE_TTL_KEY);
+    }
+
+    @Before
+    public void clearCache() {
+        getCache().clear();
+    }
+
+    private CapabilitiesCache getCache() {
+        return applicationContext.getBean(CapabilitiesCache.class);
+    }
+
+    private CacheStatistics getStatistics() {
+        return getCache().getCacheStatistics().get(0);
+    }
+
+    @Test
+    public void testCachedPerVersion() throws Exception {
+        CacheStatistics before = getStatistics();
+        String caps111 = getAsString(CAPS_111);
+        String caps130 = getAsString(CAPS_130);
+        assertEquals(caps111, getAsString(CAPS_111));
+        assertEquals(caps130, getAsString(CAPS_130));
+        assertNotEquals(caps111, caps130);
+
+        CacheStatistics after = getStatistics();
+        assertEquals(2, after.getSize());
+        assertEquals(2, after.getMissCount() - before.getMissCount());
+        assertEquals(2, after.getHitCount() - before.getHitCount());
+        assertTrue(after.getWeight() > caps111.length() + caps130.length());
+    }
+
+    @Test
+    public void testParameterOrder() throws Exception {
+        getAsString(CAPS_130);
+        getAsString("wms?service=WMS&REQUEST=GetCapabilities&version=1.3.0");
+        assertEquals(1, getStatistics().getSize());
+    }
+
+    @Test
+    public void testInvalidateOnCatalogChange() throws Exception {
+        assertThat(getAsString(CAPS_130), not(containsString("A cached title")));
+
+        Catalog catalog = getCatalog();
+        FeatureTypeInfo ft = catalog.getFeatureTypeByName(getLayerId(MockData.BASIC_POLYGONS));
+        String title = ft.getTitle();
+        try {
+            ft.setTitle("A cached title");
+            catalog.save(ft);
+            assertEquals(0, getStatistics().getSize());
+            assertThat(getAsString(CAPS_130), containsString("A cached title"));
+        } finally {
+            ft = catalog.getFeatureTypeByName(getLayerId(MockData.BASIC_POLYGONS));
+            ft.setTitle(title);
+            catalog.save(ft);
+        }
+    }
+
+    @Test
+    public void testInvalidateOnServiceChange() throws Exception {
+        assertThat(getAsString(CAPS_111), not(containsString("A cached abstract")));
+
+        GeoServer gs = getGeoServer();
+        WMSInfo wms = gs.getService(WMSInfo.class);
+        String abstrct = wms.getAbstract();
+        try {
+            wms.setAbstract("A cached abstract");
+            gs.save(wms);
+            assertThat(getAsString(CAPS_111), containsString("A cached abstract"));
+        } finally {
+            wms = gs.getService(WMSInfo.class);
+            wms.setAbstract(abstrct);
+            gs.save(wms);
+        }
+    }
+
+    @Test
+    public void testVirtualServices() throws Exception {
+        String global = getAsString(CAPS_130);
+        String workspace = getAsString(MockData.CITE_PREFIX + "/" + CAPS_130);
+        assertNotEquals(global, workspace);
+        assertEquals(2, getStatistics().getSize());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache(0, 32);
+        GetCapabilitiesRequest request = new GetCapabilitiesRequest();
+        assertFalse(cache.isEnabled());
+        assertTrue(new CapabilitiesCache(60, 32).isEnabled());
+        assertTrue(cache.getKey(request).length() > 0);
+    }
+}
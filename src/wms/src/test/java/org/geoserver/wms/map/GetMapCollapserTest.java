@@ -0,0 +1,222 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aopalliance.intercept.MethodInvocation;
+import org.geoserver.ows.Dispatcher;
+import org.geoserver.ows.Request;
+import org.geoserver.platform.Operation;
+import org.geoserver.platform.Service;
+import org.geoserver.wms.GetMapRequest;
+import org.geoserver.wms.WMSTestSupport;
+import org.geoserver.wms.WebMap;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+public class GetMapCollapserTest extends WMSTestSupport {
+
+    static final byte[] CONTENTS = "the map".getBytes(StandardCharsets.UTF_8);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void cleanup() {
+        executor.shutdownNow();
+        Dispatcher.REQUEST.remove();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testCollapseConcurrentRequests() throws Throwable {
+        GetMapCollapser collapser = new GetMapCollapser(true);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renderings = new AtomicInteger();
+        MethodInvocation invocation =
+                invocation(
+                        () -> {
+                            renderings.incrementAndGet();
+                            rendering.countDown();
+                            release.await();
+                            RawMap map = new RawMap(null, CONTENTS, "image/png");
+                            map.setResponseHeader("test-header", "test-value");
+                            return map;
+                        });
+
+        Future<WebMap> first = executor.submit(() -> invoke(collapser, invocation));
+        assertTrue(rendering.await(10, TimeUnit.SECONDS));
+        Thread[] follower = new Thread[1];
+        Future<WebMap> second =
+                executor.submit(
+                        () -> {
+                            follower[0] = Thread.currentThread();
+                            return invoke(collapser, invocation);
+                        });
+        // wait for the second request to be waiting for the first one
+        for (int i = 0; i < 200; i++) {
+            if (follower[0] != null && follower[0].getState() == Thread.State.TIMED_WAITING) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        WebMap map1 = first.get(10, TimeUnit.SECONDS);
+        WebMap map2 = second.get(10, TimeUnit.SECONDS);
+        assertEquals(1, renderings.get());
+        assertEquals(1, collapser.getCollapsedCount());
+        for (WebMap map : new WebMap[] {map1, map2}) {
+            assertEquals("image/png", map.getMimeType());
+            assertEquals("test-value", map.getResponseHeaders()[0][1]);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ((RawMap) map).writeTo(bos);
+            assertArrayEquals(CONTENTS, bos.toByteArray());
+        }
+    }
+
+    @Test
+    public void testWaitTimeout() throws Throwable {
+        GetMapCollapser collapser = new GetMapCollapser(true, 100);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renderings = new AtomicInteger();
+        MethodInvocation invocation =
+                invocation(
+                        () -> {
+                            // only the first rendering is stuck
+                            if (renderings.incrementAndGet() == 1) {
+                                rendering.countDown();
+                                release.await();
+                            }
+                            return new RawMap(null, CONTENTS, "image/png");
+                        });
+
+        Future<WebMap> first = executor.submit(() -> invoke(collapser, invocation));
+        try {
+            assertTrue(rendering.await(10, TimeUnit.SECONDS));
+            // gives up waiting and renders on its own
+            WebMap map =
+                    executor.submit(() -> invoke(collapser, invocation)).get(10, TimeUnit.SECONDS);
+            assertEquals("image/png", map.getMimeType());
+            assertEquals(2, renderings.get());
+            assertEquals(0, collapser.getCollapsedCount());
+        } finally {
+            release.countDown();
+        }
+        first.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSingleRequestUntouched() throws Throwable {
+        GetMapCollapser collapser = new GetMapCollapser(true);
+        RawMap map = new RawMap(null, CONTENTS, "image/png");
+        MethodInvocation invocation = invocation(() -> map);
+        assertSame(map, invoke(collapser, invocation));
+        assertEquals(0, collapser.getCollapsedCount());
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        GetMapCollapser collapser = new GetMapCollapser(true);
+        Request request = request(getMapRequest("LAYERS", "topp:states", "FORMAT", "image/png"));
+        String key = collapser.getKey(invocation(request), request);
+
+        // parameter order and case do not matter
+        Request other = request(getMapRequest("format", "image/png", "layers", "topp:states"));
+        assertEquals(key, collapser.getKey(invocation(other), other));
+
+        // but values do
+        other = request(getMapRequest("LAYERS", "topp:states", "FORMAT", "image/jpeg"));
+        assertNotEquals(key, collapser.getKey(invocation(other), other));
+
+        // and so does the user
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken("admin", "geoserver"));
+        assertNotEquals(key, collapser.getKey(invocation(request), request));
+    }
+
+    @Test
+    public void testSeedingRequestsNotCollapsed() throws Exception {
+        GetMapCollapser collapser = new GetMapCollapser(true);
+        Request request =
+                request(
+                        getMapRequest(
+                                "LAYERS",
+                                "topp:states",
+                                GetMapCollapser.GWC_SEED_INTERCEPT_TOKEN,
+                                "true"));
+        assertEquals(null, collapser.getKey(invocation(request), request));
+    }
+
+    interface Renderer {
+        WebMap render() throws Exception;
+    }
+
+    private WebMap invoke(GetMapCollapser collapser, MethodInvocation invocation) throws Exception {
+        Dispatcher.REQUEST.set(request((GetMapRequest) invocation.getArguments()[0]));
+        try {
+            return (WebMap) collapser.invoke(invocation);
+        } catch (Exception e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        } finally {
+            Dispatcher.REQUEST.remove();
+        }
+    }
+
+    private MethodInvocation invocation(Renderer renderer) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        GetMapRequest request = getMapRequest("LAYERS", "topp:states", "FORMAT", "image/png");
+        when(invocation.getArguments()).thenReturn(new Object[] {request});
+        when(invocation.proceed()).thenAnswer(i -> renderer.render());
+        return invocation;
+    }
+
+    private MethodInvocation invocation(Request request) {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getArguments()).thenReturn(request.getOperation().getParameters());
+        return invocation;
+    }
+
+    private GetMapRequest getMapRequest(String... kvp) {
+        Map<String, String> rawKvp = new HashMap<>();
+        for (int i = 0; i < kvp.length; i += 2) {
+            rawKvp.put(kvp[i], kvp[i + 1]);
+        }
+        GetMapRequest request = new GetMapRequest();
+        request.setRawKvp(rawKvp);
+        request.setFormat("image/png");
+        return request;
+    }
+
+    private Request request(GetMapRequest getMap) {
+        Service service = (Service) applicationContext.getBean("wms-1_1_1-ServiceDescriptor");
+        Request request = new Request();
+        request.setPath("wms");
+        request.setOperation(new Operation("GetMap", service, null, new Object[] {getMap}));
+        return request;
+    }
+}
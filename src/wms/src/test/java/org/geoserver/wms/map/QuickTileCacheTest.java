@@ -6,11 +6,28 @@
 package org.geoserver.wms.map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.awt.Point;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.util.Collections;
+import java.util.Set;
+import javax.xml.namespace.QName;
+import org.geoserver.system.status.CacheStatistics;
+import org.geoserver.wfs.TransactionEvent;
+import org.geoserver.wfs.TransactionEventType;
+import org.geoserver.wms.GetMapRequest;
+import org.geoserver.wms.map.QuickTileCache.MapKey;
+import org.geoserver.wms.map.QuickTileCache.MetaTileKey;
+import org.geotools.feature.NameImpl;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
 import org.junit.Test;
 import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.type.Name;
 
 public class QuickTileCacheTest {
     QuickTileCache cache = new QuickTileCache();
@@ -68,4 +85,85 @@ public void testInnerTileOffsets() {
         assertEquals(new Point(0, 2), cache.getTileOffsetsInMeta(box1, meta));
         assertEquals(new Point(1, 2), cache.getTileOffsetsInMeta(box2, meta));
     }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        // 9 ARGB tiles of 256x256, 256KB each
+        long metaTileSize = 9 * 256 * 256 * 4;
+        QuickTileCache cache = new QuickTileCache(metaTileSize * 2);
+        GetMapRequest request = getTileRequest();
+
+        MetaTileKey k1 = metaTileKey("k1", "topp", "states");
+        MetaTileKey k2 = metaTileKey("k2", "topp", "states");
+        MetaTileKey k3 = metaTileKey("k3", "topp", "states");
+        cache.storeTiles(k1, metaTile());
+        cache.storeTiles(k2, metaTile());
+        assertEquals(metaTileSize * 2, cache.getSize());
+
+        // touch k1, so that k2 becomes the least recently used
+        assertNotNull(cache.getTile(k1, request));
+        cache.storeTiles(k3, metaTile());
+        assertEquals(metaTileSize * 2, cache.getSize());
+        assertNotNull(cache.getTile(k1, request));
+        assertNull(cache.getTile(k2, request));
+        assertNotNull(cache.getTile(k3, request));
+
+        CacheStatistics stats = cache.getCacheStatistics().get(0);
+        assertEquals(2, stats.getSize());
+        assertEquals(metaTileSize * 2, stats.getWeight());
+        assertEquals(metaTileSize * 2, stats.getMaxWeight());
+        assertEquals(3, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getEvictionCount());
+    }
+
+    @Test
+    public void testTooLargeNotCached() {
+        QuickTileCache cache = new QuickTileCache(1024);
+        MetaTileKey key = metaTileKey("k1", "topp", "states");
+        cache.storeTiles(key, metaTile());
+        assertEquals(0, cache.getSize());
+        assertNull(cache.getTile(key, getTileRequest()));
+    }
+
+    @Test
+    public void testInvalidateLayerOnTransaction() {
+        QuickTileCache cache = new QuickTileCache();
+        GetMapRequest request = getTileRequest();
+        MetaTileKey states = metaTileKey("states", "topp", "states");
+        MetaTileKey roads = metaTileKey("roads", "topp", "roads");
+        cache.storeTiles(states, metaTile());
+        cache.storeTiles(roads, metaTile());
+
+        TransactionEvent event =
+                new TransactionEvent(
+                        TransactionEventType.POST_UPDATE, null, new QName("topp", "states"), null);
+        cache.dataStoreChange(event);
+        assertNull(cache.getTile(states, request));
+        assertNotNull(cache.getTile(roads, request));
+    }
+
+    private MetaTileKey metaTileKey(String definition, String namespace, String layer) {
+        Set<Name> layers = Collections.singleton(new NameImpl(namespace, layer));
+        MapKey mapKey = new MapKey(definition, 0.01, new Point2D.Double(0, 0), layers);
+        return new MetaTileKey(
+                mapKey,
+                new Point(0, 0),
+                new ReferencedEnvelope(0, 30, 0, 30, DefaultEngineeringCRS.GENERIC_2D));
+    }
+
+    private GetMapRequest getTileRequest() {
+        GetMapRequest request = new GetMapRequest();
+        request.setBbox(new Envelope(0, 10, 0, 10));
+        request.setCrs(DefaultEngineeringCRS.GENERIC_2D);
+        return request;
+    }
+
+    private RenderedImage[] metaTile() {
+        RenderedImage[] tiles = new RenderedImage[9];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+        }
+        return tiles;
+    }
 }
@@ -15,8 +15,11 @@
 import java.awt.image.IndexColorModel;
 import java.io.InputStream;
 import javax.imageio.ImageIO;
+import org.geoserver.config.GeoServer;
 import org.geoserver.data.test.MockData;
 import org.geoserver.data.test.SystemTestData;
+import org.geoserver.wms.WMS;
+import org.geoserver.wms.WMSInfo;
 import org.geoserver.wms.WMSTestSupport;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -146,4 +149,41 @@ public void testPng8Translucent() throws Exception {
             assertEquals(Transparency.TRANSLUCENT, cm.getTransparency());
         }
     }
+
+    @Test
+    public void testPngParallelEncoding() throws Exception {
+        GeoServer gs = getGeoServer();
+        WMSInfo wms = gs.getService(WMSInfo.class);
+        wms.getMetadata().put(WMS.PNG_PARALLEL_ENCODING, true);
+        wms.getMetadata().put(WMS.PNG_PARALLEL_THRESHOLD, 0);
+        gs.save(wms);
+        try {
+            for (String format : new String[] {"image/png", "image/png8"}) {
+                MockHttpServletResponse response =
+                        getAsServletResponse(
+                                "wms?bbox="
+                                        + bbox
+                                        + "&styles=&layers="
+                                        + layers
+                                        + "&Format="
+                                        + format
+                                        + "&request=GetMap"
+                                        + "&width=550"
+                                        + "&height=250"
+                                        + "&srs=EPSG:4326&transparent=true");
+                assertTrue(response.getContentType().startsWith("image/png"));
+
+                try (InputStream is = getBinaryInputStream(response)) {
+                    BufferedImage bi = ImageIO.read(is);
+                    assertEquals(550, bi.getWidth());
+                    assertEquals(250, bi.getHeight());
+                    assertTrue(bi.getColorModel().hasAlpha());
+                }
+            }
+        } finally {
+            wms.getMetadata().remove(WMS.PNG_PARALLEL_ENCODING);
+            wms.getMetadata().remove(WMS.PNG_PARALLEL_THRESHOLD);
+            gs.save(wms);
+        }
+    }
 }
@@ -0,0 +1,98 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map.png;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.Adler32;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+
+public class ParallelPNGWriterTest {
+
+    @Test
+    public void testSupported() {
+        assertTrue(ParallelPNGWriter.isSupported(image(BufferedImage.TYPE_4BYTE_ABGR, 10, 10)));
+        assertTrue(ParallelPNGWriter.isSupported(image(BufferedImage.TYPE_3BYTE_BGR, 10, 10)));
+        assertTrue(ParallelPNGWriter.isSupported(image(BufferedImage.TYPE_BYTE_GRAY, 10, 10)));
+        assertTrue(ParallelPNGWriter.isSupported(image(BufferedImage.TYPE_BYTE_INDEXED, 10, 10)));
+        // packed and premultiplied images go through the PNGJ writer
+        assertFalse(ParallelPNGWriter.isSupported(image(BufferedImage.TYPE_INT_ARGB, 10, 10)));
+        assertFalse(ParallelPNGWriter.isSupported(image(BufferedImage.TYPE_BYTE_BINARY, 10, 10)));
+        assertFalse(
+                ParallelPNGWriter.isSupported(image(BufferedImage.TYPE_4BYTE_ABGR_PRE, 10, 10)));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        int[] types = {
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_BYTE_INDEXED
+        };
+        for (int type : types) {
+            // several strips, the last one partial
+            BufferedImage image = image(type, 1500, 1000);
+            assertRoundTrip(image, 6, false);
+            assertRoundTrip(image, 1, true);
+            // single pixel, single strip
+            assertRoundTrip(image(type, 1, 1), 6, true);
+        }
+    }
+
+    @Test
+    public void testCombineAdler32() {
+        byte[] data = new byte[100_000];
+        new Random(0).nextBytes(data);
+        Adler32 full = new Adler32();
+        full.update(data);
+        Adler32 first = new Adler32();
+        first.update(data, 0, 30_000);
+        Adler32 second = new Adler32();
+        second.update(data, 30_000, 70_000);
+        assertEquals(
+                full.getValue(),
+                ParallelPNGWriter.combineAdler32(first.getValue(), second.getValue(), 70_000));
+    }
+
+    private void assertRoundTrip(BufferedImage image, int level, boolean sub) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new ParallelPNGWriter().writePNG(image, bos, level, sub);
+        BufferedImage read = ImageIO.read(new ByteArrayInputStream(bos.toByteArray()));
+        assertEquals(image.getWidth(), read.getWidth());
+        assertEquals(image.getHeight(), read.getHeight());
+        assertEquals(image.getColorModel().hasAlpha(), read.getColorModel().hasAlpha());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(image.getRGB(x, y), read.getRGB(x, y));
+            }
+        }
+    }
+
+    private BufferedImage image(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            graphics.setColor(new Color(random.nextInt(), true));
+            graphics.fillOval(
+                    random.nextInt(width + 1) - 50,
+                    random.nextInt(height + 1) - 50,
+                    random.nextInt(300),
+                    random.nextInt(300));
+        }
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,92 @@
+/* (c) 2022 Open Source Geospatial Foundation - all rights reserved
+ * This code is licensed under the GPL 2.0 license, available at the root
+ * application directory.
+ */
+package org.geoserver.wms.map.png;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+
+public class ZlibPNGWriterTest {
+
+    /** Pure Java compressor, standing in for the native one */
+    static class DeflaterCompressor implements ZlibCompressor {
+
+        int calls;
+
+        @Override
+        public boolean canCompress(int level) {
+            return true;
+        }
+
+        @Override
+        public byte[] compress(byte[] data, int level) throws IOException {
+            calls++;
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, new Deflater(level))) {
+                dos.write(data);
+            }
+            return bos.toByteArray();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        int[] types = {
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_BYTE_INDEXED
+        };
+        for (int type : types) {
+            DeflaterCompressor compressor = new DeflaterCompressor();
+            BufferedImage image = image(type, 1000, 800);
+            assertRoundTrip(new ZlibPNGWriter(compressor), image, 0, false);
+            assertRoundTrip(new ZlibPNGWriter(compressor), image, 9, true);
+            assertEquals(2, compressor.calls);
+        }
+    }
+
+    private void assertRoundTrip(ZlibPNGWriter writer, BufferedImage image, int level, boolean sub)
+            throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writer.writePNG(image, bos, level, sub);
+        BufferedImage read = ImageIO.read(new ByteArrayInputStream(bos.toByteArray()));
+        assertEquals(image.getWidth(), read.getWidth());
+        assertEquals(image.getHeight(), read.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(image.getRGB(x, y), read.getRGB(x, y));
+            }
+        }
+        assertTrue(ZlibPNGWriter.isSupported(image));
+    }
+
+    private BufferedImage image(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            graphics.setColor(new Color(random.nextInt(), true));
+            graphics.fillOval(
+                    random.nextInt(width) - 50,
+                    random.nextInt(height) - 50,
+                    random.nextInt(300),
+                    random.nextInt(300));
+        }
+        graphics.dispose();
+        return image;
+    }
+}